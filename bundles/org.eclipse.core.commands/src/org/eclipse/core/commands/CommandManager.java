@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2012 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -254,6 +254,33 @@ public final class CommandManager extends HandleObjectManager implements
 	 */
 	private final Set definedParameterTypeIds = new HashSet();
 
+	/**
+	 * The number of nested calls to {@link #deferUpdates(boolean)} that defer
+	 * the events of this manager.
+	 */
+	private int deferCount = 0;
+
+	/**
+	 * The category identifiers that were defined before the first change in
+	 * the current batch. This value is <code>null</code> if the events are not
+	 * deferred, or if no category changed yet.
+	 */
+	private Set deferredCategoryIds = null;
+
+	/**
+	 * The command identifiers that were defined before the first change in the
+	 * current batch. This value is <code>null</code> if the events are not
+	 * deferred, or if no command changed yet.
+	 */
+	private Set deferredCommandIds = null;
+
+	/**
+	 * The command parameter type identifiers that were defined before the
+	 * first change in the current batch. This value is <code>null</code> if
+	 * the events are not deferred, or if no parameter type changed yet.
+	 */
+	private Set deferredParameterTypeIds = null;
+
 	/**
 	 * The execution listener for this command manager. This just forwards
 	 * events from commands controlled by this manager to listeners on this
@@ -319,10 +346,9 @@ public final class CommandManager extends HandleObjectManager implements
 
 			// Add an execution listener to every command.
 			executionListener = new ExecutionListener();
-			final Iterator commandItr = handleObjectsById.values().iterator();
-			while (commandItr.hasNext()) {
-				final Command command = (Command) commandItr.next();
-				command.addExecutionListener(executionListener);
+			final Command[] commands = getAllCommands();
+			for (int i = 0; i < commands.length; i++) {
+				commands[i].addExecutionListener(executionListener);
 			}
 
 		}
@@ -340,12 +366,15 @@ public final class CommandManager extends HandleObjectManager implements
 			final Category category = categoryEvent.getCategory();
 			final String categoryId = category.getId();
 			final boolean categoryIdAdded = category.isDefined();
+			if (deferCount > 0 && deferredCategoryIds == null) {
+				deferredCategoryIds = new HashSet(definedCategoryIds);
+			}
 			if (categoryIdAdded) {
 				definedCategoryIds.add(categoryId);
 			} else {
 				definedCategoryIds.remove(categoryId);
 			}
-			if (isListenerAttached()) {
+			if (deferCount == 0 && isListenerAttached()) {
 				fireCommandManagerChanged(new CommandManagerEvent(this, null,
 						false, false, categoryId, categoryIdAdded, true));
 			}
@@ -362,18 +391,143 @@ public final class CommandManager extends HandleObjectManager implements
 			final Command command = commandEvent.getCommand();
 			final String commandId = command.getId();
 			final boolean commandIdAdded = command.isDefined();
+			if (deferCount > 0 && deferredCommandIds == null) {
+				deferredCommandIds = getDefinedHandleObjectIds();
+			}
 			if (commandIdAdded) {
 				definedHandleObjects.add(command);
 			} else {
 				definedHandleObjects.remove(command);
 			}
-			if (isListenerAttached()) {
+			if (deferCount == 0 && isListenerAttached()) {
 				fireCommandManagerChanged(new CommandManagerEvent(this,
 						commandId, commandIdAdded, true, null, false, false));
 			}
 		}
 	}
 
+	/**
+	 * <p>
+	 * Informs the manager that a batch of definitions has started or ended,
+	 * for example while reading the commands from the registry. While the
+	 * updates are deferred, commands, categories and parameter types that
+	 * become defined or undefined do not notify the listeners of this manager.
+	 * When the batch ends, one event is sent with the identifiers that were
+	 * defined before the batch, see
+	 * {@link CommandManagerEvent#getPreviouslyDefinedCommandIds()}. If the
+	 * batch changed a single identifier, the event describes that change as if
+	 * the updates had not been deferred.
+	 * </p>
+	 * <p>
+	 * Calls may be nested. <b>Note:</b> You must insure that if you call
+	 * <code>deferUpdates(true)</code> that nothing in your batched operation
+	 * will prevent the matching call to <code>deferUpdates(false)</code>.
+	 * </p>
+	 * 
+	 * @param defer
+	 *            true when starting a batch operation false when ending the
+	 *            operation
+	 * @since 3.7
+	 */
+	public final void deferUpdates(final boolean defer) {
+		if (defer) {
+			deferCount++;
+			return;
+		}
+		if (deferCount == 0) {
+			return;
+		}
+		deferCount--;
+		if (deferCount > 0) {
+			return;
+		}
+
+		final Set previousCategoryIds = deferredCategoryIds;
+		final Set previousCommandIds = deferredCommandIds;
+		final Set previousParameterTypeIds = deferredParameterTypeIds;
+		deferredCategoryIds = null;
+		deferredCommandIds = null;
+		deferredParameterTypeIds = null;
+
+		final Set currentCommandIds = previousCommandIds == null ? null
+				: getDefinedHandleObjectIds();
+		final Set categoryChanges = difference(previousCategoryIds,
+				definedCategoryIds);
+		final Set commandChanges = difference(previousCommandIds,
+				currentCommandIds);
+		final Set parameterTypeChanges = difference(previousParameterTypeIds,
+				definedParameterTypeIds);
+		final int changes = categoryChanges.size() + commandChanges.size()
+				+ parameterTypeChanges.size();
+		if (changes == 0 || !isListenerAttached()) {
+			return;
+		}
+
+		if (changes == 1) {
+			// describe a single change the same way as without deferring
+			if (!categoryChanges.isEmpty()) {
+				final String categoryId = (String) categoryChanges.iterator()
+						.next();
+				fireCommandManagerChanged(new CommandManagerEvent(this, null,
+						false, false, categoryId, definedCategoryIds
+								.contains(categoryId), true));
+			} else if (!commandChanges.isEmpty()) {
+				final String commandId = (String) commandChanges.iterator()
+						.next();
+				fireCommandManagerChanged(new CommandManagerEvent(this,
+						commandId, currentCommandIds.contains(commandId), true,
+						null, false, false));
+			} else {
+				final String parameterTypeId = (String) parameterTypeChanges
+						.iterator().next();
+				fireCommandManagerChanged(new CommandManagerEvent(this,
+						parameterTypeId, definedParameterTypeIds
+								.contains(parameterTypeId), true));
+			}
+			return;
+		}
+
+		fireCommandManagerChanged(new CommandManagerEvent(this,
+				categoryChanges.isEmpty() ? null : previousCategoryIds,
+				commandChanges.isEmpty() ? null : previousCommandIds,
+				parameterTypeChanges.isEmpty() ? null
+						: previousParameterTypeIds));
+	}
+
+	/**
+	 * Returns the identifiers that are in only one of the two sets.
+	 * 
+	 * @param previousIds
+	 *            The identifiers before a batch of changes; may be
+	 *            <code>null</code> if nothing changed.
+	 * @param currentIds
+	 *            The identifiers after the batch of changes.
+	 * @return The identifiers that were added or removed; never
+	 *         <code>null</code>.
+	 */
+	private static final Set difference(final Set previousIds,
+			final Set currentIds) {
+		if (previousIds == null) {
+			return Collections.EMPTY_SET;
+		}
+		final Set changedIds = new HashSet();
+		Iterator idItr = previousIds.iterator();
+		while (idItr.hasNext()) {
+			final Object id = idItr.next();
+			if (!currentIds.contains(id)) {
+				changedIds.add(id);
+			}
+		}
+		idItr = currentIds.iterator();
+		while (idItr.hasNext()) {
+			final Object id = idItr.next();
+			if (!previousIds.contains(id)) {
+				changedIds.add(id);
+			}
+		}
+		return changedIds;
+	}
+
 	/**
 	 * Sets the name and description of the category for uncategorized commands.
 	 * This is the category that will be returned if
@@ -498,8 +652,10 @@ public final class CommandManager extends HandleObjectManager implements
 	 * @since 3.2
 	 */
 	public final Command[] getAllCommands() {
-		return (Command[]) handleObjectsById.values().toArray(
-				new Command[handleObjectsById.size()]);
+		synchronized (handleObjectsById) {
+			return (Command[]) handleObjectsById.values().toArray(
+					new Command[handleObjectsById.size()]);
+		}
 	}
 
 	/**
@@ -521,14 +677,16 @@ public final class CommandManager extends HandleObjectManager implements
 
 		checkId(categoryId);
 
-		Category category = (Category) categoriesById.get(categoryId);
-		if (category == null) {
-			category = new Category(categoryId);
-			categoriesById.put(categoryId, category);
-			category.addCategoryListener(this);
-		}
+		synchronized (categoriesById) {
+			Category category = (Category) categoriesById.get(categoryId);
+			if (category == null) {
+				category = new Category(categoryId);
+				categoriesById.put(categoryId, category);
+				category.addCategoryListener(this);
+			}
 
-		return category;
+			return category;
+		}
 	}
 
 	/**
@@ -545,19 +703,21 @@ public final class CommandManager extends HandleObjectManager implements
 	public final Command getCommand(final String commandId) {
 		checkId(commandId);
 
-		Command command = (Command) handleObjectsById.get(commandId);
-		if (command == null) {
-			command = new Command(commandId);
-			command.shouldFireEvents = shouldCommandFireEvents;
-			handleObjectsById.put(commandId, command);
-			command.addCommandListener(this);
+		synchronized (handleObjectsById) {
+			Command command = (Command) handleObjectsById.get(commandId);
+			if (command == null) {
+				command = new Command(commandId);
+				command.shouldFireEvents = shouldCommandFireEvents;
+				handleObjectsById.put(commandId, command);
+				command.addCommandListener(this);
 
-			if (executionListener != null) {
-				command.addExecutionListener(executionListener);
+				if (executionListener != null) {
+					command.addExecutionListener(executionListener);
+				}
 			}
-		}
 
-		return command;
+			return command;
+		}
 	}
 
 	/**
@@ -773,15 +933,17 @@ public final class CommandManager extends HandleObjectManager implements
 	public final ParameterType getParameterType(final String parameterTypeId) {
 		checkId(parameterTypeId);
 
-		ParameterType parameterType = (ParameterType) parameterTypesById
-				.get(parameterTypeId);
-		if (parameterType == null) {
-			parameterType = new ParameterType(parameterTypeId);
-			parameterTypesById.put(parameterTypeId, parameterType);
-			parameterType.addListener(this);
-		}
+		synchronized (parameterTypesById) {
+			ParameterType parameterType = (ParameterType) parameterTypesById
+					.get(parameterTypeId);
+			if (parameterType == null) {
+				parameterType = new ParameterType(parameterTypeId);
+				parameterTypesById.put(parameterTypeId, parameterType);
+				parameterType.addListener(this);
+			}
 
-		return parameterType;
+			return parameterType;
+		}
 	}
 
 	/**
@@ -796,12 +958,18 @@ public final class CommandManager extends HandleObjectManager implements
 					.getParameterType();
 			final String parameterTypeId = parameterType.getId();
 			final boolean parameterTypeIdAdded = parameterType.isDefined();
+			if (deferCount > 0 && deferredParameterTypeIds == null) {
+				deferredParameterTypeIds = new HashSet(definedParameterTypeIds);
+			}
 			if (parameterTypeIdAdded) {
 				definedParameterTypeIds.add(parameterTypeId);
 			} else {
 				definedParameterTypeIds.remove(parameterTypeId);
 			}
 
+			if (deferCount > 0) {
+				return;
+			}
 			fireCommandManagerChanged(new CommandManagerEvent(this,
 					parameterTypeId, parameterTypeIdAdded, true));
 		}
@@ -839,10 +1007,9 @@ public final class CommandManager extends HandleObjectManager implements
 			executionListeners = null;
 
 			// Remove the execution listener to every command.
-			final Iterator commandItr = handleObjectsById.values().iterator();
-			while (commandItr.hasNext()) {
-				final Command command = (Command) commandItr.next();
-				command.removeExecutionListener(executionListener);
+			final Command[] commands = getAllCommands();
+			for (int i = 0; i < commands.length; i++) {
+				commands[i].removeExecutionListener(executionListener);
 			}
 			executionListener = null;
 
@@ -870,9 +1037,9 @@ public final class CommandManager extends HandleObjectManager implements
 		}
 
 		// Now, set-up the handlers on all of the existing commands.
-		final Iterator commandItr = handleObjectsById.values().iterator();
-		while (commandItr.hasNext()) {
-			final Command command = (Command) commandItr.next();
+		final Command[] commands = getAllCommands();
+		for (int i = 0; i < commands.length; i++) {
+			final Command command = commands[i];
 			final String commandId = command.getId();
 			final Object value = handlersByCommandId.get(commandId);
 			if (value instanceof IHandler) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2006 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,8 @@
  *******************************************************************************/
 package org.eclipse.core.commands;
 
+import java.util.Set;
+
 /**
  * <p>
  * An event indicating that the set of defined command identifiers has changed.
@@ -83,6 +85,34 @@ public final class CommandManagerEvent {
 	 */
 	private final CommandManager commandManager;
 
+	/**
+	 * The set of category identifiers that were defined before a batch of
+	 * changes. This value is <code>null</code> if this event does not describe
+	 * a batch of changes, or if the defined categories did not change.
+	 * 
+	 * @since 3.7
+	 */
+	private final Set previouslyDefinedCategoryIds;
+
+	/**
+	 * The set of command identifiers that were defined before a batch of
+	 * changes. This value is <code>null</code> if this event does not describe
+	 * a batch of changes, or if the defined commands did not change.
+	 * 
+	 * @since 3.7
+	 */
+	private final Set previouslyDefinedCommandIds;
+
+	/**
+	 * The set of command parameter type identifiers that were defined before a
+	 * batch of changes. This value is <code>null</code> if this event does not
+	 * describe a batch of changes, or if the defined parameter types did not
+	 * change.
+	 * 
+	 * @since 3.7
+	 */
+	private final Set previouslyDefinedParameterTypeIds;
+
 	/**
 	 * Creates a new <code>CommandManagerEvent</code> instance to describe
 	 * changes to commands and/or categories.
@@ -132,6 +162,9 @@ public final class CommandManagerEvent {
 		
 		// this constructor only works for changes to commands and categories
 		this.parameterTypeId = null;
+		this.previouslyDefinedCategoryIds = null;
+		this.previouslyDefinedCommandIds = null;
+		this.previouslyDefinedParameterTypeIds = null;
 
 		int changedValues = 0;
 		if (categoryIdChanged && categoryIdAdded) {
@@ -182,6 +215,9 @@ public final class CommandManagerEvent {
 		this.categoryId = null;
 
 		this.parameterTypeId = parameterTypeId;
+		this.previouslyDefinedCategoryIds = null;
+		this.previouslyDefinedCommandIds = null;
+		this.previouslyDefinedParameterTypeIds = null;
 
 		int changedValues = 0;
 		if (parameterTypeIdChanged && parameterTypeIdAdded) {
@@ -191,6 +227,59 @@ public final class CommandManagerEvent {
 		this.changedValues = changedValues;
 	}
 
+	/**
+	 * Creates a new <code>CommandManagerEvent</code> instance to describe a
+	 * batch of changes to commands, categories and command parameter types, as
+	 * sent at the end of {@link CommandManager#deferUpdates(boolean)}. The
+	 * identifiers that were added or removed can be computed by comparing the
+	 * given sets with the identifiers that are defined now.
+	 * 
+	 * @param commandManager
+	 *            the instance of the interface that changed; must not be
+	 *            <code>null</code>.
+	 * @param previouslyDefinedCategoryIds
+	 *            The category identifiers that were defined before the batch;
+	 *            <code>null</code> if the defined categories did not change.
+	 * @param previouslyDefinedCommandIds
+	 *            The command identifiers that were defined before the batch;
+	 *            <code>null</code> if the defined commands did not change.
+	 * @param previouslyDefinedParameterTypeIds
+	 *            The command parameter type identifiers that were defined
+	 *            before the batch; <code>null</code> if the defined parameter
+	 *            types did not change.
+	 * @since 3.7
+	 */
+	public CommandManagerEvent(final CommandManager commandManager,
+			final Set previouslyDefinedCategoryIds,
+			final Set previouslyDefinedCommandIds,
+			final Set previouslyDefinedParameterTypeIds) {
+		if (commandManager == null) {
+			throw new NullPointerException(
+					"An event must refer to its command manager"); //$NON-NLS-1$
+		}
+
+		this.commandManager = commandManager;
+		this.commandId = null;
+		this.categoryId = null;
+		this.parameterTypeId = null;
+		// listeners unaware of batches still see which kinds of identifiers
+		// changed
+		int changedValues = 0;
+		if (previouslyDefinedCategoryIds != null) {
+			changedValues |= CHANGED_CATEGORY_DEFINED;
+		}
+		if (previouslyDefinedCommandIds != null) {
+			changedValues |= CHANGED_COMMAND_DEFINED;
+		}
+		if (previouslyDefinedParameterTypeIds != null) {
+			changedValues |= CHANGED_PARAMETER_TYPE_DEFINED;
+		}
+		this.changedValues = changedValues;
+		this.previouslyDefinedCategoryIds = previouslyDefinedCategoryIds;
+		this.previouslyDefinedCommandIds = previouslyDefinedCommandIds;
+		this.previouslyDefinedParameterTypeIds = previouslyDefinedParameterTypeIds;
+	}
+
 	/**
 	 * Returns the category identifier that was added or removed.
 	 * 
@@ -233,6 +322,65 @@ public final class CommandManagerEvent {
 		return parameterTypeId;
 	}
 
+	/**
+	 * Returns the category identifiers that were defined before a batch of
+	 * changes.
+	 * 
+	 * @return The previously defined category identifiers; <code>null</code>
+	 *         if this event does not describe a batch of changes or if the
+	 *         defined categories did not change.
+	 * @see #isBatch()
+	 * @since 3.7
+	 */
+	public final Set getPreviouslyDefinedCategoryIds() {
+		return previouslyDefinedCategoryIds;
+	}
+
+	/**
+	 * Returns the command identifiers that were defined before a batch of
+	 * changes.
+	 * 
+	 * @return The previously defined command identifiers; <code>null</code>
+	 *         if this event does not describe a batch of changes or if the
+	 *         defined commands did not change.
+	 * @see #isBatch()
+	 * @since 3.7
+	 */
+	public final Set getPreviouslyDefinedCommandIds() {
+		return previouslyDefinedCommandIds;
+	}
+
+	/**
+	 * Returns the command parameter type identifiers that were defined before
+	 * a batch of changes.
+	 * 
+	 * @return The previously defined parameter type identifiers;
+	 *         <code>null</code> if this event does not describe a batch of
+	 *         changes or if the defined parameter types did not change.
+	 * @see #isBatch()
+	 * @since 3.7
+	 */
+	public final Set getPreviouslyDefinedParameterTypeIds() {
+		return previouslyDefinedParameterTypeIds;
+	}
+
+	/**
+	 * Returns whether this event describes a batch of changes. For such an
+	 * event methods like {@link #isCommandChanged()} return <code>true</code>
+	 * for each kind of identifiers that changed, but there is no single
+	 * identifier: {@link #getCommandId()} returns <code>null</code> and the
+	 * changes are described by the previously defined identifiers instead.
+	 * 
+	 * @return <code>true</code> if several identifiers may have been added or
+	 *         removed; <code>false</code> otherwise.
+	 * @since 3.7
+	 */
+	public final boolean isBatch() {
+		return (previouslyDefinedCategoryIds != null)
+				|| (previouslyDefinedCommandIds != null)
+				|| (previouslyDefinedParameterTypeIds != null);
+	}
+
 	/**
 	 * Returns whether the list of defined category identifiers has changed.
 	 * 
@@ -240,7 +388,8 @@ public final class CommandManagerEvent {
 	 *         changed; <code>false</code> otherwise.
 	 */
 	public final boolean isCategoryChanged() {
-		return (categoryId != null);
+		return (categoryId != null)
+				|| ((changedValues & CHANGED_CATEGORY_DEFINED) != 0);
 	}
 
 	/**
@@ -261,7 +410,8 @@ public final class CommandManagerEvent {
 	 *         changed; <code>false</code> otherwise.
 	 */
 	public final boolean isCommandChanged() {
-		return (commandId != null);
+		return (commandId != null)
+				|| ((changedValues & CHANGED_COMMAND_DEFINED) != 0);
 	}
 
 	/**
@@ -285,7 +435,8 @@ public final class CommandManagerEvent {
 	 * @since 3.2
 	 */
 	public final boolean isParameterTypeChanged() {
-		return (parameterTypeId != null);
+		return (parameterTypeId != null)
+				|| ((changedValues & CHANGED_PARAMETER_TYPE_DEFINED) != 0);
 	}
 	
 	/**
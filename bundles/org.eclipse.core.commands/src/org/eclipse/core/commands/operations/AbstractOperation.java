@@ -36,6 +36,16 @@ import org.eclipse.core.runtime.IStatus;
 public abstract class AbstractOperation implements IUndoableOperation {
 	List contexts = new ArrayList();
 
+	/**
+	 * the lock used to change {@link #stacks}
+	 */
+	private static final Object stacksLock = new Object();
+
+	/**
+	 * the histories indexing this operation by its contexts, copied on write
+	 */
+	private volatile OperationStack[] stacks = null;
+
 	private String label = ""; //$NON-NLS-1$
 
 	/**
@@ -60,6 +70,7 @@ public abstract class AbstractOperation implements IUndoableOperation {
 	public void addContext(IUndoContext context) {
 		if (!contexts.contains(context)) {
 			contexts.add(context);
+			contextsChanged();
 		}
 	}
 
@@ -181,7 +192,9 @@ public abstract class AbstractOperation implements IUndoableOperation {
 	 */
 
 	public void removeContext(IUndoContext context) {
-		contexts.remove(context);
+		if (contexts.remove(context)) {
+			contextsChanged();
+		}
 	}
 
 	/*
@@ -213,4 +226,59 @@ public abstract class AbstractOperation implements IUndoableOperation {
 		stringBuffer.append(')');
 		return stringBuffer.toString();
 	}
+
+	/*
+	 * Let the histories holding the receiver know that its contexts changed.
+	 */
+	void contextsChanged() {
+		OperationStack[] current = stacks;
+		if (current != null) {
+			for (int i = 0; i < current.length; i++) {
+				current[i].update(this);
+			}
+		}
+	}
+
+	/*
+	 * Called by an operation stack when the receiver is added to it.
+	 */
+	void addStack(OperationStack stack) {
+		synchronized (stacksLock) {
+			OperationStack[] current = stacks;
+			if (current == null) {
+				stacks = new OperationStack[] { stack };
+				return;
+			}
+			OperationStack[] added = new OperationStack[current.length + 1];
+			System.arraycopy(current, 0, added, 0, current.length);
+			added[current.length] = stack;
+			stacks = added;
+		}
+	}
+
+	/*
+	 * Called by an operation stack when the receiver is removed from it.
+	 */
+	void removeStack(OperationStack stack) {
+		synchronized (stacksLock) {
+			OperationStack[] current = stacks;
+			if (current == null) {
+				return;
+			}
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] == stack) {
+					if (current.length == 1) {
+						stacks = null;
+					} else {
+						OperationStack[] removed = new OperationStack[current.length - 1];
+						System.arraycopy(current, 0, removed, 0, i);
+						System.arraycopy(current, i + 1, removed, i,
+								removed.length - i);
+						stacks = removed;
+					}
+					return;
+				}
+			}
+		}
+	}
 }
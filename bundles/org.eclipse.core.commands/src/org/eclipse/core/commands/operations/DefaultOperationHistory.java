@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 IBM Corporation and others.
+ * Copyright (c) 2005, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,10 +12,17 @@
  *******************************************************************************/
 package org.eclipse.core.commands.operations;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -127,21 +134,38 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	ListenerList listeners = new ListenerList(ListenerList.IDENTITY);
 
 	/**
-	 * the list of operations available for redo, LIFO
+	 * the operations available for redo, LIFO
 	 */
-	private List redoList = Collections.synchronizedList(new ArrayList());
+	private final OperationStack redoList = new OperationStack();
 
 	/**
-	 * the list of operations available for undo, LIFO
+	 * the operations available for undo, LIFO
 	 */
-	private List undoList = Collections.synchronizedList(new ArrayList());
+	private final OperationStack undoList = new OperationStack();
 
 	/**
-	 * a lock that is used to synchronize access between the undo and redo
-	 * history
+	 * a lock that is used to synchronize changes to the undo and redo
+	 * history. Queries only lock the history they access.
 	 */
 	final Object undoRedoHistoryLock = new Object();
 
+	/**
+	 * the maximum number of bytes the operations in the undo and redo history
+	 * may retain, or <code>0</code> if memory is not limited
+	 */
+	private volatile long memoryLimit = 0;
+
+	/**
+	 * the directory swapped out operations are written to, or
+	 * <code>null</code> if operations are not swapped out
+	 */
+	private volatile File swapDirectory = null;
+
+	/**
+	 * a map of swapped out {@link ISwappableOperation}s to their files
+	 */
+	private final Map swapFiles = Collections.synchronizedMap(new HashMap());
+
 	/**
 	 * An operation that is "absorbing" all other operations while it is open.
 	 * When this is not null, other operations added or executed are added to
@@ -190,6 +214,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 				undoList.add(operation);
 			}
 			notifyAdd(operation);
+			checkMemoryLimit();
 
 			// flush redo stack for related contexts
 			IUndoContext[] contexts = operation.getContexts();
@@ -395,6 +420,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 
 			// notify listeners must happen after history is updated
 			notifyRedone(operation);
+			checkMemoryLimit();
 		} else {
 			notifyNotOK(operation, status);
 		}
@@ -454,6 +480,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 			// notification occurs after the undo and redo histories are
 			// adjusted
 			notifyUndone(operation);
+			checkMemoryLimit();
 		} else {
 			notifyNotOK(operation, status);
 		}
@@ -539,34 +566,6 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		return status;
 	}
 
-	/*
-	 * Filter the specified list to include only the specified undo context.
-	 */
-	private IUndoableOperation[] filter(List list, IUndoContext context) {
-		/*
-		 * This method is used whenever there is a need to filter the undo or
-		 * redo history on a particular context. Currently there are no caches
-		 * kept to optimize repeated requests for the same filter. If benchmarks
-		 * show this to be a common pattern that causes performances problems,
-		 * we could implement a filtered cache here that is nullified whenever
-		 * the global history changes.
-		 */
-
-		List filtered = new ArrayList();
-		synchronized (undoRedoHistoryLock) {
-			Iterator iterator = list.iterator();
-			while (iterator.hasNext()) {
-				IUndoableOperation operation = (IUndoableOperation) iterator
-						.next();
-				if (operation.hasContext(context)) {
-					filtered.add(operation);
-				}
-			}
-		}
-		return (IUndoableOperation[]) filtered
-				.toArray(new IUndoableOperation[filtered.size()]);
-	}
-
 	/*
 	 * Flush the redo stack of all operations that have the given context.
 	 */
@@ -578,9 +577,9 @@ public final class DefaultOperationHistory implements IOperationHistory {
 
 		synchronized (undoRedoHistoryLock) {
 			
-			Object[] filtered = filter(redoList, context);
+			IUndoableOperation[] filtered = redoList.getOperations(context);
 			for (int i = 0; i < filtered.length; i++) {
-				IUndoableOperation operation = (IUndoableOperation) filtered[i];
+				IUndoableOperation operation = filtered[i];
 				if (context == GLOBAL_UNDO_CONTEXT
 						|| operation.getContexts().length == 1) {
 					// remove the operation if it only has the context or we are
@@ -620,9 +619,9 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		synchronized (undoRedoHistoryLock) {
 			
 			// Get all operations that have the context (or one that matches)
-			Object[] filtered = filter(undoList, context);
+			IUndoableOperation[] filtered = undoList.getOperations(context);
 			for (int i = 0; i < filtered.length; i++) {
-				IUndoableOperation operation = (IUndoableOperation) filtered[i];
+				IUndoableOperation operation = filtered[i];
 				if (context == GLOBAL_UNDO_CONTEXT
 						|| operation.getContexts().length == 1) {
 					// remove the operation if it only has the context or we are
@@ -680,30 +679,25 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	private void forceRedoLimit(IUndoContext context, int max) {
 		synchronized (undoRedoHistoryLock) {
-			Object[] filtered = filter(redoList, context);
-			int size = filtered.length;
-			if (size > 0) {
-				int index = 0;
-				while (size > max) {
-					IUndoableOperation removed = (IUndoableOperation) filtered[index];
-					if (context == GLOBAL_UNDO_CONTEXT
-							|| removed.getContexts().length == 1) {
-						/*
-						 * remove the operation if we are enforcing a global limit
-						 * or if the operation only has the specified context
-						 */
-						redoList.remove(removed);
-						internalRemove(removed);
-					} else {
-						/*
-						 * if the operation has multiple contexts and we've reached
-						 * the limit for only one of them, then just remove the
-						 * context, not the operation.
-						 */
-						removed.removeContext(context);
-					}
-					size--;
-					index++;
+			// the history only has to look at the operations over the limit
+			IUndoableOperation[] excess = redoList.getExcess(context, max);
+			for (int index = 0; index < excess.length; index++) {
+				IUndoableOperation removed = excess[index];
+				if (context == GLOBAL_UNDO_CONTEXT
+						|| removed.getContexts().length == 1) {
+					/*
+					 * remove the operation if we are enforcing a global limit
+					 * or if the operation only has the specified context
+					 */
+					redoList.remove(removed);
+					internalRemove(removed);
+				} else {
+					/*
+					 * if the operation has multiple contexts and we've reached
+					 * the limit for only one of them, then just remove the
+					 * context, not the operation.
+					 */
+					removed.removeContext(context);
 				}
 			}
 		}
@@ -715,30 +709,25 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	private void forceUndoLimit(IUndoContext context, int max) {
 		synchronized (undoRedoHistoryLock) {
-			Object[] filtered = filter(undoList, context);
-			int size = filtered.length;
-			if (size > 0) {
-				int index = 0;
-				while (size > max) {
-					IUndoableOperation removed = (IUndoableOperation) filtered[index];
-					if (context == GLOBAL_UNDO_CONTEXT
-							|| removed.getContexts().length == 1) {
-						/*
-						 * remove the operation if we are enforcing a global limit
-						 * or if the operation only has the specified context
-						 */
-						undoList.remove(removed);
-						internalRemove(removed);
-					} else {
-						/*
-						 * if the operation has multiple contexts and we've reached
-						 * the limit for only one of them, then just remove the
-						 * context, not the operation.
-						 */
-						removed.removeContext(context);
-					}
-					size--;
-					index++;
+			// the history only has to look at the operations over the limit
+			IUndoableOperation[] excess = undoList.getExcess(context, max);
+			for (int index = 0; index < excess.length; index++) {
+				IUndoableOperation removed = excess[index];
+				if (context == GLOBAL_UNDO_CONTEXT
+						|| removed.getContexts().length == 1) {
+					/*
+					 * remove the operation if we are enforcing a global limit
+					 * or if the operation only has the specified context
+					 */
+					undoList.remove(removed);
+					internalRemove(removed);
+				} else {
+					/*
+					 * if the operation has multiple contexts and we've reached
+					 * the limit for only one of them, then just remove the
+					 * context, not the operation.
+					 */
+					removed.removeContext(context);
 				}
 			}
 		}
@@ -788,7 +777,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation[] getRedoHistory(IUndoContext context) {
 		Assert.isNotNull(context);
-		return filter(redoList, context);
+		return redoList.getOperations(context);
 	}
 
 	/*
@@ -798,16 +787,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation getRedoOperation(IUndoContext context) {
 		Assert.isNotNull(context);
-		synchronized (undoRedoHistoryLock) {
-			for (int i = redoList.size() - 1; i >= 0; i--) {
-				IUndoableOperation operation = (IUndoableOperation) redoList
-						.get(i);
-				if (operation.hasContext(context)) {
-					return operation;
-				}
-			}
-		}
-		return null;
+		return redoList.getTop(context);
 	}
 
 	/*
@@ -842,7 +822,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation[] getUndoHistory(IUndoContext context) {
 		Assert.isNotNull(context);
-		return filter(undoList, context);
+		return undoList.getOperations(context);
 	}
 
 	/*
@@ -852,16 +832,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation getUndoOperation(IUndoContext context) {
 		Assert.isNotNull(context);
-		synchronized (undoRedoHistoryLock) {
-			for (int i = undoList.size() - 1; i >= 0; i--) {
-				IUndoableOperation operation = (IUndoableOperation) undoList
-						.get(i);
-				if (operation.hasContext(context)) {
-					return operation;
-				}
-			}
-		}
-		return null;
+		return undoList.getTop(context);
 	}
 
 	/*
@@ -898,6 +869,10 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 * Remove the operation by disposing it and notifying listeners.
 	 */
 	private void internalRemove(IUndoableOperation operation) {
+		File file = (File) swapFiles.remove(operation);
+		if (file != null) {
+			file.delete();
+		}
 		operation.dispose();
 		notifyRemoved(operation);
 	}
@@ -1098,7 +1073,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		}
 
 		// error if operation is invalid
-		if (!operation.canRedo()) {
+		if (!swapIn(operation) || !operation.canRedo()) {
 			if (DEBUG_OPERATION_HISTORY_UNEXPECTED) {
 				Tracing.printTrace("OPERATIONHISTORY", //$NON-NLS-1$
 						"Redo operation not valid - " + operation); //$NON-NLS-1$
@@ -1123,7 +1098,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 			throws ExecutionException {
 		Assert.isNotNull(operation);
 		IStatus status;
-		if (operation.canRedo()) {
+		if (swapIn(operation) && operation.canRedo()) {
 			status = doRedo(monitor, info, operation);
 		} else {
 			if (DEBUG_OPERATION_HISTORY_UNEXPECTED) {
@@ -1165,10 +1140,8 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		// check the undo history first.
 		boolean inUndo = false;
 		synchronized (undoRedoHistoryLock) {
-			int index = undoList.indexOf(operation);
-			if (index > -1) {
+			if (undoList.replace(operation, replacements)) {
 				inUndo = true;
-				undoList.remove(operation);
 				// notify listeners after the lock on undoList is released
 				ArrayList allContexts = new ArrayList(replacements.length);
 				for (int i = 0; i < replacements.length; i++) {
@@ -1176,9 +1149,6 @@ public final class DefaultOperationHistory implements IOperationHistory {
 					for (int j = 0; j < opContexts.length; j++) {
 						allContexts.add(opContexts[j]);
 					}
-					undoList.add(index, replacements[i]);
-					// notify listeners after the lock on the history is
-					// released
 				}
 				// recheck all the limits. We do this at the end so the index
 				// doesn't change during replacement
@@ -1194,26 +1164,23 @@ public final class DefaultOperationHistory implements IOperationHistory {
 			for (int i = 0; i < replacements.length; i++) {
 				notifyAdd(replacements[i]);
 			}
+			checkMemoryLimit();
 			return;
 		}
 
 		// operation was not in the undo history. Check the redo history.
 
 		synchronized (undoRedoHistoryLock) {
-			int index = redoList.indexOf(operation);
-			if (index == -1) {
+			if (!redoList.replace(operation, replacements)) {
 				return;
 			}
-			ArrayList allContexts = new ArrayList(replacements.length);
-			redoList.remove(operation);
 			// notify listeners after we release the lock on redoList
+			ArrayList allContexts = new ArrayList(replacements.length);
 			for (int i = 0; i < replacements.length; i++) {
 				IUndoContext[] opContexts = replacements[i].getContexts();
 				for (int j = 0; j < opContexts.length; j++) {
 					allContexts.add(opContexts[j]);
 				}
-				redoList.add(index, replacements[i]);
-				// notify listeners after we release the lock on redoList
 			}
 			// recheck all the limits. We do this at the end so the index
 			// doesn't change during replacement
@@ -1227,6 +1194,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		for (int i = 0; i < replacements.length; i++) {
 			notifyAdd(replacements[i]);
 		}
+		checkMemoryLimit();
 	}
 
 	/*
@@ -1271,7 +1239,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		}
 
 		// error if operation is invalid
-		if (!operation.canUndo()) {
+		if (!swapIn(operation) || !operation.canUndo()) {
 			if (DEBUG_OPERATION_HISTORY_UNEXPECTED) {
 				Tracing.printTrace("OPERATIONHISTORY", //$NON-NLS-1$
 						"Undo operation not valid - " + operation); //$NON-NLS-1$
@@ -1294,7 +1262,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 			throws ExecutionException {
 		Assert.isNotNull(operation);
 		IStatus status;
-		if (operation.canUndo()) {
+		if (swapIn(operation) && operation.canUndo()) {
 			status = doUndo(monitor, info, operation);
 		} else {
 			if (DEBUG_OPERATION_HISTORY_UNEXPECTED) {
@@ -1390,7 +1358,241 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public void operationChanged(IUndoableOperation operation) {
 		if (undoList.contains(operation) || redoList.contains(operation)) {
+			if (operation instanceof IMemoryAwareOperation
+					&& !swapFiles.containsKey(operation)) {
+				undoList.setRetainedSize(operation, -1);
+				redoList.setRetainedSize(operation, -1);
+			}
 			notifyChanged(operation);
+			checkMemoryLimit();
+		}
+	}
+
+	/**
+	 * <p>
+	 * Set the maximum number of bytes that the operations in the undo and redo
+	 * history may retain, as reported by operations implementing
+	 * {@link IMemoryAwareOperation}. When the limit is exceeded, the oldest
+	 * operations retaining memory are removed from the history, across all
+	 * undo contexts, starting with the undo history. If a swap directory is
+	 * set, operations implementing {@link ISwappableOperation} are swapped out
+	 * instead of being removed. The most recent operation of the undo and the
+	 * redo history is always kept.
+	 * </p>
+	 * <p>
+	 * This limit applies in addition to the limits on the number of operations
+	 * per undo context.
+	 * </p>
+	 * 
+	 * @param limit
+	 *            the number of bytes, or <code>0</code> if memory should not
+	 *            be limited. This is the default.
+	 * 
+	 * @see #setSwapDirectory(File)
+	 * @since 3.7
+	 */
+	public void setMemoryLimit(long limit) {
+		Assert.isTrue(limit >= 0);
+		memoryLimit = limit;
+		checkMemoryLimit();
+	}
+
+	/**
+	 * Return the maximum number of bytes that the operations in the undo and
+	 * redo history may retain.
+	 * 
+	 * @return the number of bytes, or <code>0</code> if memory is not limited
+	 * 
+	 * @since 3.7
+	 */
+	public long getMemoryLimit() {
+		return memoryLimit;
+	}
+
+	/**
+	 * Return the number of bytes retained by the operations in the undo and
+	 * redo history, as last reported by operations implementing
+	 * {@link IMemoryAwareOperation}. Swapped out operations do not count.
+	 * 
+	 * @return the number of bytes
+	 * 
+	 * @since 3.7
+	 */
+	public long getRetainedSize() {
+		return undoList.getRetainedSize() + redoList.getRetainedSize();
+	}
+
+	/**
+	 * Set the directory that operations implementing
+	 * {@link ISwappableOperation} are swapped out to when the memory limit is
+	 * exceeded. Each operation is written to its own temporary file, which is
+	 * deleted when the operation is swapped back in or removed from the
+	 * history.
+	 * 
+	 * @param directory
+	 *            an existing directory, or <code>null</code> if operations
+	 *            should not be swapped out. This is the default.
+	 * 
+	 * @see #setMemoryLimit(long)
+	 * @since 3.7
+	 */
+	public void setSwapDirectory(File directory) {
+		swapDirectory = directory;
+	}
+
+	/**
+	 * Return the directory that operations are swapped out to.
+	 * 
+	 * @return the directory, or <code>null</code> if operations are not
+	 *         swapped out
+	 * 
+	 * @since 3.7
+	 */
+	public File getSwapDirectory() {
+		return swapDirectory;
+	}
+
+	/*
+	 * Swap out or remove the oldest operations that retain memory until the
+	 * history is within its memory limit. The operations are chosen under the
+	 * history lock; writing them out and notifying listeners happens after it
+	 * is released.
+	 */
+	private void checkMemoryLimit() {
+		long limit = memoryLimit;
+		if (limit <= 0) {
+			return;
+		}
+		boolean swap = swapDirectory != null;
+		List toSwap = new ArrayList();
+		List toRemove = new ArrayList();
+		synchronized (undoRedoHistoryLock) {
+			OperationStack[] lists = new OperationStack[] { undoList, redoList };
+			for (int i = 0; i < lists.length; i++) {
+				IUndoableOperation[] oldest = lists[i]
+						.getOldestRetaining(getRetainedSize() - limit);
+				for (int j = 0; j < oldest.length; j++) {
+					IUndoableOperation operation = oldest[j];
+					if (swap && operation instanceof ISwappableOperation
+							&& !swapFiles.containsKey(operation)) {
+						// no longer counted, so that it is not chosen again
+						// while it is written out
+						lists[i].setRetainedSize(operation, 0);
+						toSwap.add(operation);
+					} else {
+						lists[i].remove(operation);
+						toRemove.add(operation);
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < toSwap.size(); i++) {
+			IUndoableOperation operation = (IUndoableOperation) toSwap.get(i);
+			if (!swapOut(operation)) {
+				boolean removed;
+				synchronized (undoRedoHistoryLock) {
+					removed = undoList.remove(operation);
+					removed = redoList.remove(operation) || removed;
+				}
+				if (removed) {
+					toRemove.add(operation);
+				}
+			}
+		}
+		for (int i = 0; i < toRemove.size(); i++) {
+			IUndoableOperation operation = (IUndoableOperation) toRemove.get(i);
+			if (DEBUG_OPERATION_HISTORY_DISPOSE) {
+				Tracing.printTrace("OPERATIONHISTORY", //$NON-NLS-1$
+						"Removing operation to respect the memory limit " //$NON-NLS-1$
+								+ operation);
+			}
+			internalRemove(operation);
+		}
+	}
+
+	/*
+	 * Write the operation to a file in the swap directory. Return whether the
+	 * operation was swapped out. Synchronized on the operation so that it is
+	 * not swapped in while it is written.
+	 */
+	private boolean swapOut(IUndoableOperation operation) {
+		File directory = swapDirectory;
+		if (directory == null || !(operation instanceof ISwappableOperation)) {
+			return false;
+		}
+		synchronized (operation) {
+			if (swapFiles.containsKey(operation)) {
+				return false;
+			}
+			File file = null;
+			try {
+				file = File.createTempFile("undo", ".tmp", directory); //$NON-NLS-1$ //$NON-NLS-2$
+				OutputStream out = new BufferedOutputStream(
+						new FileOutputStream(file));
+				try {
+					((ISwappableOperation) operation).swapOut(out);
+				} finally {
+					out.close();
+				}
+			} catch (IOException e) {
+				if (DEBUG_OPERATION_HISTORY_UNEXPECTED) {
+					Tracing.printTrace("OPERATIONHISTORY", //$NON-NLS-1$
+							"Exception while swapping out " + operation); //$NON-NLS-1$
+				}
+				if (file != null) {
+					file.delete();
+				}
+				return false;
+			}
+			swapFiles.put(operation, file);
+			return true;
+		}
+	}
+
+	/*
+	 * Read a swapped out operation back from its file. Return false if the
+	 * operation could not be read, in which case it is removed from the
+	 * history.
+	 */
+	private boolean swapIn(IUndoableOperation operation) {
+		boolean swappedIn = true;
+		synchronized (operation) {
+			File file = (File) swapFiles.remove(operation);
+			if (file == null) {
+				return true;
+			}
+			try {
+				InputStream in = new BufferedInputStream(new FileInputStream(
+						file));
+				try {
+					((ISwappableOperation) operation).swapIn(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				if (DEBUG_OPERATION_HISTORY_UNEXPECTED) {
+					Tracing.printTrace("OPERATIONHISTORY", //$NON-NLS-1$
+							"Exception while swapping in " + operation); //$NON-NLS-1$
+				}
+				swappedIn = false;
+			} finally {
+				file.delete();
+			}
+		}
+		if (!swappedIn) {
+			boolean removed;
+			synchronized (undoRedoHistoryLock) {
+				removed = undoList.remove(operation);
+				removed = redoList.remove(operation) || removed;
+			}
+			if (removed) {
+				internalRemove(operation);
+			}
+			return false;
 		}
+		undoList.setRetainedSize(operation, -1);
+		redoList.setRetainedSize(operation, -1);
+		return true;
 	}
 }
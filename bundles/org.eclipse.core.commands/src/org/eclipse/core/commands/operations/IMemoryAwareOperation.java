@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.commands.operations;
+
+/**
+ * <p>
+ * IMemoryAwareOperation defines a method for reporting how much memory an
+ * undoable operation keeps in order to undo or redo itself. When a memory limit
+ * is set on a {@link DefaultOperationHistory}, the history uses the reported
+ * sizes to decide when the oldest operations must be removed.
+ * </p>
+ * <p>
+ * The size is asked for when the operation is added to the undo or redo
+ * history. An operation whose size changes while it is in the history should
+ * call {@link IOperationHistory#operationChanged(IUndoableOperation)}.
+ * </p>
+ * 
+ * @see DefaultOperationHistory#setMemoryLimit(long)
+ * @see ISwappableOperation
+ * 
+ * @since 3.7
+ */
+public interface IMemoryAwareOperation {
+
+	/**
+	 * Return the approximate number of bytes retained by the receiver in
+	 * order to undo or redo itself. The value is an estimate and should be
+	 * cheap to compute.
+	 * 
+	 * @return the number of bytes retained by the receiver, or <code>0</code>
+	 *         if it does not retain anything worth counting.
+	 */
+	long getRetainedSize();
+}
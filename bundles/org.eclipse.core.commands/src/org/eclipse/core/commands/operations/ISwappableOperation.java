@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.commands.operations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <p>
+ * ISwappableOperation defines methods for moving the state an undoable
+ * operation retains out of memory and back. When a memory limit and a swap
+ * directory are set on a {@link DefaultOperationHistory}, the history swaps
+ * out the oldest of these operations into temporary files instead of removing
+ * them, and swaps them back in before they are undone or redone.
+ * </p>
+ * <p>
+ * While it is swapped out, an operation must still be able to answer its
+ * label, its contexts, and whether it can be undone or redone.
+ * </p>
+ * 
+ * @see DefaultOperationHistory#setSwapDirectory(java.io.File)
+ * 
+ * @since 3.7
+ */
+public interface ISwappableOperation extends IMemoryAwareOperation {
+
+	/**
+	 * Write the state the receiver needs to undo or redo itself to the given
+	 * stream and release it. The stream is closed by the caller. If this method
+	 * throws an exception, the receiver must keep its state in memory.
+	 * 
+	 * @param out
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if the state could not be written
+	 */
+	void swapOut(OutputStream out) throws IOException;
+
+	/**
+	 * Read back the state written by {@link #swapOut(OutputStream)}. The
+	 * stream is closed by the caller.
+	 * 
+	 * @param in
+	 *            the stream to read from
+	 * @throws IOException
+	 *             if the state could not be read. The operation is then
+	 *             removed from the history.
+	 */
+	void swapIn(InputStream in) throws IOException;
+}
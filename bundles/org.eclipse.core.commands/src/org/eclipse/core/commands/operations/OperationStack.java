@@ -0,0 +1,596 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.commands.operations;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * An undo or redo history of {@link DefaultOperationHistory}. Operations are
+ * kept in one list in the order they were added, and every operation is also
+ * linked into a stack for each of its undo contexts. Asking for the most
+ * recent or the oldest operations of a context only has to look at the stacks
+ * of the contexts that match it, instead of asking every operation in the
+ * history.
+ * </p>
+ * <p>
+ * Only subclasses of {@link AbstractOperation} are indexed, since their
+ * contexts are exactly what {@link AbstractOperation#hasContext(IUndoContext)}
+ * checks, and they call {@link #update(IUndoableOperation)} whenever their
+ * contexts change. Other operations are kept in a separate stack that is
+ * always checked. Results taken from the index are still verified with
+ * <code>hasContext</code>, and the history is scanned as before should they
+ * disagree.
+ * </p>
+ * <p>
+ * All methods are synchronized on the receiver.
+ * </p>
+ */
+final class OperationStack {
+
+	private static final IUndoableOperation[] EMPTY = new IUndoableOperation[0];
+
+	/**
+	 * An operation in the history.
+	 */
+	private static final class Entry {
+		final IUndoableOperation operation;
+
+		long sequence;
+
+		/**
+		 * The number of bytes retained by the operation when it was last
+		 * measured.
+		 */
+		long size;
+
+		Entry previous;
+
+		Entry next;
+
+		/**
+		 * The nodes linking this entry into the context stacks.
+		 */
+		Node[] nodes;
+
+		Entry(IUndoableOperation operation, long sequence) {
+			this.operation = operation;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * The link of an entry in one context stack.
+	 */
+	private static final class Node {
+		final Entry entry;
+
+		final ContextStack stack;
+
+		Node previous;
+
+		Node next;
+
+		Node(Entry entry, ContextStack stack) {
+			this.entry = entry;
+			this.stack = stack;
+		}
+	}
+
+	/**
+	 * The entries having one context, oldest first.
+	 */
+	private static final class ContextStack {
+		final IUndoContext context;
+
+		Node first;
+
+		Node last;
+
+		int size;
+
+		ContextStack(IUndoContext context) {
+			this.context = context;
+		}
+
+		void insert(Node node) {
+			// entries are almost always added at the top
+			Node previous = last;
+			while (previous != null
+					&& previous.entry.sequence > node.entry.sequence) {
+				previous = previous.previous;
+			}
+			node.previous = previous;
+			node.next = previous == null ? first : previous.next;
+			if (node.previous == null) {
+				first = node;
+			} else {
+				node.previous.next = node;
+			}
+			if (node.next == null) {
+				last = node;
+			} else {
+				node.next.previous = node;
+			}
+			size++;
+		}
+
+		void remove(Node node) {
+			if (node.previous == null) {
+				first = node.next;
+			} else {
+				node.previous.next = node.next;
+			}
+			if (node.next == null) {
+				last = node.previous;
+			} else {
+				node.next.previous = node.previous;
+			}
+			node.previous = node.next = null;
+			size--;
+		}
+	}
+
+	private Entry first;
+
+	private Entry last;
+
+	private long nextSequence;
+
+	/**
+	 * the sum of the sizes of all entries
+	 */
+	private long retainedSize;
+
+	/**
+	 * a map of {@link IUndoableOperation} to {@link Entry}
+	 */
+	private final Map entries = new HashMap();
+
+	/**
+	 * a map of {@link IUndoContext} to {@link ContextStack}
+	 */
+	private final Map stacks = new HashMap();
+
+	/**
+	 * the stacks of the contexts that may match contexts other than
+	 * themselves, see {@link #isPlain(IUndoContext)}
+	 */
+	private final List matchingStacks = new ArrayList();
+
+	/**
+	 * the operations that are not subclasses of {@link AbstractOperation}
+	 */
+	private final ContextStack unindexed = new ContextStack(null);
+
+	/**
+	 * Add an operation at the top of the history. An operation that is already
+	 * in the history is moved to the top.
+	 *
+	 * @param operation
+	 *            the operation to add
+	 */
+	synchronized void add(IUndoableOperation operation) {
+		remove(operation);
+		Entry entry = new Entry(operation, nextSequence++);
+		entry.previous = last;
+		if (last == null) {
+			first = entry;
+		} else {
+			last.next = entry;
+		}
+		last = entry;
+		entries.put(operation, entry);
+		entry.size = measure(operation);
+		retainedSize += entry.size;
+		index(entry);
+		if (operation instanceof AbstractOperation) {
+			((AbstractOperation) operation).addStack(this);
+		}
+	}
+
+	/**
+	 * Remove an operation from the history.
+	 *
+	 * @param operation
+	 *            the operation to remove
+	 * @return <code>true</code> if the operation was in the history
+	 */
+	synchronized boolean remove(IUndoableOperation operation) {
+		Entry entry = (Entry) entries.remove(operation);
+		if (entry == null) {
+			return false;
+		}
+		unindex(entry);
+		retainedSize -= entry.size;
+		if (operation instanceof AbstractOperation) {
+			((AbstractOperation) operation).removeStack(this);
+		}
+		if (entry.previous == null) {
+			first = entry.next;
+		} else {
+			entry.previous.next = entry.next;
+		}
+		if (entry.next == null) {
+			last = entry.previous;
+		} else {
+			entry.next.previous = entry.previous;
+		}
+		return true;
+	}
+
+	/**
+	 * @param operation
+	 *            the operation
+	 * @return whether the operation is in the history
+	 */
+	synchronized boolean contains(IUndoableOperation operation) {
+		return entries.containsKey(operation);
+	}
+
+	/**
+	 * Index an operation under its current contexts. Called by
+	 * {@link AbstractOperation} whenever its contexts change.
+	 *
+	 * @param operation
+	 *            the operation
+	 */
+	synchronized void update(IUndoableOperation operation) {
+		Entry entry = (Entry) entries.get(operation);
+		if (entry != null) {
+			unindex(entry);
+			index(entry);
+		}
+	}
+
+	/**
+	 * Replace an operation with other operations at the same position in the
+	 * history.
+	 *
+	 * @param operation
+	 *            the operation to replace
+	 * @param replacements
+	 *            the operations replacing it, oldest first
+	 * @return <code>false</code> if the operation was not in the history
+	 */
+	synchronized boolean replace(IUndoableOperation operation,
+			IUndoableOperation[] replacements) {
+		Entry entry = (Entry) entries.get(operation);
+		if (entry == null) {
+			return false;
+		}
+		for (int i = 0; i < replacements.length; i++) {
+			if (!replacements[i].equals(operation)) {
+				remove(replacements[i]);
+			}
+		}
+		Entry previous = entry.previous;
+		remove(operation);
+		for (int i = 0; i < replacements.length; i++) {
+			if (entries.containsKey(replacements[i])) {
+				continue;
+			}
+			Entry replacement = new Entry(replacements[i], 0);
+			replacement.previous = previous;
+			replacement.next = previous == null ? first : previous.next;
+			if (replacement.previous == null) {
+				first = replacement;
+			} else {
+				replacement.previous.next = replacement;
+			}
+			if (replacement.next == null) {
+				last = replacement;
+			} else {
+				replacement.next.previous = replacement;
+			}
+			entries.put(replacements[i], replacement);
+			replacement.size = measure(replacements[i]);
+			retainedSize += replacement.size;
+			if (replacements[i] instanceof AbstractOperation) {
+				((AbstractOperation) replacements[i]).addStack(this);
+			}
+			previous = replacement;
+		}
+		// the sequence numbers have to follow the new order, so renumber the
+		// history and rebuild the index. Replacing is rare enough for this.
+		stacks.clear();
+		matchingStacks.clear();
+		unindexed.first = unindexed.last = null;
+		unindexed.size = 0;
+		nextSequence = 0;
+		for (Entry current = first; current != null; current = current.next) {
+			current.sequence = nextSequence++;
+			index(current);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of bytes retained by the operations in the history,
+	 *         as last reported by the operations
+	 */
+	synchronized long getRetainedSize() {
+		return retainedSize;
+	}
+
+	/**
+	 * Set the number of bytes an operation retains. If <code>size</code> is
+	 * negative, the operation is asked again.
+	 *
+	 * @param operation
+	 *            the operation
+	 * @param size
+	 *            the number of bytes, or <code>-1</code>
+	 */
+	synchronized void setRetainedSize(IUndoableOperation operation, long size) {
+		Entry entry = (Entry) entries.get(operation);
+		if (entry != null) {
+			retainedSize -= entry.size;
+			entry.size = size < 0 ? measure(operation) : size;
+			retainedSize += entry.size;
+		}
+	}
+
+	/**
+	 * Return the oldest operations that retain memory, until they retain at
+	 * least the given number of bytes together. The most recent operation of
+	 * the history is never returned.
+	 *
+	 * @param bytes
+	 *            the number of bytes to release
+	 * @return the operations, oldest first
+	 */
+	synchronized IUndoableOperation[] getOldestRetaining(long bytes) {
+		List oldest = null;
+		for (Entry entry = first; entry != last && bytes > 0; entry = entry.next) {
+			if (entry.size > 0) {
+				if (oldest == null) {
+					oldest = new ArrayList();
+				}
+				oldest.add(entry.operation);
+				bytes -= entry.size;
+			}
+		}
+		if (oldest == null) {
+			return EMPTY;
+		}
+		return (IUndoableOperation[]) oldest
+				.toArray(new IUndoableOperation[oldest.size()]);
+	}
+
+	/**
+	 * Return the most recent operation that has the context.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the operation, or <code>null</code>
+	 */
+	synchronized IUndoableOperation getTop(IUndoContext context) {
+		Entry top = null;
+		ContextStack[] matching = getMatchingStacks(context);
+		for (int i = 0; i < matching.length; i++) {
+			Entry candidate = matching[i].last.entry;
+			if (top == null || candidate.sequence > top.sequence) {
+				top = candidate;
+			}
+		}
+		for (Node node = unindexed.last; node != null; node = node.previous) {
+			if (top != null && node.entry.sequence < top.sequence) {
+				break;
+			}
+			if (node.entry.operation.hasContext(context)) {
+				top = node.entry;
+				break;
+			}
+		}
+		if (top == null || top.operation.hasContext(context)) {
+			return top == null ? null : top.operation;
+		}
+		for (Entry entry = last; entry != null; entry = entry.previous) {
+			if (entry.operation.hasContext(context)) {
+				return entry.operation;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the operations that have the context, oldest first.
+	 *
+	 * @param context
+	 *            the context
+	 * @return the operations
+	 */
+	synchronized IUndoableOperation[] getOperations(IUndoContext context) {
+		ContextStack stack = getSingleMatchingStack(context);
+		if (stack != null) {
+			IUndoableOperation[] result = getOldest(context, stack, stack.size);
+			if (result != null) {
+				return result;
+			}
+		} else if (unindexed.size == 0
+				&& getMatchingStacks(context).length == 0) {
+			return EMPTY;
+		}
+		return scan(context);
+	}
+
+	/**
+	 * Return the operations that would have to be removed for the history to
+	 * contain <code>max</code> or less operations with the context, oldest
+	 * first.
+	 *
+	 * @param context
+	 *            the context
+	 * @param max
+	 *            the number of operations that may remain
+	 * @return the operations
+	 */
+	synchronized IUndoableOperation[] getExcess(IUndoContext context, int max) {
+		ContextStack stack = getSingleMatchingStack(context);
+		if (stack != null) {
+			if (stack.size <= max) {
+				return EMPTY;
+			}
+			IUndoableOperation[] result = getOldest(context, stack, stack.size
+					- max);
+			if (result != null) {
+				return result;
+			}
+		}
+		IUndoableOperation[] operations = getOperations(context);
+		if (operations.length <= max) {
+			return EMPTY;
+		}
+		IUndoableOperation[] excess = new IUndoableOperation[operations.length
+				- max];
+		System.arraycopy(operations, 0, excess, 0, excess.length);
+		return excess;
+	}
+
+	/**
+	 * Return the <code>count</code> oldest operations of the stack, or
+	 * <code>null</code> if one of them no longer has the context.
+	 */
+	private IUndoableOperation[] getOldest(IUndoContext context,
+			ContextStack stack, int count) {
+		IUndoableOperation[] result = new IUndoableOperation[count];
+		Node node = stack.first;
+		for (int i = 0; i < count; i++, node = node.next) {
+			result[i] = node.entry.operation;
+			if (!result[i].hasContext(context)) {
+				return null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the operations that have the context by asking every operation in
+	 * the history.
+	 */
+	private IUndoableOperation[] scan(IUndoContext context) {
+		List filtered = new ArrayList();
+		for (Entry entry = first; entry != null; entry = entry.next) {
+			if (entry.operation.hasContext(context)) {
+				filtered.add(entry.operation);
+			}
+		}
+		return (IUndoableOperation[]) filtered
+				.toArray(new IUndoableOperation[filtered.size()]);
+	}
+
+	/**
+	 * Return the only stack holding operations with the context, or
+	 * <code>null</code> if there are several or some operations are not
+	 * indexed.
+	 */
+	private ContextStack getSingleMatchingStack(IUndoContext context) {
+		if (unindexed.size > 0) {
+			return null;
+		}
+		ContextStack[] matching = getMatchingStacks(context);
+		return matching.length == 1 ? matching[0] : null;
+	}
+
+	/**
+	 * Return the stacks of the contexts that match the context, using the
+	 * same rule as {@link AbstractOperation#hasContext(IUndoContext)}.
+	 * Matching is not cached since contexts such as
+	 * {@link ObjectUndoContext} may change what they match. A plain context
+	 * only has to be checked against the contexts that may match others;
+	 * any other context is checked against every context in the history.
+	 */
+	private ContextStack[] getMatchingStacks(IUndoContext context) {
+		ContextStack exact = (ContextStack) stacks.get(context);
+		Collection candidates = isPlain(context) ? matchingStacks : stacks
+				.values();
+		List matching = null;
+		if (exact != null) {
+			matching = new ArrayList(2);
+			matching.add(exact);
+		}
+		for (Iterator i = candidates.iterator(); i.hasNext();) {
+			ContextStack stack = (ContextStack) i.next();
+			if (stack != exact
+					&& (context.matches(stack.context) || stack.context
+							.matches(context))) {
+				if (matching == null) {
+					matching = new ArrayList(2);
+				}
+				matching.add(stack);
+			}
+		}
+		if (matching == null) {
+			return new ContextStack[0];
+		}
+		return (ContextStack[]) matching.toArray(new ContextStack[matching
+				.size()]);
+	}
+
+	/**
+	 * Return whether the context is an {@link UndoContext} that only matches
+	 * itself. Subclasses such as {@link ObjectUndoContext} or the global undo
+	 * context may match other contexts.
+	 */
+	private static boolean isPlain(IUndoContext context) {
+		return context.getClass() == UndoContext.class;
+	}
+
+	private static long measure(IUndoableOperation operation) {
+		if (operation instanceof IMemoryAwareOperation) {
+			return Math.max(0, ((IMemoryAwareOperation) operation)
+					.getRetainedSize());
+		}
+		return 0;
+	}
+
+	private void index(Entry entry) {
+		if (!(entry.operation instanceof AbstractOperation)) {
+			entry.nodes = new Node[] { new Node(entry, unindexed) };
+			unindexed.insert(entry.nodes[0]);
+			return;
+		}
+		IUndoContext[] contexts = entry.operation.getContexts();
+		entry.nodes = new Node[contexts.length];
+		for (int i = 0; i < contexts.length; i++) {
+			ContextStack stack = (ContextStack) stacks.get(contexts[i]);
+			if (stack == null) {
+				stack = new ContextStack(contexts[i]);
+				stacks.put(contexts[i], stack);
+				if (!isPlain(contexts[i])) {
+					matchingStacks.add(stack);
+				}
+			}
+			entry.nodes[i] = new Node(entry, stack);
+			stack.insert(entry.nodes[i]);
+		}
+	}
+
+	private void unindex(Entry entry) {
+		for (int i = 0; i < entry.nodes.length; i++) {
+			ContextStack stack = entry.nodes[i].stack;
+			stack.remove(entry.nodes[i]);
+			if (stack.size == 0 && stack != unindexed) {
+				stacks.remove(stack.context);
+				if (!isPlain(stack.context)) {
+					matchingStacks.remove(stack);
+				}
+			}
+		}
+		entry.nodes = null;
+	}
+}
@@ -128,6 +128,7 @@ public class BindingTable {
 	private Map<TriggerSequence, ArrayList<Binding>> bindingsByPrefix = new HashMap<TriggerSequence, ArrayList<Binding>>();
 	private Map<TriggerSequence, ArrayList<Binding>> conflicts = new HashMap<TriggerSequence, ArrayList<Binding>>();
 	private Map<TriggerSequence, ArrayList<Binding>> orderedBindingsByTrigger = new HashMap<TriggerSequence, ArrayList<Binding>>();
+	private int revision;
 
 	/**
 	 * @param context
@@ -192,6 +193,7 @@ public class BindingTable {
 	}
 
 	private void addBindingSimple(Binding binding) {
+		revision++;
 		bindings.add(binding);
 		bindingsByTrigger.put(binding.getTriggerSequence(), binding);
 
@@ -215,6 +217,7 @@ public class BindingTable {
 	}
 
 	private void removeBindingSimple(Binding binding) {
+		revision++;
 		bindings.remove(binding);
 		bindingsByTrigger.remove(binding.getTriggerSequence());
 		ArrayList<Binding> sequences = bindingsByCommand.get(binding.getParameterizedCommand());
@@ -342,4 +345,11 @@ public class BindingTable {
 		return Collections.unmodifiableCollection(bindings);
 	}
 
+	/**
+	 * @return a counter that changes every time the active bindings of this table change
+	 */
+	int getRevision() {
+		return revision;
+	}
+
 }
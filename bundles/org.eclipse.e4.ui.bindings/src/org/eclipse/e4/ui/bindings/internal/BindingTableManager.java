@@ -14,8 +14,10 @@ package org.eclipse.e4.ui.bindings.internal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import javax.inject.Inject;
 import org.eclipse.core.commands.ParameterizedCommand;
 import org.eclipse.core.commands.contexts.Context;
@@ -29,6 +31,11 @@ import org.eclipse.jface.bindings.TriggerSequence;
 public class BindingTableManager {
 	private static final String BINDING_TABLE_PREFIX = "bindingTable:"; //$NON-NLS-1$
 
+	/**
+	 * The number of compiled context sets that are kept before the cache is flushed.
+	 */
+	private static final int MAX_COMPILED_SETS = 64;
+
 	@Inject
 	private IEclipseContext eclipseContext;
 
@@ -36,6 +43,12 @@ public class BindingTableManager {
 
 	private String[] activeSchemeIds;
 
+	/**
+	 * Compiled lookup tries keyed by context set. Windows that have the same contexts active share
+	 * the same trie.
+	 */
+	private Map<ContextSet, BindingTrie> compiledSets = new HashMap<ContextSet, BindingTrie>();
+
 	public void addTable(BindingTable table) {
 		String contextId = getTableId(table.getId());
 		if (eclipseContext.containsKey(contextId)) {
@@ -43,6 +56,7 @@ public class BindingTableManager {
 			//			throw new IllegalArgumentException("Already contains table " + contextId); //$NON-NLS-1$
 		}
 		eclipseContext.set(contextId, table);
+		compiledSets.clear();
 		final List<Context> contexts = definedTables.getContexts();
 		if (!contexts.contains(table.getTableId())) {
 			// this is only valid because I'm throwing away the old definedTables contextSet
@@ -61,6 +75,7 @@ public class BindingTableManager {
 			throw new IllegalArgumentException("Does not contains table " + contextId); //$NON-NLS-1$
 		}
 		eclipseContext.remove(contextId);
+		compiledSets.clear();
 		final List<Context> contexts = definedTables.getContexts();
 		if (contexts.contains(table.getTableId())) {
 			// this is only valid because I'm throwing away the old definedTables contextSet
@@ -120,38 +135,33 @@ public class BindingTableManager {
 	}
 
 	public Binding getPerfectMatch(ContextSet contextSet, TriggerSequence triggerSequence) {
-		Binding result = null;
-		Binding currentResult = null;
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
-			if (table != null) {
-				currentResult = table.getPerfectMatch(triggerSequence);
-			}
-			if (currentResult != null) {
-				if (isMostActiveScheme(currentResult)) {
-					return currentResult;
-				}
-				if (result == null) {
-					result = currentResult;
-				} else {
-					int rc = compareSchemes(result.getSchemeId(), currentResult.getSchemeId());
-					if (rc < 0) {
-						result = currentResult;
-					}
-				}
+		return getCompiledSet(contextSet).getPerfectMatch(triggerSequence);
+	}
+
+	/**
+	 * Return the lookup trie for the given context set, compiling it if it has not been requested
+	 * before or if one of its tables has changed since.
+	 * 
+	 * @param contextSet
+	 * @return the trie, never <code>null</code>
+	 */
+	private BindingTrie getCompiledSet(ContextSet contextSet) {
+		BindingTrie trie = compiledSets.get(contextSet);
+		if (trie == null || !trie.isValid()) {
+			if (trie == null && compiledSets.size() >= MAX_COMPILED_SETS) {
+				compiledSets.clear();
 			}
+			trie = BindingTrie.compile(this, contextSet);
+			compiledSets.put(contextSet, trie);
 		}
-		return result;
+		return trie;
 	}
 
 	/**
 	 * @param currentResult
 	 * @return
 	 */
-	private boolean isMostActiveScheme(Binding currentResult) {
+	boolean isMostActiveScheme(Binding currentResult) {
 		if (activeSchemeIds == null || activeSchemeIds.length < 2) {
 			return true;
 		}
@@ -203,18 +213,7 @@ public class BindingTableManager {
 	}
 
 	public boolean isPartialMatch(ContextSet contextSet, TriggerSequence sequence) {
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
-			if (table != null) {
-				if (table.isPartialMatch(sequence)) {
-					return true;
-				}
-			}
-		}
-		return false;
+		return getCompiledSet(contextSet).isPartialMatch(sequence);
 	}
 
 	public Collection<Binding> getPartialMatches(ContextSet contextSet, TriggerSequence sequence) {
@@ -240,6 +239,7 @@ public class BindingTableManager {
 	public void setActiveSchemes(String[] activeSchemeIds) {
 		this.activeSchemeIds = activeSchemeIds;
 		BindingTable.BEST_SEQUENCE.setActiveSchemes(activeSchemeIds);
+		compiledSets.clear();
 	}
 
 	/*
@@ -247,7 +247,7 @@ public class BindingTableManager {
 	 * 
 	 * Returns an in based on scheme 1 < scheme 2
 	 */
-	private final int compareSchemes(final String schemeId1, final String schemeId2) {
+	final int compareSchemes(final String schemeId1, final String schemeId2) {
 		if (activeSchemeIds == null) {
 			return 0;
 		}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.e4.ui.bindings.internal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import org.eclipse.core.commands.contexts.Context;
+import org.eclipse.jface.bindings.Binding;
+import org.eclipse.jface.bindings.Trigger;
+import org.eclipse.jface.bindings.TriggerSequence;
+
+/**
+ * An immutable trie of the active bindings for one {@link ContextSet}. Each node is reached by one
+ * trigger and holds the binding that wins for the sequence leading to it, so perfect and partial
+ * matches are answered by walking the triggers of a sequence instead of querying every table.
+ * <p>
+ * The trie remembers the revision of each table it was compiled from and reports itself stale as
+ * soon as one of them changes.
+ * </p>
+ */
+class BindingTrie {
+
+	static class Node {
+		private Map<Trigger, Node> children;
+		private Binding match;
+		private boolean resolved;
+
+		Node getChild(Trigger trigger) {
+			return children == null ? null : children.get(trigger);
+		}
+
+		Node getOrCreateChild(Trigger trigger) {
+			if (children == null) {
+				children = new HashMap<Trigger, Node>(4);
+			}
+			Node child = children.get(trigger);
+			if (child == null) {
+				child = new Node();
+				children.put(trigger, child);
+			}
+			return child;
+		}
+
+		boolean hasChildren() {
+			return children != null && !children.isEmpty();
+		}
+
+		Binding getMatch() {
+			return match;
+		}
+	}
+
+	private final Node root = new Node();
+	private final BindingTable[] tables;
+	private final int[] revisions;
+
+	private BindingTrie(BindingTable[] tables) {
+		this.tables = tables;
+		this.revisions = new int[tables.length];
+		for (int i = 0; i < tables.length; i++) {
+			revisions[i] = tables[i].getRevision();
+		}
+	}
+
+	/**
+	 * Compile the bindings of the given context set. Contexts are visited from most to least
+	 * specific and the winning binding for each sequence is chosen exactly as
+	 * {@link BindingTableManager#getPerfectMatch(ContextSet, TriggerSequence)} used to.
+	 */
+	static BindingTrie compile(BindingTableManager manager, ContextSet contextSet) {
+		List<Context> contexts = contextSet.getContexts();
+		BindingTable[] found = new BindingTable[contexts.size()];
+		int count = 0;
+		ListIterator<Context> it = contexts.listIterator(contexts.size());
+		while (it.hasPrevious()) {
+			BindingTable table = manager.getTable(it.previous().getId());
+			if (table != null) {
+				found[count++] = table;
+			}
+		}
+		BindingTable[] tables = new BindingTable[count];
+		System.arraycopy(found, 0, tables, 0, count);
+
+		BindingTrie trie = new BindingTrie(tables);
+		for (BindingTable table : tables) {
+			for (Binding binding : table.getBindings()) {
+				trie.insert(manager, binding);
+			}
+		}
+		return trie;
+	}
+
+	private void insert(BindingTableManager manager, Binding binding) {
+		Trigger[] triggers = binding.getTriggerSequence().getTriggers();
+		Node node = root;
+		for (int i = 0; i < triggers.length; i++) {
+			node = node.getOrCreateChild(triggers[i]);
+		}
+		if (node.resolved) {
+			return;
+		}
+		if (manager.isMostActiveScheme(binding)) {
+			node.match = binding;
+			node.resolved = true;
+		} else if (node.match == null
+				|| manager.compareSchemes(node.match.getSchemeId(), binding.getSchemeId()) < 0) {
+			node.match = binding;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if none of the tables this trie was compiled from has changed
+	 */
+	boolean isValid() {
+		for (int i = 0; i < tables.length; i++) {
+			if (tables[i].getRevision() != revisions[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	Node find(TriggerSequence sequence) {
+		Trigger[] triggers = sequence.getTriggers();
+		Node node = root;
+		for (int i = 0; i < triggers.length && node != null; i++) {
+			node = node.getChild(triggers[i]);
+		}
+		return node;
+	}
+
+	Binding getPerfectMatch(TriggerSequence sequence) {
+		Node node = find(sequence);
+		return node == null ? null : node.getMatch();
+	}
+
+	boolean isPartialMatch(TriggerSequence sequence) {
+		if (sequence.isEmpty()) {
+			return false;
+		}
+		Node node = find(sequence);
+		return node != null && node.hasChildren();
+	}
+}
@@ -24,6 +24,7 @@ import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.core.services.contributions.IContributionFactory;
 import org.eclipse.e4.core.services.log.Logger;
 import org.eclipse.e4.ui.di.AboutToShow;
+import org.eclipse.e4.ui.internal.workbench.ContributionsAnalyzer;
 import org.eclipse.e4.ui.internal.workbench.swt.AbstractPartRenderer;
 import org.eclipse.e4.ui.internal.workbench.swt.Policy;
 import org.eclipse.e4.ui.internal.workbench.swt.WorkbenchSWTActivator;
@@ -253,8 +254,17 @@ public class MenuManagerShowProcessor implements IMenuListener2 {
 		} else {
 			evalContext = modelService.getContainingContext(menuModel);
 		}
+		long start = System.currentTimeMillis();
+		int evaluations = ContributionsAnalyzer.getVisibleWhenEvaluations();
+		int reuses = ContributionsAnalyzer.getVisibleWhenReuses();
 		MenuManagerRendererFilter.updateElementVisibility(menuModel, renderer,
 				menuManager, evalContext, 2, true);
+		trace("showMenu: " + (System.currentTimeMillis() - start) //$NON-NLS-1$
+				+ "ms, visibleWhen evaluated: " //$NON-NLS-1$
+				+ (ContributionsAnalyzer.getVisibleWhenEvaluations() - evaluations)
+				+ ", reused: " //$NON-NLS-1$
+				+ (ContributionsAnalyzer.getVisibleWhenReuses() - reuses), menu,
+				menuModel);
 	}
 
 }
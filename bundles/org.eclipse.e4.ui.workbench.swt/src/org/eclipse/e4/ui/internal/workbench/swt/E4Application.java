@@ -377,6 +377,23 @@ public class E4Application implements IApplication {
 		eclipseContext.set(E4Workbench.DELTA_RESTORE,
 				Boolean.valueOf(deltaRestore));
 
+		// Concurrent model fragment assembly
+		value = getArgValue(E4Workbench.PARALLEL_MODEL_ASSEMBLY, appContext,
+				false);
+		eclipseContext.set(E4Workbench.PARALLEL_MODEL_ASSEMBLY,
+				Boolean.valueOf(value != null && Boolean.parseBoolean(value)));
+
+		// Deferred rendering of hidden elements
+		value = getArgValue(E4Workbench.DEFERRED_RENDERING, appContext, false);
+		eclipseContext.set(E4Workbench.DEFERRED_RENDERING,
+				Boolean.valueOf(value != null && Boolean.parseBoolean(value)));
+
+		// Background loading of part classes
+		value = getArgValue(E4Workbench.PREPARE_PARTS_IN_BACKGROUND,
+				appContext, false);
+		eclipseContext.set(E4Workbench.PREPARE_PARTS_IN_BACKGROUND,
+				Boolean.valueOf(value != null && Boolean.parseBoolean(value)));
+
 		String resourceHandler = getArgValue(IWorkbench.MODEL_RESOURCE_HANDLER,
 				appContext, false);
 
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.e4.ui.internal.workbench.swt;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.e4.ui.internal.workbench.ReflectionContributionFactory;
+import org.eclipse.e4.ui.model.application.ui.MElementContainer;
+import org.eclipse.e4.ui.model.application.ui.MGenericStack;
+import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPerspective;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
+
+/**
+ * The first phase of the creation of parts: this job loads the contribution
+ * classes of the parts that are about to be rendered so that class loading
+ * overlaps with the rendering done on the UI thread. The second phase, the
+ * injection of the part and the creation of its widgets, is left to the
+ * renderers.
+ * <p>
+ * Only the class named by the contribution URI of a part is loaded. Parts that
+ * share a generic implementation whose real class is resolved when the part is
+ * created, such as the views and editors of the compatibility layer which all
+ * use the <code>CompatibilityView</code> and <code>CompatibilityEditor</code>
+ * URIs, gain nothing from this job: the legacy class is still loaded on the UI
+ * thread when the part is created.
+ * </p>
+ */
+public class PartPreparationJob extends Job {
+
+	private final ReflectionContributionFactory factory;
+	private final Collection<String> contributionURIs;
+
+	/**
+	 * @param factory
+	 *            the factory that will create the parts
+	 * @param contributionURIs
+	 *            the contribution URIs of the parts to prepare
+	 */
+	public PartPreparationJob(ReflectionContributionFactory factory,
+			Collection<String> contributionURIs) {
+		super("Preparing parts"); //$NON-NLS-1$
+		this.factory = factory;
+		this.contributionURIs = contributionURIs;
+		setSystem(true);
+		setPriority(Job.SHORT);
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		for (String uri : contributionURIs) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			factory.prepare(uri);
+		}
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Collects the contribution URIs of the parts that rendering the given
+	 * element will create. Only the selected element of stacks is followed so
+	 * that parts that are lazily rendered are not prepared. Must be called on
+	 * the UI thread.
+	 * 
+	 * @param element
+	 *            the element about to be rendered
+	 * @return the contribution URIs, in rendering order
+	 */
+	public static Set<String> collectContributionURIs(MUIElement element) {
+		Set<String> uris = new LinkedHashSet<String>();
+		collect(element, uris);
+		return uris;
+	}
+
+	private static void collect(MUIElement element, Set<String> uris) {
+		if (element == null || !element.isToBeRendered()
+				|| !element.isVisible()) {
+			return;
+		}
+
+		if (element instanceof MPlaceholder) {
+			collect(((MPlaceholder) element).getRef(), uris);
+		} else if (element instanceof MPart) {
+			MPart part = (MPart) element;
+			if (part.getObject() == null && part.getContributionURI() != null) {
+				uris.add(part.getContributionURI());
+			}
+		} else if (element instanceof MGenericStack<?>) {
+			collect(((MGenericStack<?>) element).getSelectedElement(), uris);
+		} else if (element instanceof MElementContainer<?>) {
+			List<?> children = ((MElementContainer<?>) element).getChildren();
+			for (Object child : children) {
+				collect((MUIElement) child, uris);
+			}
+
+			if (element instanceof MWindow) {
+				for (MWindow window : ((MWindow) element).getWindows()) {
+					collect(window, uris);
+				}
+			} else if (element instanceof MPerspective) {
+				for (MWindow window : ((MPerspective) element).getWindows()) {
+					collect(window, uris);
+				}
+			}
+		}
+	}
+}
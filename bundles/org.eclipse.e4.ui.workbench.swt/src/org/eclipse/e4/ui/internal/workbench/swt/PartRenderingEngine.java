@@ -15,8 +15,11 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
@@ -45,6 +48,7 @@ import org.eclipse.e4.ui.di.PersistState;
 import org.eclipse.e4.ui.internal.workbench.Activator;
 import org.eclipse.e4.ui.internal.workbench.E4Workbench;
 import org.eclipse.e4.ui.internal.workbench.Policy;
+import org.eclipse.e4.ui.internal.workbench.ReflectionContributionFactory;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.MApplicationElement;
 import org.eclipse.e4.ui.model.application.MContribution;
@@ -54,6 +58,7 @@ import org.eclipse.e4.ui.model.application.ui.MGenericStack;
 import org.eclipse.e4.ui.model.application.ui.MUIElement;
 import org.eclipse.e4.ui.model.application.ui.advanced.MPerspective;
 import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartSashContainerElement;
 import org.eclipse.e4.ui.model.application.ui.basic.MTrimmedWindow;
 import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.e4.ui.model.application.ui.menu.MMenu;
@@ -177,6 +182,11 @@ public class PartRenderingEngine implements IPresentationEngine {
 			// Re-parent the control based on the visible state
 			if (changedElement.isVisible()) {
 				if (changedElement.isToBeRendered()) {
+					// Realize an element whose rendering has been deferred
+					if (unrealizedElements.containsKey(changedElement)) {
+						createGui(changedElement);
+					}
+
 					if (changedElement.getWidget() instanceof Control) {
 						// Ensure that the control is under its 'real' parent if
 						// it's visible
@@ -253,6 +263,15 @@ public class PartRenderingEngine implements IPresentationEngine {
 			MElementContainer<MUIElement> changedElement = (MElementContainer<MUIElement>) changedObj;
 			boolean isApplication = changedObj instanceof MApplication;
 
+			// Forget the deferred elements that left the model, whether or not
+			// their parent is rendered
+			if (UIEvents.isREMOVE(event) && !unrealizedElements.isEmpty()) {
+				for (Object o : UIEvents.asIterable(event,
+						UIEvents.EventTags.OLD_VALUE)) {
+					forgetUnrealized((MUIElement) o);
+				}
+			}
+
 			boolean menuChild = changedObj instanceof MMenu;
 			// If the parent isn't in the UI then who cares?
 			AbstractPartRenderer renderer = getRendererFor(changedElement);
@@ -357,6 +376,25 @@ public class PartRenderingEngine implements IPresentationEngine {
 
 	private MUIElement removeRoot = null;
 
+	@Inject
+	@Optional
+	@Named(E4Workbench.DEFERRED_RENDERING)
+	private Boolean deferredRendering;
+
+	@Inject
+	@Optional
+	@Named(E4Workbench.PREPARE_PARTS_IN_BACKGROUND)
+	private Boolean preparePartsInBackground;
+
+	/**
+	 * The hidden elements whose rendering has been deferred until they are
+	 * first shown. Elements are removed when they are rendered or removed from
+	 * the model; the references are weak so that an element discarded along
+	 * with its whole window is not retained either.
+	 */
+	private Map<MUIElement, Boolean> unrealizedElements = new WeakHashMap<MUIElement, Boolean>(
+			4);
+
 	@Inject
 	public PartRenderingEngine(
 			@Named(E4Workbench.RENDERER_FACTORY_URI) @Optional String factoryUrl) {
@@ -534,6 +572,8 @@ public class PartRenderingEngine implements IPresentationEngine {
 		if (!element.isToBeRendered())
 			return null;
 
+		unrealizedElements.remove(element);
+
 		// no creates while processing a remove
 		if (removeRoot != null) {
 			return null;
@@ -602,6 +642,10 @@ public class PartRenderingEngine implements IPresentationEngine {
 			return element.getWidget();
 		}
 
+		if (element instanceof MWindow || element instanceof MPerspective) {
+			prepareParts(element);
+		}
+
 		if (element instanceof MContext) {
 			MContext ctxt = (MContext) element;
 			// Assert.isTrue(ctxt.getContext() == null,
@@ -704,6 +748,15 @@ public class PartRenderingEngine implements IPresentationEngine {
 	}
 
 	private Object safeCreateGui(MUIElement element) {
+		if (isDeferred(element)) {
+			if (unrealizedElements.put(element, Boolean.TRUE) == null) {
+				Activator.trace(Policy.DEBUG_RENDERER,
+						"Deferred rendering of " + element, null); //$NON-NLS-1$
+			}
+			return null;
+		}
+		realizeAncestors(element);
+
 		// Obtain the necessary parent widget
 		Object parent = null;
 		MUIElement parentME = element.getParent();
@@ -735,6 +788,98 @@ public class PartRenderingEngine implements IPresentationEngine {
 		return safeCreateGui(element, parent, parentContext);
 	}
 
+	/**
+	 * Loads the contribution classes of the parts that rendering the given
+	 * element will create on a background job, so that class loading overlaps
+	 * with the rendering of the element.
+	 */
+	private void prepareParts(MUIElement element) {
+		if (preparePartsInBackground == null
+				|| !preparePartsInBackground.booleanValue())
+			return;
+
+		Object factory = appContext.get(IContributionFactory.class);
+		if (!(factory instanceof ReflectionContributionFactory))
+			return;
+
+		Set<String> uris = PartPreparationJob
+				.collectContributionURIs(element);
+		if (!uris.isEmpty()) {
+			new PartPreparationJob((ReflectionContributionFactory) factory,
+					uris).schedule();
+		}
+	}
+
+	/**
+	 * Returns whether the rendering of the given element should be deferred
+	 * until it is first shown. Only hidden elements of the part presentation
+	 * are deferred; minimized elements are rendered since their trim stacks
+	 * show their widgets.
+	 */
+	private boolean isDeferred(MUIElement element) {
+		if (deferredRendering == null || !deferredRendering.booleanValue())
+			return false;
+		if (element.isVisible() || element.getWidget() != null
+				|| !element.isToBeRendered())
+			return false;
+		if (!(element instanceof MPartSashContainerElement)
+				|| element.getParent() == null)
+			return false;
+		return !element.getTags().contains(MINIMIZED);
+	}
+
+	/**
+	 * Renders any deferred element containing the given element so that the
+	 * element has a parent to be rendered under.
+	 */
+	private void realizeAncestors(MUIElement element) {
+		if (unrealizedElements.isEmpty())
+			return;
+
+		MUIElement outermost = null;
+		MUIElement parent = element.getParent();
+		while (parent != null) {
+			if (unrealizedElements.containsKey(parent)) {
+				outermost = parent;
+			}
+			parent = parent.getParent();
+		}
+
+		if (outermost != null) {
+			// hidden elements are rendered under the limbo shell
+			safeCreateGui(outermost, getLimboShell(),
+					getContext(outermost.getParent()));
+		}
+	}
+
+	/**
+	 * Forgets the deferred elements that are the given element or contained in
+	 * it, as the element has been removed from the model.
+	 */
+	private void forgetUnrealized(MUIElement removed) {
+		Iterator<MUIElement> iterator = unrealizedElements.keySet()
+				.iterator();
+		while (iterator.hasNext()) {
+			MUIElement element = iterator.next();
+			while (element != null && element != removed) {
+				element = element.getParent();
+			}
+			if (element != null) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of elements whose rendering has been deferred and that
+	 * have not been realized yet. For diagnostic purposes.
+	 * 
+	 * @return the number of unrealized elements
+	 */
+	public int getUnrealizedCount() {
+		return unrealizedElements.size();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -829,6 +974,8 @@ public class PartRenderingEngine implements IPresentationEngine {
 		if (removeRoot == null)
 			removeRoot = element;
 
+		unrealizedElements.remove(element);
+
 		// We call 'hideChild' *before* checking if the actual element
 		// has been rendered in order to pick up cases of 'lazy loading'
 		MUIElement parent = element.getParent();
@@ -13,11 +13,15 @@ package org.eclipse.e4.ui.internal.workbench;
 
 import org.eclipse.e4.core.commands.ExpressionContext;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.core.expressions.EvaluationResult;
 import org.eclipse.core.expressions.Expression;
 import org.eclipse.core.expressions.ExpressionInfo;
@@ -53,6 +57,101 @@ public final class ContributionsAnalyzer {
 
 	private static boolean DEBUG = true;
 
+	/**
+	 * The last result of a visibleWhen expression and the values of the
+	 * variables it was computed from.
+	 */
+	private static class VisibleWhenResult {
+		/**
+		 * The variables the expression accesses, followed by the variables the
+		 * evaluation service "pokes" when one of its properties is re-evaluated.
+		 */
+		final String[] variableNames;
+
+		final boolean defaultVariableAccess;
+
+		/**
+		 * Whether the expression only depends on its variables. Expressions
+		 * calling property testers are evaluated every time, as the testers may
+		 * depend on state outside of the context.
+		 */
+		final boolean reusable;
+
+		/**
+		 * The values the result was computed from, weakly referenced so that
+		 * the result doesn't keep a selection, part or editor input alive.
+		 */
+		WeakReference<?>[] values;
+
+		boolean visible;
+
+		VisibleWhenResult(ExpressionInfo info) {
+			String[] variables = info.getAccessedVariableNames();
+			String[] properties = info.getAccessedPropertyNames();
+			variableNames = new String[variables.length + properties.length];
+			System.arraycopy(variables, 0, variableNames, 0, variables.length);
+			for (int i = 0; i < properties.length; i++) {
+				variableNames[variables.length + i] = properties[i] + ".evaluationServiceLink"; //$NON-NLS-1$
+			}
+			defaultVariableAccess = info.hasDefaultVariableAccess();
+			reusable = properties.length == 0 && !info.hasSystemPropertyAccess()
+					&& info.getMisbehavingExpressionTypes() == null;
+		}
+
+		/**
+		 * Returns whether the result was computed from the given values. A value
+		 * that has been garbage collected since doesn't match.
+		 */
+		boolean isComputedFrom(Object[] currentValues) {
+			if (values == null || values.length != currentValues.length) {
+				return false;
+			}
+			for (int i = 0; i < values.length; i++) {
+				Object value = values[i] == null ? null : values[i].get();
+				if (currentValues[i] == null ? values[i] != null : !currentValues[i]
+						.equals(value)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		void setValues(Object[] currentValues) {
+			values = new WeakReference<?>[currentValues.length];
+			for (int i = 0; i < currentValues.length; i++) {
+				if (currentValues[i] != null) {
+					values[i] = new WeakReference<Object>(currentValues[i]);
+				}
+			}
+		}
+
+		/**
+		 * Returns the current values of the variables. Looking them up also
+		 * creates the dependencies of a tracking context on them.
+		 */
+		Object[] getValues(ExpressionContext eContext) {
+			Object[] result = new Object[variableNames.length + (defaultVariableAccess ? 1 : 0)];
+			for (int i = 0; i < variableNames.length; i++) {
+				result[i] = eContext.getVariable(variableNames[i]);
+			}
+			if (defaultVariableAccess) {
+				result[variableNames.length] = eContext.getDefaultVariable();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Results of visibleWhen expressions, so that menus and toolbars with many
+	 * contributions don't evaluate the same expressions again while none of
+	 * the variables the expressions depend on have changed.
+	 */
+	private static final Map<Expression, VisibleWhenResult> visibleWhenResults = new WeakHashMap<Expression, VisibleWhenResult>();
+
+	private static final AtomicInteger visibleWhenEvaluations = new AtomicInteger();
+
+	private static final AtomicInteger visibleWhenReuses = new AtomicInteger();
+
 	private static void trace(String msg, Object menu, Object menuModel) {
 		trace(msg + ": " + menu + ": " + menuModel, null); //$NON-NLS-1$ //$NON-NLS-2$
 	}
@@ -238,21 +337,58 @@ public final class ContributionsAnalyzer {
 			ref = new ReferenceExpression(exp.getCoreExpressionId());
 			exp.setCoreExpression(ref);
 		}
+		VisibleWhenResult result;
+		synchronized (visibleWhenResults) {
+			result = visibleWhenResults.get(ref);
+			if (result == null) {
+				result = new VisibleWhenResult(ref.computeExpressionInfo());
+				visibleWhenResults.put(ref, result);
+			}
+		}
+		// Creates dependency on a predefined value that can be "poked" by the evaluation
+		// service
+		Object[] values = result.getValues(eContext);
+		synchronized (result) {
+			if (result.reusable && result.isComputedFrom(values)) {
+				visibleWhenReuses.incrementAndGet();
+				return result.visible;
+			}
+		}
 		try {
-			// Creates dependency on a predefined value that can be "poked" by the evaluation
-			// service
-			ExpressionInfo info = ref.computeExpressionInfo();
-			String[] names = info.getAccessedPropertyNames();
-			for (String name : names) {
-				eContext.getVariable(name + ".evaluationServiceLink"); //$NON-NLS-1$
-			}
-			return ref.evaluate(eContext) != EvaluationResult.FALSE;
+			visibleWhenEvaluations.incrementAndGet();
+			boolean visible = ref.evaluate(eContext) != EvaluationResult.FALSE;
+			synchronized (result) {
+				result.setValues(values);
+				result.visible = visible;
+			}
+			return visible;
 		} catch (CoreException e) {
 			trace("isVisible exception", e); //$NON-NLS-1$
 		}
 		return false;
 	}
 
+	/**
+	 * Returns the number of visibleWhen expressions evaluated so far. Along
+	 * with {@link #getVisibleWhenReuses()} this is used to trace the cost of
+	 * showing a menu.
+	 * 
+	 * @return the number of evaluations
+	 */
+	public static int getVisibleWhenEvaluations() {
+		return visibleWhenEvaluations.get();
+	}
+
+	/**
+	 * Returns the number of times a visibleWhen expression didn't have to be
+	 * evaluated because the variables it depends on had not changed.
+	 * 
+	 * @return the number of reused results
+	 */
+	public static int getVisibleWhenReuses() {
+		return visibleWhenReuses.get();
+	}
+
 	public static void addMenuContributions(final MMenu menuModel,
 			final ArrayList<MMenuContribution> toContribute,
 			final ArrayList<MMenuElement> menuContributionsToRemove) {
@@ -71,6 +71,26 @@ public class E4Workbench implements IWorkbench {
 	 * Value is: <code>dir</code>
 	 */
 	public static final String RTL_MODE = "dir"; //$NON-NLS-1$
+	/**
+	 * The argument for parsing model fragments concurrently and skipping the fragment merge when
+	 * the contributing bundles are unchanged <br>
+	 * <br>
+	 * Value is: <code>parallelModelAssembly</code>
+	 */
+	public static final String PARALLEL_MODEL_ASSEMBLY = "parallelModelAssembly"; //$NON-NLS-1$
+	/**
+	 * The argument for deferring the rendering of hidden elements until they are first shown <br>
+	 * <br>
+	 * Value is: <code>deferredRendering</code>
+	 */
+	public static final String DEFERRED_RENDERING = "deferredRendering"; //$NON-NLS-1$
+	/**
+	 * The argument for loading the classes of the parts about to be rendered on a background
+	 * thread <br>
+	 * <br>
+	 * Value is: <code>preparePartsInBackground</code>
+	 */
+	public static final String PREPARE_PARTS_IN_BACKGROUND = "preparePartsInBackground"; //$NON-NLS-1$
 
 	private final String id;
 	private ServiceRegistration<?> osgiRegistration;
@@ -11,7 +11,7 @@
 
 package org.eclipse.e4.ui.internal.workbench;
 
-import java.util.List;
+import java.util.Map;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.emf.ecore.EStructuralFeature;
@@ -29,6 +29,13 @@ public class EMFModelDeltaDelayedSet extends EMFModelDeltaSet {
 		this.id = id;
 	}
 
+	/**
+	 * @return the root of the model this delta's value is resolved in
+	 */
+	Object getRoot() {
+		return root;
+	}
+
 	@Override
 	public Object getAttributeValue() {
 		return value;
@@ -36,7 +43,20 @@ public class EMFModelDeltaDelayedSet extends EMFModelDeltaSet {
 
 	@Override
 	public IStatus apply() {
-		List<Object> references = XMLModelReconciler.getReferences(root);
+		return apply(XMLModelReconciler.indexReferences(root));
+	}
+
+	/**
+	 * Applies this delta, resolving its value against an index of the model's application
+	 * elements instead of walking the model.
+	 * 
+	 * @param references
+	 *            the model's application elements keyed by their resource id, as built by
+	 *            {@link XMLModelReconciler#indexReferences(Object)}
+	 * @return the status of the operation, {@link Status#CANCEL_STATUS} if the referenced element
+	 *         could not be found
+	 */
+	IStatus apply(Map<String, Object> references) {
 		value = XMLModelReconciler.findReference(references, id);
 		if (value == null) {
 			return Status.CANCEL_STATUS;
@@ -12,13 +12,20 @@
 package org.eclipse.e4.ui.internal.workbench;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.inject.Inject;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IContributor;
@@ -44,6 +51,8 @@ import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.emf.ecore.util.EContentsEList;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.osgi.framework.Bundle;
@@ -65,6 +74,12 @@ public class ModelAssembler {
 
 	final private static String extensionPointID = "org.eclipse.e4.workbench.model"; //$NON-NLS-1$
 
+	/**
+	 * Persisted state key of the application recording the fragment resources, and their
+	 * versions, that have been merged into the model by a parallel assembly.
+	 */
+	final private static String FRAGMENTS_KEY = "modelAssembler.fragments"; //$NON-NLS-1$
+
 	/**
 	 * Process the model
 	 */
@@ -89,6 +104,76 @@ public class ModelAssembler {
 			}
 		}
 
+		boolean parallel = isParallelAssembly();
+		List<FragmentContribution> contributions = collectFragments(extensions);
+		String fragmentsKey = null;
+		if (parallel) {
+			List<URI> uris = new ArrayList<URI>(contributions.size());
+			for (FragmentContribution contribution : contributions) {
+				uris.add(contribution.uri);
+			}
+			fragmentsKey = computeFragmentsKey(uris, resourceSet.getURIConverter());
+		}
+		if (fragmentsKey != null
+				&& fragmentsKey.equals(application.getPersistedState().get(FRAGMENTS_KEY))) {
+			// the persisted model already contains the merged fragments of
+			// exactly these resources, with the same contents
+			Activator.trace(Policy.DEBUG_WORKBENCH,
+					"Model fragments unchanged, skipping fragment merge", null); //$NON-NLS-1$
+		} else {
+			if (parallel) {
+				loadFragmentsConcurrently(contributions, resourceSet);
+			}
+
+			for (FragmentContribution contribution : contributions) {
+				Resource resource = contribution.resource;
+				if (resource == null && !parallel) {
+					try {
+						resource = resourceSet.getResource(contribution.uri, true);
+					} catch (RuntimeException e) {
+						logger.warn(e, "Unable to read model extension"); //$NON-NLS-1$
+						continue;
+					}
+				}
+				if (resource == null) {
+					continue;
+				}
+				if (resource.getResourceSet() != resourceSet) {
+					// attach the detached resource in contribution order
+					resourceSet.getResources().add(resource);
+				}
+				mergeFragments(contribution, resource, applicationResource, imports,
+						addedElements);
+			}
+
+			// a serial run merges without a key, so don't let a later parallel run trust the key
+			// of an earlier one
+			if (fragmentsKey != null) {
+				application.getPersistedState().put(FRAGMENTS_KEY, fragmentsKey);
+			} else {
+				application.getPersistedState().remove(FRAGMENTS_KEY);
+			}
+		}
+
+		for (IExtension extension : extensions) {
+			IConfigurationElement[] ces = extension.getConfigurationElements();
+			for (IConfigurationElement ce : ces) {
+				if (!"processor".equals(ce.getName()) || Boolean.parseBoolean(ce.getAttribute("beforefragment"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					continue;
+				}
+
+				runProcessor(ce);
+			}
+		}
+
+		resolveImports(imports, addedElements);
+	}
+
+	/**
+	 * Collect the fragment contributions of the given extensions, in contribution order.
+	 */
+	private List<FragmentContribution> collectFragments(IExtension[] extensions) {
+		List<FragmentContribution> contributions = new ArrayList<FragmentContribution>();
 		for (IExtension extension : extensions) {
 			IConfigurationElement[] ces = extension.getConfigurationElements();
 			for (IConfigurationElement ce : ces) {
@@ -113,86 +198,243 @@ public class ModelAssembler {
 					continue;
 				}
 
-				String contributorURI = URIHelper.constructPlatformURI(contributor);
-				Resource resource;
-				try {
-					resource = resourceSet.getResource(uri, true);
-				} catch (RuntimeException e) {
-					logger.warn(e, "Unable to read model extension"); //$NON-NLS-1$
-					continue;
-				}
+				contributions.add(new FragmentContribution(contributor, uri, URIHelper
+						.constructPlatformURI(contributor)));
+			}
+		}
+		return contributions;
+	}
 
-				EList<?> contents = resource.getContents();
-				if (contents.isEmpty()) {
-					continue;
-				}
+	/**
+	 * Parse the fragment resources on a pool of worker threads, see
+	 * {@link #loadResources(List, ResourceSet, Logger)}.
+	 */
+	private void loadFragmentsConcurrently(List<FragmentContribution> contributions,
+			ResourceSet resourceSet) {
+		List<URI> uris = new ArrayList<URI>(contributions.size());
+		for (FragmentContribution contribution : contributions) {
+			uris.add(contribution.uri);
+		}
+		Resource[] resources = loadResources(uris, resourceSet, logger);
+		for (int i = 0; i < resources.length; i++) {
+			contributions.get(i).resource = resources[i];
+		}
+	}
 
-				Object extensionRoot = contents.get(0);
+	/**
+	 * Parse the resources on a pool of worker threads. Each resource is loaded into its own
+	 * detached resource set, with the resource factories, packages, URI mappings and load options
+	 * of the given one; the caller attaches them to the resource set in the order it needs. Resources already loaded in the resource set are reused
+	 * as is, and a URI given more than once is loaded only once.
+	 * 
+	 * @param uris
+	 *            the URIs of the resources
+	 * @param resourceSet
+	 *            the resource set the resources are meant for
+	 * @param logger
+	 *            the logger for the resources that cannot be read, or <code>null</code>
+	 * @return the resources, in the order of the URIs, with <code>null</code> for the resources
+	 *         that cannot be read
+	 */
+	public static Resource[] loadResources(List<URI> uris, ResourceSet resourceSet, Logger logger) {
+		Resource[] resources = new Resource[uris.size()];
+		Map<URI, Future<Resource>> results = new LinkedHashMap<URI, Future<Resource>>();
+		Map<URI, Resource> existing = new HashMap<URI, Resource>();
+		for (URI uri : uris) {
+			Resource resource = resourceSet.getResource(uri, false);
+			if (resource != null && resource.isLoaded()) {
+				existing.put(uri, resource);
+			} else {
+				results.put(uri, null);
+			}
+		}
 
-				if (!(extensionRoot instanceof MModelFragments)) {
-					logger.warn("Unable to create model extension \"{0}\"", //$NON-NLS-1$
-							contributor.getName());
-					continue;
+		if (!results.isEmpty()) {
+			int threads = Math.min(Runtime.getRuntime().availableProcessors(), results.size());
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				for (URI uri : results.keySet()) {
+					results.put(uri, executor.submit(new FragmentLoader(uri, resourceSet)));
 				}
-
-				MModelFragments fragmentsContainer = (MModelFragments) extensionRoot;
-				List<MModelFragment> fragments = fragmentsContainer.getFragments();
-				boolean evalImports = false;
-				for (MModelFragment fragment : fragments) {
-					List<MApplicationElement> elements = fragment.getElements();
-					if (elements.size() == 0) {
-						continue;
+				for (Map.Entry<URI, Future<Resource>> result : results.entrySet()) {
+					try {
+						existing.put(result.getKey(), result.getValue().get());
+					} catch (ExecutionException e) {
+						if (logger != null) {
+							logger.warn(e.getCause(), "Unable to read model extension"); //$NON-NLS-1$
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						if (logger != null) {
+							logger.warn(e, "Unable to read model extension"); //$NON-NLS-1$
+						}
 					}
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
 
-					for (MApplicationElement el : elements) {
-						EObject o = (EObject) el;
+		for (int i = 0; i < resources.length; i++) {
+			resources[i] = existing.get(uris.get(i));
+		}
+		return resources;
+	}
 
-						E4XMIResource r = (E4XMIResource) o.eResource();
-						applicationResource.setID(o, r.getID(o));
+	private void mergeFragments(FragmentContribution contribution, Resource resource,
+			E4XMIResource applicationResource, List<MApplicationElement> imports,
+			List<MApplicationElement> addedElements) {
+		EList<?> contents = resource.getContents();
+		if (contents.isEmpty()) {
+			return;
+		}
 
-						if (contributorURI != null)
-							el.setContributorURI(contributorURI);
+		Object extensionRoot = contents.get(0);
 
-						// Remember IDs of subitems
-						TreeIterator<EObject> treeIt = EcoreUtil.getAllContents(o, true);
-						while (treeIt.hasNext()) {
-							EObject eObj = treeIt.next();
-							r = (E4XMIResource) eObj.eResource();
-							if (contributorURI != null && (eObj instanceof MApplicationElement))
-								((MApplicationElement) eObj).setContributorURI(contributorURI);
-							applicationResource.setID(eObj, r.getInternalId(eObj));
-						}
-					}
+		if (!(extensionRoot instanceof MModelFragments)) {
+			logger.warn("Unable to create model extension \"{0}\"", //$NON-NLS-1$
+					contribution.contributor.getName());
+			return;
+		}
 
-					List<MApplicationElement> merged = fragment.merge(application);
+		String contributorURI = contribution.contributorURI;
+		MModelFragments fragmentsContainer = (MModelFragments) extensionRoot;
+		List<MModelFragment> fragments = fragmentsContainer.getFragments();
+		boolean evalImports = false;
+		for (MModelFragment fragment : fragments) {
+			List<MApplicationElement> elements = fragment.getElements();
+			if (elements.size() == 0) {
+				continue;
+			}
 
-					if (merged.size() > 0) {
-						evalImports = true;
-						addedElements.addAll(merged);
-					}
-				}
+			for (MApplicationElement el : elements) {
+				EObject o = (EObject) el;
 
-				if (evalImports) {
-					List<MApplicationElement> localImports = fragmentsContainer.getImports();
-					if (localImports != null) {
-						imports.addAll(localImports);
-					}
+				E4XMIResource r = (E4XMIResource) o.eResource();
+				applicationResource.setID(o, r.getID(o));
+
+				if (contributorURI != null)
+					el.setContributorURI(contributorURI);
+
+				// Remember IDs of subitems
+				TreeIterator<EObject> treeIt = EcoreUtil.getAllContents(o, true);
+				while (treeIt.hasNext()) {
+					EObject eObj = treeIt.next();
+					r = (E4XMIResource) eObj.eResource();
+					if (contributorURI != null && (eObj instanceof MApplicationElement))
+						((MApplicationElement) eObj).setContributorURI(contributorURI);
+					applicationResource.setID(eObj, r.getInternalId(eObj));
 				}
 			}
+
+			List<MApplicationElement> merged = fragment.merge(application);
+
+			if (merged.size() > 0) {
+				evalImports = true;
+				addedElements.addAll(merged);
+			}
 		}
 
-		for (IExtension extension : extensions) {
-			IConfigurationElement[] ces = extension.getConfigurationElements();
-			for (IConfigurationElement ce : ces) {
-				if (!"processor".equals(ce.getName()) || Boolean.parseBoolean(ce.getAttribute("beforefragment"))) { //$NON-NLS-1$ //$NON-NLS-2$
-					continue;
-				}
+		if (evalImports) {
+			List<MApplicationElement> localImports = fragmentsContainer.getImports();
+			if (localImports != null) {
+				imports.addAll(localImports);
+			}
+		}
+	}
 
-				runProcessor(ce);
+	private boolean isParallelAssembly() {
+		Object value = context.get(E4Workbench.PARALLEL_MODEL_ASSEMBLY);
+		if (value instanceof Boolean) {
+			return ((Boolean) value).booleanValue();
+		}
+		return value instanceof String && Boolean.parseBoolean((String) value);
+	}
+
+	/**
+	 * Compute a key identifying the resources and their versions: the key changes when a resource
+	 * is added, removed or reordered, or when its time stamp or length changes, even if the
+	 * version of its bundle does not change. The resources are not read.
+	 * 
+	 * @param uris
+	 *            the URIs of the resources
+	 * @param converter
+	 *            the converter used to read the resources
+	 * @return the key, or <code>null</code> if a resource does not exist or reports neither a
+	 *         time stamp nor a length
+	 */
+	public static String computeFragmentsKey(List<URI> uris, URIConverter converter) {
+		Map<String, Object> options = Collections.<String, Object> singletonMap(
+				URIConverter.OPTION_REQUESTED_ATTRIBUTES,
+				new HashSet<String>(Arrays.asList(URIConverter.ATTRIBUTE_TIME_STAMP,
+						URIConverter.ATTRIBUTE_LENGTH)));
+		StringBuilder key = new StringBuilder();
+		for (URI uri : uris) {
+			if (!converter.exists(uri, null)) {
+				return null;
 			}
+			Map<String, ?> attributes = converter.getAttributes(uri, options);
+			long timeStamp = toLong(attributes.get(URIConverter.ATTRIBUTE_TIME_STAMP));
+			long length = toLong(attributes.get(URIConverter.ATTRIBUTE_LENGTH));
+			if (timeStamp <= 0 && length < 0) {
+				return null;
+			}
+			if (key.length() > 0) {
+				key.append(',');
+			}
+			key.append(uri).append('#').append(timeStamp).append('#').append(length);
 		}
+		return key.toString();
+	}
 
-		resolveImports(imports, addedElements);
+	private static long toLong(Object value) {
+		return value instanceof Long ? ((Long) value).longValue() : -1;
+	}
+
+	/**
+	 * A <code>fragment</code> element of the model extension point.
+	 */
+	private static class FragmentContribution {
+		final IContributor contributor;
+		final URI uri;
+		final String contributorURI;
+		Resource resource;
+
+		FragmentContribution(IContributor contributor, URI uri, String contributorURI) {
+			this.contributor = contributor;
+			this.uri = uri;
+			this.contributorURI = contributorURI;
+		}
+	}
+
+	/**
+	 * Loads a fragment resource into a resource set of its own, with the resource factories,
+	 * packages, URI mappings and load options of the application resource set.
+	 */
+	private static class FragmentLoader implements Callable<Resource> {
+		private final URI uri;
+		private final ResourceSet template;
+
+		FragmentLoader(URI uri, ResourceSet template) {
+			this.uri = uri;
+			this.template = template;
+		}
+
+		public Resource call() throws Exception {
+			ResourceSet resourceSet = new ResourceSetImpl();
+			Resource.Factory.Registry factories = resourceSet.getResourceFactoryRegistry();
+			Resource.Factory.Registry templateFactories = template.getResourceFactoryRegistry();
+			factories.getProtocolToFactoryMap().putAll(templateFactories.getProtocolToFactoryMap());
+			factories.getExtensionToFactoryMap()
+					.put(Resource.Factory.Registry.DEFAULT_EXTENSION, new E4XMIResourceFactory());
+			factories.getExtensionToFactoryMap().putAll(templateFactories.getExtensionToFactoryMap());
+			factories.getContentTypeToFactoryMap().putAll(
+					templateFactories.getContentTypeToFactoryMap());
+			resourceSet.getPackageRegistry().putAll(template.getPackageRegistry());
+			resourceSet.getURIConverter().getURIMap().putAll(template.getURIConverter().getURIMap());
+			resourceSet.getLoadOptions().putAll(template.getLoadOptions());
+			return resourceSet.getResource(uri, true);
+		}
 	}
 
 	private void runProcessor(IConfigurationElement ce) {
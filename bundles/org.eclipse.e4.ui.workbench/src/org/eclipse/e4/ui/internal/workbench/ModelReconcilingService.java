@@ -12,8 +12,10 @@
 package org.eclipse.e4.ui.internal.workbench;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import javax.inject.Inject;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
@@ -53,71 +55,72 @@ public class ModelReconcilingService implements IModelReconcilingService {
 				}
 			}
 
-			final IStatus[] status = new IStatus[1];
-			SafeRunner.run(new ISafeRunnable() {
-				public void run() throws Exception {
-					status[0] = delta.apply();
-				}
-
-				public void handleException(Throwable exception) {
-					status[0] = new Status(IStatus.ERROR, Activator.PI_WORKBENCH,
-							"Failed to apply delta", exception); //$NON-NLS-1$
-				}
-			});
-
-			if (status[0].getSeverity() == IStatus.CANCEL) {
+			IStatus status = apply(delta, null);
+			if (status.getSeverity() == IStatus.CANCEL) {
 				delayedDeltas.add(delta);
 				continue;
 			}
-			multiStatus.add(status[0]);
-
-			switch (status[0].getCode()) {
-			case IStatus.INFO:
-				logger.info(status[0].getMessage());
-				break;
-			case IStatus.WARNING:
-				logger.warn(status[0].getMessage());
-				break;
-			case IStatus.ERROR:
-				logger.error(status[0].getMessage());
-				break;
-			}
+			log(multiStatus, status);
 		}
 
+		// only references that could not be resolved yet are delayed, they no longer change the
+		// model's containment tree so each model only needs to be indexed once for all of them
+		Map<Object, Map<String, Object>> indexes = new HashMap<Object, Map<String, Object>>();
 		for (Iterator<ModelDelta> it = delayedDeltas.iterator(); it.hasNext();) {
-			final ModelDelta delta = it.next();
-			final IStatus[] status = new IStatus[1];
-			SafeRunner.run(new ISafeRunnable() {
-				public void run() throws Exception {
-					status[0] = delta.apply();
-				}
-
-				public void handleException(Throwable exception) {
-					status[0] = new Status(IStatus.ERROR, Activator.PI_WORKBENCH,
-							"Failed to apply delta", exception); //$NON-NLS-1$
+			ModelDelta delta = it.next();
+			Map<String, Object> references = null;
+			if (delta instanceof EMFModelDeltaDelayedSet) {
+				Object root = ((EMFModelDeltaDelayedSet) delta).getRoot();
+				references = indexes.get(root);
+				if (references == null) {
+					references = XMLModelReconciler.indexReferences(root);
+					indexes.put(root, references);
 				}
-			});
-
-			if (status[0].getSeverity() == IStatus.CANCEL) {
-				continue;
 			}
 
-			multiStatus.add(status[0]);
-
-			switch (status[0].getCode()) {
-			case IStatus.INFO:
-				logger.info(status[0].getMessage());
-				break;
-			case IStatus.WARNING:
-				logger.warn(status[0].getMessage());
-				break;
-			case IStatus.ERROR:
-				logger.error(status[0].getMessage());
-				break;
+			IStatus status = apply(delta, references);
+			if (status.getSeverity() == IStatus.CANCEL) {
+				continue;
 			}
+			log(multiStatus, status);
 		}
 
 		return multiStatus;
 	}
 
+	private IStatus apply(final ModelDelta delta, final Map<String, Object> references) {
+		final IStatus[] status = new IStatus[1];
+		SafeRunner.run(new ISafeRunnable() {
+			public void run() throws Exception {
+				if (references != null) {
+					status[0] = ((EMFModelDeltaDelayedSet) delta).apply(references);
+				} else {
+					status[0] = delta.apply();
+				}
+			}
+
+			public void handleException(Throwable exception) {
+				status[0] = new Status(IStatus.ERROR, Activator.PI_WORKBENCH,
+						"Failed to apply delta", exception); //$NON-NLS-1$
+			}
+		});
+		return status[0];
+	}
+
+	private void log(MultiStatus multiStatus, IStatus status) {
+		multiStatus.add(status);
+
+		switch (status.getCode()) {
+		case IStatus.INFO:
+			logger.info(status.getMessage());
+			break;
+		case IStatus.WARNING:
+			logger.warn(status.getMessage());
+			break;
+		case IStatus.ERROR:
+			logger.error(status.getMessage());
+			break;
+		}
+	}
+
 }
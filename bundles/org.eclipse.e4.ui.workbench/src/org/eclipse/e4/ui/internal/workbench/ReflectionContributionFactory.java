@@ -53,6 +53,39 @@ public class ReflectionContributionFactory implements IContributionFactory {
 		return doCreate(uriString, context, null);
 	}
 
+	/**
+	 * Performs the part of the creation of a contribution that does not depend on the context it
+	 * will be created in: the contributing bundle is resolved and the contribution class is loaded.
+	 * This method may be called from any thread; a later call to one of the <code>create</code>
+	 * methods for the same URI then only has to inject the contribution.
+	 * 
+	 * @param uriString
+	 *            the URI of the contribution
+	 * @return <code>true</code> if the contribution class has been loaded, <code>false</code>
+	 *         otherwise
+	 */
+	public boolean prepare(String uriString) {
+		if (uriString == null) {
+			return false;
+		}
+		URI uri = URI.createURI(uriString.replace("platform:/plugin/", "bundleclass://")); //$NON-NLS-1$ //$NON-NLS-2$
+		if (uri.authority() == null || uri.segmentCount() != 1) {
+			// other languages are left to their contribution factory
+			return false;
+		}
+		Bundle bundle = Activator.getDefault().getBundleForName(uri.authority());
+		if (bundle == null) {
+			return false;
+		}
+		try {
+			bundle.loadClass(uri.segment(0));
+			return true;
+		} catch (ClassNotFoundException e) {
+			// reported when the contribution is created
+			return false;
+		}
+	}
+
 	private Object doCreate(String uriString, IEclipseContext context, IEclipseContext staticContext) {
 		if (uriString == null) {
 			return null;
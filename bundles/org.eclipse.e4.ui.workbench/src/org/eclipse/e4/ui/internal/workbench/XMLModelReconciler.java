@@ -186,7 +186,6 @@ public class XMLModelReconciler extends ModelReconciler {
 
 	public Collection<ModelDelta> constructDeltas(Object object, Object serializedState) {
 		rootObject = (EObject) object;
-		List<Object> references = getReferences(rootObject);
 
 		Document document = (Document) serializedState;
 
@@ -204,13 +203,21 @@ public class XMLModelReconciler extends ModelReconciler {
 			return deltas;
 		}
 
+		// index both sides once so that every persisted element is matched in constant time
+		Map<String, Object> references = indexReferences(rootObject);
+		Map<String, EObject> elements = new HashMap<String, EObject>();
+		indexElements(elements, rootObject);
+
 		NodeList rootNodeList = (NodeList) rootElement;
 		for (int i = 0; i < rootNodeList.getLength(); i++) {
 			Node node = rootNodeList.item(i);
 			if (node instanceof Element) {
 				Element element = (Element) node;
-				constructDeltas(deltas, references, rootObject, element,
-						element.getAttribute(APPLICATIONELEMENT_ELEMENTID_ATTNAME));
+				EObject match = elements.get(element
+						.getAttribute(APPLICATIONELEMENT_ELEMENTID_ATTNAME));
+				if (match != null) {
+					constructDeltas(deltas, references, match, element);
+				}
 			}
 		}
 
@@ -218,12 +225,8 @@ public class XMLModelReconciler extends ModelReconciler {
 	}
 
 	private static EStructuralFeature getStructuralFeature(EObject object, String featureName) {
-		for (EStructuralFeature sf : object.eClass().getEAllStructuralFeatures()) {
-			if (sf.getName().equals(featureName)) {
-				return sf;
-			}
-		}
-		return null;
+		// EClass keeps its own name to feature table
+		return object.eClass().getEStructuralFeature(featureName);
 	}
 
 	private Object getValue(EStructuralFeature feature, String featureValue) {
@@ -242,84 +245,96 @@ public class XMLModelReconciler extends ModelReconciler {
 		return null;
 	}
 
-	static Object findReference(List<Object> references, String id) {
-		for (Object reference : references) {
-			if (reference instanceof MApplicationElement && getLocalId(reference).equals(id)) {
-				return reference;
+	/**
+	 * Indexes the application elements contained by the given root object by their resource id.
+	 * Should several elements share an id, the first one in containment order is kept.
+	 * 
+	 * @param root
+	 *            the root of the model
+	 * @return a map of resource ids to their application elements
+	 */
+	static Map<String, Object> indexReferences(Object root) {
+		Map<String, Object> references = new HashMap<String, Object>();
+		for (Object reference : getReferences(root)) {
+			if (reference instanceof MApplicationElement) {
+				String id = getLocalId(reference);
+				if (id != null && !references.containsKey(id)) {
+					references.put(id, reference);
+				}
 			}
 		}
+		return references;
+	}
 
-		return null;
+	static Object findReference(Map<String, Object> references, String id) {
+		return references.get(id);
 	}
 
-	private boolean constructDeltas(Collection<ModelDelta> deltas, List<Object> references,
-			EObject object, Element element, String id) {
+	/**
+	 * Indexes the objects that persisted deltas may target by their resource id. The containment
+	 * tree is walked depth-first so that, should several objects share an id, the first one found
+	 * is kept.
+	 * 
+	 * @param elements
+	 *            the map to record the objects in
+	 * @param object
+	 *            the object to index along with its children
+	 */
+	private void indexElements(Map<String, EObject> elements, EObject object) {
+		if (object == null) {
+			return;
+		}
+
 		if (object instanceof MApplicationElement || object instanceof MKeyBinding) {
-			if (getLocalId(object).equals(id)) {
-				constructDeltas(deltas, references, object, element);
-				return true;
+			String id = getLocalId(object);
+			if (id != null && !elements.containsKey(id)) {
+				elements.put(id, object);
 			}
 		}
 
 		if (object instanceof MElementContainer<?>) {
 			for (Object child : ((MElementContainer<?>) object).getChildren()) {
-				if (constructDeltas(deltas, references, (EObject) child, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) child);
 			}
 		}
 
 		if (object instanceof MPerspective) {
 			for (MWindow window : ((MPerspective) object).getWindows()) {
-				if (constructDeltas(deltas, references, (EObject) window, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) window);
 			}
 		}
 
 		if (object instanceof MBindingTableContainer) {
 			for (MBindingTable bindingTable : ((MBindingTableContainer) object).getBindingTables()) {
-				if (constructDeltas(deltas, references, (EObject) bindingTable, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) bindingTable);
 			}
 		}
 
 		if (object instanceof MBindingTable) {
 			for (MKeyBinding keyBinding : ((MBindingTable) object).getBindings()) {
-				if (constructDeltas(deltas, references, (EObject) keyBinding, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) keyBinding);
 			}
 		}
 
 		if (object instanceof MHandlerContainer) {
 			for (MHandler handler : ((MHandlerContainer) object).getHandlers()) {
-				if (constructDeltas(deltas, references, (EObject) handler, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) handler);
 			}
 		}
 
 		if (object instanceof MApplication) {
 			for (MCommand command : ((MApplication) object).getCommands()) {
-				if (constructDeltas(deltas, references, (EObject) command, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) command);
 			}
 
 			for (MAddon addon : ((MApplication) object).getAddons()) {
-				if (constructDeltas(deltas, references, (EObject) addon, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) addon);
 			}
 		}
 
 		if (object instanceof MPartDescriptorContainer) {
 			for (MPartDescriptor descriptor : ((MPartDescriptorContainer) object).getDescriptors()) {
-				if (constructDeltas(deltas, references, (EObject) descriptor, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) descriptor);
 			}
 		}
 
@@ -327,74 +342,56 @@ public class XMLModelReconciler extends ModelReconciler {
 			MPart part = (MPart) object;
 
 			for (MMenu menu : part.getMenus()) {
-				if (constructDeltas(deltas, references, (EObject) menu, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) menu);
 			}
 
 			MToolBar toolBar = part.getToolbar();
 			if (toolBar != null) {
-				if (constructDeltas(deltas, references, (EObject) toolBar, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) toolBar);
 			}
 		}
 
 		if (object instanceof MMenuContributions) {
 			for (MMenuContribution contribution : ((MMenuContributions) object)
 					.getMenuContributions()) {
-				if (constructDeltas(deltas, references, (EObject) contribution, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) contribution);
 			}
 		}
 
 		if (object instanceof MToolBarContributions) {
 			for (MToolBarContribution contribution : ((MToolBarContributions) object)
 					.getToolBarContributions()) {
-				if (constructDeltas(deltas, references, (EObject) contribution, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) contribution);
 			}
 		}
 
 		if (object instanceof MTrimContributions) {
 			for (MTrimContribution contribution : ((MTrimContributions) object)
 					.getTrimContributions()) {
-				if (constructDeltas(deltas, references, (EObject) contribution, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) contribution);
 			}
 		}
 
 		if (object instanceof MWindow) {
 			MWindow window = (MWindow) object;
-			if (constructDeltas(deltas, references, (EObject) window.getMainMenu(), element, id)) {
-				return true;
-			}
+			indexElements(elements, (EObject) window.getMainMenu());
 
 			if (object instanceof MTrimmedWindow) {
 				MTrimmedWindow trimmedWindow = (MTrimmedWindow) object;
 				for (MTrimBar trimBar : trimmedWindow.getTrimBars()) {
-					if (constructDeltas(deltas, references, (EObject) trimBar, element, id)) {
-						return true;
-					}
+					indexElements(elements, (EObject) trimBar);
 				}
 			}
 		}
 
 		if (object instanceof MHandledItem) {
 			for (MParameter parameter : ((MHandledItem) object).getParameters()) {
-				if (constructDeltas(deltas, references, (EObject) parameter, element, id)) {
-					return true;
-				}
+				indexElements(elements, (EObject) parameter);
 			}
 		}
-
-		return false;
 	}
 
-	private void constructDeltas(Collection<ModelDelta> deltas, List<Object> references,
+	private void constructDeltas(Collection<ModelDelta> deltas, Map<String, Object> references,
 			EObject object, Element element) {
 		String elementName = element.getNodeName();
 		if (elementName.equals(CONTEXT_PROPERTIES_ATTNAME)) {
@@ -423,8 +420,8 @@ public class XMLModelReconciler extends ModelReconciler {
 		}
 	}
 
-	private void constructObjectDeltas(Collection<ModelDelta> deltas, List<Object> references,
-			EObject object, Element element) {
+	private void constructObjectDeltas(Collection<ModelDelta> deltas,
+			Map<String, Object> references, EObject object, Element element) {
 		NodeList nodeList = (NodeList) element;
 		for (int i = 0; i < nodeList.getLength(); i++) {
 			Node node = nodeList.item(i);
@@ -468,7 +465,8 @@ public class XMLModelReconciler extends ModelReconciler {
 	}
 
 	private ModelDelta createDirectReferenceDelta(Collection<ModelDelta> deltas,
-			List<Object> references, EObject eObject, EStructuralFeature feature, Element node) {
+			Map<String, Object> references, EObject eObject, EStructuralFeature feature,
+			Element node) {
 		NodeList referencedIds = (NodeList) node;
 		Element reference = getFirstElement(referencedIds);
 		String referenceId = reference.getAttribute(APPLICATIONELEMENT_ELEMENTID_ATTNAME);
@@ -492,8 +490,8 @@ public class XMLModelReconciler extends ModelReconciler {
 		return null;
 	}
 
-	private ModelDelta createIndirectReferenceDelta(List<Object> references, EObject eObject,
-			EStructuralFeature feature, Element node) {
+	private ModelDelta createIndirectReferenceDelta(Map<String, Object> references,
+			EObject eObject, EStructuralFeature feature, Element node) {
 		NodeList referencedIds = (NodeList) node;
 
 		Element reference = getFirstElement(referencedIds);
@@ -649,7 +647,8 @@ public class XMLModelReconciler extends ModelReconciler {
 	}
 
 	private ModelDelta createMultiReferenceDelta(Collection<ModelDelta> deltas,
-			List<Object> references, EObject eObject, EStructuralFeature feature, Element node) {
+			Map<String, Object> references, EObject eObject, EStructuralFeature feature,
+			Element node) {
 		NodeList referencedIds = (NodeList) node;
 		List<Object> originalReferences = new ArrayList<Object>();
 		List<Object> userReferences = new ArrayList<Object>();
@@ -696,7 +695,7 @@ public class XMLModelReconciler extends ModelReconciler {
 	}
 
 	private Object getReference(Collection<ModelDelta> deltas, Element element,
-			List<Object> references) {
+			Map<String, Object> references) {
 		String id = element.getAttribute(APPLICATIONELEMENT_ELEMENTID_ATTNAME);
 		if (!id.equals("")) { //$NON-NLS-1$
 			return findReference(references, id);
@@ -705,7 +704,7 @@ public class XMLModelReconciler extends ModelReconciler {
 	}
 
 	private Object createObject(Collection<ModelDelta> deltas, Element element,
-			List<Object> references) {
+			Map<String, Object> references) {
 		String typeName = element.getAttribute(TYPE_ATTNAME);
 		String namespace = element.getAttribute(NAMESPACE_ATTNAME);
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -378,7 +378,16 @@ public class CachedMarkerBuilder {
 	 * @param newGenerator
 	 */
 	void setGenerator(MarkerContentGenerator newGenerator) {
-		generator = newGenerator;
+		synchronized (getUpdateScheduler().getSchedulingLock()) {
+			generator = newGenerator;
+			// the kind of update job depends on the generator
+			if (updateJob != null
+					&& (updateJob == incrementJob) != isIncremental()) {
+				updateJob.cancel();
+				updateJob = null;
+				incrementJob = null;
+			}
+		}
 		if (generator.getBuilder() != this) {
 			generator.setBuilder(this);
 		}
@@ -466,13 +475,7 @@ public class CachedMarkerBuilder {
 				// ensure cancellation before calling the method
 				// updateJob.cancel();
 			} else {
-				/*
-				 * updateJob = isIncremental() ? new IncrementUpdateJob(this):
-				 * new MarkerUpdateJob(this);
-				 */
-				updateJob = new MarkerUpdateJob(this);
-				updateJob.setPriority(Job.LONG);
-				updateJob.setSystem(true);
+				createUpdateJob();
 			}
 			if (clean) {
 				updateJob.setClean();
@@ -486,6 +489,23 @@ public class CachedMarkerBuilder {
 		}
 	}
 	
+	/**
+	 * Create the job that updates the markers. Should be called with the
+	 * scheduling lock held.
+	 */
+	private void createUpdateJob() {
+		if (isIncremental()) {
+			incrementJob = new IncrementUpdateJob(this);
+			updateJob = incrementJob;
+		} else {
+			updateJob = new MarkerUpdateJob(this);
+		}
+		updateJob.setPriority(Job.LONG);
+		updateJob.setSystem(true);
+		// the first run gathers the markers
+		updateJob.setClean();
+	}
+
 	/**
 	 * The method should not be called directly, see
 	 * {@link MarkerUpdateScheduler}
@@ -615,18 +635,16 @@ public class CachedMarkerBuilder {
 ///////	<Incremental update code>///////
 		private IncrementUpdateJob incrementJob;
 	/**
-	 * Checks whether the builder should perform incrementally Note : Incremental
-	 * updating method is NOT used and tested yet but left out for further
-	 * investigation(*).
+	 * Checks whether the builder should perform incrementally. Content
+	 * generators opt in with their incremental attribute. The markers are
+	 * gathered all over again when the filters, the scope or the grouping
+	 * change, marker changes are applied to the markers already gathered.
 	 * 
 	 * @return Returns true if we should collect markers incrementally.
 	 */
 	boolean isIncremental() {
-		/*
-		 * We do not update incrementally. We have 
-		 * code for further investigation(*) for this anyway.
-		 */
-		return false;
+		MarkerContentGenerator current = generator;
+		return current != null && current.isIncremental();
 	}
 	
 	/**
@@ -656,12 +674,14 @@ public class CachedMarkerBuilder {
 	 * @param update
 	 */
 	void incrementalUpdate(MarkerUpdate update) {
+		IncrementUpdateJob job;
 		synchronized (getUpdateScheduler().getSchedulingLock()) {
-			if (incrementJob == null) {
-				scheduleUpdateJob(MarkerUpdateScheduler.SHORT_DELAY, true);
+			if (updateJob == null) {
+				createUpdateJob();
 			}
+			job = incrementJob;
 		}
-		incrementJob.addUpdate(update);
+		job.addUpdate(update);
 	}
 ///////	</Incremental update code>///////
 	
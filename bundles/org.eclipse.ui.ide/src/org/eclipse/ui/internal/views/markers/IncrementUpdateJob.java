@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,11 @@
 package org.eclipse.ui.internal.views.markers;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -21,17 +24,16 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.ui.views.markers.internal.MarkerMessages;
 
 /**
- * The job that performs incremental update. Once the processing is complete it
- * schedules an UI update. If it'll be possible and beneficial switch to
- * incremental updatation, this has been left out for further investigation(*).
- * only, and not used currently.
+ * The job that performs incremental update. It applies the queued marker
+ * changes to the markers built so far, and falls back to building them all
+ * over again when a clean is requested or the markers cannot be updated in
+ * place. Once the processing is complete it schedules an UI update.
  * 
  * @since 3.6
  * 
  */
 class IncrementUpdateJob extends MarkerUpdateJob {
 
-	private LinkedList incrementEntryList;
 	private LinkedList updateQueue;
 
 	/**
@@ -39,7 +41,6 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 	 */
 	public IncrementUpdateJob(CachedMarkerBuilder builder) {
 		super(builder);
-		incrementEntryList = new LinkedList();
 	}
 
 	/*
@@ -51,80 +52,48 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 	protected IStatus run(IProgressMonitor monitor) {
 		monitor.beginTask(MarkerMessages.MarkerView_processUpdates,
 				IProgressMonitor.UNKNOWN);
-		boolean clean= isClean();
-		if (clean) {
-			clearEntries();
-		}
-		Collection markerEntries = incrementalEntries();
-		if (clean) {
+		if (isClean() || !builder.getMarkers().isIncrementallyUpdatable()) {
 			/*
-			 * Unfortunately we cannot lock marker operations between gathering
-			 * and updation. We have this code in place only for further
-			 * investigation
+			 * Marker operations cannot be locked between gathering and
+			 * updating. Drop the updates queued so far as the gathering
+			 * covers them, the ones arriving from now on are applied on top
+			 * of what is gathered.
 			 */
-			clean = !clean(markerEntries, monitor);
-			LinkedList queue = getUpdatesQueue();
-			synchronized (queue) {
-				queue.clear();
-			}
-		}
-		if (monitor.isCanceled()) {
-			return Status.CANCEL_STATUS;
-		}
-		if (!clean) {
-			builder.registerTypesToListener();
-			if (!processUpdates(monitor)) {
+			clearEntries();
+			buildMarkers(monitor);
+			if (monitor.isCanceled()) {
 				return Status.CANCEL_STATUS;
 			}
-		}
-		if (!processMarkerEntries(markerEntries, monitor)) {
-			return Status.CANCEL_STATUS;
+			return Status.OK_STATUS;
 		}
 		if (monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
 		}
-		// update with sorted entries
-		updateIncrementalList(markerEntries);
-
-		if (monitor.isCanceled()) {
-			return Status.CANCEL_STATUS;
+		// the updates are not cancelable once taken off the queue
+		if (!processUpdates()) {
+			// the markers changed underneath, build them all over again
+			builder.scheduleUpdate();
+			return Status.OK_STATUS;
 		}
 		builder.getUpdateScheduler().scheduleUIUpdate(
 				MarkerUpdateScheduler.SHORT_DELAY);
-		if (monitor.isCanceled()) {
-			return Status.CANCEL_STATUS;
-		}
 		builder.setBuilding(false);
 		updateDone();
 		return Status.OK_STATUS;
 	}
 
 	/**
-	 * Update the list
+	 * Apply the queued updates to the markers. The updates are merged first,
+	 * in the order they came in, so that the markers are only updated once.
 	 * 
-	 * @param markerEntries
+	 * @return <code>false</code> if the markers could not be updated
 	 */
-	private boolean updateIncrementalList(Collection markerEntries) {
-		markerEntries.clear();
-		Markers clone = builder.getMarkers();
-		synchronized (clone) {
-			clone = clone.getClone();
-		}
-		MarkerEntry[] entries = clone.getMarkerEntryArray();
-		for (int i = 0; i < entries.length; i++) {
-			markerEntries.add(entries[i]);
-		}
-		return true;
-	}
-
-	/**
-	 * Process the incremental updates
-	 * 
-	 * @param monitor
-	 */
-	private boolean processUpdates(IProgressMonitor monitor) {
-		Collection markerEntries = incrementalEntries();
-		int addCount = 0, removedCount = 0, changedCount = 0, size = 0, newSize = 0;
+	private boolean processUpdates() {
+		// the first removal of a marker describes the state we have
+		Map removed = new HashMap();
+		// the last addition or change of a marker describes its current state
+		Map added = new LinkedHashMap();
+		boolean changed = false;
 		LinkedList queue = getUpdatesQueue();
 		MarkerUpdate next = null;
 		do {
@@ -135,136 +104,55 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 					next = null;
 				}
 			}
-			if (monitor.isCanceled() || next == null) {
+			if (next == null) {
 				break;
 			}
-			/**
-			 * The following performs incremental updation of the markers that
-			 * were gathered intially, and keeps them synched at any point with
-			 * the markers of interest in Workspace
-			 */
-			// unfortunately marker operations cannot be locked
-			// so locking between gathering of markers and
-			// marker deltas is not possible
-			size = markerEntries.size();
-			handleRemovedEntries(markerEntries, next.removed, monitor);
-			newSize = markerEntries.size();
-			removedCount += size - newSize;
-
-			handleChangedEntries(markerEntries, next.changed, monitor);
-			changedCount += next.changed.size();
-
-			size = newSize;
-			handleAddedEntries(markerEntries, next.added, monitor);
-			newSize = markerEntries.size();
-			removedCount += newSize - size;
-		} while (next != null);
-		boolean[] changeFlags = new boolean[] { addCount > 0, removedCount > 0,
-				changedCount > 0 };
-		for (int i = 0; i < changeFlags.length; i++) {
-			if (changeFlags[i]) {
-				builder.updateChangeFlags(changeFlags);
-				return true;
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * @param added
-	 * @param monitor
-	 */
-	private void handleAddedEntries(Collection markerEntries, Collection added,
-			IProgressMonitor monitor) {
-		MarkerContentGenerator generator = builder.getGenerator();
-		Iterator iterator = added.iterator();
-		while (iterator.hasNext()) {
-			MarkerEntry entry = (MarkerEntry) iterator.next();
-			if (generator.select(entry)) {
-				markerEntries.add(entry);
-			}
-		}
-	}
-
-	/**
-	 * @param changed
-	 * @param monitor
-	 */
-	private void handleChangedEntries(Collection markerEntries,
-			Collection changed, IProgressMonitor monitor) {
-		MarkerContentGenerator generator = builder.getGenerator();
-		Iterator iterator = changed.iterator();
-		while (iterator.hasNext()) {
-			MarkerEntry entry = (MarkerEntry) iterator.next();
-			Iterator iterator2 = markerEntries.iterator();
-			while (iterator2.hasNext()) {
-				MarkerEntry oldEntry = (MarkerEntry) iterator2.next();
-				if (oldEntry.getMarker().equals(entry.getMarker())) {
-					iterator2.remove();
+			Iterator iterator = next.removed.iterator();
+			while (iterator.hasNext()) {
+				MarkerEntry entry = (MarkerEntry) iterator.next();
+				added.remove(entry.getMarker());
+				if (!removed.containsKey(entry.getMarker())) {
+					removed.put(entry.getMarker(), entry);
 				}
 			}
-			if (!generator.select(entry)) {
-				iterator.remove();
-			}
+			addAll(added, next.added);
+			addAll(added, next.changed);
+			changed |= !next.changed.isEmpty();
+		} while (next != null);
+		if (removed.isEmpty() && added.isEmpty()) {
+			return true;
 		}
-		markerEntries.addAll(changed);
+		if (!builder.getMarkers().updateWithChanges(removed.values(),
+				added.values())) {
+			return false;
+		}
+		builder.updateChangeFlags(new boolean[] { !added.isEmpty(),
+				!removed.isEmpty(), changed });
+		return true;
 	}
 
 	/**
-	 * @param removed
-	 * @param monitor
+	 * Add the entries to the map of entries by marker.
+	 * 
+	 * @param map
+	 * @param entries
 	 */
-	private void handleRemovedEntries(Collection markerEntries,
-			Collection removed, IProgressMonitor monitor) {
-		boolean found = false;
-		Iterator iterator = markerEntries.iterator();
-		while (iterator.hasNext()) {
-			MarkerEntry entry = (MarkerEntry) iterator.next();
-			found = entry.getStaleState();
-			if (found) {
-				iterator.remove();
-			}
-			if (removed.isEmpty()) {
-				continue;
-			}
-			Iterator iterator2 = removed.iterator();
-			while (iterator2.hasNext()) {
-				MarkerEntry stale = (MarkerEntry) iterator2.next();
-				if (stale.getMarker().equals(entry.getMarker())) {
-					iterator2.remove();
-					if (!found) {
-						iterator.remove();
-					}
-					break;
-				}
-			}
-		}
-		if (removed.isEmpty()) {
-			// TODO: do we check for residuals?
-			return;
-		}
-		// TODO: do we check for residuals?
-		iterator = markerEntries.iterator();
+	private void addAll(Map map, Collection entries) {
+		Iterator iterator = entries.iterator();
 		while (iterator.hasNext()) {
 			MarkerEntry entry = (MarkerEntry) iterator.next();
-			if (entry.getMarker() != null && !entry.getMarker().exists()) {
-				iterator.remove();
-			}
+			map.put(entry.getMarker(), entry);
 		}
 	}
 
 	/**
-	 * Clean
+	 * Clear the queued updates
 	 */
 	void clearEntries() {
-		incrementEntryList = new LinkedList();
-	}
-
-	/**
-	 * @return Returns the incrementEntryies.
-	 */
-	Collection incrementalEntries() {
-		return incrementEntryList;
+		LinkedList queue = getUpdatesQueue();
+		synchronized (queue) {
+			queue.clear();
+		}
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -288,6 +288,16 @@ public class MarkerContentGenerator {
 		return result;
 	}
 
+	/**
+	 * Return whether the marker changes are applied to the markers already
+	 * gathered.
+	 * 
+	 * @return boolean
+	 */
+	boolean isIncremental() {
+		return generatorDescriptor.isIncremental();
+	}
+
 	/**
 	 * Get the category name from the receiver.
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -66,8 +66,25 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	}
 	// The key for the string we built for display
 	private static final Object LOCATION_STRING = "LOCATION_STRING"; //$NON-NLS-1$
+
+	/**
+	 * The attributes the fields and filters use the most. They are read
+	 * together on first use and kept when the cache is cleared, see
+	 * {@link #setSnapshot(Object[], String)}.
+	 */
+	static final String[] SNAPSHOT_ATTRIBUTES = new String[] {
+			IMarker.SEVERITY, IMarker.LINE_NUMBER, IMarker.MESSAGE };
+
 	private MarkerCategory category;
 	private Map cache = null;
+
+	private boolean hasSnapshot;
+	// kept boxed, as the marker returns them, so that they are not boxed
+	// again for every lookup
+	private Integer severity;
+	private Integer lineNumber;
+	private String message;
+	private String typeId;
 	
 	/**
 	 * Set the MarkerEntry to be stale, if discovered at any point of time
@@ -123,6 +140,14 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 *      int)
 	 */
 	public int getAttributeValue(String attribute, int defaultValue) {
+		if (IMarker.SEVERITY.equals(attribute)) {
+			takeSnapshot();
+			return severity == null ? defaultValue : severity.intValue();
+		}
+		if (IMarker.LINE_NUMBER.equals(attribute)) {
+			takeSnapshot();
+			return lineNumber == null ? defaultValue : lineNumber.intValue();
+		}
 
 		Object value = getAttributeValue(attribute);
 		if (value == null)
@@ -139,7 +164,19 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 * @return Object or <code>null</code>
 	 */
 	Object getAttributeValue(String attribute) {
-		Object value = getCache().get(attribute);
+		if (IMarker.MESSAGE.equals(attribute)) {
+			takeSnapshot();
+			return message;
+		}
+		if (IMarker.SEVERITY.equals(attribute)) {
+			takeSnapshot();
+			return severity;
+		}
+		if (IMarker.LINE_NUMBER.equals(attribute)) {
+			takeSnapshot();
+			return lineNumber;
+		}
+		Object value = cache == null ? null : cache.get(attribute);
 		if(value == null) {
 			if(stale){
 				return value;
@@ -203,7 +240,7 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 */
 	CollationKey getCollationKey(String attribute, String defaultValue) {
 		String attributeValue;
-		Object value = getCache().get(attribute);
+		Object value = cache == null ? null : cache.get(attribute);
 		if (value != null) {
 			// Only return a collation key otherwise 
 			//use the value to generate it
@@ -314,33 +351,20 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 * @see org.eclipse.ui.internal.views.markers.MarkerSupportItem#getMarkerTypeName()
 	 */
 	String getMarkerTypeName() {
-		if(stale){
-			return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
-					.toString());
-		}
-		try {
-			return MarkerTypesModel.getInstance().getType(marker.getType())
-					.getLabel();
-		} catch (CoreException e) {
-			checkIfMarkerStale() ;
-			Policy.handle(e);
+		takeSnapshot();
+		if (typeId == null) {
 			return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
 					.toString());
 		}
+		return MarkerTypesModel.getInstance().getType(typeId).getLabel();
 	}
 	String getMarkerTypeId() {
-		if(stale){
-			return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
-					.toString());
-		}
-		try {
-			return marker.getType();
-		} catch (CoreException e) {
-			checkIfMarkerStale();
-			Policy.handle(e);
+		takeSnapshot();
+		if (typeId == null) {
 			return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
 					.toString());
 		}
+		return typeId;
 	}
 
 	/*
@@ -406,9 +430,63 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 		this.marker = marker;
 		// reset stale
 		stale = false;
+		hasSnapshot = false;
 		clearCache();
 	}
 
+	/**
+	 * Read the attributes of the snapshot with a single call to the marker,
+	 * unless this has been done already.
+	 */
+	private void takeSnapshot() {
+		if (hasSnapshot) {
+			return;
+		}
+		if (stale) {
+			setSnapshot(null, null);
+			return;
+		}
+		try {
+			setSnapshot(marker.getAttributes(SNAPSHOT_ATTRIBUTES), marker
+					.getType());
+		} catch (CoreException e) {
+			if (!checkIfMarkerStale()) {
+				Policy.handle(e);
+			}
+			setSnapshot(null, null);
+		}
+	}
+
+	/**
+	 * Set the values of the {@link #SNAPSHOT_ATTRIBUTES} and the type, for
+	 * instance to the ones a marker had before it changed.
+	 * 
+	 * @param values
+	 *            the values in the order of {@link #SNAPSHOT_ATTRIBUTES}, or
+	 *            <code>null</code> if none are known
+	 * @param type
+	 *            the marker type or <code>null</code> if unknown
+	 */
+	void setSnapshot(Object[] values, String type) {
+		severity = null;
+		lineNumber = null;
+		message = null;
+		if (values != null) {
+			if (values[0] instanceof Integer) {
+				severity = (Integer) values[0];
+			}
+			if (values[1] instanceof Integer) {
+				lineNumber = (Integer) values[1];
+			}
+			if (values[2] != null) {
+				message = values[2].toString();
+			}
+		}
+		// the type is shared by many markers
+		typeId = type == null ? null : type.intern();
+		hasSnapshot = true;
+	}
+
 	/**
 	 * Get the cache for the receiver. Create if neccessary.
 	 * 
@@ -421,7 +499,8 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	}
 
 	/**
-	 * Clear the cached values for performance reasons.
+	 * Clear the cached values for performance reasons. The snapshot of the
+	 * attributes is kept.
 	 */
 	void clearCache() {
 		cache = null;		
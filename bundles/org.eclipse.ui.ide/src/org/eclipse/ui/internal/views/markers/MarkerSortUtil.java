@@ -28,11 +28,20 @@
 
 package org.eclipse.ui.internal.views.markers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.IJobChangeListener;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.ui.views.markers.internal.MarkerMessages;
 
 /**
  * @since 3.5
@@ -63,6 +72,13 @@ public class MarkerSortUtil {
 	 */
 	private static float MERGE_OR_HEAP_SWITCH=1.5f;
 
+	/*
+	 * Ranges of at least twice this many elements are split in chunks, one per
+	 * processor, that are sorted in parallel. The sorted starts of the chunks
+	 * are then merged pairwise, in parallel as well, keeping the first k only.
+	 */
+	private static int MIN_CHUNK_SIZE = 25000;
+
 	/**
 	 * Sorts [first,middle] in the array of [first,last] using a variant of
 	 * modified heapsort, such that
@@ -315,6 +331,37 @@ public class MarkerSortUtil {
 				|| last > to || to > entries.length - 1 || to < 0)
 			return;
 		int n=to-from+1;
+		int chunkCount = Math.min(Runtime.getRuntime().availableProcessors(),
+				n / MIN_CHUNK_SIZE);
+		if (chunkCount > 1) {
+			if (parallelSortStartingKElement(entries, comparator, from, to, k,
+					chunkCount, monitor)
+					|| monitor.isCanceled()) {
+				return;
+			}
+			// interrupted while waiting for the jobs or a job did not
+			// complete, the entries are still all in the range so sort them
+			// in this thread
+		}
+		internalSortStartingKElement(entries, comparator, from, to, k, monitor);
+	}
+
+	/**
+	 * Sorts [from,from+k-1] in the array of [from,to] in the calling thread.
+	 * The range must be valid.
+	 * 
+	 * @param entries
+	 * @param comparator
+	 * @param from
+	 * @param to
+	 * @param k
+	 * @param monitor
+	 */
+	private static void internalSortStartingKElement(MarkerEntry[] entries,
+			Comparator comparator, int from, int to, int k,
+			IProgressMonitor monitor) {
+		int last = from + k - 1;
+		int n = to - from + 1;
 		if (n <= BATCH_SIZE && (((float) n / k) <= MERGE_OR_HEAP_SWITCH)
 				/*|| ((float) n / k) <= MERGE_OR_HEAP_SWITCH*/) { 
 			// use arrays sort
@@ -358,6 +405,191 @@ public class MarkerSortUtil {
 		}
 	}
 
+	/**
+	 * Sorts [from,from+k-1] in the array of [from,to] like
+	 * {@link #sortStartingKElement(MarkerEntry[], Comparator, int, int, int, IProgressMonitor)}
+	 * , with a job per chunk that sorts the first k elements of the chunk. The
+	 * first k elements overall are amongst these, they are found by merging
+	 * the sorted chunk starts pairwise until one is left.
+	 * 
+	 * @param entries
+	 * @param comparator
+	 * @param from
+	 * @param to
+	 * @param k
+	 * @param chunkCount
+	 * @param monitor
+	 * @return <code>false</code> if canceled or interrupted, the range is
+	 *         then left partly sorted
+	 */
+	private static boolean parallelSortStartingKElement(
+			final MarkerEntry[] entries, final Comparator comparator,
+			int from, int to, final int k, int chunkCount,
+			IProgressMonitor monitor) {
+		int n = to - from + 1;
+		int chunkSize = (n + chunkCount - 1) / chunkCount;
+		MarkerEntry[][] runs = new MarkerEntry[chunkCount][];
+		Job[] jobs = new Job[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			final int chunkFrom = from + i * chunkSize;
+			final int chunkTo = Math.min(chunkFrom + chunkSize - 1, to);
+			final int chunkK = Math.min(k, chunkTo - chunkFrom + 1);
+			jobs[i] = new Job(MarkerMessages.SortUtil_finding_first) {
+				protected IStatus run(IProgressMonitor jobMonitor) {
+					if (chunkFrom < chunkTo) {
+						internalSortStartingKElement(entries, comparator,
+								chunkFrom, chunkTo, chunkK, jobMonitor);
+					}
+					return jobMonitor.isCanceled() ? Status.CANCEL_STATUS
+							: Status.OK_STATUS;
+				}
+			};
+		}
+		if (!runJobs(jobs, monitor)) {
+			return false;
+		}
+
+		// take the sorted start of each chunk, the rest stays behind
+		List rest = new ArrayList(n);
+		for (int i = 0; i < chunkCount; i++) {
+			int chunkFrom = from + i * chunkSize;
+			int chunkTo = Math.min(chunkFrom + chunkSize - 1, to);
+			int chunkK = Math.min(k, chunkTo - chunkFrom + 1);
+			runs[i] = new MarkerEntry[chunkK];
+			System.arraycopy(entries, chunkFrom, runs[i], 0, chunkK);
+			rest.addAll(Arrays.asList(entries).subList(chunkFrom + chunkK,
+					chunkTo + 1));
+		}
+
+		while (runs.length > 1) {
+			final MarkerEntry[][] sources = runs;
+			final MarkerEntry[][] merged = new MarkerEntry[(sources.length + 1) / 2][];
+			final MarkerEntry[][] overflows = new MarkerEntry[merged.length][];
+			jobs = new Job[merged.length];
+			for (int i = 0; i < merged.length; i++) {
+				final int index = i;
+				jobs[i] = new Job(MarkerMessages.SortUtil_finding_first) {
+					protected IStatus run(IProgressMonitor jobMonitor) {
+						if (2 * index + 1 == sources.length) {
+							merged[index] = sources[2 * index];
+							overflows[index] = new MarkerEntry[0];
+						} else {
+							merge(sources[2 * index], sources[2 * index + 1],
+									k, comparator, merged, overflows, index);
+						}
+						return Status.OK_STATUS;
+					}
+				};
+			}
+			if (!runJobs(jobs, monitor)) {
+				return false;
+			}
+			for (int i = 0; i < overflows.length; i++) {
+				rest.addAll(Arrays.asList(overflows[i]));
+			}
+			runs = merged;
+		}
+
+		System.arraycopy(runs[0], 0, entries, from, k);
+		for (int i = 0; i < rest.size(); i++) {
+			entries[from + k + i] = (MarkerEntry) rest.get(i);
+		}
+		// clear caches filled while merging
+		for (int i = from; i <= to; i++) {
+			entries[i].clearCache();
+		}
+		return true;
+	}
+
+	/**
+	 * Merge the sorted arrays, keeping at most k elements in
+	 * merged[index]. The elements left over go to overflows[index].
+	 * 
+	 * @param first
+	 * @param second
+	 * @param k
+	 * @param comparator
+	 * @param merged
+	 * @param overflows
+	 * @param index
+	 */
+	private static void merge(MarkerEntry[] first, MarkerEntry[] second,
+			int k, Comparator comparator, MarkerEntry[][] merged,
+			MarkerEntry[][] overflows, int index) {
+		int total = first.length + second.length;
+		MarkerEntry[] result = new MarkerEntry[Math.min(k, total)];
+		int i = 0;
+		int j = 0;
+		for (int count = 0; count < result.length; count++) {
+			// take from the first on ties to keep the sort stable
+			if (j == second.length
+					|| (i < first.length && comparator.compare(first[i],
+							second[j]) <= 0)) {
+				result[count] = first[i++];
+			} else {
+				result[count] = second[j++];
+			}
+		}
+		MarkerEntry[] overflow = new MarkerEntry[total - result.length];
+		System.arraycopy(first, i, overflow, 0, first.length - i);
+		System.arraycopy(second, j, overflow, first.length - i,
+				second.length - j);
+		merged[index] = result;
+		overflows[index] = overflow;
+	}
+
+	/**
+	 * Run the jobs and wait for them to finish. The jobs are canceled when the
+	 * monitor is canceled or the waiting thread is interrupted, this method
+	 * still returns only once none of them runs anymore.
+	 * 
+	 * @param jobs
+	 * @param monitor
+	 * @return <code>false</code> if the jobs were canceled or one of them did
+	 *         not complete
+	 */
+	private static boolean runJobs(Job[] jobs, IProgressMonitor monitor) {
+		final int[] remaining = new int[] { jobs.length };
+		final boolean[] failed = new boolean[1];
+		IJobChangeListener listener = new JobChangeAdapter() {
+			public void done(IJobChangeEvent event) {
+				synchronized (remaining) {
+					if (!event.getResult().isOK()) {
+						failed[0] = true;
+					}
+					remaining[0]--;
+					remaining.notifyAll();
+				}
+			}
+		};
+		for (int i = 0; i < jobs.length; i++) {
+			jobs[i].setSystem(true);
+			jobs[i].addJobChangeListener(listener);
+			jobs[i].schedule();
+		}
+		boolean interrupted = false;
+		boolean canceled = false;
+		synchronized (remaining) {
+			while (remaining[0] > 0) {
+				if (!canceled && (interrupted || monitor.isCanceled())) {
+					for (int i = 0; i < jobs.length; i++) {
+						jobs[i].cancel();
+					}
+					canceled = true;
+				}
+				try {
+					remaining.wait(50);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return !canceled && !failed[0];
+	}
+
 	/**
 	 * @param fArray1
 	 * @param comparator
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -74,8 +74,11 @@ class MarkerUpdateJob extends Job {
 
 		Collection markerEntries = new LinkedList();
 		//this is not incremental clean every time
-		clean = !clean(markerEntries, monitor);
+		// a clean requested from now on needs another run
+		clean = false;
+		boolean gathered = clean(markerEntries, monitor);
 		if (monitor.isCanceled()) {
+			clean = true;
 			return;
 		}
 		// builder.getUpdateScheduler().indicateStatus(
@@ -83,8 +86,12 @@ class MarkerUpdateJob extends Job {
 		
 		monitor.setTaskName(MarkerMessages.MarkerView_processUpdates);
 		if (!processMarkerEntries(markerEntries, monitor)) {
+			clean = true;
 			return;
 		}
+		if (!gathered) {
+			clean = true;
+		}
 		if (monitor.isCanceled()) {
 			return;
 		}
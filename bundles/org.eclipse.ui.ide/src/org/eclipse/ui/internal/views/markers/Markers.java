@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2011 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,17 +12,22 @@
 package org.eclipse.ui.internal.views.markers;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.ui.views.markers.MarkerItem;
 import org.eclipse.ui.views.markers.internal.MarkerGroup;
 import org.eclipse.ui.views.markers.internal.MarkerGroupingEntry;
@@ -54,6 +59,12 @@ class Markers {
 	private Map markerToEntryMap = null;
 	private Integer[] markerCounts;
 
+	// the grouping entries of the categories, null if not grouped
+	private MarkerGroupingEntry[] categoryGroups;
+	// the number of leading entries that are sorted in each category, or in
+	// all the entries when not grouped. null if the entries are not sorted
+	private int[] sortedCounts;
+
 	Markers(CachedMarkerBuilder builder) {
 		this.builder = builder;
 		inChange = false;
@@ -78,9 +89,18 @@ class Markers {
 				markerToEntryMap = null;
 			}
 			markerCounts = null;
+			sortedCounts = null;
+			categoryGroups = null;
 			if (markerEntries.size() == 0) {
 				categories = EMPTY_CATEGORY_ARRAY;
 				markerEntryArray = EMPTY_ENTRY_ARRAY;
+				if (builder.isShowingHierarchy()) {
+					categoryGroups = new MarkerGroupingEntry[0];
+					sortedCounts = new int[0];
+				} else {
+					sortedCounts = new int[] { 0 };
+				}
+				markerCounts = getMarkerCounts(markerEntryArray);
 				return true;
 			}
 			if (monitor.isCanceled()) {
@@ -97,6 +117,8 @@ class Markers {
 				if (monitor.isCanceled()) {
 					return false;
 				}
+				// count now rather than on the first use of each clone
+				markerCounts = getMarkerCounts(markerEntryArray);
 			} else {
 				categories = EMPTY_CATEGORY_ARRAY;
 			}
@@ -122,6 +144,7 @@ class Markers {
 				categories = markerCategories;
 			} else {
 				categories = EMPTY_CATEGORY_ARRAY;
+				categoryGroups = null;
 			}
 
 			if (monitor.isCanceled()) {
@@ -145,9 +168,12 @@ class Markers {
 		boolean initialVal = inChange;
 		try {
 			inChange = true;
+			sortedCounts = null;
+			int[] newSortedCounts;
 			if (builder.isShowingHierarchy()) {
 				Comparator comparator = builder.getComparator()
 						.getFieldsComparator();
+				newSortedCounts = new int[categories.length];
 				for (int i = 0; i < categories.length; i++) {
 					if (monitor.isCanceled()) {
 						return false;
@@ -160,6 +186,7 @@ class Markers {
 					MarkerSortUtil.sortStartingKElement(markerEntryArray,
 							comparator, category.start, category.end, effLimit,
 							monitor);
+					newSortedCounts[i] = effLimit;
 				}
 			} else {
 				if (monitor.isCanceled()) {
@@ -169,11 +196,13 @@ class Markers {
 				int effLimit = getShowingLimit(avaialble);
 				MarkerSortUtil.sortStartingKElement(markerEntryArray,
 						builder.getComparator(), effLimit, monitor);
+				newSortedCounts = new int[] { Math.max(effLimit, 0) };
 			}
 			if (monitor.isCanceled()) {
 				return false;
 			}
 			monitor.worked(50);
+			sortedCounts = newSortedCounts;
 			return true;
 		} finally {
 			inChange = initialVal;
@@ -199,6 +228,254 @@ class Markers {
 		return effLimit;
 	}
 
+	/**
+	 * Return whether the entries are sorted and grouped the way the view shows
+	 * them, so that marker changes can be applied with
+	 * {@link #updateWithChanges(Collection, Collection)}.
+	 * 
+	 * @return <code>true</code> if no rebuild is needed to apply changes
+	 */
+	synchronized boolean isIncrementallyUpdatable() {
+		return sortedCounts != null
+				&& builder.isShowingHierarchy() == (categoryGroups != null);
+	}
+
+	/**
+	 * Apply marker changes to the sorted and grouped entries. The entries of
+	 * removed markers are dropped, the added entries selected by the generator
+	 * are sorted and merged into the sorted entries of their category, and the
+	 * category sizes and marker counts are updated rather than recomputed. The
+	 * arrays are replaced, not modified, so that clones keep their state.
+	 * 
+	 * @param removedEntries
+	 *            the entries of the markers that were removed or changed,
+	 *            holding the severity the markers had before
+	 * @param addedEntries
+	 *            the entries of the markers that were added or changed
+	 * @return <code>false</code> if the changes cannot be applied and the
+	 *         entries have to be rebuilt
+	 */
+	synchronized boolean updateWithChanges(Collection removedEntries,
+			Collection addedEntries) {
+		if (!isIncrementallyUpdatable()) {
+			return false;
+		}
+		boolean hierarchy = categoryGroups != null;
+		Map removedMarkers = new HashMap();
+		Iterator iterator = removedEntries.iterator();
+		while (iterator.hasNext()) {
+			MarkerEntry entry = (MarkerEntry) iterator.next();
+			removedMarkers.put(entry.getMarker(), entry);
+		}
+		Set addedMarkers = new HashSet();
+		iterator = addedEntries.iterator();
+		while (iterator.hasNext()) {
+			addedMarkers.add(((MarkerEntry) iterator.next()).getMarker());
+		}
+		int[] counts = null;
+		if (markerCounts != null) {
+			counts = new int[markerCounts.length];
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = markerCounts[i].intValue();
+			}
+		}
+
+		// drop the entries of removed markers, and of added markers that are
+		// already present, in a single pass
+		Segment[] segments = getSegments();
+		for (int i = 0; i < segments.length; i++) {
+			Segment segment = segments[i];
+			int sortedEnd = segment.start + segment.sorted;
+			List kept = null;
+			for (int j = segment.start; j <= segment.end; j++) {
+				IMarker marker = markerEntryArray[j].getMarker();
+				MarkerEntry removed = (MarkerEntry) removedMarkers.get(marker);
+				if (removed == null && !addedMarkers.contains(marker)) {
+					if (kept != null) {
+						kept.add(markerEntryArray[j]);
+					}
+					continue;
+				}
+				if (kept == null) {
+					kept = new ArrayList(segment.end - segment.start + 1);
+					kept.addAll(Arrays.asList(markerEntryArray).subList(
+							segment.start, j));
+				}
+				if (j < sortedEnd) {
+					segment.sorted--;
+				}
+				if (counts != null) {
+					if (removed == null) {
+						// we do not know what this entry was counted as
+						counts = null;
+					} else {
+						counts[getCountIndex(removed)]--;
+					}
+				}
+			}
+			if (kept != null) {
+				segment.entries = kept;
+			}
+		}
+
+		// insert the added entries into the categories they belong to
+		MarkerContentGenerator generator = builder.getGenerator();
+		MarkerGroup group = builder.getCategoryGroup();
+		Comparator comparator;
+		TreeMap segmentsByGroup = null;
+		if (hierarchy) {
+			comparator = builder.getComparator().getFieldsComparator();
+			segmentsByGroup = new TreeMap(group.getEntriesComparator());
+			for (int i = 0; i < segments.length; i++) {
+				segmentsByGroup.put(segments[i].group, segments[i]);
+			}
+		} else {
+			comparator = builder.getComparator();
+		}
+		iterator = addedEntries.iterator();
+		while (iterator.hasNext()) {
+			MarkerEntry entry = (MarkerEntry) iterator.next();
+			if (!generator.select(entry)) {
+				continue;
+			}
+			Segment segment = segments[0];
+			if (hierarchy) {
+				IMarker marker = entry.getMarker();
+				MarkerGroupingEntry groupingEntry;
+				try {
+					groupingEntry = group.findGroupValue(marker.getType(),
+							marker);
+				} catch (CoreException e) {
+					// the marker is already gone
+					continue;
+				}
+				segment = (Segment) segmentsByGroup.get(groupingEntry);
+				if (segment == null) {
+					segment = new Segment(groupingEntry, null, 0, -1, 0);
+					segmentsByGroup.put(groupingEntry, segment);
+				}
+			}
+			segment.insert(entry);
+			if (counts != null) {
+				counts[getCountIndex(entry)]++;
+			}
+		}
+
+		Collection ordered = hierarchy ? segmentsByGroup.values() : Arrays
+				.asList(segments);
+		int total = 0;
+		iterator = ordered.iterator();
+		while (iterator.hasNext()) {
+			Segment segment = (Segment) iterator.next();
+			segment.merge(comparator, markerEntryArray);
+			total += segment.size();
+		}
+		MarkerEntry[] newEntries = new MarkerEntry[total];
+		List newCategories = new ArrayList(ordered.size());
+		List newGroups = new ArrayList(ordered.size());
+		int[] newSortedCounts = new int[ordered.size()];
+		int index = 0;
+		iterator = ordered.iterator();
+		while (iterator.hasNext()) {
+			Segment segment = (Segment) iterator.next();
+			int size = segment.size();
+			if (hierarchy && size == 0) {
+				continue;
+			}
+			if (segment.entries == null) {
+				System.arraycopy(markerEntryArray, segment.start, newEntries,
+						index, size);
+			} else {
+				System.arraycopy(segment.entries.toArray(), 0, newEntries,
+						index, size);
+			}
+			// removals may have left fewer sorted entries than are shown
+			int limit = getShowingLimit(size);
+			if (segment.sorted < limit) {
+				MarkerSortUtil.sortStartingKElement(newEntries, comparator,
+						index + segment.sorted, index + size - 1, limit
+								- segment.sorted, new NullProgressMonitor());
+				segment.sorted = limit;
+			}
+			newSortedCounts[newGroups.size()] = segment.sorted;
+			if (hierarchy) {
+				String name = segment.name;
+				if (name == null) {
+					name = group.getMarkerField().getValue(newEntries[index]);
+				}
+				newCategories.add(new MarkerCategory(this, index, index + size
+						- 1, name));
+				newGroups.add(segment.group);
+			}
+			index += size;
+		}
+
+		boolean initialVal = inChange;
+		try {
+			inChange = true;
+			markerToEntryMap = null;
+			markerEntryArray = newEntries;
+			if (hierarchy) {
+				categories = (MarkerCategory[]) newCategories
+						.toArray(new MarkerCategory[newCategories.size()]);
+				categoryGroups = (MarkerGroupingEntry[]) newGroups
+						.toArray(new MarkerGroupingEntry[newGroups.size()]);
+				sortedCounts = new int[categories.length];
+				System.arraycopy(newSortedCounts, 0, sortedCounts, 0,
+						sortedCounts.length);
+			} else {
+				sortedCounts = new int[] { newSortedCounts[0] };
+			}
+			if (counts == null) {
+				markerCounts = getMarkerCounts(markerEntryArray);
+			} else {
+				markerCounts = new Integer[counts.length];
+				for (int i = 0; i < counts.length; i++) {
+					markerCounts[i] = new Integer(counts[i]);
+				}
+			}
+		} finally {
+			inChange = initialVal;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the segments of the current entries, one for each category or a
+	 * single one if not grouped.
+	 * 
+	 * @return Segment[]
+	 */
+	private Segment[] getSegments() {
+		if (categoryGroups == null) {
+			return new Segment[] { new Segment(null, null, 0,
+					markerEntryArray.length - 1, sortedCounts[0]) };
+		}
+		Segment[] segments = new Segment[categories.length];
+		for (int i = 0; i < segments.length; i++) {
+			MarkerCategory category = categories[i];
+			segments[i] = new Segment(categoryGroups[i], category.getName(),
+					category.start, category.end, sortedCounts[i]);
+		}
+		return segments;
+	}
+
+	/**
+	 * Return the index of the count of the entry in
+	 * {@link #getMarkerCounts()}.
+	 * 
+	 * @param entry
+	 * @return int
+	 */
+	private static int getCountIndex(MarkerEntry entry) {
+		int severity = entry.getAttributeValue(IMarker.SEVERITY, -1);
+		if (severity >= IMarker.SEVERITY_INFO
+				&& severity <= IMarker.SEVERITY_ERROR) {
+			return IMarker.SEVERITY_ERROR - severity;
+		}
+		return 3;
+	}
+
 	/**
 	 * Sort Markers according to groups, and Group them into categories
 	 * 
@@ -214,16 +491,19 @@ class Markers {
 		int start = 0;
 		MarkerCategory[] markerCategories = new MarkerCategory[boundaryInfoMap
 				.size()];
+		MarkerGroupingEntry[] groups = new MarkerGroupingEntry[markerCategories.length];
 		int i = 0;
 		int end = 0;
 		while (iterator.hasNext()) {
 			Object key = iterator.next();
 			end = ((Integer) boundaryInfoMap.get(key)).intValue();
+			groups[i] = (MarkerGroupingEntry) key;
 			markerCategories[i++] = new MarkerCategory(this, start, end,
 					builder.getCategoryGroup().getMarkerField()
 							.getValue(newMarkers[start]));
 			start = end + 1;
 		}
+		categoryGroups = groups;
 		return markerCategories;
 	}
 
@@ -309,17 +589,8 @@ class Markers {
 	static Integer[] getMarkerCounts(MarkerEntry[] entries) {
 		int[] ints = new int[] { 0, 0, 0, 0 };
 		for (int idx = 0; idx < entries.length; idx++) {
-			IMarker marker = entries[idx].getMarker();
-			int severity = -1;
-			Object value = null;
-			try {
-				value = marker.getAttribute(IMarker.SEVERITY);
-			} catch (CoreException e) {
-				entries[idx].checkIfMarkerStale();
-			}
-			if (value instanceof Integer) {
-				severity = ((Integer) value).intValue();
-			}
+			// read from the snapshot taken when filtering
+			int severity = entries[idx].getAttributeValue(IMarker.SEVERITY, -1);
 			if (severity >= IMarker.SEVERITY_INFO) {
 				ints[severity]++;
 			} else {
@@ -392,6 +663,7 @@ class Markers {
 		if (!inChange) {
 			markers.markerEntryArray = markerEntryArray;
 			markers.categories = categories;
+			markers.markerCounts = markerCounts;
 		}
 		return markers;
 	}
@@ -440,4 +712,90 @@ class Markers {
 		}
 		return true;
 	}
+	/**
+	 * A Segment is a category of the entries, or all of them when they are not
+	 * grouped, while changes are applied. The leading sorted entries are in
+	 * order and the others are not less than any of them.
+	 */
+	private static class Segment {
+		MarkerGroupingEntry group;
+		String name;
+		// the range of the segment in the current entries
+		int start;
+		int end;
+		int sorted;
+		// the entries once they differ from the range, null before
+		List entries;
+		// the entries to merge in, null if there are none
+		List added;
+
+		Segment(MarkerGroupingEntry group, String name, int start, int end,
+				int sorted) {
+			this.group = group;
+			this.name = name;
+			this.start = start;
+			this.end = end;
+			this.sorted = sorted;
+		}
+
+		int size() {
+			if (entries == null) {
+				return end - start + 1;
+			}
+			return entries.size();
+		}
+
+		/**
+		 * Queue the entry to be merged into the segment by
+		 * {@link #merge(Comparator, MarkerEntry[])}.
+		 */
+		void insert(MarkerEntry entry) {
+			if (added == null) {
+				added = new ArrayList();
+			}
+			added.add(entry);
+		}
+
+		/**
+		 * Merge the queued entries in after the sorted entries they are not
+		 * less than. Entries that are not less than any sorted entry go with
+		 * the unsorted ones, or stay sorted after the sorted ones if there are
+		 * no unsorted entries. The queued entries are sorted once and the
+		 * segment is copied once, so k entries cost O(k log k) comparisons and
+		 * O(n + k) copies instead of shifting the entries for each of them.
+		 */
+		void merge(Comparator comparator, MarkerEntry[] allEntries) {
+			if (added == null) {
+				return;
+			}
+			Collections.sort(added, comparator);
+			List current = entries;
+			if (current == null) {
+				current = Arrays.asList(allEntries).subList(start, end + 1);
+			}
+			int size = current.size();
+			List merged = new ArrayList(size + added.size());
+			int i = 0;
+			int j = 0;
+			while (j < added.size()) {
+				Object entry = added.get(j);
+				if (i < sorted
+						&& comparator.compare(current.get(i), entry) <= 0) {
+					merged.add(current.get(i++));
+				} else if (i < sorted || sorted == size) {
+					merged.add(entry);
+					j++;
+				} else {
+					break;
+				}
+			}
+			merged.addAll(current.subList(i, sorted));
+			int newSorted = merged.size();
+			merged.addAll(added.subList(j, added.size()));
+			merged.addAll(current.subList(sorted, size));
+			entries = merged;
+			sorted = newSorted;
+			added = null;
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -186,8 +186,8 @@ class MarkersChangeListener implements IResourceChangeListener {
 	 * operations cannot be locked so locking between gathering of markers and
 	 * marker deltas is not possible.
 	 * 
-	 * Note : this method of updating is NOT used and tested yet and has holes
-	 * but left out SOLELY for further investigation(*).
+	 * A changed marker is queued as removed, with the severity it had before,
+	 * and as changed, with its current state.
 	 * 
 	 * @param event
 	 */
@@ -205,18 +205,18 @@ class MarkersChangeListener implements IResourceChangeListener {
 					continue;
 				}
 				IMarker marker = markerDeltas[i].getMarker();
-				MarkerEntry markerEntry = new MarkerEntry(marker);
 				switch (markerDeltas[i].getKind()) {
 				case IResourceDelta.REMOVED: {
-					removed.add(markerEntry);
+					removed.add(createRemovedEntry(markerDeltas[i]));
 					break;
 				}
 				case IResourceDelta.ADDED: {
-					added.add(markerEntry);
+					added.add(new MarkerEntry(marker));
 					break;
 				}
 				case IResourceDelta.CHANGED: {
-					changed.add(markerEntry);
+					removed.add(createRemovedEntry(markerDeltas[i]));
+					changed.add(new MarkerEntry(marker));
 					break;
 				}
 				default:{
@@ -238,6 +238,21 @@ class MarkersChangeListener implements IResourceChangeListener {
 		return;
 	}
 
+	/**
+	 * Create an entry for the marker of the delta as it was before the
+	 * change, so that it can still be counted once the marker is gone.
+	 * 
+	 * @param markerDelta
+	 * @return MarkerEntry
+	 */
+	private MarkerEntry createRemovedEntry(IMarkerDelta markerDelta) {
+		MarkerEntry entry = new MarkerEntry(markerDelta.getMarker());
+		entry.setSnapshot(markerDelta
+				.getAttributes(MarkerEntry.SNAPSHOT_ATTRIBUTES), markerDelta
+				.getType());
+		return entry;
+	}
+
 	/**
 	 * @param event
 	 * @return true if the marker delta has a change in an applicable marker
@@ -458,6 +473,7 @@ class MarkersChangeListener implements IResourceChangeListener {
  */
 class MarkerUpdate {
 	Collection added;
+	// the entries hold the severity the markers had before the change
 	Collection removed;
 	Collection changed;
 
@@ -534,6 +550,17 @@ class MarkerUpdateScheduler {
 	 * Schedule marker update.
 	 */
 	void scheduleUpdate(long delay, boolean cancelPrevious) {
+		scheduleUpdate(delay, cancelPrevious, true);
+	}
+
+	/**
+	 * Schedule marker update.
+	 * 
+	 * @param clean
+	 *            <code>true</code> to gather the markers all over again,
+	 *            <code>false</code> if only marker changes are to be applied
+	 */
+	void scheduleUpdate(long delay, boolean cancelPrevious, boolean clean) {
 		//we do not need to make this atomic (?)
 		builder.setBuilding(true);
 		if (cancelPrevious) {
@@ -541,7 +568,7 @@ class MarkerUpdateScheduler {
 			cancelUpdate();
 		}
 		// indicateStatus(MarkerMessages.MarkerView_queueing_updates, true);
-		updateJob = builder.scheduleUpdateJob(delay, true);
+		updateJob = builder.scheduleUpdateJob(delay, clean);
 		// updateTimer.reset();
 	}
 
@@ -808,7 +835,8 @@ class MarkerUpdateScheduler {
 
 		private void go(long delay, boolean cancelPrevious) {
 			timeB4Update = System.currentTimeMillis() + delay;
-			scheduleUpdate(delay + AFTER_MARGIN, cancelPrevious);
+			// only marker changes get here
+			scheduleUpdate(delay + AFTER_MARGIN, cancelPrevious, false);
 		}
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -34,6 +34,7 @@ public class ContentGeneratorDescriptor {
 
 	private static final String ATTRIBUTE_DEFAULT_MARKER_GROUPING = "defaultMarkerGrouping"; //$NON-NLS-1$
 	private static final String ATTRIBUTE_VISIBLE = "visible"; //$NON-NLS-1$
+	private static final String ATTRIBUTE_INCREMENTAL = "incremental"; //$NON-NLS-1$
 	private static final String ELEMENT_MARKER_FIELD_CONFIGURATION = "markerFieldConfiguration"; //$NON-NLS-1$;
 	private static final String MARKER_FIELD_REFERENCE = "markerFieldReference"; //$NON-NLS-1$
 
@@ -163,6 +164,18 @@ public class ContentGeneratorDescriptor {
 		return filterGroups;
 	}
 
+	/**
+	 * Return whether the marker changes are applied to the markers already
+	 * gathered rather than gathering all of them again.
+	 * 
+	 * @return boolean
+	 */
+	public boolean isIncremental() {
+		return Boolean.valueOf(
+				configurationElement.getAttribute(ATTRIBUTE_INCREMENTAL))
+				.booleanValue();
+	}
+
 	/**
 	 * Return the id of the receiver.
 	 * 
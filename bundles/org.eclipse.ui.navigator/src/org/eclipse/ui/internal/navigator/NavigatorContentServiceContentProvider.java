@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2011 IBM Corporation and others.
+ * Copyright (c) 2003, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,13 +16,19 @@ package org.eclipse.ui.internal.navigator;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.ITreePathContentProvider;
 import org.eclipse.jface.viewers.TreePath;
@@ -70,6 +76,8 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 
 	private final boolean enforceHasChildren;
 
+	private final boolean parallelChildren;
+
 	private Viewer viewer;
 
 	/**
@@ -102,6 +110,7 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 		contentService = aContentService;
 		INavigatorViewerDescriptor vDesc = contentService.getViewerDescriptor();
 		enforceHasChildren = vDesc.getBooleanConfigProperty(NavigatorViewerDescriptor.PROP_ENFORCE_HAS_CHILDREN);
+		parallelChildren = vDesc.getBooleanConfigProperty(NavigatorViewerDescriptor.PROP_PARALLEL_CHILDREN);
 	}
 
 	public void inputChanged(Viewer aViewer, Object anOldInput, Object aNewInput) {
@@ -134,6 +143,8 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 		}
 		final Set finalSet = new LinkedHashSet();
 		final ContributorTrackingSet localSet = new ContributorTrackingSet(contentService);
+		final Map fetchedChildren = parallelChildren ? fetchChildren(aParentElement,
+				aParentElementOrPath, enabledExtensions, elements) : Collections.EMPTY_MAP;
 
 		for (final Iterator itr = enabledExtensions.iterator(); itr.hasNext();) {
 			SafeRunner.run(new NavigatorSafeRunnable() {
@@ -144,7 +155,13 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 				public void run() throws Exception {
 					if (!isOverridingExtensionInSet(foundExtension.getDescriptor(),
 							enabledExtensions)) {
-						if (elements)
+						if (fetchedChildren.containsKey(foundExtension)) {
+							contributedChildren = (Object[]) fetchedChildren.get(foundExtension);
+							if (contributedChildren == null) {
+								// the job fetching the children has logged the failure
+								return;
+							}
+						} else if (elements)
 							contributedChildren = foundExtension.internalGetContentProvider()
 									.getElements(aParentElementOrPath);
 						else
@@ -176,6 +193,186 @@ public class NavigatorContentServiceContentProvider implements ITreeContentProvi
 		return finalSet.toArray();
 	}
 
+	/**
+	 * Fetch the children contributed by the thread safe extensions at the same
+	 * time, each in its own job. The children are merged by the caller in the
+	 * order of the extensions, so the result does not depend on which job
+	 * finishes first. Nothing is fetched unless there are at least two thread
+	 * safe extensions.
+	 * <p>
+	 * The caller waits at most {@link #FETCH_TIMEOUT} milliseconds, or until it
+	 * is interrupted, for the jobs to finish. It then fetches the children of
+	 * the jobs that have not started yet itself, and only keeps waiting for
+	 * the content providers that are already running.
+	 * </p>
+	 * 
+	 * @return A map of each extension that was asked to its children, or to
+	 *         <code>null</code> if asking it failed
+	 */
+	private Map fetchChildren(final Object aParentElement,
+			final Object aParentElementOrPath, Set enabledExtensions, final boolean elements) {
+		List threadSafeExtensions = new ArrayList();
+		for (Iterator itr = enabledExtensions.iterator(); itr.hasNext();) {
+			NavigatorContentExtension extension = (NavigatorContentExtension) itr.next();
+			NavigatorContentDescriptor descriptor = (NavigatorContentDescriptor) extension
+					.getDescriptor();
+			if (descriptor.isThreadSafe()
+					&& !isOverridingExtensionInSet(descriptor, enabledExtensions)) {
+				threadSafeExtensions.add(extension);
+			}
+		}
+		if (threadSafeExtensions.size() < 2) {
+			return Collections.EMPTY_MAP;
+		}
+
+		ChildrenFetch[] fetches = new ChildrenFetch[threadSafeExtensions.size()];
+		for (int i = 0; i < fetches.length; i++) {
+			fetches[i] = new ChildrenFetch(
+					(NavigatorContentExtension) threadSafeExtensions.get(i),
+					aParentElement, aParentElementOrPath, elements);
+			fetches[i].schedule();
+		}
+
+		boolean interrupted = false;
+		long deadline = System.currentTimeMillis() + FETCH_TIMEOUT;
+		try {
+			for (int i = 0; i < fetches.length; i++) {
+				fetches[i].waitUntilFetched(deadline);
+			}
+		} catch (InterruptedException e) {
+			interrupted = true;
+		}
+		for (int i = 0; i < fetches.length; i++) {
+			if (fetches[i].claim()) {
+				fetches[i].cancel();
+				fetches[i].fetch();
+			}
+		}
+		for (int i = 0; i < fetches.length; i++) {
+			interrupted |= fetches[i].waitUntilFetched();
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		Map fetchedChildren = new HashMap();
+		for (int i = 0; i < fetches.length; i++) {
+			fetchedChildren.put(threadSafeExtensions.get(i), fetches[i].children);
+		}
+		return fetchedChildren;
+	}
+
+	/*
+	 * The time in milliseconds the caller waits for the jobs fetching children
+	 * before it fetches the children of the jobs that have not started itself
+	 */
+	private static final long FETCH_TIMEOUT = 500;
+
+	/**
+	 * Fetches the children of one thread safe extension, either in a job or in
+	 * the calling thread, whichever claims it first.
+	 */
+	private static final class ChildrenFetch extends Job {
+
+		private static final int WAITING = 0;
+		private static final int FETCHING = 1;
+		private static final int FETCHED = 2;
+
+		private final NavigatorContentExtension extension;
+		private final SafeDelegateTreeContentProvider contentProvider;
+		private final Object parentElement;
+		private final Object parentElementOrPath;
+		private final boolean elements;
+
+		private int state = WAITING;
+		private volatile Object[] children;
+
+		ChildrenFetch(NavigatorContentExtension anExtension, Object aParentElement,
+				Object aParentElementOrPath, boolean isElements) {
+			super(NLS.bind(
+					CommonNavigatorMessages.NavigatorContentServiceContentProvider_Fetching_children,
+					anExtension.getDescriptor().getName()));
+			extension = anExtension;
+			// create the content provider in the calling thread, as it
+			// initializes it with the viewer
+			contentProvider = anExtension.internalGetContentProvider();
+			parentElement = aParentElement;
+			parentElementOrPath = aParentElementOrPath;
+			elements = isElements;
+			setSystem(true);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			if (claim()) {
+				fetch();
+			}
+			return Status.OK_STATUS;
+		}
+
+		/**
+		 * @return True if the children were not claimed by another thread yet
+		 */
+		synchronized boolean claim() {
+			if (state != WAITING) {
+				return false;
+			}
+			state = FETCHING;
+			return true;
+		}
+
+		void fetch() {
+			try {
+				SafeRunner.run(new NavigatorSafeRunnable() {
+					public void run() throws Exception {
+						if (elements)
+							children = contentProvider.getElements(parentElementOrPath);
+						else
+							children = contentProvider.getChildren(parentElementOrPath);
+					}
+
+					public void handleException(Throwable e) {
+						NavigatorPlugin.logError(0, NLS.bind(
+								CommonNavigatorMessages.Exception_Invoking_Extension,
+								new Object[] { extension.getDescriptor().getId(),
+										parentElement }), e);
+					}
+				});
+			} finally {
+				synchronized (this) {
+					state = FETCHED;
+					notifyAll();
+				}
+			}
+		}
+
+		synchronized void waitUntilFetched(long deadline) throws InterruptedException {
+			long remaining;
+			while (state != FETCHED
+					&& (remaining = deadline - System.currentTimeMillis()) > 0) {
+				wait(remaining);
+			}
+		}
+
+		/**
+		 * Wait until the children are fetched, even if the calling thread is
+		 * interrupted. Only called once the children are claimed, so this
+		 * never takes longer than asking the content provider.
+		 * 
+		 * @return True if the calling thread was interrupted
+		 */
+		synchronized boolean waitUntilFetched() {
+			boolean interrupted = false;
+			while (state != FETCHED) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			return interrupted;
+		}
+	}
+
 	/**
 	 * Query each of <code>theOverridingExtensions</code> for children, and then
 	 * pipe them through the Pipeline content provider.
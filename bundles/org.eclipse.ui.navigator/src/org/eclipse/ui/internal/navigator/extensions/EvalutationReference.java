@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,13 +11,17 @@
 
 package org.eclipse.ui.internal.navigator.extensions;
 
-import java.lang.ref.SoftReference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 
 /**
+ * A weak reference to an element, that is equal to the references of equal
+ * elements.
+ * 
  * @since 3.3
  * 
  */
-public class EvalutationReference extends SoftReference {
+public class EvalutationReference extends WeakReference {
 
 	private final int hashCode;
 
@@ -28,7 +32,18 @@ public class EvalutationReference extends SoftReference {
 	 *            The object to be referenced
 	 */
 	public EvalutationReference(Object referent) {
-		super(referent);
+		this(referent, null);
+	}
+
+	/**
+	 * @param referent
+	 *            The object to be referenced
+	 * @param queue
+	 *            The queue the reference is registered with, or
+	 *            <code>null</code>
+	 */
+	public EvalutationReference(Object referent, ReferenceQueue queue) {
+		super(referent, queue);
 		hashCode = referent.hashCode();
 		type = referent.getClass();
 	}
@@ -48,12 +63,14 @@ public class EvalutationReference extends SoftReference {
 	 * @see java.lang.Object#equals(java.lang.Object)
 	 */
 	public boolean equals(Object obj) {
-		if (obj == null)
-			return false;
+		if (this == obj)
+			return true;
 		else if (obj instanceof EvalutationReference) {
-			if (!type.equals(((EvalutationReference) obj).type))
+			EvalutationReference other = (EvalutationReference) obj;
+			if (!type.equals(other.type) || hashCode != other.hashCode)
 				return false;
-			return hashCode == obj.hashCode();
+			Object referent = get();
+			return referent != null && referent.equals(other.get());
 		}
 		return false;
 	}
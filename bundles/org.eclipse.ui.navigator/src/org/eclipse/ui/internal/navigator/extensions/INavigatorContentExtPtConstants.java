@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 IBM Corporation and others.
+ * Copyright (c) 2005, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -99,6 +99,9 @@ public interface INavigatorContentExtPtConstants {
 
 	/** */
 	String ATT_PROVIDES_SAVEABLES = "providesSaveables"; //$NON-NLS-1$
+
+	/** */
+	String ATT_THREAD_SAFE = "threadSafe"; //$NON-NLS-1$
 	
 	/** */
 	String ATT_CONTENT_PROVIDER = "contentProvider"; //$NON-NLS-1$
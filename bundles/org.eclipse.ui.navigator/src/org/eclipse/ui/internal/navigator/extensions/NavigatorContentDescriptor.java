@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,12 +11,16 @@
 package org.eclipse.ui.internal.navigator.extensions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.WeakHashMap;
 
 import org.eclipse.osgi.util.NLS;
 
@@ -56,6 +60,11 @@ public final class NavigatorContentDescriptor implements
 		INavigatorContentDescriptor, INavigatorContentExtPtConstants {
 
 	private static final int HASH_CODE_NOT_COMPUTED = -1;
+
+	/* The names of the expressions whose result only depends on the class of the element */
+	private static final Set CLASS_ONLY_EXPRESSIONS = new HashSet(Arrays.asList(new String[] {
+			"instanceof", "and", "or", "not" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
 	private String id;
 
 	private String name;
@@ -76,6 +85,15 @@ public final class NavigatorContentDescriptor implements
 
 	private Expression possibleChildren;
 
+	/*
+	 * The results of the enablement and possible children expressions by
+	 * class of the element, for expressions that only test the class of the
+	 * element. null if the expression depends on the element itself.
+	 */
+	private Map enablementByClass;
+
+	private Map possibleChildrenByClass;
+
 	private Expression initialActivation;
 	
 	private String icon;
@@ -99,6 +117,8 @@ public final class NavigatorContentDescriptor implements
 
 	private boolean providesSaveables;
 
+	private boolean threadSafe;
+
 	/**
 	 * Creates a new content descriptor from a configuration element.
 	 * 
@@ -201,6 +221,9 @@ public final class NavigatorContentDescriptor implements
 						.booleanValue() : false;
 		appearsBeforeId = configElement.getAttribute(ATT_APPEARS_BEFORE);
 
+		threadSafe = Boolean.valueOf(configElement.getAttribute(ATT_THREAD_SAFE))
+				.booleanValue();
+
 		if (priorityString != null) {
 			try {
 				Priority p = Priority.get(priorityString);
@@ -264,6 +287,7 @@ public final class NavigatorContentDescriptor implements
 			children = configElement.getChildren(TAG_TRIGGER_POINTS);
 			if (children.length == 1) {
 				enablement = new CustomAndExpression(children[0]);
+				enablementByClass = createResultsByClass(children[0]);
 			} else {
 				throw new WorkbenchException(NLS.bind(
 						CommonNavigatorMessages.Attribute_Missing_Warning,
@@ -277,6 +301,7 @@ public final class NavigatorContentDescriptor implements
 			children = configElement.getChildren(TAG_POSSIBLE_CHILDREN);
 			if (children.length == 1) {
 				possibleChildren = new CustomAndExpression(children[0]);
+				possibleChildrenByClass = createResultsByClass(children[0]);
 			} else if(children.length > 1){
 				throw new WorkbenchException(NLS.bind(
 						CommonNavigatorMessages.Attribute_Missing_Warning,
@@ -290,6 +315,7 @@ public final class NavigatorContentDescriptor implements
 			try {
 				enablement = ElementHandler.getDefault().create(
 						ExpressionConverter.getDefault(), children[0]);
+				enablementByClass = createResultsByClass(children[0]);
 			} catch (CoreException e) {
 				NavigatorPlugin.log(IStatus.ERROR, 0, e.getMessage(), e);
 			}
@@ -322,6 +348,62 @@ public final class NavigatorContentDescriptor implements
 
 	}
 
+	/**
+	 * Create the map holding the results of the expression by class of the
+	 * element if the expression only tests the class of the element.
+	 * 
+	 * @param anExpressionElement
+	 *            the element of the expression
+	 * @return a map or <code>null</code> if the expression depends on the
+	 *         element
+	 */
+	private static Map createResultsByClass(IConfigurationElement anExpressionElement) {
+		return dependsOnClassOnly(anExpressionElement) ? new WeakHashMap() : null;
+	}
+
+	/**
+	 * Return whether the children of the element are made of
+	 * &lt;instanceof&gt; expressions combined with &lt;and&gt;, &lt;or&gt;
+	 * and &lt;not&gt; only. Note that &lt;adapt&gt; depends on the adapters
+	 * the element provides, which may change from one instance to the other.
+	 */
+	private static boolean dependsOnClassOnly(IConfigurationElement anExpressionElement) {
+		IConfigurationElement[] children = anExpressionElement.getChildren();
+		for (int i = 0; i < children.length; i++) {
+			if (!CLASS_ONLY_EXPRESSIONS.contains(children[i].getName())
+					|| !dependsOnClassOnly(children[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Evaluate the expression for the element, or look up the result for the
+	 * class of the element if the expression only tests the class.
+	 */
+	private boolean evaluate(Expression anExpression, Map theResultsByClass,
+			Object anElement) {
+		if (theResultsByClass == null) {
+			IEvaluationContext context = NavigatorPlugin.getEvalContext(anElement);
+			return NavigatorPlugin.safeEvaluate(anExpression, context) == EvaluationResult.TRUE;
+		}
+		Class type = anElement.getClass();
+		Boolean result;
+		synchronized (theResultsByClass) {
+			result = (Boolean) theResultsByClass.get(type);
+		}
+		if (result == null) {
+			IEvaluationContext context = NavigatorPlugin.getEvalContext(anElement);
+			result = Boolean.valueOf(NavigatorPlugin.safeEvaluate(anExpression,
+					context) == EvaluationResult.TRUE);
+			synchronized (theResultsByClass) {
+				theResultsByClass.put(type, result);
+			}
+		}
+		return result.booleanValue();
+	}
+
 	/**
 	 * @return Returns the icon.
 	 */
@@ -422,8 +504,26 @@ public final class NavigatorContentDescriptor implements
 			return false;
 		}
 
-		IEvaluationContext context = NavigatorPlugin.getEvalContext(anElement);
-		return NavigatorPlugin.safeEvaluate(enablement, context) == EvaluationResult.TRUE;
+		return evaluate(enablement, enablementByClass, anElement);
+	}
+
+	/**
+	 * @return True if the result of {@link #isTriggerPoint(Object)} only
+	 *         depends on the class of the element.
+	 */
+	public boolean isTriggerPointClassOnly() {
+		return enablement == null || enablementByClass != null;
+	}
+
+	/**
+	 * @return True if the result of {@link #isPossibleChild(Object)} only
+	 *         depends on the class of the element.
+	 */
+	public boolean isPossibleChildClassOnly() {
+		if (possibleChildren != null) {
+			return possibleChildrenByClass != null;
+		}
+		return isTriggerPointClassOnly();
 	}
 
 	/**
@@ -449,11 +549,10 @@ public final class NavigatorContentDescriptor implements
 			return arePossibleChildren((IStructuredSelection) anElement);
 		}
 
-		IEvaluationContext context = NavigatorPlugin.getEvalContext(anElement);
 		if (possibleChildren != null) {
-			return NavigatorPlugin.safeEvaluate(possibleChildren, context) == EvaluationResult.TRUE;
+			return evaluate(possibleChildren, possibleChildrenByClass, anElement);
 		} else if (enablement != null) {
-			return NavigatorPlugin.safeEvaluate(enablement, context) == EvaluationResult.TRUE;
+			return evaluate(enablement, enablementByClass, anElement);
 		}
 		return false;
 	}
@@ -563,4 +662,17 @@ public final class NavigatorContentDescriptor implements
 		return providesSaveables;
 	}
 
+	/**
+	 * Return whether the content provider of this extension may be asked for
+	 * the children of a parent from a thread other than the UI thread, at the
+	 * same time as the content providers of other extensions are asked for the
+	 * children of the same parent, as declared by the <i>threadSafe</i>
+	 * attribute.
+	 * 
+	 * @return True if the content provider is thread safe.
+	 */
+	public boolean isThreadSafe() {
+		return threadSafe;
+	}
+
 }
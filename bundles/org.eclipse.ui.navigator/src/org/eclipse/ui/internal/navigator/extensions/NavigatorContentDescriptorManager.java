@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2011 IBM Corporation and others.
+ * Copyright (c) 2003, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,11 +11,12 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.navigator.extensions;
 
-import java.lang.ref.SoftReference;
+import java.lang.ref.ReferenceQueue;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -49,48 +50,67 @@ public class NavigatorContentDescriptorManager {
 
 	private final Map allDescriptors = new HashMap();
 
+	/*
+	 * The maximum number of elements for which the descriptors are cached, for
+	 * each visibility assistant and kind of evaluation
+	 */
+	private static final int MAX_CACHED_ELEMENTS = 5000;
+
+	/**
+	 * Caches the descriptors found for an element. The elements are weakly
+	 * referenced and the least recently used ones are dropped once there are
+	 * more than {@link #MAX_CACHED_ELEMENTS}. Elements are only cached while
+	 * all the active and visible descriptors answer by the class of the
+	 * element, since property testers and the like depend on the state of
+	 * the element, which may change without notice.
+	 */
 	private class EvaluationCache implements VisibilityListener {
 
-		private final Map evaluations/* <Object, NavigatorContentDescriptor[]> */= new HashMap();
-		private final Map evaluationsWithOverrides/*<Object, NavigatorContentDescriptor[]>*/ = new HashMap();
+		private final Map evaluations/* <EvalutationReference, NavigatorContentDescriptor[]> */= new BoundedMap();
+		private final Map evaluationsWithOverrides/*<EvalutationReference, NavigatorContentDescriptor[]>*/ = new BoundedMap();
 
-		EvaluationCache(VisibilityAssistant anAssistant) {
-			anAssistant.addListener(this);
-		}
+		private final ReferenceQueue collectedElements = new ReferenceQueue();
 
-		protected final NavigatorContentDescriptor[] getDescriptors(Object anElement) {
-			return getDescriptors(anElement, true);
-		}
+		private final VisibilityAssistant assistant;
+
+		private final boolean possibleChild;
 
-		protected final void setDescriptors(Object anElement, NavigatorContentDescriptor[] theDescriptors) {
-			setDescriptors(anElement, theDescriptors, true);
+		private Boolean classOnly;
+
+		EvaluationCache(VisibilityAssistant anAssistant, boolean isPossibleChild) {
+			assistant = anAssistant;
+			possibleChild = isPossibleChild;
+			anAssistant.addListener(this);
 		}
 
-		protected final NavigatorContentDescriptor[] getDescriptors(Object anElement, boolean toComputeOverrides) {
+		protected final synchronized NavigatorContentDescriptor[] getDescriptors(Object anElement, boolean toComputeOverrides) {
 
-			if (anElement == null)
+			if (anElement == null || !isClassOnly())
 				return null;
 
-			NavigatorContentDescriptor[] cachedDescriptors = null;
-			if (toComputeOverrides) {
-				SoftReference cache = (SoftReference) evaluations.get(anElement);
-				if (cache != null && (cachedDescriptors = (NavigatorContentDescriptor[]) cache.get()) == null)
-					evaluations.remove(anElement);
-				return cachedDescriptors;
-			}
-			SoftReference cache = (SoftReference) evaluationsWithOverrides.get(anElement);
-			if (cache != null && (cachedDescriptors = (NavigatorContentDescriptor[]) cache.get()) == null)
-				evaluationsWithOverrides.remove(anElement);
-			return cachedDescriptors;
+			removeCollectedElements();
+			EvalutationReference key = new EvalutationReference(anElement);
+			if (toComputeOverrides)
+				return (NavigatorContentDescriptor[]) evaluations.get(key);
+			return (NavigatorContentDescriptor[]) evaluationsWithOverrides.get(key);
 
 		}
 
-		protected final void setDescriptors(Object anElement, NavigatorContentDescriptor[] theDescriptors, boolean toComputeOverrides) {
-			if (anElement != null) {
+		protected final synchronized void setDescriptors(Object anElement, NavigatorContentDescriptor[] theDescriptors, boolean toComputeOverrides) {
+			if (anElement != null && isClassOnly()) {
+				removeCollectedElements();
 				if (toComputeOverrides)
-					evaluations.put(new EvalutationReference(anElement), new SoftReference(theDescriptors));
+					evaluations.put(new EvalutationReference(anElement, collectedElements), theDescriptors);
 				else
-					evaluationsWithOverrides.put(new EvalutationReference(anElement), new SoftReference(theDescriptors));
+					evaluationsWithOverrides.put(new EvalutationReference(anElement, collectedElements), theDescriptors);
+			}
+		}
+
+		private void removeCollectedElements() {
+			Object key;
+			while ((key = collectedElements.poll()) != null) {
+				evaluations.remove(key);
+				evaluationsWithOverrides.remove(key);
 			}
 		}
 
@@ -99,9 +119,46 @@ public class NavigatorContentDescriptorManager {
 		 * 
 		 * @see org.eclipse.ui.internal.navigator.VisibilityAssistant.VisibilityListener#onVisibilityOrActivationChange()
 		 */
-		public void onVisibilityOrActivationChange() {
+		public synchronized void onVisibilityOrActivationChange() {
 			evaluations.clear();
 			evaluationsWithOverrides.clear();
+			classOnly = null;
+		}
+
+		private boolean isClassOnly() {
+			if (classOnly == null) {
+				classOnly = Boolean.valueOf(areClassOnly(firstClassDescriptorsSet));
+			}
+			return classOnly.booleanValue();
+		}
+
+		private boolean areClassOnly(Set theDescriptors) {
+			for (Iterator iter = theDescriptors.iterator(); iter.hasNext();) {
+				NavigatorContentDescriptor descriptor = (NavigatorContentDescriptor) iter.next();
+				if (!assistant.isActive(descriptor) || !assistant.isVisible(descriptor)) {
+					continue;
+				}
+				if (!(possibleChild ? descriptor.isPossibleChildClassOnly() : descriptor.isTriggerPointClassOnly())) {
+					return false;
+				}
+				if (descriptor.hasOverridingExtensions() && !areClassOnly(descriptor.getOverriddingExtensions())) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static class BoundedMap extends LinkedHashMap {
+
+		private static final long serialVersionUID = 1L;
+
+		BoundedMap() {
+			super(16, 0.75f, true);
+		}
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_CACHED_ELEMENTS;
 		}
 	}
 
@@ -212,12 +269,13 @@ public class NavigatorContentDescriptorManager {
 	private Set findDescriptors(Object anElement,
 			Map cachedEvaluations, VisibilityAssistant aVisibilityAssistant, boolean considerOverrides, boolean possibleChild) {
 		EvaluationCache cache = getEvaluationCache(
-				cachedEvaluations, aVisibilityAssistant);
+				cachedEvaluations, aVisibilityAssistant, possibleChild);
 
 		Set descriptors = new TreeSet(ExtensionSequenceNumberComparator.INSTANCE);
 		NavigatorContentDescriptor[] cachedDescriptors = null;
-		if ((cachedDescriptors = cache.getDescriptors(anElement)) != null) {
+		if ((cachedDescriptors = cache.getDescriptors(anElement, considerOverrides)) != null) {
 			descriptors.addAll(Arrays.asList(cachedDescriptors));
+			return descriptors;
 		}
 
 		if (considerOverrides) {
@@ -238,20 +296,22 @@ public class NavigatorContentDescriptorManager {
 				}
 			}
 		}
-		cache.setDescriptors(anElement, (NavigatorContentDescriptor[]) descriptors.toArray(new NavigatorContentDescriptor[descriptors.size()]));
+		cache.setDescriptors(anElement, (NavigatorContentDescriptor[]) descriptors.toArray(new NavigatorContentDescriptor[descriptors.size()]), considerOverrides);
 
 		return descriptors;
 	}
 
 	private EvaluationCache getEvaluationCache(Map anEvaluationMap,
-			VisibilityAssistant aVisibilityAssistant) {
-		EvaluationCache c = (EvaluationCache) anEvaluationMap
-				.get(aVisibilityAssistant);
-		if (c == null) {
-			anEvaluationMap.put(aVisibilityAssistant, c = new EvaluationCache(
-					aVisibilityAssistant));
+			VisibilityAssistant aVisibilityAssistant, boolean possibleChild) {
+		synchronized (anEvaluationMap) {
+			EvaluationCache c = (EvaluationCache) anEvaluationMap
+					.get(aVisibilityAssistant);
+			if (c == null) {
+				anEvaluationMap.put(aVisibilityAssistant, c = new EvaluationCache(
+						aVisibilityAssistant, possibleChild));
+			}
+			return c;
 		}
-		return c;
 
 	}
 
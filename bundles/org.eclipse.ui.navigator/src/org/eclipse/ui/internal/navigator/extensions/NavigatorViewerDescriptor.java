@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -40,6 +40,13 @@ public final class NavigatorViewerDescriptor implements
 	 */
 	public static final String PROP_ENFORCE_HAS_CHILDREN = "org.eclipse.ui.navigator.enforceHasChildren"; //$NON-NLS-1$
 
+	/**
+	 * {@value} (boolean): True indicates the children provided by thread safe
+	 * content extensions should be fetched at the same time, each in its own
+	 * job (default <b>false</b>).
+	 */
+	public static final String PROP_PARALLEL_CHILDREN = "org.eclipse.ui.navigator.parallelChildren"; //$NON-NLS-1$
+
 	static final String TAG_INCLUDES = "includes"; //$NON-NLS-1$
 
 	static final String TAG_EXCLUDES = "excludes"; //$NON-NLS-1$
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.handlers;
+
+import org.eclipse.core.commands.IHandler;
+import org.eclipse.core.expressions.IEvaluationContext;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * <p>
+ * A handler whose enablement is expensive to compute, for example because it
+ * checks the status of a repository. When such a handler is activated through
+ * the {@link IHandlerService}, the workbench does not ask it for its
+ * enablement on the UI thread. Instead it collects the input of the
+ * computation on the UI thread with
+ * {@link #getEnablementInput(IEvaluationContext)} and calls
+ * {@link #computeEnabled(Object, IProgressMonitor)} in a background job.
+ * </p>
+ * <p>
+ * Requests for the same handler are coalesced: if the enablement is requested
+ * again before the job got to it, only the latest input is computed. The
+ * results of one run of the job are reported to the commands, and so to the
+ * menu and toolbar items, in one batch on the UI thread. Until the first
+ * result is known, the command uses {@link IHandler#isEnabled()}. A handler
+ * whose state changed can fire a handler event with the enabled flag set to
+ * have its enablement computed again for the last input.
+ * </p>
+ * <p>
+ * As the reported enablement may lag behind the state of the workbench, the
+ * handler should check that it can still run when it is executed.
+ * </p>
+ *
+ * @since 3.105
+ */
+public interface IAsyncEnablementHandler extends IHandler {
+
+	/**
+	 * Returns the input needed to compute the enablement of this handler, for
+	 * example the selected elements. This method is called on the UI thread,
+	 * and must be fast. The input must not refer to the evaluation context, as
+	 * the context must not be used outside of the UI thread.
+	 *
+	 * @param context
+	 *            the current state of the workbench; never <code>null</code>
+	 * @return the input, may be <code>null</code>
+	 */
+	public Object getEnablementInput(IEvaluationContext context);
+
+	/**
+	 * Computes whether this handler is enabled for the given input. This
+	 * method is called in a background job and must not access the UI.
+	 *
+	 * @param input
+	 *            the input returned by
+	 *            {@link #getEnablementInput(IEvaluationContext)}
+	 * @param monitor
+	 *            the monitor of the job; the result is dropped if the monitor
+	 *            is canceled
+	 * @return whether the handler is enabled
+	 */
+	public boolean computeEnabled(Object input, IProgressMonitor monitor);
+}
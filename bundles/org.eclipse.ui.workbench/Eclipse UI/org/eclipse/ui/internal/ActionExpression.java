@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -63,6 +63,16 @@ public class ActionExpression {
 		 */
 		public abstract boolean isEnabledFor(Object object);
 
+		/**
+		 * Returns whether the expression is valid for every object because it
+		 * only consists of object class tests that have been extracted.
+		 * 
+		 * @return boolean whether the expression is valid for every object.
+		 */
+		public boolean isAlwaysEnabled() {
+			return false;
+		}
+
 		/**
 		 * Returns whether or not the receiver is potentially valid for the
 		 * object via just the extension type. Currently the only supported
@@ -135,6 +145,20 @@ public class ActionExpression {
 			}
 			return true;
 		}
+
+		/*
+		 * (non-Javadoc) Method declared on AbstractExpression.
+		 */
+		public boolean isAlwaysEnabled() {
+			Iterator iter = list.iterator();
+			while (iter.hasNext()) {
+				AbstractExpression expr = (AbstractExpression) iter.next();
+				if (!expr.isAlwaysEnabled()) {
+					return false;
+				}
+			}
+			return true;
+		}
 	}
 
 	private static abstract class CompositeExpression extends
@@ -418,6 +442,13 @@ public class ActionExpression {
 			return false;
 		}
 
+		/*
+		 * (non-Javadoc) Method declared on AbstractExpression.
+		 */
+		public boolean isAlwaysEnabled() {
+			return extracted;
+		}
+
 		/*
 		 * (non-Javadoc) Method declared on AbstractExpression.
 		 */
@@ -743,6 +774,13 @@ public class ActionExpression {
 			return child.isEnabledFor(object);
 		}
 
+		/*
+		 * (non-Javadoc) Method declared on AbstractExpression.
+		 */
+		public boolean isAlwaysEnabled() {
+			return child.isAlwaysEnabled();
+		}
+
 		/*
 		 * (non-Javadoc) Method declared on AbstractExpression.
 		 */
@@ -1053,6 +1091,21 @@ public class ActionExpression {
 		return root.isEnabledFor(object);
 	}
 
+	/**
+	 * Returns whether the expression is valid for every object. This is the
+	 * case when it only consists of object class tests that have been removed
+	 * with {@link #extractObjectClasses()}, so that clients that looked up the
+	 * receiver by its object classes do not need to evaluate it.
+	 * 
+	 * @return boolean whether the expression is valid for every object.
+	 */
+	public boolean isAlwaysEnabled() {
+		if (root == null) {
+			return false;
+		}
+		return root.isAlwaysEnabled();
+	}
+
 	/**
 	 * Returns whether or not the receiver is potentially valid for the object
 	 * via just the extension type. Currently the only supported expression type
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IAdapterManager;
@@ -73,16 +74,68 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
 		IObjectContributor contributor;
 	}
 
+    /**
+     * The search order of a class as defined in this class' comment: the class
+     * and its superclasses, followed by their interfaces. Instances are
+     * immutable and shared by all managers.
+     */
+    private static final class TypeOrder {
+    	final List classes;
+
+    	final List interfaces;
+
+    	TypeOrder(Class extensibleClass) {
+    		List classList = new ArrayList(4);
+    		Class clazz = extensibleClass;
+    		while (clazz != null) {
+    			classList.add(clazz);
+    			clazz = clazz.getSuperclass();
+    		}
+    		List interfaceList = new ArrayList(4);
+    		Map seen = new HashMap(4);
+    		for (Iterator list = classList.iterator(); list.hasNext();) {
+    			internalComputeInterfaceOrder(((Class) list.next())
+    					.getInterfaces(), interfaceList, seen);
+    		}
+    		classes = Collections.unmodifiableList(classList);
+    		interfaces = Collections.unmodifiableList(interfaceList);
+    	}
+
+    	/**
+    	 * Returns whether the search order contains a type with the given name.
+    	 */
+    	boolean contains(String typeName) {
+    		for (int i = 0; i < classes.size(); i++) {
+    			if (((Class) classes.get(i)).getName().equals(typeName)) {
+    				return true;
+    			}
+    		}
+    		for (int i = 0; i < interfaces.size(); i++) {
+    			if (((Class) interfaces.get(i)).getName().equals(typeName)) {
+    				return true;
+    			}
+    		}
+    		return false;
+    	}
+    }
+
+    /**
+     * Cache of {@link TypeOrder}s keyed by class, shared by all managers. The
+     * search order of a class never changes, so the cache is only cleared when
+     * an extension goes away to let go of classes from uninstalled bundles.
+     */
+    private static final Map typeOrders = new ConcurrentHashMap();
+
     /** Table of contributors. */
     protected Map contributors;
 
-    /** Cache of object class contributor search paths; <code>null</code> if none. */
+    /** Cache of object class contributor search paths. */
     protected Map objectLookup;
 
-    /** Cache of resource adapter class contributor search paths; <code>null</code> if none. */
+    /** Cache of resource adapter class contributor search paths. */
     protected Map resourceAdapterLookup;
     
-    /** Cache of adaptable class contributor search paths; <code>null</code> if none. */
+    /** Cache of adaptable class contributor search paths. */
     protected Map adaptableLookup;
     
     protected Set contributorRecordSet;
@@ -93,9 +146,9 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
     public ObjectContributorManager() {
     	contributors = new Hashtable(5);
         contributorRecordSet = new HashSet(5);
-        objectLookup = null;
-        resourceAdapterLookup = null;
-        adaptableLookup = null;
+        objectLookup = new ConcurrentHashMap();
+        resourceAdapterLookup = new ConcurrentHashMap();
+        adaptableLookup = new ConcurrentHashMap();
         String extensionPointId = getExtensionPointFilter();
         if (extensionPointId != null) {
         	IExtensionPoint extensionPoint = Platform.getExtensionRegistry().getExtensionPoint(
@@ -137,13 +190,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      * The search order is defined in this class' comment.
      */
     protected final List computeClassOrder(Class extensibleClass) {
-        ArrayList result = new ArrayList(4);
-        Class clazz = extensibleClass;
-        while (clazz != null) {
-            result.add(clazz);
-            clazz = clazz.getSuperclass();
-        }
-        return result;
+        return new ArrayList(getTypeOrder(extensibleClass).classes);
     }
 
     /**
@@ -162,46 +209,50 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
     }
 
     /**
-     * Flushes the cache of contributor search paths.  This is generally required
-     * whenever a contributor is added or removed.  
-     * <p>
-     * It is likely easier to just toss the whole cache rather than trying to be
-     * smart and remove only those entries affected.
+     * Returns the shared search order of the given class, computing it on
+     * first use.
      */
-    public void flushLookup() {
-        objectLookup = null;
-        resourceAdapterLookup = null;
-        adaptableLookup = null;
+    private static TypeOrder getTypeOrder(Class extensibleClass) {
+    	TypeOrder order = (TypeOrder) typeOrders.get(extensibleClass);
+    	if (order == null) {
+    		order = new TypeOrder(extensibleClass);
+    		typeOrders.put(extensibleClass, order);
+    	}
+    	return order;
     }
 
     /**
-     * Cache the real adapter class contributor search path.
+     * Flushes the cache of contributor search paths.
      */
-    private void cacheResourceAdapterLookup(Class adapterClass, List results) {
-        if (resourceAdapterLookup == null) {
-			resourceAdapterLookup = new HashMap();
-		}
-        resourceAdapterLookup.put(adapterClass, results);
+    public void flushLookup() {
+        objectLookup.clear();
+        resourceAdapterLookup.clear();
+        adaptableLookup.clear();
     }
-    
+
     /**
-     * Cache the real adapter class contributor search path.
+     * Flushes the contributor search paths that include the given target type.
+     * This is required whenever a contributor for that type is added or
+     * removed.
+     * 
+     * @param targetType the target type
      */
-    private void cacheAdaptableLookup(String adapterClass, List results) {
-        if (adaptableLookup == null) {
-			adaptableLookup = new HashMap();
-		}
-        adaptableLookup.put(adapterClass, results);
+    private void flushLookup(String targetType) {
+    	flushClassLookup(objectLookup, targetType);
+    	flushClassLookup(resourceAdapterLookup, targetType);
+    	adaptableLookup.remove(targetType);
     }
 
     /**
-     * Cache the object class contributor search path.
+     * Removes the entries of a class keyed cache whose search order contains
+     * the given type.
      */
-    private void cacheObjectLookup(Class objectClass, List results) {
-        if (objectLookup == null) {
-			objectLookup = new HashMap();
-		}
-        objectLookup.put(objectClass, results);
+    private static void flushClassLookup(Map lookup, String targetType) {
+    	for (Iterator i = lookup.keySet().iterator(); i.hasNext();) {
+    		if (getTypeOrder((Class) i.next()).contains(targetType)) {
+    			i.remove();
+    		}
+    	}
     }
 
     /**
@@ -221,11 +272,10 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      */
     protected List addContributorsFor(Class objectClass) {
 
-        List classList = computeClassOrder(objectClass);
+        TypeOrder order = getTypeOrder(objectClass);
         List result = new ArrayList();
-        addContributorsFor(classList, result);
-        classList = computeInterfaceOrder(classList); // interfaces
-        addContributorsFor(classList, result);
+        addContributorsFor(order.classes, result);
+        addContributorsFor(order.interfaces, result); // interfaces
         return result;
     }
 
@@ -248,7 +298,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      * on the class hierarchy. Interfaces will be searched
      * based on their position in the result list.
      */
-    private void internalComputeInterfaceOrder(Class[] interfaces, List result,
+    private static void internalComputeInterfaceOrder(Class[] interfaces, List result,
             Map seen) {
         List newInterfaces = new ArrayList(seen.size());
         for (int i = 0; i < interfaces.length; i++) {
@@ -321,7 +371,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
             contributors.put(targetType, contributorList);
         }
         contributorList.add(contributor);
-        flushLookup();
+        flushLookup(targetType);
 
         IConfigurationElement element = (IConfigurationElement) Util.getAdapter(contributor,
         	IConfigurationElement.class);
@@ -361,7 +411,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         if (contributorList.isEmpty()) {
 			contributors.remove(targetType);
 		}
-        flushLookup();
+        flushLookup(targetType);
     }
 
 
@@ -372,7 +422,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      */
     public void unregisterContributors(String targetType) {
         contributors.remove(targetType);
-        flushLookup();
+        flushLookup(targetType);
     }
     
     protected List getContributors(Object object) {
@@ -416,11 +466,8 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      * @since 3.1
      */
     protected List getObjectContributors(Class objectClass) {
-		List objectList = null;
 		// Lookup the results in the cache first.
-		if (objectLookup != null) {
-			objectList = (List) objectLookup.get(objectClass);
-		}
+		List objectList = (List) objectLookup.get(objectClass);
 		if (objectList == null) {
 			objectList = addContributorsFor(objectClass);
 			if (objectList.size() == 0) {
@@ -429,7 +476,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
 			else {
 				objectList = Collections.unmodifiableList(objectList);
 			}
-			cacheObjectLookup(objectClass, objectList);
+			objectLookup.put(objectClass, objectList);
 		}
 		return objectList;
 	}
@@ -446,10 +493,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      * @since 3.1
      */
 	protected List getResourceContributors(Class resourceClass) {
-		List resourceList = null;
-		if (resourceAdapterLookup != null) {
-			resourceList = (List) resourceAdapterLookup.get(resourceClass);
-		}
+		List resourceList = (List) resourceAdapterLookup.get(resourceClass);
 		if (resourceList == null) {
 			resourceList = addContributorsFor(resourceClass);
 			if (resourceList.size() == 0) {
@@ -457,7 +501,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
 			} else {
 				resourceList = Collections.unmodifiableList(filterOnlyAdaptableContributors(resourceList));
 			}
-			cacheResourceAdapterLookup(resourceClass, resourceList);
+			resourceAdapterLookup.put(resourceClass, resourceList);
 		}
 		return resourceList;
 	}
@@ -472,13 +516,10 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
      * @since 3.1
      */
 	protected List getAdaptableContributors(String adapterType) {
-		List adaptableList = null;
 		// Lookup the results in the cache first, there are two caches
 		// one that stores non-adapter contributions and the other
 		// contains adapter contributions.
-		if (adaptableLookup != null) {
-			adaptableList = (List) adaptableLookup.get(adapterType);
-		}
+		List adaptableList = (List) adaptableLookup.get(adapterType);
 		if (adaptableList == null) {
 			// ignore resource adapters because these must be adapted via the
 			// IContributorResourceAdapter.
@@ -493,7 +534,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
 					adaptableList = Collections.unmodifiableList(filterOnlyAdaptableContributors(adaptableList));
 				}
 			}
-			cacheAdaptableLookup(adapterType, adaptableList);
+			adaptableLookup.put(adapterType, adaptableList);
 		}
 		return adaptableList;
 	}
@@ -562,6 +603,7 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
                 contributorRecordSet.remove(contributorRecord);
             }
         }
+        typeOrders.clear();
     }
 
     /**
@@ -689,9 +731,15 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         
         // Compute all the super classes, interfaces, and adapters 
         // for the first element.
-        List classes = computeClassOrder(objects.get(0).getClass());
+        TypeOrder firstOrder = getTypeOrder(objects.get(0).getClass());
+        List classes = new ArrayList(firstOrder.classes);
         List adapters = computeAdapterOrder(classes);
-        List interfaces = computeInterfaceOrder(classes);
+        List interfaces = new ArrayList(firstOrder.interfaces);
+
+        // Adapters of the classes and interfaces of each class seen so far.
+        // Large selections usually have few distinct classes, so the adapter
+        // manager is asked only once per class rather than once per element.
+        Map adaptersByClass = new HashMap();
 
         // Cache of all types found in the selection - this is needed
         // to compute common adapters.
@@ -703,14 +751,16 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
         // Traverse the selection if there is more than one element selected.
         for (int i = 1; i < objects.size(); i++) {
             // Compute all the super classes for the current element
-            List otherClasses = computeClassOrder(objects.get(i).getClass());
+            Class otherClass = objects.get(i).getClass();
+            TypeOrder otherOrder = getTypeOrder(otherClass);
+            List otherClasses = otherOrder.classes;
             if (!classesEmpty) {
                 classesEmpty = extractCommonClasses(classes, otherClasses);
             }
 
             // Compute all the interfaces for the current element
             // and all of its super classes.
-            List otherInterfaces = computeInterfaceOrder(otherClasses);
+            List otherInterfaces = otherOrder.interfaces;
             if (!interfacesEmpty) {
                 interfacesEmpty = extractCommonClasses(interfaces,
                         otherInterfaces);
@@ -719,10 +769,12 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
             // Compute all the adapters provided for the calculated
             // classes and interfaces for this element.
             List classesAndInterfaces = new ArrayList(otherClasses);
-            if (otherInterfaces != null) {
-				classesAndInterfaces.addAll(otherInterfaces);
-			}
-            List otherAdapters = computeAdapterOrder(classesAndInterfaces);
+            classesAndInterfaces.addAll(otherInterfaces);
+            List otherAdapters = (List) adaptersByClass.get(otherClass);
+            if (otherAdapters == null) {
+            	otherAdapters = computeAdapterOrder(classesAndInterfaces);
+            	adaptersByClass.put(otherClass, otherAdapters);
+            }
 
             // Compute common adapters
             // Note here that an adapter can match a class or interface, that is
@@ -734,9 +786,11 @@ public abstract class ObjectContributorManager implements IExtensionChangeHandle
                 removeNonCommonAdapters(adapters, classesAndInterfaces);
             } else {
                 if (adapters.isEmpty()) {
-                    removeNonCommonAdapters(otherAdapters, lastCommonTypes);
-                    if (!otherAdapters.isEmpty()) {
-						adapters.addAll(otherAdapters);
+                    // copy, the cached adapters are reused for later elements
+                    List newAdapters = new ArrayList(otherAdapters);
+                    removeNonCommonAdapters(newAdapters, lastCommonTypes);
+                    if (!newAdapters.isEmpty()) {
+						adapters.addAll(newAdapters);
 					}
                 } else {
                     // Remove any adapters of the first element that
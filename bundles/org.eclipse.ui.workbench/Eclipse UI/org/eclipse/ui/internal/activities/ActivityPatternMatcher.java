@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.internal.activities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Matches identifiers against the pattern bindings of all defined activities
+ * at once.
+ * <p>
+ * Equality patterns are looked up in a hash table. Regular expressions are
+ * bucketed by the literal text they must start with, so an identifier is only
+ * tested against the expressions whose literal prefix it shares. Instances are
+ * immutable and may be used from any thread.
+ * </p>
+ *
+ * @since 3.105
+ */
+public final class ActivityPatternMatcher {
+
+	private static final String REGEX_META_CHARACTERS = ".[]{}()*+?^$|\\"; //$NON-NLS-1$
+
+	private static final String REGEX_QUANTIFIERS = "*+?{"; //$NON-NLS-1$
+
+	/**
+	 * A regular expression and the activity that binds it.
+	 */
+	private static final class Entry {
+		final String activityId;
+
+		final Pattern pattern;
+
+		Entry(String activityId, Pattern pattern) {
+			this.activityId = activityId;
+			this.pattern = pattern;
+		}
+	}
+
+	/**
+	 * Activity id sets keyed by the exact identifier they match.
+	 */
+	private final Map activityIdsByIdentifier = new HashMap();
+
+	/**
+	 * Lists of {@link Entry} keyed by the literal prefix of their pattern.
+	 */
+	private final Map entriesByPrefix = new HashMap();
+
+	/**
+	 * The distinct prefix lengths used as keys in {@link #entriesByPrefix},
+	 * in ascending order.
+	 */
+	private final int[] prefixLengths;
+
+	/**
+	 * Create a matcher for the given pattern bindings.
+	 *
+	 * @param activityPatternBindingsByActivityId
+	 *            a map from activity id to a set of
+	 *            {@link ActivityPatternBinding}
+	 * @param definedActivityIds
+	 *            the ids of the defined activities. Bindings of other
+	 *            activities are ignored.
+	 */
+	public ActivityPatternMatcher(Map activityPatternBindingsByActivityId,
+			Set definedActivityIds) {
+		Set lengths = new HashSet();
+		for (Iterator i = activityPatternBindingsByActivityId.entrySet()
+				.iterator(); i.hasNext();) {
+			Map.Entry mapEntry = (Map.Entry) i.next();
+			String activityId = (String) mapEntry.getKey();
+			if (!definedActivityIds.contains(activityId)
+					|| mapEntry.getValue() == null) {
+				continue;
+			}
+			for (Iterator j = ((Set) mapEntry.getValue()).iterator(); j
+					.hasNext();) {
+				ActivityPatternBinding binding = (ActivityPatternBinding) j
+						.next();
+				if (binding.isEqualityPattern()) {
+					String identifier = binding.getString();
+					Set activityIds = (Set) activityIdsByIdentifier
+							.get(identifier);
+					if (activityIds == null) {
+						activityIds = new HashSet(2);
+						activityIdsByIdentifier.put(identifier, activityIds);
+					}
+					activityIds.add(activityId);
+				} else {
+					Pattern pattern = binding.getPattern();
+					String prefix = getLiteralPrefix(pattern);
+					List entries = (List) entriesByPrefix.get(prefix);
+					if (entries == null) {
+						entries = new ArrayList(2);
+						entriesByPrefix.put(prefix, entries);
+						lengths.add(new Integer(prefix.length()));
+					}
+					entries.add(new Entry(activityId, pattern));
+				}
+			}
+		}
+		prefixLengths = new int[lengths.size()];
+		int index = 0;
+		for (Iterator i = lengths.iterator(); i.hasNext();) {
+			prefixLengths[index++] = ((Integer) i.next()).intValue();
+		}
+		Arrays.sort(prefixLengths);
+	}
+
+	/**
+	 * Return the ids of all activities that have a pattern binding matching
+	 * the given identifier.
+	 *
+	 * @param identifierId
+	 *            the identifier
+	 * @return a new set of activity ids, never <code>null</code>
+	 */
+	public Set getMatchingActivityIds(String identifierId) {
+		Set result = new HashSet();
+		Set exact = (Set) activityIdsByIdentifier.get(identifierId);
+		if (exact != null) {
+			result.addAll(exact);
+		}
+		int length = identifierId.length();
+		for (int i = 0; i < prefixLengths.length && prefixLengths[i] <= length; i++) {
+			List entries = (List) entriesByPrefix.get(identifierId.substring(0,
+					prefixLengths[i]));
+			if (entries == null) {
+				continue;
+			}
+			for (Iterator j = entries.iterator(); j.hasNext();) {
+				Entry entry = (Entry) j.next();
+				if (!result.contains(entry.activityId)
+						&& entry.pattern.matcher(identifierId).matches()) {
+					result.add(entry.activityId);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the literal text every string matched by the pattern must start
+	 * with. The computation is conservative: anything it does not understand
+	 * ends the prefix.
+	 *
+	 * @param pattern
+	 *            the pattern
+	 * @return the prefix, possibly empty
+	 */
+	public static String getLiteralPrefix(Pattern pattern) {
+		String regex = pattern.pattern();
+		if (pattern.flags() != 0 || hasAlternation(regex)) {
+			return ""; //$NON-NLS-1$
+		}
+		StringBuffer prefix = new StringBuffer();
+		int i = 0;
+		while (i < regex.length()) {
+			char c = regex.charAt(i);
+			char literal;
+			int next;
+			if (c == '\\') {
+				if (i + 1 >= regex.length()
+						|| Character.isLetterOrDigit(regex.charAt(i + 1))) {
+					break;
+				}
+				literal = regex.charAt(i + 1);
+				next = i + 2;
+			} else if (REGEX_META_CHARACTERS.indexOf(c) != -1) {
+				break;
+			} else {
+				literal = c;
+				next = i + 1;
+			}
+			// a quantified character is optional or repeated, so it can't be
+			// part of the prefix
+			if (next < regex.length()
+					&& REGEX_QUANTIFIERS.indexOf(regex.charAt(next)) != -1) {
+				break;
+			}
+			prefix.append(literal);
+			i = next;
+		}
+		return prefix.toString();
+	}
+
+	private static boolean hasAlternation(String regex) {
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				i++;
+			} else if (c == '|') {
+				return true;
+			}
+		}
+		return false;
+	}
+}
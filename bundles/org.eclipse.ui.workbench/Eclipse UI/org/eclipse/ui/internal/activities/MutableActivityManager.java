@@ -92,9 +92,22 @@ public final class MutableActivityManager extends AbstractActivityManager
     private List deferredIdentifiers = Collections.synchronizedList(new LinkedList());
 
     /**
-     * The identifier update job.  Lazily initialized.
+     * The number of deferred identifiers an update job takes from the list at
+     * a time.
      */
-    private Job deferredIdentifierJob = null;
+    private static final int DEFERRED_IDENTIFIER_CHUNK = 64;
+
+    /**
+     * The identifier update jobs. Lazily initialized. Each job drains chunks
+     * of the deferred identifiers, so several of them can work in parallel.
+     */
+    private Job[] deferredIdentifierJobs = null;
+
+    /**
+     * The combined matcher for the pattern bindings of all defined
+     * activities. Lazily initialized and discarded when the registry is read.
+     */
+    private ActivityPatternMatcher patternMatcher = null;
     
     private final IActivityRegistryListener activityRegistryListener = new IActivityRegistryListener() {
                 public void activityRegistryChanged(
@@ -436,6 +449,11 @@ public final class MutableActivityManager extends AbstractActivityManager
             this.definedActivityIds = definedActivityIds;
             definedActivityIdsChanged = true;
         }
+        // under the lock of getPatternMatcher() so that a matcher built from
+        // the previous bindings is not kept
+        synchronized (this) {
+            this.patternMatcher = null;
+        }
 
         boolean definedCategoryIdsChanged = false;
         Set definedCategoryIds = new HashSet(categoryDefinitionsById.keySet());
@@ -833,7 +851,7 @@ public final class MutableActivityManager extends AbstractActivityManager
             enabledChanged = identifier.setEnabled(enabled);
             identifier.setActivityIds(Collections.EMPTY_SET);
             deferredIdentifiers.add(identifier);
-            getUpdateJob().schedule();
+            scheduleUpdateJobs();
             if (enabledChanged) {
 				return new IdentifierEvent(identifier, activityIdsChanged,
                         enabledChanged);
@@ -843,12 +861,14 @@ public final class MutableActivityManager extends AbstractActivityManager
             if (identifier.getActivityIds() != null) {
                 activityIdsToUpdate.addAll(identifier.getActivityIds());
             }
+            Set matchingActivityIds = getPatternMatcher().getMatchingActivityIds(id);
             for (Iterator iterator = activityIdsToUpdate.iterator(); iterator
                     .hasNext();) {
                 String activityId = (String) iterator.next();
-                Activity activity = (Activity) getActivity(activityId);
+                // make sure the activity exists and tracks its enabledWhen
+                getActivity(activityId);
     
-                if (activity.isMatch(id)) {
+                if (matchingActivityIds.contains(activityId)) {
                     activityIds.add(activityId);
                }
             }
@@ -912,39 +932,89 @@ public final class MutableActivityManager extends AbstractActivityManager
     }
     
     /**
-     * Return the identifier update job.
+     * Return the combined pattern matcher, creating it if the registry has
+     * changed since it was last used.
+     * 
+     * @return the matcher
+     */
+    synchronized ActivityPatternMatcher getPatternMatcher() {
+        if (patternMatcher == null) {
+            patternMatcher = new ActivityPatternMatcher(
+                    activityPatternBindingsByActivityId, definedActivityIds);
+        }
+        return patternMatcher;
+    }
+
+    /**
+     * Schedule enough identifier update jobs to process the deferred
+     * identifiers, up to one per processor.
+     */
+    private void scheduleUpdateJobs() {
+        if (deferredIdentifierJobs == null) {
+            int count = Math.max(1, Runtime.getRuntime().availableProcessors());
+            deferredIdentifierJobs = new Job[count];
+            for (int i = 0; i < count; i++) {
+                deferredIdentifierJobs[i] = createUpdateJob();
+            }
+        }
+        int needed = (deferredIdentifiers.size() + DEFERRED_IDENTIFIER_CHUNK - 1)
+                / DEFERRED_IDENTIFIER_CHUNK;
+        int count = Math.max(1, Math.min(needed, deferredIdentifierJobs.length));
+        for (int i = 0; i < count; i++) {
+            deferredIdentifierJobs[i].schedule();
+        }
+    }
+
+    /**
+     * Remove the next chunk of identifiers from the deferred list.
+     * 
+     * @return the identifiers, or <code>null</code> if there are none left
+     */
+    private Identifier[] takeDeferredIdentifiers() {
+        synchronized (deferredIdentifiers) {
+            int size = Math.min(deferredIdentifiers.size(),
+                    DEFERRED_IDENTIFIER_CHUNK);
+            if (size == 0) {
+                return null;
+            }
+            Identifier[] chunk = new Identifier[size];
+            for (int i = 0; i < size; i++) {
+                chunk[i] = (Identifier) deferredIdentifiers.remove(0);
+            }
+            return chunk;
+        }
+    }
+
+    /**
+     * Create an identifier update job.
      * 
      * @return the job
      * @since 3.1
      */
-    private Job getUpdateJob() {
-        if (deferredIdentifierJob == null) {
-            deferredIdentifierJob = new Job("Identifier Update Job") { //$NON-NLS-1$
+    private Job createUpdateJob() {
+        Job job = new Job("Identifier Update Job") { //$NON-NLS-1$
                 
                 /* (non-Javadoc)
                  * @see org.eclipse.core.internal.jobs.InternalJob#run(org.eclipse.core.runtime.IProgressMonitor)
                  */
                 protected IStatus run(IProgressMonitor monitor) {
-                    while (!deferredIdentifiers.isEmpty()) {
-                        Identifier identifier = (Identifier) deferredIdentifiers.remove(0);
-                        Set activityIds = new HashSet();
-                        for (Iterator iterator = definedActivityIds.iterator(); iterator
-                                .hasNext();) {
-                            String activityId = (String) iterator.next();
-                            Activity activity = (Activity) getActivity(activityId);
-
-                            if (activity.isMatch(identifier.getId())) {
-                                activityIds.add(activityId);
+                    ActivityPatternMatcher matcher = getPatternMatcher();
+                    Identifier[] chunk;
+                    while ((chunk = takeDeferredIdentifiers()) != null) {
+                        final Map identifierEventsByIdentifierId = new HashMap();
+                        for (int i = 0; i < chunk.length; i++) {
+                            Identifier identifier = chunk[i];
+                            Set activityIds = matcher
+                                    .getMatchingActivityIds(identifier.getId());
+                            boolean activityIdsChanged = identifier.setActivityIds(activityIds);
+                            if (activityIdsChanged) {
+                                IdentifierEvent identifierEvent = new IdentifierEvent(identifier, activityIdsChanged,
+                                        false);
+                                identifierEventsByIdentifierId.put(identifier.getId(),
+                                        identifierEvent);
                             }
                         }
-                        
-                        boolean activityIdsChanged = identifier.setActivityIds(activityIds);
-                        if (activityIdsChanged) {
-                            IdentifierEvent identifierEvent = new IdentifierEvent(identifier, activityIdsChanged,
-                                    false);
-                            final Map identifierEventsByIdentifierId = new HashMap(1);
-                            identifierEventsByIdentifierId.put(identifier.getId(),
-                                    identifierEvent);
+                        if (!identifierEventsByIdentifierId.isEmpty()) {
                             UIJob notifyJob = new UIJob("Identifier Update Job") { //$NON-NLS-1$
 
 								public IStatus runInUIThread(
@@ -960,9 +1030,8 @@ public final class MutableActivityManager extends AbstractActivityManager
                     return Status.OK_STATUS;
                 }
             };
-            deferredIdentifierJob.setSystem(true);
-        }
-        return deferredIdentifierJob;
+        job.setSystem(true);
+        return job;
     }
     
 }
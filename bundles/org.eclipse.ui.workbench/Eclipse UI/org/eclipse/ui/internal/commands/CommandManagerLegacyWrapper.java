@@ -197,6 +197,18 @@ public final class CommandManagerLegacyWrapper implements ICommandManager,
 	 */
 	public final void commandManagerChanged(
 			final org.eclipse.core.commands.CommandManagerEvent event) {
+		if (event.isBatch()) {
+			final Set previousCategoryIds = event
+					.getPreviouslyDefinedCategoryIds();
+			final Set previousCommandIds = event
+					.getPreviouslyDefinedCommandIds();
+			fireCommandManagerChanged(new CommandManagerEvent(this, false,
+					false, false, false, previousCategoryIds != null,
+					previousCommandIds != null, false, previousCategoryIds,
+					previousCommandIds, null));
+			return;
+		}
+
 		// Figure out the set of previous category identifiers.
 		final boolean categoryIdsChanged = event.isCategoryChanged();
 		final Set previousCategoryIds;
@@ -499,14 +499,20 @@ public final class CommandPersistence extends RegistryPersistence {
 			}
 		}
 
-		readCategoriesFromRegistry(
-				indexedConfigurationElements[INDEX_CATEGORY_DEFINITIONS],
-				categoryDefinitionCount, commandManager);
-		readCommandsFromRegistry(
-				indexedConfigurationElements[INDEX_COMMAND_DEFINITIONS],
-				commandDefinitionCount, commandManager);
-		readParameterTypesFromRegistry(
-				indexedConfigurationElements[INDEX_PARAMETER_TYPE_DEFINITIONS],
-				parameterTypeDefinitionCount, commandManager);
+		// notify the listeners of the command manager once
+		commandManager.deferUpdates(true);
+		try {
+			readCategoriesFromRegistry(
+					indexedConfigurationElements[INDEX_CATEGORY_DEFINITIONS],
+					categoryDefinitionCount, commandManager);
+			readCommandsFromRegistry(
+					indexedConfigurationElements[INDEX_COMMAND_DEFINITIONS],
+					commandDefinitionCount, commandManager);
+			readParameterTypesFromRegistry(
+					indexedConfigurationElements[INDEX_PARAMETER_TYPE_DEFINITIONS],
+					parameterTypeDefinitionCount, commandManager);
+		} finally {
+			commandManager.deferUpdates(false);
+		}
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,6 +28,8 @@ class DecorationReference {
 
     boolean forceUpdate = false;
 
+    boolean visible = false;
+
 	IDecorationContext[] contexts;
 
     DecorationReference(Object object, Object adaptedObject, IDecorationContext context) {
@@ -71,6 +73,23 @@ class DecorationReference {
         this.forceUpdate = forceUpdate;
     }
 
+    /**
+     * Return true if the label of the element has been requested,
+     * so it should be decorated before the other elements.
+     * @return boolean
+     */
+    boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Sets the visible flag.
+     * @param visible The visible flag to set
+     */
+    void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
     /**
      * Set the text that will be used to label the decoration
      * calculation.
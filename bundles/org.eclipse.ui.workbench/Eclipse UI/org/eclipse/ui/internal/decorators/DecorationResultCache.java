@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.decorators;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jface.viewers.IDecorationContext;
+
+/**
+ * The DecorationResultCache holds the decorations computed by the
+ * {@link DecorationScheduler}, separately for each decoration context. Most
+ * viewers decorate with the shared {@link
+ * org.eclipse.jface.viewers.DecorationContext#DEFAULT_CONTEXT}, so their
+ * results share one bound; the results of other contexts are dropped with
+ * the context.
+ * <p>
+ * A result is pending until the {@link DecorationScheduler} has sent the
+ * label update for its element, pending results are never evicted. Once
+ * delivered a result is retained for later lookups, each context retains at
+ * most a fixed number of results and the least recently used ones are
+ * evicted first. The elements are weakly referenced, so that the results of
+ * elements no longer shown can be collected.
+ * </p>
+ *
+ * @since 3.105
+ */
+public class DecorationResultCache {
+
+	/**
+	 * The default maximum number of delivered results retained for one
+	 * context.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	/**
+	 * A weak reference to an element, that is equal to the keys of equal
+	 * elements.
+	 */
+	private static class ElementKey extends WeakReference {
+
+		private final int hashCode;
+
+		private final ContextResults results;
+
+		ElementKey(Object element, ContextResults results,
+				ReferenceQueue queue) {
+			super(element, queue);
+			this.hashCode = element.hashCode();
+			this.results = results;
+		}
+
+		public int hashCode() {
+			return hashCode;
+		}
+
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ElementKey)) {
+				return false;
+			}
+			Object element = get();
+			return element != null
+					&& element.equals(((ElementKey) obj).get());
+		}
+	}
+
+	/**
+	 * The results of one context.
+	 */
+	private class ContextResults {
+
+		/**
+		 * The results not delivered yet. Read and written by the decoration
+		 * jobs without locking.
+		 */
+		final ConcurrentMap pending = new ConcurrentHashMap();
+
+		/**
+		 * The delivered results, in least recently used order. Guarded by
+		 * itself.
+		 */
+		final Map retained = new LinkedHashMap(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry eldest) {
+				if (size() > maxSize) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+
+		DecorationResult get(ElementKey key) {
+			DecorationResult result = (DecorationResult) pending.get(key);
+			if (result == null) {
+				synchronized (retained) {
+					result = (DecorationResult) retained.get(key);
+				}
+			}
+			return result;
+		}
+
+		void remove(ElementKey key) {
+			boolean removed = pending.remove(key) != null;
+			synchronized (retained) {
+				removed |= retained.remove(key) != null;
+			}
+			if (removed) {
+				collections.incrementAndGet();
+			}
+		}
+
+		int size() {
+			synchronized (retained) {
+				return pending.size() + retained.size();
+			}
+		}
+	}
+
+	private final int maxSize;
+
+	/**
+	 * The results for each context. Guarded by itself.
+	 */
+	private final Map resultsByContext = new WeakHashMap();
+
+	private final ReferenceQueue collectedKeys = new ReferenceQueue();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final AtomicLong collections = new AtomicLong();
+
+	/**
+	 * Create a cache with the default maximum size.
+	 */
+	public DecorationResultCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param maxSize
+	 *            the maximum number of delivered results retained for one
+	 *            context
+	 */
+	public DecorationResultCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Return the results of the context.
+	 *
+	 * @param context
+	 * @param create
+	 *            whether to create them if there are none
+	 * @return ContextResults or <code>null</code>
+	 */
+	private ContextResults getResults(IDecorationContext context,
+			boolean create) {
+		synchronized (resultsByContext) {
+			ContextResults results = (ContextResults) resultsByContext
+					.get(context);
+			if (results == null && create) {
+				results = new ContextResults();
+				resultsByContext.put(context, results);
+			}
+			return results;
+		}
+	}
+
+	/**
+	 * Return the results of all of the contexts.
+	 *
+	 * @return ContextResults[]
+	 */
+	private ContextResults[] getAllResults() {
+		synchronized (resultsByContext) {
+			return (ContextResults[]) resultsByContext.values().toArray(
+					new ContextResults[resultsByContext.size()]);
+		}
+	}
+
+	/**
+	 * Return the result for the element in the context, or <code>null</code>
+	 * if there is none.
+	 *
+	 * @param element
+	 * @param context
+	 * @return DecorationResult or <code>null</code>
+	 */
+	public DecorationResult get(Object element, IDecorationContext context) {
+		removeCollectedKeys();
+		ContextResults results = getResults(context, false);
+		DecorationResult result = null;
+		if (results != null) {
+			result = results.get(new ElementKey(element, null, null));
+		}
+		if (result == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return result;
+	}
+
+	/**
+	 * Cache the result for the element in the context. The result is pending
+	 * until {@link #markDelivered(Object[])} is called for the element.
+	 *
+	 * @param element
+	 * @param context
+	 * @param result
+	 */
+	public void put(Object element, IDecorationContext context,
+			DecorationResult result) {
+		removeCollectedKeys();
+		ContextResults results = getResults(context, true);
+		ElementKey key = new ElementKey(element, results, collectedKeys);
+		results.pending.put(key, result);
+		synchronized (results.retained) {
+			results.retained.remove(key);
+		}
+	}
+
+	/**
+	 * Mark the results of the elements as delivered in all of the contexts,
+	 * so that they can be evicted when a context holds too many results.
+	 *
+	 * @param elements
+	 *            the elements whose label update has been sent
+	 */
+	public void markDelivered(Object[] elements) {
+		removeCollectedKeys();
+		Set delivered = new HashSet(Arrays.asList(elements));
+		ContextResults[] all = getAllResults();
+		for (int i = 0; i < all.length; i++) {
+			ContextResults results = all[i];
+			Iterator entries = results.pending.entrySet().iterator();
+			while (entries.hasNext()) {
+				Map.Entry entry = (Map.Entry) entries.next();
+				ElementKey key = (ElementKey) entry.getKey();
+				Object element = key.get();
+				if (element == null || !delivered.contains(element)) {
+					continue;
+				}
+				Object result = entry.getValue();
+				synchronized (results.retained) {
+					results.retained.put(key, result);
+				}
+				// a newer result put in the meantime stays pending, it is
+				// found before the retained one
+				results.pending.remove(key, result);
+			}
+		}
+	}
+
+	/**
+	 * Remove all of the results.
+	 */
+	public void clear() {
+		synchronized (resultsByContext) {
+			resultsByContext.clear();
+		}
+		while (collectedKeys.poll() != null) {
+			// the keys are gone with their maps
+		}
+	}
+
+	/**
+	 * Remove the results of the elements that have been garbage collected.
+	 */
+	private void removeCollectedKeys() {
+		ElementKey key;
+		while ((key = (ElementKey) collectedKeys.poll()) != null) {
+			key.results.remove(key);
+		}
+	}
+
+	/**
+	 * Return the number of cached results, pending or delivered.
+	 *
+	 * @return int
+	 */
+	public int size() {
+		removeCollectedKeys();
+		ContextResults[] all = getAllResults();
+		int size = 0;
+		for (int i = 0; i < all.length; i++) {
+			size += all[i].size();
+		}
+		return size;
+	}
+
+	/**
+	 * Return the number of lookups that found a result.
+	 *
+	 * @return long
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Return the number of lookups that found no result.
+	 *
+	 * @return long
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Return the number of retained results removed because their context was
+	 * full.
+	 *
+	 * @return long
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Return the number of results removed because their element was garbage
+	 * collected.
+	 *
+	 * @return long
+	 */
+	public long getCollections() {
+		return collections.get();
+	}
+}
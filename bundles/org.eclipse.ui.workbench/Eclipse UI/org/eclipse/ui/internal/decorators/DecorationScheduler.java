@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,12 +12,11 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.decorators;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 
@@ -41,18 +40,26 @@ import org.eclipse.ui.progress.WorkbenchJob;
 
 /**
  * The DecorationScheduler is the class that handles the decoration of elements
- * using a background thread.
+ * using background threads. Elements are decorated by a small pool of jobs;
+ * elements whose label is requested by a viewer are decorated first.
  */
 public class DecorationScheduler {
 
 	static final ILabelProviderListener[] EMPTY_LISTENER_LIST = new ILabelProviderListener[0];
 
 	// When decorations are computed they are added to this cache via
-	// decorated() method
-	Map resultCache = new HashMap();
+	// decorated() method. They stay pending until the update job has sent
+	// them to the listeners.
+	DecorationResultCache resultCache = new DecorationResultCache();
 
-	// Objects that need an icon and text computed for display to the user
-	List awaitingDecoration = new ArrayList();
+	// Objects that need an icon and text computed for display to the user.
+	// May contain elements that were decorated already, the references in
+	// awaitingDecorationValues are the ones that still need it.
+	LinkedList awaitingDecoration = new LinkedList();
+
+	// Objects whose label has been requested while awaiting decoration, these
+	// are decorated before the ones in awaitingDecoration
+	LinkedList visibleDecoration = new LinkedList();
 
 	// Objects that are awaiting a label update.
 	Set pendingUpdate = new HashSet();
@@ -66,7 +73,7 @@ public class DecorationScheduler {
 
 	boolean shutdown = false;
 
-	Job decorationJob;
+	Job[] decorationJobs;
 
 	UIJob updateJob;
 
@@ -81,6 +88,13 @@ public class DecorationScheduler {
 	/** Amount of time to delay the update notification when max reached. */
 	static final int UPDATE_DELAY = 100;
 
+	/** The maximum number of elements in one label provider event. */
+	static final int UPDATE_BATCH_SIZE = 500;
+
+	/** The number of jobs decorating elements. */
+	static final int DECORATION_JOB_COUNT = Math.max(1, Math.min(4, Runtime
+			.getRuntime().availableProcessors()));
+
 	/**
 	 * Return a new instance of the receiver configured for the supplied
 	 * DecoratorManager.
@@ -89,7 +103,7 @@ public class DecorationScheduler {
 	 */
 	DecorationScheduler(DecoratorManager manager) {
 		decoratorManager = manager;
-		createDecorationJob();
+		createDecorationJobs();
 	}
 
 	/**
@@ -132,11 +146,14 @@ public class DecorationScheduler {
 	 *            The original text for the element if it is known.
 	 * @param context
 	 *            The decoration context
+	 * @param visible
+	 *            Whether the label of the element has been requested, in which
+	 *            case it is decorated before the other elements.
 	 */
 
 	synchronized void queueForDecoration(Object element, Object adaptedElement,
 			boolean forceUpdate, String undecoratedText,
-			IDecorationContext context) {
+			IDecorationContext context, boolean visible) {
 
 		Assert.isNotNull(context);
 		DecorationReference reference = (DecorationReference) awaitingDecorationValues
@@ -146,21 +163,41 @@ public class DecorationScheduler {
 				reference.setForceUpdate(forceUpdate);
 			}
 			reference.addContext(context);
+			if (visible && !reference.isVisible()) {
+				reference.setVisible(true);
+				visibleDecoration.add(element);
+			}
 		} else {
 			reference = new DecorationReference(element, adaptedElement,
 					context);
 			reference.setForceUpdate(forceUpdate);
 			reference.setUndecoratedText(undecoratedText);
+			reference.setVisible(visible);
 			awaitingDecorationValues.put(element, reference);
-			awaitingDecoration.add(element);
+			if (visible) {
+				visibleDecoration.add(element);
+			} else {
+				awaitingDecoration.add(element);
+			}
 			if (shutdown) {
 				return;
 			}
-			decorationJob.schedule();
+			scheduleDecorationJobs();
 		}
 
 	}
 
+	/**
+	 * Schedule enough decoration jobs for the elements awaiting decoration.
+	 */
+	private void scheduleDecorationJobs() {
+		int jobs = Math.min(decorationJobs.length, awaitingDecorationValues
+				.size());
+		for (int i = 0; i < jobs; i++) {
+			decorationJobs[i].schedule();
+		}
+	}
+
 	/**
 	 * Decorate the supplied image, element and its adapted value.
 	 * 
@@ -210,7 +247,8 @@ public class DecorationScheduler {
 		DecorationResult decoration = internalGetResult(element, context);
 
 		if (decoration == null) {
-			queueForDecoration(element, adaptedElement, false, null, context);
+			queueForDecoration(element, adaptedElement, false, null, context,
+					true);
 			return null;
 		}
 		return decoration;
@@ -219,21 +257,21 @@ public class DecorationScheduler {
 
 	private DecorationResult internalGetResult(Object element,
 			IDecorationContext context) {
-		Map results = (Map) resultCache.get(context);
-		if (results != null) {
-			return (DecorationResult) results.get(element);
-		}
-		return null;
+		return resultCache.get(element, context);
 	}
 
 	protected void internalPutResult(Object element,
 			IDecorationContext context, DecorationResult result) {
-		Map results = (Map) resultCache.get(context);
-		if (results == null) {
-			results = new HashMap();
-			resultCache.put(context, results);
-		}
-		results.put(element, result);
+		resultCache.put(element, context, result);
+	}
+
+	/**
+	 * Return the cache of the computed decorations.
+	 * 
+	 * @return DecorationResultCache
+	 */
+	public DecorationResultCache getResultCache() {
+		return resultCache;
 	}
 
 	/**
@@ -269,19 +307,57 @@ public class DecorationScheduler {
 	 */
 	synchronized DecorationReference nextElement() {
 
-		if (shutdown || awaitingDecoration.isEmpty()) {
+		if (shutdown) {
 			return null;
 		}
-		Object element = awaitingDecoration.remove(0);
+		while (!visibleDecoration.isEmpty()) {
+			Object element = visibleDecoration.removeFirst();
+			DecorationReference reference = (DecorationReference) awaitingDecorationValues
+					.remove(element);
+			if (reference != null) {
+				return reference;
+			}
+		}
+		while (!awaitingDecoration.isEmpty()) {
+			Object element = awaitingDecoration.removeFirst();
+			DecorationReference reference = (DecorationReference) awaitingDecorationValues
+					.remove(element);
+			if (reference != null) {
+				return reference;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return whether there are elements awaiting decoration.
+	 * 
+	 * @return <code>true</code> if an element still needs to be decorated
+	 */
+	synchronized boolean isAwaitingDecoration() {
+		return !awaitingDecorationValues.isEmpty();
+	}
 
-		return (DecorationReference) awaitingDecorationValues.remove(element);
+	/**
+	 * Create the jobs used for running decoration. Several of them can run at
+	 * the same time, each decorating different elements.
+	 */
+	private void createDecorationJobs() {
+		decorationJobs = new Job[DECORATION_JOB_COUNT];
+		for (int i = 0; i < decorationJobs.length; i++) {
+			decorationJobs[i] = createDecorationJob();
+		}
+		decorationJobs[0].schedule();
 	}
 
 	/**
-	 * Create the Thread used for running decoration.
+	 * Create a job decorating the elements awaiting decoration until there are
+	 * none left.
+	 * 
+	 * @return Job
 	 */
-	private void createDecorationJob() {
-		decorationJob = new Job(
+	private Job createDecorationJob() {
+		Job decorationJob = new Job(
 				WorkbenchMessages.DecorationScheduler_CalculationJobName) {
 			/*
 			 * (non-Javadoc)
@@ -334,7 +410,7 @@ public class DecorationScheduler {
 					// Only notify listeners when we have exhausted the
 					// queue of decoration requests.
 					synchronized (DecorationScheduler.this) {
-						if (awaitingDecoration.isEmpty()) {
+						if (awaitingDecorationValues.isEmpty()) {
 							decorated();
 						}
 					}
@@ -420,7 +496,7 @@ public class DecorationScheduler {
 
 		decorationJob.setSystem(true);
 		decorationJob.setPriority(Job.DECORATE);
-		decorationJob.schedule();
+		return decorationJob;
 	}
 
 	/**
@@ -493,6 +569,13 @@ public class DecorationScheduler {
 
 			ILabelProviderListener[] listeners;
 
+			// The elements to update, sent to the listeners in batches of
+			// UPDATE_BATCH_SIZE elements
+			Object[] elements;
+
+			// The index of the first element of the current batch
+			int elementIndex;
+
 			public IStatus runInUIThread(IProgressMonitor monitor) {
 
 				synchronized (DecorationScheduler.this) {
@@ -512,6 +595,8 @@ public class DecorationScheduler {
 				}
 
 				if (listeners.length == 0) {
+					// nobody to deliver the results to
+					resultCache.markDelivered(elements);
 				    resetState();
 				    return Status.OK_STATUS;
 				}
@@ -531,6 +616,12 @@ public class DecorationScheduler {
 								labelProviderChangedEvent, listener);
 					}
 
+					// Continue with the next batch of elements once all of
+					// the listeners got this one
+					if (currentIndex >= listeners.length && nextBatch()) {
+						currentIndex = 0;
+					}
+
 					// If it is taking long enough for the user to notice then
 					// cancel the
 					// updates.
@@ -542,12 +633,16 @@ public class DecorationScheduler {
 				monitor.done();
 
 				if (currentIndex >= listeners.length) {
+					// All of the listeners got the results, they can be
+					// evicted from now on
+					resultCache.markDelivered(elements);
 				    resetState();
 					if (!hasPendingUpdates()) {
 						decorated();
 					}
 					labelProviderChangedEvent = null;
 					listeners = EMPTY_LISTENER_LIST;
+					elements = null;
 				} else {
 					schedule(UPDATE_DELAY);// Reschedule if we are not done
 				}
@@ -555,17 +650,12 @@ public class DecorationScheduler {
 			}
 
             /**
-             * Clear any cached information.
+             * Clear any cached information. The delivered results stay in the
+             * result cache, which bounds them itself.
              */
             private void resetState() {
                 currentIndex = NEEDS_INIT;// Reset
                 removedListeners.clear();
-                // Other decoration requests may have occurred due to
-                // updates or we may have timed out updating listeners.
-                // Only clear the results if there are none pending.
-                if (awaitingDecoration.isEmpty()) {
-                    resultCache.clear();
-                }
             }
             
 			private void setUpUpdates() {
@@ -574,15 +664,37 @@ public class DecorationScheduler {
 				removedListeners.clear();
 				currentIndex = 0;
 				synchronized (pendingKey) {
-					Object[] elements = pendingUpdate
+					elements = pendingUpdate
 							.toArray(new Object[pendingUpdate.size()]);
 					pendingUpdate.clear();
-					labelProviderChangedEvent = new LabelProviderChangedEvent(
-							decoratorManager, elements);
 				}
+				elementIndex = -UPDATE_BATCH_SIZE;
+				nextBatch();
 				listeners = decoratorManager.getListeners();
 			}
 
+			/**
+			 * Set up the event for the next batch of elements.
+			 * 
+			 * @return <code>false</code> if all of the elements have been sent
+			 */
+			private boolean nextBatch() {
+				int start = elementIndex + UPDATE_BATCH_SIZE;
+				if (start >= elements.length && start > 0) {
+					return false;
+				}
+				elementIndex = start;
+				Object[] batch = elements;
+				if (start > 0 || elements.length > UPDATE_BATCH_SIZE) {
+					batch = new Object[Math.min(UPDATE_BATCH_SIZE,
+							elements.length - start)];
+					System.arraycopy(elements, start, batch, 0, batch.length);
+				}
+				labelProviderChangedEvent = new LabelProviderChangedEvent(
+						decoratorManager, batch);
+				return true;
+			}
+
 			/*
 			 * (non-Javadoc)
 			 * 
@@ -684,7 +796,7 @@ public class DecorationScheduler {
 	 * @return boolean
 	 */
 	public boolean processingUpdates() {
-		return !hasPendingUpdates() && !awaitingDecoration.isEmpty();
+		return !hasPendingUpdates() && isAwaitingDecoration();
 	}
 
 	/**
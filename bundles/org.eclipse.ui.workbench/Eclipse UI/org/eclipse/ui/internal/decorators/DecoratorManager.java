@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -812,7 +812,7 @@ public class DecoratorManager implements ILabelProviderListener,
 				// Force an update in case full decorators are the only ones
 				// enabled
 				scheduler.queueForDecoration(elements[i], adapted, true, null,
-						DecorationContext.DEFAULT_CONTEXT);
+						DecorationContext.DEFAULT_CONTEXT, false);
 			}
 		}
 	}
@@ -1135,7 +1135,7 @@ public class DecoratorManager implements ILabelProviderListener,
 
 		// Queue the decoration.
 		scheduler.queueForDecoration(element, getResourceAdapter(element),
-				force, originalText, context);
+				force, originalText, context, true);
 
 		// If we are going to force an update just let that happen later.
 		return !force;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -34,6 +34,8 @@ class LightweightDecoratorDefinition extends DecoratorDefinition implements
 
 	static final String ATT_ICON = "icon"; //$NON-NLS-1$
 
+	private static final String ATT_THREAD_SAFE = "threadSafe"; //$NON-NLS-1$
+
 	// Constants for quadrants
 	/**
 	 * Position <code>TOP_LEFT</code>. Value <code>0</code>
@@ -82,7 +84,9 @@ class LightweightDecoratorDefinition extends DecoratorDefinition implements
 	 * The DeclarativeDecorator is the internal decorator supplied by the
 	 * decorator definition.
 	 */
-	private ILightweightLabelDecorator decorator;
+	private volatile ILightweightLabelDecorator decorator;
+
+	private Boolean threadSafe;
 
 	private int quadrant;
 
@@ -102,7 +106,7 @@ class LightweightDecoratorDefinition extends DecoratorDefinition implements
 	 * 
 	 * @return Returns a ILabelDecorator
 	 */
-	protected ILightweightLabelDecorator internalGetDecorator()
+	protected synchronized ILightweightLabelDecorator internalGetDecorator()
 			throws CoreException {
 		if (labelProviderCreationFailed) {
 			return null;
@@ -163,6 +167,23 @@ class LightweightDecoratorDefinition extends DecoratorDefinition implements
 		return definingElement.getAttribute(DecoratorDefinition.ATT_CLASS) == null;
 	}
 
+	/**
+	 * Return whether the decorator can decorate several elements at the same
+	 * time. Declarative decorators are always thread safe, others have to
+	 * declare it.
+	 * 
+	 * @return boolean <code>true</code> if the decorator is thread safe
+	 */
+	boolean isThreadSafe() {
+		if (threadSafe == null) {
+			threadSafe = Boolean.valueOf(isDeclarative()
+					|| Boolean.valueOf(
+							definingElement.getAttribute(ATT_THREAD_SAFE))
+							.booleanValue());
+		}
+		return threadSafe.booleanValue();
+	}
+
 	/**
 	 * Return the icon location.
 	 * 
@@ -330,6 +351,18 @@ class LightweightDecoratorDefinition extends DecoratorDefinition implements
 		return objectClasses;
 	}
 
+	/**
+	 * Return whether the enablement of the decorator only tests the object
+	 * classes it is registered for, so that it does not have to be evaluated
+	 * for the elements found through those classes.
+	 *
+	 * @return boolean
+	 */
+	boolean hasStaticEnablement() {
+		ActionExpression expression = getEnablement();
+		return expression == null || expression.isAlwaysEnabled();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
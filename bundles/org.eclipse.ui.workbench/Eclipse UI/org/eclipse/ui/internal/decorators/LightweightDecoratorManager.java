@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,15 +11,18 @@
 package org.eclipse.ui.internal.decorators;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.dynamichelpers.IExtensionTracker;
 import org.eclipse.osgi.util.NLS;
+import org.eclipse.ui.internal.LegacyResourceSupport;
 import org.eclipse.ui.internal.ObjectContributorManager;
 import org.eclipse.ui.internal.WorkbenchMessages;
 import org.eclipse.ui.internal.WorkbenchPlugin;
@@ -46,7 +49,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 
 		private LightweightDecoratorDefinition decorator;
 
-		void setValues(Object object, DecorationBuilder builder,
+		LightweightRunnable(Object object, DecorationBuilder builder,
 				LightweightDecoratorDefinition definition) {
 			element = object;
 			decoration = builder;
@@ -94,7 +97,79 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 		}
 	}
 
-	private LightweightRunnable runnable = new LightweightRunnable();
+	/**
+	 * The key of the applicability table. The decorators found for an element
+	 * only depend on its class and on the resource and resource mapping it
+	 * adapts to.
+	 */
+	private static final class ApplicabilityKey {
+		private final Class elementClass;
+
+		private final Class resourceClass;
+
+		private final boolean adaptsToResourceMapping;
+
+		ApplicabilityKey(Class elementClass, Class resourceClass,
+				boolean adaptsToResourceMapping) {
+			this.elementClass = elementClass;
+			this.resourceClass = resourceClass;
+			this.adaptsToResourceMapping = adaptsToResourceMapping;
+		}
+
+		public int hashCode() {
+			int hashCode = elementClass.hashCode() * 31
+					+ (resourceClass == null ? 0 : resourceClass.hashCode());
+			return adaptsToResourceMapping ? hashCode + 1 : hashCode;
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ApplicabilityKey)) {
+				return false;
+			}
+			ApplicabilityKey other = (ApplicabilityKey) obj;
+			return elementClass == other.elementClass
+					&& resourceClass == other.resourceClass
+					&& adaptsToResourceMapping == other.adaptsToResourceMapping;
+		}
+	}
+
+	/**
+	 * The decorators registered for one key of the applicability table, in
+	 * the order they are applied.
+	 */
+	private static final class Applicability {
+		final LightweightDecoratorDefinition[] definitions;
+
+		/**
+		 * Whether the enablement of the definition at the same index has to be
+		 * evaluated for each element.
+		 */
+		final boolean[] dynamic;
+
+		Applicability(LightweightDecoratorDefinition[] definitions,
+				boolean[] dynamic) {
+			this.definitions = definitions;
+			this.dynamic = dynamic;
+		}
+	}
+
+	private static final Applicability NOT_APPLICABLE = new Applicability(
+			new LightweightDecoratorDefinition[0], new boolean[0]);
+
+	/**
+	 * The applicability table. The contributors and the static part of their
+	 * enablement are looked up once per key instead of once per element.
+	 * Cleared when decorators are added or removed and when their enablement
+	 * changes.
+	 */
+	private final Map applicabilityTable = new ConcurrentHashMap();
+
+	/**
+	 * The lock held while running the decorators that are not thread safe, so
+	 * that they never run concurrently even if several elements are decorated
+	 * at the same time.
+	 */
+	private final Object serialDecorationLock = new Object();
 
 	// The lightweight definitions read from the registry
 	private LightweightDecoratorDefinition[] lightweightDefinitions;
@@ -150,6 +225,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 			for (int i = 0; i < types.length; i++) {
 				registerContributor(decorator, types[i]);
 			}
+			applicabilityTable.clear();
 			return true;
 		}
 		return false;
@@ -188,6 +264,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 				unregisterContributor(decorator, types[i]);
 
 			}
+			applicabilityTable.clear();
 			return true;
 		}
 		return false;
@@ -264,7 +341,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 * Reset any cached values.
 	 */
 	void reset() {
-		runnable.clearReferences();
+		applicabilityTable.clear();
 	}
 
 	/**
@@ -307,23 +384,95 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 			return EMPTY_LIGHTWEIGHT_DEF;
 		}
 
+		Applicability applicability = getApplicability(element);
+		LightweightDecoratorDefinition[] definitions = applicability.definitions;
+		if (definitions.length == 0) {
+			return EMPTY_LIGHTWEIGHT_DEF;
+		}
+
+		LightweightDecoratorDefinition[] decoratorArray = new LightweightDecoratorDefinition[definitions.length];
+		int count = 0;
+		for (int i = 0; i < definitions.length; i++) {
+			// The enabled state is not part of the table as decorators are
+			// also disabled when they crash
+			if (applicability.dynamic[i] ? definitions[i].isEnabledFor(element)
+					: definitions[i].isEnabled()) {
+				decoratorArray[count++] = definitions[i];
+			}
+		}
+		if (count < decoratorArray.length) {
+			if (count == 0) {
+				return EMPTY_LIGHTWEIGHT_DEF;
+			}
+			LightweightDecoratorDefinition[] trimmed = new LightweightDecoratorDefinition[count];
+			System.arraycopy(decoratorArray, 0, trimmed, 0, count);
+			decoratorArray = trimmed;
+		}
+		return decoratorArray;
+	}
+
+	/**
+	 * Return the entry of the applicability table for the element, computing
+	 * it if it is not known yet.
+	 * 
+	 * @param element
+	 *            the element to be decorated, not <code>null</code>
+	 * @return Applicability
+	 */
+	private Applicability getApplicability(Object element) {
+		ApplicabilityKey key = getApplicabilityKey(element);
+		Applicability applicability = (Applicability) applicabilityTable
+				.get(key);
+		if (applicability != null) {
+			return applicability;
+		}
+
 		List elements = new ArrayList(1);
 		elements.add(element);
-		LightweightDecoratorDefinition[] decoratorArray = EMPTY_LIGHTWEIGHT_DEF;
 		List contributors = getContributors(elements);
-		if (!contributors.isEmpty()) {
-			Collection decorators = DecoratorManager.getDecoratorsFor(element,
-					(DecoratorDefinition[]) contributors
-							.toArray(new DecoratorDefinition[contributors
-									.size()]));
-			if (decorators.size() > 0) {
-				decoratorArray = new LightweightDecoratorDefinition[decorators
-						.size()];
-				decorators.toArray(decoratorArray);
+		if (contributors.isEmpty()) {
+			applicability = NOT_APPLICABLE;
+		} else {
+			LightweightDecoratorDefinition[] definitionArray = new LightweightDecoratorDefinition[contributors
+					.size()];
+			contributors.toArray(definitionArray);
+			boolean[] dynamic = new boolean[definitionArray.length];
+			for (int i = 0; i < definitionArray.length; i++) {
+				dynamic[i] = !definitionArray[i].hasStaticEnablement();
 			}
+			applicability = new Applicability(definitionArray, dynamic);
 		}
+		applicabilityTable.put(key, applicability);
+		return applicability;
+	}
 
-		return decoratorArray;
+	/**
+	 * Return the key of the applicability table for the element. This mirrors
+	 * the lookup of the contributors for a single element: apart from its
+	 * class, only the resource and the resource mapping it adapts to are
+	 * considered.
+	 * 
+	 * @param element
+	 *            the element, not <code>null</code>
+	 * @return ApplicabilityKey
+	 */
+	private ApplicabilityKey getApplicabilityKey(Object element) {
+		Class resourceClass = null;
+		boolean adaptsToResourceMapping = false;
+		if (element instanceof IAdaptable) {
+			Object resource = LegacyResourceSupport
+					.getAdaptedContributorResource(element);
+			if (resource != null) {
+				resourceClass = resource.getClass();
+			}
+			Class resourceMappingClass = LegacyResourceSupport
+					.getResourceMappingClass();
+			adaptsToResourceMapping = resourceMappingClass != null
+					&& (resourceMappingClass.isInstance(element) || LegacyResourceSupport
+							.getAdaptedContributorResourceMapping(element) != null);
+		}
+		return new ApplicabilityKey(element.getClass(), resourceClass,
+				adaptsToResourceMapping);
 	}
 
 	/**
@@ -349,7 +498,8 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	}
 
 	/**
-	 * Decorate the element receiver in a SafeRunnable.
+	 * Decorate the element receiver in a SafeRunnable. Decorators that are not
+	 * thread safe are run one at a time.
 	 * 
 	 * @param element
 	 *            The Object to be decorated
@@ -361,8 +511,15 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	private void decorate(Object element, DecorationBuilder decoration,
 			LightweightDecoratorDefinition decorator) {
 
-		runnable.setValues(element, decoration, decorator);
-		SafeRunner.run(runnable);
+		LightweightRunnable runnable = new LightweightRunnable(element,
+				decoration, decorator);
+		if (decorator.isThreadSafe()) {
+			SafeRunner.run(runnable);
+		} else {
+			synchronized (serialDecorationLock) {
+				SafeRunner.run(runnable);
+			}
+		}
 	}
 
 	
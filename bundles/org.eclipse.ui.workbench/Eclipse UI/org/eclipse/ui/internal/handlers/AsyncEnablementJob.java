@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.internal.handlers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.ISafeRunnable;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.handlers.IAsyncEnablementHandler;
+
+/**
+ * Computes the enablement of {@link IAsyncEnablementHandler}s in the
+ * background. Requests are queued per handler proxy, so a proxy whose
+ * enablement is requested several times before the job runs is computed only
+ * once, with the latest input. The results of a run are applied in one batch
+ * on the UI thread.
+ *
+ * @since 3.105
+ */
+final class AsyncEnablementJob extends Job {
+
+	private static AsyncEnablementJob instance;
+
+	/**
+	 * The input of the next computation for each proxy, in the order of the
+	 * first request. Guarded by itself.
+	 */
+	private final Map<E4HandlerProxy, Object> pending = new LinkedHashMap<E4HandlerProxy, Object>();
+
+	private AsyncEnablementJob() {
+		super("Handler Enablement Job"); //$NON-NLS-1$
+		setSystem(true);
+		setPriority(Job.SHORT);
+	}
+
+	static synchronized AsyncEnablementJob getInstance() {
+		if (instance == null) {
+			instance = new AsyncEnablementJob();
+		}
+		return instance;
+	}
+
+	/**
+	 * Requests the enablement of a proxy to be computed for the given input,
+	 * replacing a request for the proxy that has not been computed yet.
+	 *
+	 * @param proxy
+	 *            the proxy of an asynchronous handler
+	 * @param input
+	 *            the input returned by the handler, may be <code>null</code>
+	 */
+	void request(E4HandlerProxy proxy, Object input) {
+		synchronized (pending) {
+			pending.put(proxy, input);
+		}
+		schedule();
+	}
+
+	/**
+	 * Drops the pending request of a proxy, if any.
+	 *
+	 * @param proxy
+	 *            the proxy
+	 */
+	void cancel(E4HandlerProxy proxy) {
+		synchronized (pending) {
+			pending.remove(proxy);
+		}
+	}
+
+	protected IStatus run(IProgressMonitor monitor) {
+		Map<E4HandlerProxy, Object> requests;
+		synchronized (pending) {
+			if (pending.isEmpty()) {
+				return Status.OK_STATUS;
+			}
+			requests = new LinkedHashMap<E4HandlerProxy, Object>(pending);
+			pending.clear();
+		}
+		final Map<E4HandlerProxy, Boolean> results = new LinkedHashMap<E4HandlerProxy, Boolean>();
+		for (Entry<E4HandlerProxy, Object> request : requests.entrySet()) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			Boolean enabled = computeEnabled(request.getKey(), request.getValue(), monitor);
+			if (enabled != null && !monitor.isCanceled()) {
+				results.put(request.getKey(), enabled);
+			}
+		}
+		if (results.isEmpty() || !PlatformUI.isWorkbenchRunning()) {
+			return Status.OK_STATUS;
+		}
+		Display display = PlatformUI.getWorkbench().getDisplay();
+		if (!display.isDisposed()) {
+			display.asyncExec(new Runnable() {
+				public void run() {
+					for (Entry<E4HandlerProxy, Boolean> result : results.entrySet()) {
+						result.getKey().setAsyncEnabled(result.getValue().booleanValue());
+					}
+				}
+			});
+		}
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * Returns the enablement of the proxy's handler for the input, or
+	 * <code>null</code> if the handler failed to compute it.
+	 */
+	private Boolean computeEnabled(final E4HandlerProxy proxy, final Object input,
+			final IProgressMonitor monitor) {
+		final Boolean[] enabled = new Boolean[1];
+		SafeRunner.run(new ISafeRunnable() {
+			public void handleException(Throwable exception) {
+				// logged by the safe runner
+			}
+
+			public void run() throws Exception {
+				enabled[0] = Boolean.valueOf(((IAsyncEnablementHandler) proxy.getHandler())
+						.computeEnabled(input, monitor));
+			}
+		});
+		return enabled[0];
+	}
+}
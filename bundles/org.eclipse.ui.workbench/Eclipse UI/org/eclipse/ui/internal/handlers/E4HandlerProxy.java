@@ -39,8 +39,10 @@ import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.commands.IElementUpdater;
+import org.eclipse.ui.handlers.IAsyncEnablementHandler;
 import org.eclipse.ui.internal.Workbench;
 import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.util.Util;
 import org.eclipse.ui.menus.UIElement;
 
 /**
@@ -54,6 +56,23 @@ public class E4HandlerProxy implements IHandler2, IHandlerListener, IElementUpda
 	private boolean logExecute = true;
 	private boolean logSetEnabled = true;
 
+	/**
+	 * The last enablement computed in the background for an
+	 * {@link IAsyncEnablementHandler}, or <code>null</code> if none is known
+	 * yet. Only accessed on the UI thread.
+	 */
+	private Boolean asyncEnabled;
+
+	/**
+	 * The input of the last background computation requested for an
+	 * {@link IAsyncEnablementHandler}.
+	 */
+	private Object asyncInput;
+
+	private boolean asyncRequested;
+
+	private boolean disposed;
+
 	public E4HandlerProxy(Command command, IHandler handler) {
 		this.command = command;
 		this.handler = handler;
@@ -63,14 +82,20 @@ public class E4HandlerProxy implements IHandler2, IHandlerListener, IElementUpda
 	@CanExecute
 	public boolean canExecute(IEclipseContext context, @Optional IEvaluationContext staticContext,
 			MApplication application) {
-		if (handler instanceof IHandler2) {
+		if (handler instanceof IAsyncEnablementHandler) {
+			IEvaluationContext ctx = staticContext;
+			if (ctx == null) {
+				ctx = new ExpressionContext(application.getContext());
+			}
+			requestAsyncEnablement(ctx, false);
+		} else if (handler instanceof IHandler2) {
 			Object ctx = staticContext;
 			if (ctx == null) {
 				ctx = new ExpressionContext(application.getContext());
 			}
 			((IHandler2) handler).setEnabled(ctx);
 		}
-		return handler.isEnabled();
+		return isEnabled();
 	}
 
 	@Execute
@@ -98,6 +123,15 @@ public class E4HandlerProxy implements IHandler2, IHandlerListener, IElementUpda
 	}
 
 	public void handlerChanged(HandlerEvent handlerEvent) {
+		if (handler instanceof IAsyncEnablementHandler && handlerEvent.isEnabledChanged()
+				&& asyncRequested) {
+			// the handler's state changed, compute its enablement again
+			AsyncEnablementJob.getInstance().request(this, asyncInput);
+		}
+		fireHandlerChanged(handlerEvent);
+	}
+
+	private void fireHandlerChanged(HandlerEvent handlerEvent) {
 		IHandler handler = command.getHandler();
 		if (handler instanceof HandlerServiceHandler) {
 			IEclipseContext appContext = ((Workbench) PlatformUI.getWorkbench()).getApplication()
@@ -126,11 +160,45 @@ public class E4HandlerProxy implements IHandler2, IHandlerListener, IElementUpda
 		if (evalContext == null) {
 			evalContext = new ExpressionContext(context);
 		}
-		if (handler instanceof IHandler2) {
+		if (handler instanceof IAsyncEnablementHandler) {
+			requestAsyncEnablement(evalContext, true);
+		} else if (handler instanceof IHandler2) {
 			((IHandler2) handler).setEnabled(evalContext);
 		}
 	}
 
+	/**
+	 * Asks the handler for the input of its enablement and queues the
+	 * computation in the background. Unless <code>force</code> is set, nothing
+	 * is queued if the enablement for the same input has already been
+	 * requested, as commands ask for their enablement far more often than the
+	 * state changes.
+	 */
+	private void requestAsyncEnablement(IEvaluationContext evalContext, boolean force) {
+		Object input = ((IAsyncEnablementHandler) handler).getEnablementInput(evalContext);
+		if (!force && asyncRequested && Util.equals(input, asyncInput)) {
+			return;
+		}
+		asyncInput = input;
+		asyncRequested = true;
+		AsyncEnablementJob.getInstance().request(this, input);
+	}
+
+	/**
+	 * Reports the enablement computed in the background. Must be called on
+	 * the UI thread.
+	 * 
+	 * @param enabled
+	 *            whether the handler is enabled
+	 */
+	void setAsyncEnabled(boolean enabled) {
+		if (disposed || (asyncEnabled != null && asyncEnabled.booleanValue() == enabled)) {
+			return;
+		}
+		asyncEnabled = Boolean.valueOf(enabled);
+		fireHandlerChanged(new HandlerEvent(handler, true, false));
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -148,6 +216,10 @@ public class E4HandlerProxy implements IHandler2, IHandlerListener, IElementUpda
 	 * @see org.eclipse.core.commands.IHandler#dispose()
 	 */
 	public void dispose() {
+		if (handler instanceof IAsyncEnablementHandler) {
+			disposed = true;
+			AsyncEnablementJob.getInstance().cancel(this);
+		}
 		handler.dispose();
 	}
 
@@ -174,6 +246,9 @@ public class E4HandlerProxy implements IHandler2, IHandlerListener, IElementUpda
 	 * @see org.eclipse.core.commands.IHandler#isEnabled()
 	 */
 	public boolean isEnabled() {
+		if (asyncEnabled != null) {
+			return asyncEnabled.booleanValue();
+		}
 		return handler.isEnabled();
 	}
 
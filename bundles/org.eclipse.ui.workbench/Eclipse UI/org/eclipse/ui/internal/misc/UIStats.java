@@ -57,10 +57,12 @@ public class UIStats {
 	
 	public static final int CONTENT_TYPE_LOOKUP = 14;
 
+	public static final int EVALUATE_EXPRESSION = 15;
+
     /**
      * Change this value when you add a new event constant.
      */
-    public static final int LAST_VALUE = CONTENT_TYPE_LOOKUP;
+    public static final int LAST_VALUE = EVALUATE_EXPRESSION;
 
     private static boolean debug[] = new boolean[LAST_VALUE+1];
 
@@ -82,6 +84,7 @@ public class UIStats {
         events[NOTIFY_PERSPECTIVE_LISTENERS] = PlatformUI.PLUGIN_ID + "/perf/perspective.listeners"; //$NON-NLS-1$
         events[UI_JOB] = PlatformUI.PLUGIN_ID + "/perf/uijob"; //$NON-NLS-1$
 		events[CONTENT_TYPE_LOOKUP] = PlatformUI.PLUGIN_ID + "/perf/contentTypes"; //$NON-NLS-1$
+		events[EVALUATE_EXPRESSION] = PlatformUI.PLUGIN_ID + "/perf/expression.evaluate"; //$NON-NLS-1$
 
         for (int i = 0; i <= LAST_VALUE; i++) {
         	//don't log any performance events if the general performance stats is disabled
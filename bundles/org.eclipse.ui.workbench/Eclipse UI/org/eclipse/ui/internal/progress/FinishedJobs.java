@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,9 +12,7 @@ package org.eclipse.ui.internal.progress;
 
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.LinkedHashMap;
 
 import org.eclipse.core.commands.common.EventManager;
 import org.eclipse.core.runtime.IStatus;
@@ -24,7 +22,9 @@ import org.eclipse.ui.progress.IProgressConstants;
 
 /**
  * This singleton remembers all JobTreeElements that should be preserved (e.g.
- * because their associated Jobs have the "keep" property set).
+ * because their associated Jobs have the "keep" property set). At most
+ * {@link #MAX_KEPT_ELEMENTS} elements are remembered, the elements that
+ * finished first are dropped when more are kept.
  */
 public class FinishedJobs extends EventManager {
 
@@ -52,9 +52,17 @@ public class FinishedJobs extends EventManager {
 
 	private IJobProgressManagerListener listener;
 
-	private HashSet keptjobinfos = new HashSet();
+	/**
+	 * The maximum number of kept elements.
+	 */
+	static final int MAX_KEPT_ELEMENTS = 1000;
 
-	private HashMap finishedTime = new HashMap();
+	/**
+	 * The kept elements in the order they finished, mapped to their finish
+	 * time. The oldest elements are removed first when the maximum size is
+	 * reached. Guarded by itself.
+	 */
+	private final LinkedHashMap keptjobinfos = new LinkedHashMap();
 
 	private static JobTreeElement[] EMPTY_INFOS;
 
@@ -168,20 +176,19 @@ public class FinishedJobs extends EventManager {
 	 */
 	private void add(JobInfo info) {
 		boolean fire = false;
+		JobTreeElement[] dropped = null;
 
 		synchronized (keptjobinfos) {
-			if (!keptjobinfos.contains(info)) {
-				keptjobinfos.add(info);
-
-				long now = System.currentTimeMillis();
-				finishedTime.put(info, new Long(now));
+			if (!keptjobinfos.containsKey(info)) {
+				Long now = new Long(System.currentTimeMillis());
+				keptjobinfos.put(info, now);
 
 				Object parent = info.getParent();
-				if (!(parent == null || keptjobinfos.contains(parent))) {
-					keptjobinfos.add(parent);
-					finishedTime.put(parent, new Long(now));
+				if (!(parent == null || keptjobinfos.containsKey(parent))) {
+					keptjobinfos.put(parent, now);
 				}
 
+				dropped = dropOldest();
 				fire = true;
 			}
 		}
@@ -192,6 +199,47 @@ public class FinishedJobs extends EventManager {
 				KeptJobsListener jv = (KeptJobsListener) l[i];
 				jv.finished(info);
 			}
+			fireRemoved(dropped);
+		}
+	}
+
+	/**
+	 * Remove the elements that finished first until no more than the maximum
+	 * number of elements are kept. Must be called while holding the lock on
+	 * the kept elements.
+	 * 
+	 * @return JobTreeElement[] the removed elements or <code>null</code>
+	 */
+	private JobTreeElement[] dropOldest() {
+		if (keptjobinfos.size() <= MAX_KEPT_ELEMENTS) {
+			return null;
+		}
+		ArrayList dropped = new ArrayList();
+		while (keptjobinfos.size() > MAX_KEPT_ELEMENTS) {
+			JobTreeElement oldest = (JobTreeElement) keptjobinfos.keySet()
+					.iterator().next();
+			removeKept(oldest);
+			dropped.add(oldest);
+		}
+		return (JobTreeElement[]) dropped.toArray(new JobTreeElement[dropped
+				.size()]);
+	}
+
+	/**
+	 * Notify the listeners that the elements have been removed.
+	 * 
+	 * @param removed
+	 *            the removed elements, may be <code>null</code>
+	 */
+	private void fireRemoved(JobTreeElement[] removed) {
+		if (removed == null) {
+			return;
+		}
+		Object l[] = getListeners();
+		for (int i = 0; i < removed.length; i++) {
+			for (int j = 0; j < l.length; j++) {
+				((KeptJobsListener) l[j]).removed(removed[i]);
+			}
 		}
 	}
 
@@ -222,7 +270,7 @@ public class FinishedJobs extends EventManager {
 					ArrayList found = null;
 					JobTreeElement[] all;
 					synchronized (keptjobinfos) {
-						all = (JobTreeElement[]) keptjobinfos
+						all = (JobTreeElement[]) keptjobinfos.keySet()
 								.toArray(new JobTreeElement[keptjobinfos.size()]);
 					}
 					for (int i = 0; i < all.length; i++) {
@@ -253,16 +301,18 @@ public class FinishedJobs extends EventManager {
 			TaskInfo tinfo = info.getTaskInfo();
 			if (tinfo != null) {
 				JobTreeElement[] toBeRemoved = null;
+				JobTreeElement[] dropped = null;
 				boolean fire = false;
 				JobTreeElement element = (JobTreeElement) tinfo.getParent();
 				synchronized (keptjobinfos) {
-					if (element == info && !keptjobinfos.contains(tinfo)) {
+					if (element == info && !keptjobinfos.containsKey(tinfo)) {
 						toBeRemoved = findJobsToRemove(element);
-						keptjobinfos.add(tinfo);
-						finishedTime.put(tinfo, new Long(System
+						keptjobinfos.put(tinfo, new Long(System
 								.currentTimeMillis()));
+						dropped = dropOldest();
 					}
 				}
+				fireRemoved(dropped);
 
 				if (toBeRemoved != null) {
 					for (int i = 0; i < toBeRemoved.length; i++) {
@@ -303,36 +353,13 @@ public class FinishedJobs extends EventManager {
 	}
 
 	boolean remove(JobTreeElement jte) {
-		boolean fire = false;
-		boolean removed = false;
+		boolean removed;
 
 		synchronized (keptjobinfos) {
-			if (keptjobinfos.remove(jte)) {
-				removed = true;
-				finishedTime.remove(jte);
-				disposeAction(jte);
-
-				// delete all elements that have jte as their direct or indirect
-				// parent
-				JobTreeElement jtes[] = (JobTreeElement[]) keptjobinfos
-						.toArray(new JobTreeElement[keptjobinfos.size()]);
-				for (int i = 0; i < jtes.length; i++) {
-					JobTreeElement parent = (JobTreeElement) jtes[i]
-							.getParent();
-					if (parent != null) {
-						if (parent == jte || parent.getParent() == jte) {
-							if (keptjobinfos.remove(jtes[i])) {
-								disposeAction(jtes[i]);
-							}
-							finishedTime.remove(jtes[i]);
-						}
-					}
-				}
-				fire = true;
-			}
+			removed = removeKept(jte);
 		}
 
-		if (fire) {
+		if (removed) {
 			// notify listeners
 			Object l[] = getListeners();
 			for (int i = 0; i < l.length; i++) {
@@ -344,20 +371,45 @@ public class FinishedJobs extends EventManager {
 	}
 
 	/**
-	 * Returns all kept elements.
+	 * Remove the element and all the elements that have it as their direct or
+	 * indirect parent. Must be called while holding the lock on the kept
+	 * elements.
+	 * 
+	 * @param jte
+	 * @return boolean <code>true</code> if the element was kept
 	 */
-	JobTreeElement[] getKeptElements() {
-		JobTreeElement[] all;
-		if (keptjobinfos.isEmpty()) {
-			return EMPTY_INFOS;
+	private boolean removeKept(JobTreeElement jte) {
+		if (keptjobinfos.remove(jte) == null) {
+			return false;
 		}
+		disposeAction(jte);
+
+		JobTreeElement jtes[] = (JobTreeElement[]) keptjobinfos.keySet()
+				.toArray(new JobTreeElement[keptjobinfos.size()]);
+		for (int i = 0; i < jtes.length; i++) {
+			JobTreeElement parent = (JobTreeElement) jtes[i].getParent();
+			if (parent != null) {
+				if (parent == jte || parent.getParent() == jte) {
+					if (keptjobinfos.remove(jtes[i]) != null) {
+						disposeAction(jtes[i]);
+					}
+				}
+			}
+		}
+		return true;
+	}
 
+	/**
+	 * Returns all kept elements, in the order they finished.
+	 */
+	JobTreeElement[] getKeptElements() {
 		synchronized (keptjobinfos) {
-			all = (JobTreeElement[]) keptjobinfos
-					.toArray(new JobTreeElement[keptjobinfos.size()]);
+			if (keptjobinfos.isEmpty()) {
+				return EMPTY_INFOS;
+			}
+			return (JobTreeElement[]) keptjobinfos.keySet().toArray(
+					new JobTreeElement[keptjobinfos.size()]);
 		}
-		
-		return all;
 	}
 
 	/**
@@ -367,7 +419,10 @@ public class FinishedJobs extends EventManager {
 	 * @return Date
 	 */
 	public Date getFinishDate(JobTreeElement jte) {
-		Object o = finishedTime.get(jte);
+		Object o;
+		synchronized (keptjobinfos) {
+			o = keptjobinfos.get(jte);
+		}
 		if (o instanceof Long) {
 			return new Date(((Long) o).longValue());
 		}
@@ -381,7 +436,9 @@ public class FinishedJobs extends EventManager {
 	 * @return boolean
 	 */
 	public boolean isKept(JobTreeElement element) {
-		return keptjobinfos.contains(element);
+		synchronized (keptjobinfos) {
+			return keptjobinfos.containsKey(element);
+		}
 	}
 
 	/**
@@ -389,13 +446,12 @@ public class FinishedJobs extends EventManager {
 	 */
 	public void clearAll() {
 		synchronized (keptjobinfos) {
-			JobTreeElement[] all = (JobTreeElement[]) keptjobinfos
+			JobTreeElement[] all = (JobTreeElement[]) keptjobinfos.keySet()
 					.toArray(new JobTreeElement[keptjobinfos.size()]);
 			for (int i = 0; i < all.length; i++) {
 				disposeAction(all[i]);
 			}
 			keptjobinfos.clear();
-			finishedTime.clear();
 		}
 
 		// notify listeners
@@ -405,12 +461,4 @@ public class FinishedJobs extends EventManager {
 			jv.removed(null);
 		}
 	}
-
-	/**
-	 * Return the set of kept jobs.
-	 * @return Set
-	 */
-	Set getKeptAsSet() {
-		return keptjobinfos;
-	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2012 IBM Corporation and others.
+ * Copyright (c) 2003, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,6 +15,7 @@ package org.eclipse.ui.internal.progress;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.jobs.Job;
@@ -42,6 +43,12 @@ public class JobInfo extends JobTreeElement {
     //Default to no progress
     private int ticks = -1;
 
+    /**
+     * Whether a change of the progress of the receiver is waiting to be sent
+     * to the listeners of the progress manager.
+     */
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
     /**
      * Create a top level JobInfo.
      * 
@@ -98,6 +105,22 @@ public class JobInfo extends JobTreeElement {
         ProgressManager.getInstance().refreshJobInfo(this);
     }
 
+    /**
+     * Mark the receiver as having a change of progress to report.
+     * 
+     * @return boolean <code>true</code> if no change was pending yet
+     */
+    boolean markRefreshPending() {
+        return refreshPending.compareAndSet(false, true);
+    }
+
+    /**
+     * Clear the pending change of progress before it is reported.
+     */
+    void clearRefreshPending() {
+        refreshPending.set(false);
+    }
+
     /**
      * Clear the collection of subtasks an the task info.
      */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,11 @@ import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IProgressMonitorWithBlocking;
 import org.eclipse.core.runtime.IStatus;
@@ -90,7 +95,11 @@ public class ProgressManager extends ProgressProvider implements
 
 	private static ProgressManager singleton;
 
-	final private Map jobs = Collections.synchronizedMap(new HashMap());
+	/**
+	 * The job infos by job. Concurrent, as it is updated by the jobs
+	 * themselves and read by the progress viewers.
+	 */
+	final private ConcurrentMap jobs = new ConcurrentHashMap();
 
 	final private Map familyListeners = Collections
 			.synchronizedMap(new HashMap());
@@ -125,7 +134,7 @@ public class ProgressManager extends ProgressProvider implements
 	 */
 	public static final String BLOCKED_JOB_KEY = "LOCKED_JOB"; //$NON-NLS-1$
 
-	final Map runnableMonitors = Collections.synchronizedMap(new HashMap());
+	final ConcurrentMap runnableMonitors = new ConcurrentHashMap();
 
 	// A table that maps families to keys in the Jface image
 	// table
@@ -139,6 +148,27 @@ public class ProgressManager extends ProgressProvider implements
 
 	private static final String IMAGE_KEY = "org.eclipse.ui.progress.images"; //$NON-NLS-1$
 
+	/**
+	 * The default number of times per second that the changes of progress are
+	 * sent to the listeners.
+	 */
+	public static final int DEFAULT_REFRESH_RATE = 10;
+
+	/**
+	 * The job infos whose progress changed since the last refresh.
+	 */
+	private final Queue pendingRefreshes = new ConcurrentLinkedQueue();
+
+	/**
+	 * True when the refresh job is scheduled and has not started sending the
+	 * pending refreshes yet.
+	 */
+	private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+	private volatile int refreshRate = DEFAULT_REFRESH_RATE;
+
+	private final Job refreshJob;
+
 	/**
 	 * Get the progress manager currently in use.
 	 * 
@@ -238,7 +268,7 @@ public class ProgressManager extends ProgressProvider implements
 			JobInfo info = getJobInfo(job);
 			if (info.hasTaskInfo()) {
 				info.addWork(work);
-				refreshJobInfo(info);
+				scheduleRefresh(info);
 			}
 			if (listener != null) {
 				listener.internalWorked(work);
@@ -290,7 +320,7 @@ public class ProgressManager extends ProgressProvider implements
 				return;
 			}
 			info.clearChildren();
-			refreshJobInfo(info);
+			scheduleRefresh(info);
 			currentTaskName = taskName;
 			if (listener != null) {
 				listener.setTaskName(taskName);
@@ -309,7 +339,7 @@ public class ProgressManager extends ProgressProvider implements
 			JobInfo info = getJobInfo(job);
 			info.clearChildren();
 			info.addSubTask(name);
-			refreshJobInfo(info);
+			scheduleRefresh(info);
 			if (listener != null) {
 				listener.subTask(name);
 			}
@@ -364,6 +394,8 @@ public class ProgressManager extends ProgressProvider implements
 
 		changeListener = createChangeListener();
 
+		refreshJob = createRefreshJob();
+
 		notificationListener = createNotificationListener();
 
 		Job.getJobManager().setProgressProvider(this);
@@ -401,6 +433,77 @@ public class ProgressManager extends ProgressProvider implements
 		};
 	}
 
+	/**
+	 * Create the job that sends the pending changes of progress to the
+	 * listeners.
+	 * 
+	 * @return Job
+	 */
+	private Job createRefreshJob() {
+		Job job = new Job(ProgressMessages.ProgressContentProvider_UpdateProgressJob) {
+			protected IStatus run(IProgressMonitor monitor) {
+				// changes made from now on need another run
+				refreshScheduled.set(false);
+				JobInfo info;
+				while ((info = (JobInfo) pendingRefreshes.poll()) != null) {
+					info.clearRefreshPending();
+					// Skip the jobs that have been removed in the meantime
+					if (internalGetJobInfo(info.getJob()) == info) {
+						refreshJobInfo(info);
+					}
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+		job.setProperty(ProgressManagerUtil.INFRASTRUCTURE_PROPERTY,
+				new Object());
+		return job;
+	}
+
+	/**
+	 * Report a change of the progress of the job info to the listeners. The
+	 * changes are collected and sent at most {@link #getRefreshRate()} times per
+	 * second, so that jobs reporting their progress in tight loops do not
+	 * flood the listeners.
+	 * 
+	 * @param info
+	 */
+	void scheduleRefresh(JobInfo info) {
+		if (!info.markRefreshPending()) {
+			return;
+		}
+		pendingRefreshes.add(info);
+		if (refreshScheduled.compareAndSet(false, true)) {
+			refreshJob.schedule(1000 / refreshRate);
+		}
+	}
+
+	/**
+	 * Set the number of times per second that the changes of progress
+	 * reported through the job monitors are sent to the listeners.
+	 * 
+	 * @param framesPerSecond
+	 *            a positive number
+	 */
+	public void setRefreshRate(int framesPerSecond) {
+		if (framesPerSecond <= 0) {
+			throw new IllegalArgumentException();
+		}
+		refreshRate = framesPerSecond;
+	}
+
+	/**
+	 * Return the number of times per second that the changes of progress are
+	 * sent to the listeners.
+	 * 
+	 * @return int
+	 */
+	public int getRefreshRate() {
+		return refreshRate;
+	}
+
 	/**
 	 * Create and return the IJobChangeListener registered with the Job manager.
 	 * 
@@ -637,15 +740,16 @@ public class ProgressManager extends ProgressProvider implements
 	 */
 	public JobMonitor progressFor(Job job) {
 
-		synchronized (runnableMonitors) {
-			JobMonitor monitor = (JobMonitor) runnableMonitors.get(job);
-			if (monitor == null) {
-				monitor = new JobMonitor(job);
-				runnableMonitors.put(job, monitor);
+		JobMonitor monitor = (JobMonitor) runnableMonitors.get(job);
+		if (monitor == null) {
+			monitor = new JobMonitor(job);
+			JobMonitor existing = (JobMonitor) runnableMonitors.putIfAbsent(
+					job, monitor);
+			if (existing != null) {
+				monitor = existing;
 			}
-			
-			return monitor;
 		}
+		return monitor;
 
 	}
 
@@ -678,7 +782,10 @@ public class ProgressManager extends ProgressProvider implements
 		JobInfo info = internalGetJobInfo(job);
 		if (info == null) {
 			info = new JobInfo(job);
-			jobs.put(job, info);
+			JobInfo existing = (JobInfo) jobs.putIfAbsent(job, info);
+			if (existing != null) {
+				info = existing;
+			}
 		}
 		return info;
 	}
@@ -846,19 +953,17 @@ public class ProgressManager extends ProgressProvider implements
 	 * @return JobInfo[]
 	 */
 	public JobInfo[] getJobInfos(boolean debug) {
-		synchronized (jobs) {
-			Iterator iterator = jobs.keySet().iterator();
-			Collection result = new ArrayList();
-			while (iterator.hasNext()) {
-				Job next = (Job) iterator.next();
-				if (!isCurrentDisplaying(next, debug)) {
-					result.add(jobs.get(next));
-				}
+		Iterator iterator = jobs.values().iterator();
+		Collection result = new ArrayList();
+		while (iterator.hasNext()) {
+			JobInfo next = (JobInfo) iterator.next();
+			if (!isCurrentDisplaying(next.getJob(), debug)) {
+				result.add(next);
 			}
-			JobInfo[] infos = new JobInfo[result.size()];
-			result.toArray(infos);
-			return infos;
 		}
+		JobInfo[] infos = new JobInfo[result.size()];
+		result.toArray(infos);
+		return infos;
 	}
 
 	/**
@@ -868,25 +973,22 @@ public class ProgressManager extends ProgressProvider implements
 	 * @return JobTreeElement[]
 	 */
 	public JobTreeElement[] getRootElements(boolean debug) {
-		synchronized (jobs) {
-			Iterator iterator = jobs.keySet().iterator();
-			Collection result = new HashSet();
-			while (iterator.hasNext()) {
-				Job next = (Job) iterator.next();
-				if (!isCurrentDisplaying(next, debug)) {
-					JobInfo jobInfo = (JobInfo) jobs.get(next);
-					GroupInfo group = jobInfo.getGroupInfo();
-					if (group == null) {
-						result.add(jobInfo);
-					} else {
-						result.add(group);
-					}
+		Iterator iterator = jobs.values().iterator();
+		Collection result = new HashSet();
+		while (iterator.hasNext()) {
+			JobInfo jobInfo = (JobInfo) iterator.next();
+			if (!isCurrentDisplaying(jobInfo.getJob(), debug)) {
+				GroupInfo group = jobInfo.getGroupInfo();
+				if (group == null) {
+					result.add(jobInfo);
+				} else {
+					result.add(group);
 				}
 			}
-			JobTreeElement[] infos = new JobTreeElement[result.size()];
-			result.toArray(infos);
-			return infos;
 		}
+		JobTreeElement[] infos = new JobTreeElement[result.size()];
+		result.toArray(infos);
+		return infos;
 	}
 
 	/**
@@ -895,13 +997,7 @@ public class ProgressManager extends ProgressProvider implements
 	 * @return boolean
 	 */
 	public boolean hasJobInfos() {
-		synchronized (jobs) {
-			Iterator iterator = jobs.keySet().iterator();
-			while (iterator.hasNext()) {
-				return true;
-			}
-			return false;
-		}
+		return !jobs.isEmpty();
 	}
 
 	/**
@@ -1029,6 +1125,8 @@ public class ProgressManager extends ProgressProvider implements
 	 */
 	private void shutdown() {
 		listeners.clear();
+		refreshJob.cancel();
+		pendingRefreshes.clear();
 		Job.getJobManager().setProgressProvider(null);
 		Job.getJobManager().removeJobChangeListener(this.changeListener);
 	}
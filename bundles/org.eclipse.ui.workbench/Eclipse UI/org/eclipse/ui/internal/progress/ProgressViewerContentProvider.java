@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2008 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,6 @@
 package org.eclipse.ui.internal.progress;
 
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -31,6 +30,20 @@ public class ProgressViewerContentProvider extends ProgressContentProvider {
 
 	private boolean showFinished;
 
+	private Job keptJobsUpdateJob;
+
+	private final Object keptUpdateLock = new Object();
+
+	/*
+	 * The kept elements that finished or have been removed since the viewer
+	 * was last updated. Guarded by keptUpdateLock.
+	 */
+	private final Set finishedElements = new HashSet();
+
+	private final Set removedElements = new HashSet();
+
+	private boolean refreshAllKept;
+
 	/**
 	 * Create a new instance of the receiver.
 	 * 
@@ -54,11 +67,59 @@ public class ProgressViewerContentProvider extends ProgressContentProvider {
 	}
 
 	/**
-	 * Return a listener for kept jobs.
+	 * Return a listener for kept jobs. The changes are collected and applied
+	 * to the viewer in one batch.
 	 * 
 	 * @return KeptJobsListener
 	 */
 	private KeptJobsListener getKeptJobListener() {
+		keptJobsUpdateJob = new WorkbenchJob("Update finished") {//$NON-NLS-1$
+			/*
+			 * (non-Javadoc)
+			 * 
+			 * @see org.eclipse.ui.progress.UIJob#runInUIThread(org.eclipse.core.runtime.IProgressMonitor)
+			 */
+			public IStatus runInUIThread(IProgressMonitor monitor) {
+				Object[] finished;
+				Object[] removed;
+				boolean refreshAll;
+				synchronized (keptUpdateLock) {
+					finished = finishedElements.toArray();
+					removed = removedElements.toArray();
+					refreshAll = refreshAllKept;
+					finishedElements.clear();
+					removedElements.clear();
+					refreshAllKept = false;
+				}
+				if (refreshAll) {
+					refresh();
+					return Status.OK_STATUS;
+				}
+				if (removed.length > 0) {
+					ProgressViewerContentProvider.this.remove(removed);
+				}
+				if (finished.length > 0) {
+					refresh(finished);
+				}
+				return Status.OK_STATUS;
+			}
+
+			/* (non-Javadoc)
+			 * @see org.eclipse.ui.progress.WorkbenchJob#shouldSchedule()
+			 */
+			public boolean shouldSchedule() {
+				return !progressViewer.getControl().isDisposed();
+			}
+
+			/* (non-Javadoc)
+			 * @see org.eclipse.ui.progress.WorkbenchJob#shouldRun()
+			 */
+			public boolean shouldRun() {
+				return !progressViewer.getControl().isDisposed();
+			}
+		};
+		keptJobsUpdateJob.setSystem(true);
+
 		keptJobListener = new KeptJobsListener() {
 
 			/*
@@ -67,36 +128,11 @@ public class ProgressViewerContentProvider extends ProgressContentProvider {
 			 * @see org.eclipse.ui.internal.progress.FinishedJobs.KeptJobsListener#finished(org.eclipse.ui.internal.progress.JobTreeElement)
 			 */
 			public void finished(JobTreeElement jte) {
-				final JobTreeElement element = jte;
-				Job updateJob = new WorkbenchJob("Refresh finished") {//$NON-NLS-1$
-					/*
-					 * (non-Javadoc)
-					 * 
-					 * @see org.eclipse.ui.progress.UIJob#runInUIThread(org.eclipse.core.runtime.IProgressMonitor)
-					 */
-					public IStatus runInUIThread(IProgressMonitor monitor) {
-						refresh(new Object[] { element });
-						return Status.OK_STATUS;
-					}
-					
-					/* (non-Javadoc)
-					 * @see org.eclipse.ui.progress.WorkbenchJob#shouldSchedule()
-					 */
-					public boolean shouldSchedule() {
-						return !progressViewer.getControl().isDisposed();
-					}
-					
-					
-					/* (non-Javadoc)
-					 * @see org.eclipse.ui.progress.WorkbenchJob#shouldRun()
-					 */
-					public boolean shouldRun() {
-						return !progressViewer.getControl().isDisposed();
-					}
-				};
-				updateJob.setSystem(true);
-				updateJob.schedule();
-
+				synchronized (keptUpdateLock) {
+					removedElements.remove(jte);
+					finishedElements.add(jte);
+				}
+				keptJobsUpdateJob.schedule();
 			}
 
 			/*
@@ -105,26 +141,15 @@ public class ProgressViewerContentProvider extends ProgressContentProvider {
 			 * @see org.eclipse.ui.internal.progress.FinishedJobs.KeptJobsListener#removed(org.eclipse.ui.internal.progress.JobTreeElement)
 			 */
 			public void removed(JobTreeElement jte) {
-				final JobTreeElement element = jte;
-				Job updateJob = new WorkbenchJob("Remove finished") {//$NON-NLS-1$
-					/*
-					 * (non-Javadoc)
-					 * 
-					 * @see org.eclipse.ui.progress.UIJob#runInUIThread(org.eclipse.core.runtime.IProgressMonitor)
-					 */
-					public IStatus runInUIThread(IProgressMonitor monitor) {
-						if (element == null) {
-							refresh();
-						} else {
-							ProgressViewerContentProvider.this
-									.remove(new Object[] { element });
-						}
-						return Status.OK_STATUS;
+				synchronized (keptUpdateLock) {
+					if (jte == null) {
+						refreshAllKept = true;
+					} else {
+						finishedElements.remove(jte);
+						removedElements.add(jte);
 					}
-				};
-				updateJob.setSystem(true);
-				updateJob.schedule();
-
+				}
+				keptJobsUpdateJob.schedule();
 			}
 
 		};
@@ -163,9 +188,9 @@ public class ProgressViewerContentProvider extends ProgressContentProvider {
 		if (!showFinished)
 			return elements;
 
-		Set kept = FinishedJobs.getInstance().getKeptAsSet();
+		JobTreeElement[] kept = FinishedJobs.getInstance().getKeptElements();
 
-		if (kept.size() == 0)
+		if (kept.length == 0)
 			return elements;
 
 		Set all = new HashSet();
@@ -175,9 +200,8 @@ public class ProgressViewerContentProvider extends ProgressContentProvider {
 			all.add(element);
 		}
 
-		Iterator keptIterator = kept.iterator();
-		while (keptIterator.hasNext()) {
-			JobTreeElement next = (JobTreeElement) keptIterator.next();
+		for (int i = 0; i < kept.length; i++) {
+			JobTreeElement next = kept[i];
 			if (next.getParent() != null && all.contains(next.getParent()))
 				continue;
 			all.add(next);
@@ -239,6 +263,7 @@ public class ProgressViewerContentProvider extends ProgressContentProvider {
 		super.dispose();
 		if (keptJobListener != null) {
 			FinishedJobs.getInstance().removeListener(keptJobListener);
+			keptJobsUpdateJob.cancel();
 		}
 	}
 }
@@ -13,6 +13,11 @@ package org.eclipse.ui.internal.quickaccess;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.bindings.TriggerSequence;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.layout.GridDataFactory;
@@ -46,6 +51,7 @@ import org.eclipse.swt.graphics.TextStyle;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Listener;
@@ -97,6 +103,66 @@ public abstract class QuickAccessContents {
 	protected boolean resized = false;
 	private TriggerSequence keySequence;
 
+	/**
+	 * The label indexes of the providers, rebuilt when a provider returns a
+	 * different set of elements. Only accessed on the UI thread.
+	 */
+	private QuickAccessIndex[] indexes;
+
+	/**
+	 * The job computing the matches for the latest filter, or
+	 * <code>null</code> if the table is up to date. Only accessed on the UI
+	 * thread.
+	 */
+	private FilterJob filterJob;
+
+	/**
+	 * Computes the matching entries for a filter in the background and shows
+	 * them in the table, unless another filter has been entered meanwhile.
+	 */
+	private class FilterJob extends Job {
+		private final String filter;
+		private final QuickAccessIndex[] filterIndexes;
+		private final QuickAccessElement perfectMatch;
+		private final QuickAccessEntry perfectMatchEntry;
+		private final int maxCount;
+		private final boolean showAll;
+		private final Display display;
+
+		FilterJob(String filter, QuickAccessIndex[] filterIndexes,
+				QuickAccessElement perfectMatch, QuickAccessEntry perfectMatchEntry, int maxCount) {
+			super("Quick Access Filter Job"); //$NON-NLS-1$
+			this.filter = filter;
+			this.filterIndexes = filterIndexes;
+			this.perfectMatch = perfectMatch;
+			this.perfectMatchEntry = perfectMatchEntry;
+			this.maxCount = maxCount;
+			this.showAll = showAllMatches;
+			this.display = table.getDisplay();
+			setSystem(true);
+			setPriority(Job.INTERACTIVE);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			final List<QuickAccessEntry>[] entries = computeMatchingEntries(filter, perfectMatch,
+					perfectMatchEntry, filterIndexes, maxCount, showAll, monitor);
+			if (entries == null || monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			if (!display.isDisposed()) {
+				display.asyncExec(new Runnable() {
+					public void run() {
+						if (filterJob == FilterJob.this && table != null && !table.isDisposed()) {
+							filterJob = null;
+							showEntries(filter, perfectMatch, entries);
+						}
+					}
+				});
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
 	public QuickAccessContents(QuickAccessProvider[] providers) {
 		this.providers = providers;
 	}
@@ -119,29 +185,92 @@ public abstract class QuickAccessContents {
 	 * 
 	 */
 	public void refresh(String filter) {
+		refresh(filter, false);
+	}
+
+	/**
+	 * Refreshes the contents of the quick access shell. Unless the filter is
+	 * empty or <code>synchronous</code> is set, the matches are computed in
+	 * the background and any computation still running for a previous filter
+	 * is canceled.
+	 * 
+	 * @param filter
+	 *            The filter text to apply to results
+	 * @param synchronous
+	 *            whether the table must be up to date when this method returns
+	 */
+	private void refresh(String filter, boolean synchronous) {
 		if (table != null) {
-			boolean filterTextEmpty = filter.length() == 0;
+			if (filterJob != null) {
+				filterJob.cancel();
+				filterJob = null;
+			}
+			QuickAccessIndex[] currentIndexes = getIndexes(filter);
 
 			// perfect match, to be selected in the table if not null
 			QuickAccessElement perfectMatch = getPerfectMatch(filter);
-			List<QuickAccessEntry>[] entries = computeMatchingEntries(filter, perfectMatch);
-			int selectionIndex = refreshTable(perfectMatch, entries);
-
-			if (table.getItemCount() > 0) {
-				table.setSelection(selectionIndex);
-			} else if (filterTextEmpty) {
-				TableItem item = new TableItem(table, SWT.NONE);
-				item.setText(0, QuickAccessMessages.QuickAccessContents_QuickAccess);
-				item.setText(1, QuickAccessMessages.QuickAccess_StartTypingToFindMatches);
-				item.setForeground(1, grayColor);
+			QuickAccessEntry perfectMatchEntry = perfectMatch == null ? null : perfectMatch
+					.match(filter, providers[0]);
+			int maxCount = computeNumberOfItems();
+			if (synchronous || filter.length() == 0) {
+				List<QuickAccessEntry>[] entries = computeMatchingEntries(filter, perfectMatch,
+						perfectMatchEntry, currentIndexes, maxCount, showAllMatches,
+						new NullProgressMonitor());
+				showEntries(filter, perfectMatch, entries);
 			} else {
-				TableItem item = new TableItem(table, SWT.NONE);
-				item.setText(0, QuickAccessMessages.QuickAccessContents_NoMatchingResults);
-				item.setForeground(0, grayColor);
+				filterJob = new FilterJob(filter, currentIndexes, perfectMatch,
+						perfectMatchEntry, maxCount);
+				filterJob.schedule();
 			}
+		}
+	}
 
-			updateFeedback(filterTextEmpty, showAllMatches);
+	/**
+	 * Returns the label indexes of the providers that take part in matching
+	 * the filter, creating new ones for providers whose elements have changed.
+	 * 
+	 * @param filter
+	 *            the filter text
+	 * @return the indexes, one per provider, <code>null</code> for providers
+	 *         that are not shown for this filter
+	 */
+	private QuickAccessIndex[] getIndexes(String filter) {
+		if (indexes == null) {
+			indexes = new QuickAccessIndex[providers.length];
+		}
+		QuickAccessIndex[] result = new QuickAccessIndex[providers.length];
+		for (int i = 0; i < providers.length; i++) {
+			QuickAccessProvider provider = providers[i];
+			if (filter.length() > 0 || provider.isAlwaysPresent() || showAllMatches) {
+				QuickAccessElement[] sortedElements = provider.getElementsSorted();
+				if (indexes[i] == null || indexes[i].elements != sortedElements) {
+					indexes[i] = new QuickAccessIndex(provider, sortedElements);
+				}
+				result[i] = indexes[i];
+			}
 		}
+		return result;
+	}
+
+	private void showEntries(String filter, QuickAccessElement perfectMatch,
+			List<QuickAccessEntry>[] entries) {
+		boolean filterTextEmpty = filter.length() == 0;
+		int selectionIndex = refreshTable(perfectMatch, entries);
+
+		if (table.getItemCount() > 0) {
+			table.setSelection(selectionIndex);
+		} else if (filterTextEmpty) {
+			TableItem item = new TableItem(table, SWT.NONE);
+			item.setText(0, QuickAccessMessages.QuickAccessContents_QuickAccess);
+			item.setText(1, QuickAccessMessages.QuickAccess_StartTypingToFindMatches);
+			item.setForeground(1, grayColor);
+		} else {
+			TableItem item = new TableItem(table, SWT.NONE);
+			item.setText(0, QuickAccessMessages.QuickAccessContents_NoMatchingResults);
+			item.setForeground(0, grayColor);
+		}
+
+		updateFeedback(filterTextEmpty, showAllMatches);
 	}
 
 	/**
@@ -279,25 +408,43 @@ public abstract class QuickAccessContents {
 	 * Returns a list per provider containing matching {@link QuickAccessEntry}
 	 * that should be displayed in the table given a text filter and a perfect
 	 * match entry that should be given priority. The number of items returned
-	 * is affected by {@link #getShowAllMatches()} and the size of the table's
+	 * is affected by <code>showAll</code> and the size of the table's
 	 * composite.
+	 * <p>
+	 * Only reads the given indexes, so it can run outside the UI thread.
+	 * </p>
 	 * 
 	 * @param filter
 	 *            the string text filter to apply, possibly empty
 	 * @param perfectMatch
 	 *            a quick access element that should be given priority or
 	 *            <code>null</code>
+	 * @param perfectMatchEntry
+	 *            the entry for the perfect match, or <code>null</code>
+	 * @param filterIndexes
+	 *            the label indexes, one per provider, <code>null</code> for
+	 *            providers that are not shown for this filter
+	 * @param maxCount
+	 *            the number of items that fit in the table
+	 * @param showAll
+	 *            whether to return all matches
+	 * @param monitor
+	 *            the monitor used to cancel the computation
 	 * @return the array of lists (one per provider) containg the quick access
-	 *         entries that should be added to the table, possibly empty
+	 *         entries that should be added to the table, possibly empty, or
+	 *         <code>null</code> if the monitor was canceled
 	 */
-	private List<QuickAccessEntry>[] computeMatchingEntries(String filter,
-			QuickAccessElement perfectMatch) {
+	private static List<QuickAccessEntry>[] computeMatchingEntries(String filter,
+			QuickAccessElement perfectMatch, QuickAccessEntry perfectMatchEntry,
+			QuickAccessIndex[] filterIndexes, int maxCount, boolean showAll,
+			IProgressMonitor monitor) {
 		// collect matches in an array of lists
 		@SuppressWarnings("unchecked")
-		List<QuickAccessEntry>[] entries = new List[providers.length];
+		List<QuickAccessEntry>[] entries = new List[filterIndexes.length];
 
-		int maxCount = computeNumberOfItems();
-		int[] indexPerProvider = new int[providers.length];
+		// candidate element indices per provider, computed on first use
+		int[][] candidates = new int[filterIndexes.length][];
+		int[] indexPerProvider = new int[filterIndexes.length];
 		int countPerProvider = Math.min(maxCount / 4,
 				INITIAL_COUNT_PER_PROVIDER);
 		int countTotal = 0;
@@ -312,32 +459,39 @@ public abstract class QuickAccessContents {
 			// will be set to false if we find a provider with remaining
 			// elements
 			done = true;
-			for (int i = 0; i < providers.length
-					&& (showAllMatches || countTotal < maxCount); i++) {
+			for (int i = 0; i < filterIndexes.length
+					&& (showAll || countTotal < maxCount); i++) {
 				if (entries[i] == null) {
 					entries[i] = new ArrayList<QuickAccessEntry>();
 					indexPerProvider[i] = 0;
 				}
 				int count = 0;
-				QuickAccessProvider provider = providers[i];
-				if (filter.length() > 0 || provider.isAlwaysPresent() || showAllMatches) {
-					QuickAccessElement[] sortedElements = provider.getElementsSorted();
+				QuickAccessIndex index = filterIndexes[i];
+				if (index != null) {
+					QuickAccessProvider provider = index.provider;
+					if (candidates[i] == null) {
+						candidates[i] = index.getCandidates(filter, monitor);
+						if (candidates[i] == null) {
+							return null;
+						}
+					}
+					int[] matching = candidates[i];
 					List<QuickAccessEntry> poorFilterMatches = new ArrayList<QuickAccessEntry>();
 					
 					int j = indexPerProvider[i];
-					while (j < sortedElements.length
-							&& (showAllMatches || (count < countPerProvider && countTotal < maxCount))) {
-						QuickAccessElement element = sortedElements[j];
+					while (j < matching.length
+							&& (showAll || (count < countPerProvider && countTotal < maxCount))) {
 						QuickAccessEntry entry = null;
 						if (filter.length() == 0) {
-							if (i == 0 || showAllMatches) {
-								entry = new QuickAccessEntry(element, provider, new int[0][0],
-										new int[0][0], QuickAccessEntry.MATCH_PERFECT);
+							if (i == 0 || showAll) {
+								entry = new QuickAccessEntry(index.elements[matching[j]],
+										provider, new int[0][0], new int[0][0],
+										QuickAccessEntry.MATCH_PERFECT);
 							} else {
 								entry = null;
 							}
 						} else {
-							QuickAccessEntry possibleMatch = element.match(filter, provider);
+							QuickAccessEntry possibleMatch = index.match(matching[j], filter);
 							// We only have limited space so only display
 							// excellent filter matches (Bug 398455)
 							if (possibleMatch != null) {
@@ -367,7 +521,7 @@ public abstract class QuickAccessContents {
 					// room, add them (Bug 398455)
 					for (Iterator<QuickAccessEntry> iterator = poorFilterMatches.iterator(); iterator
 							.hasNext()
-							&& (showAllMatches || (count < countPerProvider && countTotal < maxCount));) {
+							&& (showAll || (count < countPerProvider && countTotal < maxCount));) {
 						QuickAccessEntry quickAccessEntry = iterator.next();
 						entries[i].add(quickAccessEntry);
 						count++;
@@ -377,22 +531,24 @@ public abstract class QuickAccessContents {
 							maxCount = MAX_COUNT_TOTAL;
 						}
 					}
-					if (j < sortedElements.length) {
+					if (j < matching.length) {
 						done = false;
 					}
 				}
 			}
+			if (monitor.isCanceled()) {
+				return null;
+			}
 			// from now on, add one element per provider
 			countPerProvider = 1;
-		} while ((showAllMatches || countTotal < maxCount) && !done);
+		} while ((showAll || countTotal < maxCount) && !done);
 		if (!perfectMatchAdded) {
-			QuickAccessEntry entry = perfectMatch.match(filter, providers[0]);
-			if (entry != null) {
+			if (perfectMatchEntry != null) {
 				if (entries[0] == null) {
 					entries[0] = new ArrayList<QuickAccessEntry>();
 					indexPerProvider[0] = 0;
 				}
-				entries[0].add(entry);
+				entries[0].add(perfectMatchEntry);
 			}
 		}
 		return entries;
@@ -428,6 +584,10 @@ public abstract class QuickAccessContents {
 	private void handleSelection() {
 		QuickAccessElement selectedElement = null;
 		String text = filterText.getText().toLowerCase();
+		if (filterJob != null) {
+			// the table still shows the matches of a previous filter
+			refresh(text, true);
+		}
 		if (table.getSelectionCount() == 1) {
 			QuickAccessEntry entry = (QuickAccessEntry) table
 					.getSelection()[0].getData();
@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.internal.quickaccess;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * A snapshot of the sorted elements of one {@link QuickAccessProvider} with
+ * the lower case and camel case forms of their labels cached.
+ * <p>
+ * The snapshot is taken on the UI thread; matching only uses the labels read
+ * then and can run on any thread. The indices that matched the last filter
+ * are remembered so that a filter extending it only has to test those.
+ * </p>
+ *
+ * @since 3.105
+ */
+public final class QuickAccessIndex {
+
+	private static final int[][] EMPTY_INDICES = new int[0][0];
+
+	/**
+	 * The strings an element is matched against. All of them are derived
+	 * from the label and the provider name; only the lower case label is
+	 * computed up front, the others are computed when a filter does not
+	 * match the label. A string may be computed twice by concurrent callers,
+	 * which is harmless as strings are immutable.
+	 */
+	static final class Labels {
+		final String label;
+		final String providerName;
+		final String lowerLabel;
+		private String lowerCombinedLabel;
+		private String camelCase;
+		private String combinedCamelCase;
+
+		Labels(String label, String providerName) {
+			this.label = label;
+			this.providerName = providerName;
+			lowerLabel = label.toLowerCase();
+		}
+
+		String getLowerCombinedLabel() {
+			String result = lowerCombinedLabel;
+			if (result == null) {
+				result = (providerName + " " + label).toLowerCase(); //$NON-NLS-1$
+				lowerCombinedLabel = result;
+			}
+			return result;
+		}
+
+		String getCamelCase() {
+			String result = camelCase;
+			if (result == null) {
+				result = CamelUtil.getCamelCase(label);
+				camelCase = result;
+			}
+			return result;
+		}
+
+		String getCombinedCamelCase() {
+			String result = combinedCamelCase;
+			if (result == null) {
+				result = CamelUtil.getCamelCase(providerName + " " + label); //$NON-NLS-1$
+				combinedCamelCase = result;
+			}
+			return result;
+		}
+
+		/**
+		 * Returns whether {@link QuickAccessIndex#match} would return an entry
+		 * for the given filter, without computing the match indices.
+		 *
+		 * @param filter
+		 *            the lower case filter
+		 * @return whether the filter matches
+		 */
+		boolean matches(String filter) {
+			return lowerLabel.indexOf(filter) != -1
+					|| getLowerCombinedLabel().indexOf(filter) != -1
+					|| getCamelCase().indexOf(filter) != -1
+					|| getCombinedCamelCase().indexOf(filter) != -1;
+		}
+	}
+
+	final QuickAccessProvider provider;
+
+	final QuickAccessElement[] elements;
+
+	private final Labels[] labels;
+
+	private final int[] allIndices;
+
+	private String lastFilter;
+
+	private int[] lastCandidates;
+
+	/**
+	 * Must be called on the UI thread, as it asks the elements for their
+	 * labels.
+	 *
+	 * @param provider
+	 *            the provider
+	 * @param elements
+	 *            the sorted elements of the provider
+	 */
+	public QuickAccessIndex(QuickAccessProvider provider, QuickAccessElement[] elements) {
+		this.provider = provider;
+		this.elements = elements;
+		String providerName = provider.getName();
+		labels = new Labels[elements.length];
+		allIndices = new int[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			labels[i] = new Labels(elements[i].getLabel(), providerName);
+			allIndices[i] = i;
+		}
+	}
+
+	/**
+	 * Returns the indices of the elements matching the filter, in sorted
+	 * order. If the filter extends the previous one, only the previous
+	 * candidates are tested.
+	 *
+	 * @param filter
+	 *            the lower case filter, possibly empty
+	 * @param monitor
+	 *            the monitor used to cancel the computation
+	 * @return the indices, or <code>null</code> if the monitor was canceled
+	 */
+	public synchronized int[] getCandidates(String filter, IProgressMonitor monitor) {
+		if (filter.length() == 0) {
+			return allIndices;
+		}
+		int[] source = allIndices;
+		if (lastFilter != null && filter.startsWith(lastFilter)) {
+			if (filter.length() == lastFilter.length()) {
+				return lastCandidates;
+			}
+			source = lastCandidates;
+		}
+		int[] result = new int[source.length];
+		int count = 0;
+		for (int i = 0; i < source.length; i++) {
+			if ((i & 0xff) == 0 && monitor.isCanceled()) {
+				return null;
+			}
+			if (labels[source[i]].matches(filter)) {
+				result[count++] = source[i];
+			}
+		}
+		if (count < result.length) {
+			int[] trimmed = new int[count];
+			System.arraycopy(result, 0, trimmed, 0, count);
+			result = trimmed;
+		}
+		lastFilter = filter;
+		lastCandidates = result;
+		return result;
+	}
+
+	/**
+	 * Matches the element at the given index against the filter.
+	 *
+	 * @param index
+	 *            the index of the element
+	 * @param filter
+	 *            the lower case filter
+	 * @return a quick access entry or <code>null</code>
+	 */
+	QuickAccessEntry match(int index, String filter) {
+		return match(elements[index], provider, labels[index], filter);
+	}
+
+	/**
+	 * Computes the entry for an element matching a filter, see
+	 * {@link QuickAccessElement#match(String, QuickAccessProvider)}.
+	 *
+	 * @param element
+	 *            the element
+	 * @param providerForMatching
+	 *            the provider that will own the entry
+	 * @param labels
+	 *            the element's labels
+	 * @param filter
+	 *            the lower case filter
+	 * @return a quick access entry or <code>null</code>
+	 */
+	static QuickAccessEntry match(QuickAccessElement element,
+			QuickAccessProvider providerForMatching, Labels labels, String filter) {
+		int index = labels.lowerLabel.indexOf(filter);
+		if (index != -1) {
+			int quality = labels.lowerLabel.equals(filter) ? QuickAccessEntry.MATCH_PERFECT
+					: (labels.lowerLabel.startsWith(filter) ? QuickAccessEntry.MATCH_EXCELLENT
+							: QuickAccessEntry.MATCH_GOOD);
+			return new QuickAccessEntry(element, providerForMatching,
+					new int[][] { { index, index + filter.length() - 1 } }, EMPTY_INDICES,
+					quality);
+		}
+		index = labels.getLowerCombinedLabel().indexOf(filter);
+		if (index != -1) {
+			int lengthOfElementMatch = index + filter.length() - labels.providerName.length()
+					- 1;
+			if (lengthOfElementMatch > 0) {
+				return new QuickAccessEntry(element, providerForMatching,
+						new int[][] { { 0, lengthOfElementMatch - 1 } },
+						new int[][] { { index, index + filter.length() - 1 } },
+						QuickAccessEntry.MATCH_GOOD);
+			}
+			return new QuickAccessEntry(element, providerForMatching, EMPTY_INDICES,
+					new int[][] { { index, index + filter.length() - 1 } },
+					QuickAccessEntry.MATCH_GOOD);
+		}
+		index = labels.getCamelCase().indexOf(filter);
+		if (index != -1) {
+			int[][] indices = CamelUtil.getCamelCaseIndices(labels.label, index,
+					filter.length());
+			return new QuickAccessEntry(element, providerForMatching, indices, EMPTY_INDICES,
+					QuickAccessEntry.MATCH_GOOD);
+		}
+		index = labels.getCombinedCamelCase().indexOf(filter);
+		if (index != -1) {
+			String providerCamelCase = CamelUtil.getCamelCase(labels.providerName);
+			int lengthOfElementMatch = index + filter.length() - providerCamelCase.length();
+			if (lengthOfElementMatch > 0) {
+				return new QuickAccessEntry(element, providerForMatching,
+						CamelUtil.getCamelCaseIndices(labels.label, 0, lengthOfElementMatch),
+						CamelUtil.getCamelCaseIndices(labels.providerName, index,
+								filter.length() - lengthOfElementMatch),
+						QuickAccessEntry.MATCH_GOOD);
+			}
+			return new QuickAccessEntry(element, providerForMatching, EMPTY_INDICES,
+					CamelUtil.getCamelCaseIndices(labels.providerName, index, filter.length()),
+					QuickAccessEntry.MATCH_GOOD);
+		}
+		return null;
+	}
+}
@@ -11,6 +11,7 @@
 
 package org.eclipse.ui.internal.services;
 
+import java.util.Map;
 import org.eclipse.e4.core.commands.ExpressionContext;
 
 import org.eclipse.core.expressions.EvaluationResult;
@@ -23,6 +24,7 @@ import org.eclipse.e4.ui.internal.workbench.Activator;
 import org.eclipse.e4.ui.internal.workbench.Policy;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.ui.internal.misc.UIStats;
 import org.eclipse.ui.services.IEvaluationReference;
 
 /**
@@ -90,10 +92,13 @@ public class EvaluationReference extends RunAndTrack implements IEvaluationRefer
 		if (expression == null) {
 			cache = true;
 		} else {
+			UIStats.start(UIStats.EVALUATE_EXPRESSION, property);
 			try {
 				cache = expression.evaluate(context) != EvaluationResult.FALSE;
 			} catch (CoreException e) {
 				Activator.trace(Policy.DEBUG_CMDS, "Failed to calculate active", e); //$NON-NLS-1$
+			} finally {
+				UIStats.end(UIStats.EVALUATE_EXPRESSION, expression, property);
 			}
 		}
 		return cache;
@@ -127,8 +132,30 @@ public class EvaluationReference extends RunAndTrack implements IEvaluationRefer
 	}
 
 	public void evaluate() {
+		evaluate(null);
+	}
+
+	/**
+	 * Re-evaluate this reference as part of an evaluation wave. References
+	 * evaluated in the same wave share their results through the given map,
+	 * so an expression that is used by several references is only evaluated
+	 * once per wave.
+	 * 
+	 * @param results
+	 *            the results computed so far in this wave, or <code>null</code>
+	 *            to always evaluate
+	 */
+	void evaluate(Map<Expression, Boolean> results) {
 		boolean value = cache;
-		evaluate(new ExpressionContext(context));
+		Boolean result = results == null || expression == null ? null : results.get(expression);
+		if (result == null) {
+			evaluate(new ExpressionContext(context));
+			if (results != null && expression != null) {
+				results.put(expression, Boolean.valueOf(cache));
+			}
+		} else {
+			cache = result.booleanValue();
+		}
 		if (!postingChanges) {
 			return;
 		}
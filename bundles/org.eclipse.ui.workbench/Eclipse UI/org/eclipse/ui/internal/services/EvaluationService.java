@@ -14,11 +14,15 @@ package org.eclipse.ui.internal.services;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import org.eclipse.core.commands.util.Tracing;
 import org.eclipse.core.expressions.Expression;
 import org.eclipse.core.expressions.ExpressionInfo;
 import org.eclipse.core.expressions.IEvaluationContext;
@@ -38,6 +42,7 @@ import org.eclipse.ui.ISourceProvider;
 import org.eclipse.ui.ISourceProviderListener;
 import org.eclipse.ui.ISources;
 import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.misc.Policy;
 import org.eclipse.ui.services.IEvaluationReference;
 import org.eclipse.ui.services.IEvaluationService;
 
@@ -48,6 +53,13 @@ import org.eclipse.ui.services.IEvaluationService;
 public final class EvaluationService implements IEvaluationService {
 	public static final String DEFAULT_VAR = "org.eclipse.ui.internal.services.EvaluationService.default_var"; //$NON-NLS-1$
 	private static final String RE_EVAL = "org.eclipse.ui.internal.services.EvaluationService.evaluate"; //$NON-NLS-1$
+
+	/**
+	 * Whether to trace how many variables are propagated to the expressions.
+	 */
+	private static final boolean DEBUG_PERFORMANCE = Policy.DEBUG_SOURCES;
+
+	private static final String TRACING_COMPONENT = "SOURCES"; //$NON-NLS-1$
 	private boolean evaluate = false;
 	private ExpressionContext legacyContext;
 	private IEclipseContext context;
@@ -57,21 +69,53 @@ public final class EvaluationService implements IEvaluationService {
 	private ListenerList serviceListeners = new ListenerList(ListenerList.IDENTITY);
 	ArrayList<ISourceProvider> sourceProviders = new ArrayList<ISourceProvider>();
 	LinkedList<EvaluationReference> refs = new LinkedList<EvaluationReference>();
+
+	/**
+	 * The references indexed by the variable and property names their
+	 * expressions access, used by {@link #requestEvaluation(String)}.
+	 */
+	private Map<String, List<EvaluationReference>> refsByName = new HashMap<String, List<EvaluationReference>>();
 	private ISourceProviderListener contextUpdater;
 
 	private HashSet<String> ratVariables = new HashSet<String>();
+
+	/**
+	 * The values last copied into {@link #ratContext}, so that a run of the
+	 * {@link #ratUpdater} only has to update the variables that changed.
+	 */
+	private HashMap<String, Object> ratValues = new HashMap<String, Object>();
+
+	private int lastPropagatedCount;
+
+	private long propagatedCount;
+
 	private RunAndTrack ratUpdater = new RunAndTrack() {
 		@Override
 		public boolean changed(IEclipseContext context) {
 			context.get(RE_EVAL);
 			String[] vars = ratVariables.toArray(new String[ratVariables.size()]);
+			int propagated = 0;
 			for (String var : vars) {
+				// the lookup is needed even if nothing changed, to keep
+				// tracking the variable
 				Object value = context.getActive(var);
+				if (ratValues.get(var) == value) {
+					continue;
+				}
 				if (value == null) {
+					ratValues.remove(var);
 					ratContext.remove(var);
 				} else {
+					ratValues.put(var, value);
 					ratContext.set(var, value);
 				}
+				propagated++;
+			}
+			lastPropagatedCount = propagated;
+			propagatedCount += propagated;
+			if (DEBUG_PERFORMANCE && propagated > 0) {
+				Tracing.printTrace(TRACING_COMPONENT, propagated + " of " + vars.length //$NON-NLS-1$
+						+ " variables propagated"); //$NON-NLS-1$
 			}
 			return true;
 		}
@@ -134,6 +178,10 @@ public final class EvaluationService implements IEvaluationService {
 		if (name == null || variableFilter.contains(name)) {
 			return;
 		}
+		if (value != null && value == context.getLocal(name)) {
+			// unchanged, don't wake up the trackers of the variable
+			return;
+		}
 		if (value == null) {
 			legacyContext.removeVariable(name);
 		} else {
@@ -167,7 +215,6 @@ public final class EvaluationService implements IEvaluationService {
 				changeVariable(variableName, variableValue);
 			}
 		}
-		contextEvaluate();
 	}
 
 	/*
@@ -188,7 +235,6 @@ public final class EvaluationService implements IEvaluationService {
 			final String variableName = (String) entry.getKey();
 			changeVariable(variableName, null);
 		}
-		contextEvaluate();
 	}
 
 	/*
@@ -201,6 +247,7 @@ public final class EvaluationService implements IEvaluationService {
 			invalidate(ref, false);
 		}
 		refs.clear();
+		refsByName.clear();
 		serviceListeners.clear();
 	}
 
@@ -252,6 +299,7 @@ public final class EvaluationService implements IEvaluationService {
 	public void addEvaluationReference(IEvaluationReference ref) {
 		EvaluationReference eref = (EvaluationReference) ref;
 		refs.add(eref);
+		index(eref, true);
 		boolean changed = false;
 		if (eref.getExpression() != null) {
 			ExpressionInfo info = new ExpressionInfo();
@@ -268,21 +316,52 @@ public final class EvaluationService implements IEvaluationService {
 			}
 		}
 		if (changed) {
+			// copy the values of the new variables
 			contextEvaluate();
 		}
 		eref.participating = true;
 		ratContext.runAndTrack(eref);
 	}
 
+	/**
+	 * Add or remove the reference from {@link #refsByName} under every
+	 * variable and property name its expression accesses.
+	 */
+	private void index(EvaluationReference ref, boolean add) {
+		Expression expr = ref.getExpression();
+		if (expr == null) {
+			return;
+		}
+		ExpressionInfo info = expr.computeExpressionInfo();
+		LinkedHashSet<String> names = new LinkedHashSet<String>();
+		names.addAll(Arrays.asList(info.getAccessedPropertyNames()));
+		names.addAll(Arrays.asList(info.getAccessedVariableNames()));
+		for (String name : names) {
+			List<EvaluationReference> list = refsByName.get(name);
+			if (add) {
+				if (list == null) {
+					list = new ArrayList<EvaluationReference>(4);
+					refsByName.put(name, list);
+				}
+				list.add(ref);
+			} else if (list != null) {
+				list.remove(ref);
+				if (list.isEmpty()) {
+					refsByName.remove(name);
+				}
+			}
+		}
+	}
+
 	private void invalidate(IEvaluationReference ref, boolean remove) {
+		EvaluationReference eref = (EvaluationReference) ref;
 		if (remove) {
 			refs.remove(ref);
+			index(eref, false);
 		}
-		EvaluationReference eref = (EvaluationReference) ref;
 		eref.participating = false;
 		eref.evaluate();
 		eref.hasRun = false;
-		contextEvaluate();
 	}
 
 	/*
@@ -305,40 +384,48 @@ public final class EvaluationService implements IEvaluationService {
 		return legacyContext;
 	}
 
+	/**
+	 * Returns the number of variables whose value was copied to the
+	 * expressions in the last update, that is since the last batch of changes
+	 * to the workbench state. Variables whose value did not change are not
+	 * copied.
+	 *
+	 * @return the number of variables propagated in the last update
+	 */
+	public int getLastPropagatedCount() {
+		return lastPropagatedCount;
+	}
+
+	/**
+	 * Returns the number of variable values copied to the expressions since
+	 * this service was created.
+	 *
+	 * @return the total number of propagated variables
+	 */
+	public long getPropagatedCount() {
+		return propagatedCount;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.ui.services.IEvaluationService#requestEvaluation(java.lang.String)
 	 */
 	public void requestEvaluation(String propertyName) {
-		// Trigger evaluation of properties via context
+		// Trigger evaluation of properties via context. The value is new each
+		// time so that remembered visibleWhen results are not reused.
 		String pokeVar = propertyName + ".evaluationServiceLink"; //$NON-NLS-1$
 		context.remove(pokeVar);
-		context.set(pokeVar, "link"); //$NON-NLS-1$
+		context.set(pokeVar, new Object());
 
 		String[] sourceNames = new String[] { propertyName };
 		startSourceChange(sourceNames);
-		for (EvaluationReference ref : refs) {
-			Expression expr = ref.getExpression();
-			if (expr != null) {
-				boolean evaluated = false;
-				ExpressionInfo info = expr.computeExpressionInfo();
-				String[] names = info.getAccessedPropertyNames();
-				for (String name : names) {
-					if (propertyName.equals(name)) {
-						evaluated = true;
-						ref.evaluate();
-						break;
-					}
-				}
-				if (!evaluated) {
-					names = info.getAccessedVariableNames();
-					for (String name : names) {
-						if (propertyName.equals(name)) {
-							evaluated = true;
-							ref.evaluate();
-							break;
-						}
-					}
-				}
+		List<EvaluationReference> matches = refsByName.get(propertyName);
+		if (matches != null) {
+			// expressions shared between references are evaluated once per
+			// request
+			Map<Expression, Boolean> results = new HashMap<Expression, Boolean>();
+			for (EvaluationReference ref : matches.toArray(new EvaluationReference[matches
+					.size()])) {
+				ref.evaluate(results);
 			}
 		}
 		endSourceChange(sourceNames);
@@ -445,6 +445,31 @@ public class BindingLookupTest extends TestCase {
 		assertTrue(bs1.isPartialMatch(partialMatch));
 	}
 
+	public void testPartialMatchAfterDeactivate() throws Exception {
+		ECommandService cs = (ECommandService) workbenchContext
+				.get(ECommandService.class.getName());
+		ParameterizedCommand cmd = cs.createCommand(TEST_ID1, null);
+
+		EBindingService bs = (EBindingService) workbenchContext
+				.get(EBindingService.class.getName());
+		TriggerSequence seq = bs.createSequence("CTRL+5 T");
+		TriggerSequence partialMatch = bs.createSequence("CTRL+5");
+		Binding db = createDefaultBinding(bs, seq, cmd, ID_DIALOG_AND_WINDOW);
+
+		bs.activateBinding(db);
+		assertTrue(bs.isPartialMatch(partialMatch));
+		assertNull(bs.getPerfectMatch(partialMatch));
+		assertEquals(db, bs.getPerfectMatch(seq));
+
+		bs.deactivateBinding(db);
+		assertFalse(bs.isPartialMatch(partialMatch));
+		assertNull(bs.getPerfectMatch(seq));
+
+		bs.activateBinding(db);
+		assertTrue(bs.isPartialMatch(partialMatch));
+		assertEquals(db, bs.getPerfectMatch(seq));
+	}
+
 	public void testGetPartialMatches() throws Exception {
 		ECommandService cs = (ECommandService) workbenchContext
 				.get(ECommandService.class.getName());
@@ -24,9 +24,11 @@ import org.eclipse.e4.ui.tests.application.UIEventTypesTest;
 import org.eclipse.e4.ui.tests.reconciler.ModelReconcilerTestSuite;
 import org.eclipse.e4.ui.tests.workbench.Bug308317Test;
 import org.eclipse.e4.ui.tests.workbench.ContextTest;
+import org.eclipse.e4.ui.tests.workbench.ContributionsAnalyzerTest;
 import org.eclipse.e4.ui.tests.workbench.HandlerTest;
 import org.eclipse.e4.ui.tests.workbench.InjectionEventTest;
 import org.eclipse.e4.ui.tests.workbench.MMenuItemTest;
+import org.eclipse.e4.ui.tests.workbench.ModelAssemblerTest;
 import org.eclipse.e4.ui.tests.workbench.MPartSashContainerTest;
 import org.eclipse.e4.ui.tests.workbench.MPartTest;
 import org.eclipse.e4.ui.tests.workbench.MSashTest;
@@ -66,6 +68,7 @@ public class UIAllTests extends TestSuite {
 		addTestSuite(MSashTest.class);
 		addTestSuite(HandlerTest.class);
 		addTestSuite(ContextTest.class);
+		addTestSuite(ContributionsAnalyzerTest.class);
 		addTest(ModelReconcilerTestSuite.suite());
 		addTestSuite(Bug308317Test.class);
 		addTestSuite(ModelRobustnessTest.class);
@@ -73,6 +76,7 @@ public class UIAllTests extends TestSuite {
 		addTestSuite(InjectionEventTest.class);
 		addTestSuite(PartFocusTest.class);
 		addTestSuite(ModelElementTest.class);
+		addTestSuite(ModelAssemblerTest.class);
 		addTestSuite(StackRendererTest.class);
 		addTestSuite(TabStateHandlerTest.class);
 		// addTestSuite(SWTPartRendererTest.class);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2012 IBM Corporation and others.
+ * Copyright (c) 2010, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,15 +11,19 @@
 
 package org.eclipse.e4.ui.tests.application;
 
+import java.util.Iterator;
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.ui.internal.workbench.E4Workbench;
 import org.eclipse.e4.ui.internal.workbench.E4XMIResource;
+import org.eclipse.e4.ui.internal.workbench.ModelAssembler;
 import org.eclipse.e4.ui.internal.workbench.ResourceHandler;
 import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.osgi.service.datalocation.Location;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Filter;
@@ -52,6 +56,11 @@ public class ResourceHandlerTest extends HeadlessStartupTest {
 	}
 
 	private ResourceHandler createHandler(URI uri) {
+		return ContextInjectionFactory.make(ResourceHandler.class,
+				createHandlerContext(uri));
+	}
+
+	private IEclipseContext createHandlerContext(URI uri) {
 		IEclipseContext localContext = applicationContext.createChild();
 		localContext.set(E4Workbench.INSTANCE_LOCATION, getInstanceLocation());
 		localContext.set(E4Workbench.PERSIST_STATE, Boolean.TRUE);
@@ -60,9 +69,7 @@ public class ResourceHandlerTest extends HeadlessStartupTest {
 
 		localContext.set(E4Workbench.INITIAL_WORKBENCH_MODEL_URI, uri);
 
-		return ContextInjectionFactory
-				.make(ResourceHandler.class, localContext);
-
+		return localContext;
 	}
 
 	// TBD the test is not valid - resource handler does not know how to create
@@ -162,4 +169,63 @@ public class ResourceHandlerTest extends HeadlessStartupTest {
 				.getChildren().get(0).getChildren().get(7).getElementId());
 	}
 
+	public void testUnchangedFragmentsNotMerged() {
+		URI uri = URI.createPlatformPluginURI(
+				"org.eclipse.e4.ui.tests/xmi/modelprocessor/base.e4xmi", true);
+		IEclipseContext localContext = createHandlerContext(uri);
+		localContext.set(E4Workbench.PARALLEL_MODEL_ASSEMBLY, Boolean.TRUE);
+
+		Resource resource = ContextInjectionFactory.make(ResourceHandler.class,
+				localContext).loadMostRecentModel();
+		MApplication application = (MApplication) resource.getContents().get(0);
+		assertEquals(1, removeContributedWindows(application));
+		assertNotNull(application.getPersistedState().get(FRAGMENTS_KEY));
+
+		// the same fragments again, the merge is skipped
+		processModel(localContext, resource);
+		assertEquals(0, removeContributedWindows(application));
+
+		// a serial run merges and drops the key
+		localContext.set(E4Workbench.PARALLEL_MODEL_ASSEMBLY, Boolean.FALSE);
+		processModel(localContext, resource);
+		assertEquals(1, removeContributedWindows(application));
+		assertNull(application.getPersistedState().get(FRAGMENTS_KEY));
+
+		// so the next parallel run merges again
+		localContext.set(E4Workbench.PARALLEL_MODEL_ASSEMBLY, Boolean.TRUE);
+		processModel(localContext, resource);
+		assertEquals(1, removeContributedWindows(application));
+		assertNotNull(application.getPersistedState().get(FRAGMENTS_KEY));
+	}
+
+	private static final String FRAGMENTS_KEY = "modelAssembler.fragments";
+
+	/**
+	 * Run the model assembler again, as on a restart that reads the fragment
+	 * resources again.
+	 */
+	private void processModel(IEclipseContext context, Resource resource) {
+		ResourceSet resourceSet = resource.getResourceSet();
+		for (Iterator<Resource> it = resourceSet.getResources().iterator(); it
+				.hasNext();) {
+			if (it.next() != resource) {
+				it.remove();
+			}
+		}
+		ContextInjectionFactory.make(ModelAssembler.class, context)
+				.processModel();
+	}
+
+	private int removeContributedWindows(MApplication application) {
+		int removed = 0;
+		for (Iterator<MWindow> it = application.getChildren().iterator(); it
+				.hasNext();) {
+			if ("fragment.contributedWindow".equals(it.next().getElementId())) {
+				it.remove();
+				removed++;
+			}
+		}
+		return removed;
+	}
+
 }
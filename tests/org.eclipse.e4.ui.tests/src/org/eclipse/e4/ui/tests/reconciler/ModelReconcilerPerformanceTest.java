@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.reconciler;
+
+import java.util.Collection;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MStackElement;
+import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
+import org.eclipse.e4.ui.model.application.ui.basic.MWindowElement;
+import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
+import org.eclipse.e4.ui.workbench.modeling.ModelDelta;
+import org.eclipse.e4.ui.workbench.modeling.ModelReconciler;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+
+/**
+ * Measures the construction and application of synthetic deltas on large
+ * models.
+ */
+public abstract class ModelReconcilerPerformanceTest extends
+		ModelReconcilerTest {
+
+	private static final int PARTS_PER_STACK = 100;
+
+	private static final int ITERATIONS = 5;
+
+	private void testPart_Label(int count) {
+		MApplication application = createApplication();
+		MWindow window = createWindow(application);
+
+		for (int i = 0; i < count / PARTS_PER_STACK; i++) {
+			MPartStack stack = BasicFactoryImpl.eINSTANCE.createPartStack();
+			for (int j = 0; j < PARTS_PER_STACK; j++) {
+				MPart part = BasicFactoryImpl.eINSTANCE.createPart();
+				part.setLabel("name");
+				stack.getChildren().add(part);
+			}
+			window.getChildren().add(stack);
+		}
+
+		saveModel();
+
+		ModelReconciler reconciler = createModelReconciler();
+		reconciler.recordChanges(application);
+
+		for (MWindowElement stack : window.getChildren()) {
+			MPartStack partStack = (MPartStack) stack;
+			for (MStackElement part : partStack.getChildren()) {
+				((MPart) part).setLabel("customName");
+			}
+			// indirect references are resolved by delayed deltas
+			partStack.setSelectedElement(partStack.getChildren().get(
+					PARTS_PER_STACK - 1));
+		}
+
+		Object serializedState = reconciler.serialize();
+
+		Performance performance = Performance.getDefault();
+		PerformanceMeter meter = performance.createPerformanceMeter(performance
+				.getDefaultScenarioId(this));
+		try {
+			for (int i = 0; i < ITERATIONS; i++) {
+				application = createApplication();
+				window = application.getChildren().get(0);
+
+				meter.start();
+				Collection<ModelDelta> deltas = constructDeltas(application,
+						serializedState);
+				applyAll(deltas);
+				meter.stop();
+			}
+			meter.commit();
+			performance.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+
+		assertEquals(count / PARTS_PER_STACK, window.getChildren().size());
+		for (MWindowElement stack : window.getChildren()) {
+			MPartStack partStack = (MPartStack) stack;
+			for (MStackElement part : partStack.getChildren()) {
+				assertEquals("customName", ((MPart) part).getLabel());
+			}
+			assertEquals(partStack.getChildren().get(PARTS_PER_STACK - 1),
+					partStack.getSelectedElement());
+		}
+	}
+
+	public void testPart_Label_10000() {
+		testPart_Label(10000);
+	}
+
+	public void testPart_Label_100000() {
+		testPart_Label(100000);
+	}
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.reconciler;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import org.eclipse.e4.ui.tests.reconciler.xml.XMLModelReconcilerPerformanceTest;
+
+/**
+ * The performance tests of the model reconciler. They are run by the
+ * <code>performance</code> target of the test script and not as part of
+ * {@link org.eclipse.e4.ui.tests.UIAllTests}.
+ */
+public class ModelReconcilerPerformanceTestSuite extends TestSuite {
+
+	public static Test suite() {
+		return new ModelReconcilerPerformanceTestSuite();
+	}
+
+	public ModelReconcilerPerformanceTestSuite() {
+		addTestSuite(XMLModelReconcilerPerformanceTest.class);
+	}
+
+}
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.reconciler.xml;
+
+import org.eclipse.e4.ui.internal.workbench.ModelReconcilingService;
+import org.eclipse.e4.ui.tests.reconciler.ModelReconcilerPerformanceTest;
+import org.eclipse.e4.ui.workbench.modeling.IModelReconcilingService;
+
+public class XMLModelReconcilerPerformanceTest extends
+		ModelReconcilerPerformanceTest {
+
+	@Override
+	protected IModelReconcilingService getModelReconcilingService() {
+		return new ModelReconcilingService();
+	}
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.workbench;
+
+import java.lang.ref.WeakReference;
+import junit.framework.TestCase;
+import org.eclipse.core.expressions.EvaluationResult;
+import org.eclipse.core.expressions.Expression;
+import org.eclipse.core.expressions.ExpressionInfo;
+import org.eclipse.core.expressions.IEvaluationContext;
+import org.eclipse.e4.core.commands.ExpressionContext;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.ui.internal.workbench.ContributionsAnalyzer;
+import org.eclipse.e4.ui.model.application.ui.MCoreExpression;
+import org.eclipse.e4.ui.model.application.ui.impl.UiFactoryImpl;
+
+/**
+ * Tests that the remembered results of visibleWhen expressions are only
+ * reused while the variables they depend on are unchanged.
+ */
+public class ContributionsAnalyzerTest extends TestCase {
+
+	private static final String VARIABLE = "org.eclipse.e4.ui.tests.visible";
+
+	/**
+	 * Visible if the variable is <code>true</code>; counts its evaluations.
+	 */
+	private static class CountingExpression extends Expression {
+		int evaluations;
+
+		@Override
+		public EvaluationResult evaluate(IEvaluationContext context) {
+			evaluations++;
+			return EvaluationResult.valueOf(Boolean.TRUE.equals(context
+					.getVariable(VARIABLE)));
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			info.addVariableNameAccess(VARIABLE);
+		}
+	}
+
+	private IEclipseContext context;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		context = EclipseContextFactory.create();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		context.dispose();
+		super.tearDown();
+	}
+
+	public void testVariableChange() {
+		CountingExpression expression = new CountingExpression();
+		MCoreExpression visibleWhen = UiFactoryImpl.eINSTANCE
+				.createCoreExpression();
+		visibleWhen.setCoreExpression(expression);
+		ExpressionContext eContext = new ExpressionContext(context);
+
+		context.set(VARIABLE, Boolean.TRUE);
+		assertTrue(ContributionsAnalyzer.isVisible(visibleWhen, eContext));
+		assertEquals(1, expression.evaluations);
+
+		// unchanged variables, the result is reused
+		int reuses = ContributionsAnalyzer.getVisibleWhenReuses();
+		assertTrue(ContributionsAnalyzer.isVisible(visibleWhen, eContext));
+		assertEquals(1, expression.evaluations);
+		assertEquals(reuses + 1, ContributionsAnalyzer.getVisibleWhenReuses());
+
+		// a changed variable is evaluated again
+		context.set(VARIABLE, Boolean.FALSE);
+		assertFalse(ContributionsAnalyzer.isVisible(visibleWhen, eContext));
+		assertEquals(2, expression.evaluations);
+
+		context.set(VARIABLE, Boolean.TRUE);
+		assertTrue(ContributionsAnalyzer.isVisible(visibleWhen, eContext));
+		assertEquals(3, expression.evaluations);
+
+		// as is a removed one
+		context.remove(VARIABLE);
+		assertFalse(ContributionsAnalyzer.isVisible(visibleWhen, eContext));
+		assertEquals(4, expression.evaluations);
+	}
+
+	public void testPropertyTesterEvaluatedEveryTime() {
+		final boolean[] testerState = new boolean[] { true };
+		CountingExpression expression = new CountingExpression() {
+			@Override
+			public EvaluationResult evaluate(IEvaluationContext context) {
+				super.evaluate(context);
+				// a property tester looking at state outside of the context
+				return EvaluationResult.valueOf(testerState[0]);
+			}
+
+			@Override
+			public void collectExpressionInfo(ExpressionInfo info) {
+				super.collectExpressionInfo(info);
+				info.addAccessedPropertyName("org.eclipse.e4.ui.tests.property");
+			}
+		};
+		MCoreExpression visibleWhen = UiFactoryImpl.eINSTANCE
+				.createCoreExpression();
+		visibleWhen.setCoreExpression(expression);
+		ExpressionContext eContext = new ExpressionContext(context);
+		context.set(VARIABLE, Boolean.TRUE);
+
+		assertTrue(ContributionsAnalyzer.isVisible(visibleWhen, eContext));
+		assertEquals(1, expression.evaluations);
+
+		// the variables are unchanged, but the tester answers differently
+		testerState[0] = false;
+		assertFalse(ContributionsAnalyzer.isVisible(visibleWhen, eContext));
+		assertEquals(2, expression.evaluations);
+	}
+
+	public void testValuesNotRetained() {
+		CountingExpression expression = new CountingExpression();
+		MCoreExpression visibleWhen = UiFactoryImpl.eINSTANCE
+				.createCoreExpression();
+		visibleWhen.setCoreExpression(expression);
+		IEclipseContext child = context.createChild();
+		Object value = new Object();
+		WeakReference<Object> reference = new WeakReference<Object>(value);
+		child.set(VARIABLE, value);
+
+		assertFalse(ContributionsAnalyzer.isVisible(visibleWhen,
+				new ExpressionContext(child)));
+		child.dispose();
+		value = null;
+
+		// the remembered result must not keep the value alive
+		for (int i = 0; i < 20 && reference.get() != null; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+		assertNull(reference.get());
+
+		// and a collected value never matches
+		context.set(VARIABLE, Boolean.TRUE);
+		assertTrue(ContributionsAnalyzer.isVisible(visibleWhen,
+				new ExpressionContext(context)));
+		assertEquals(2, expression.evaluations);
+	}
+}
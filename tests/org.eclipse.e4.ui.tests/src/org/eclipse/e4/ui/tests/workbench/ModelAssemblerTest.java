@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.workbench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+import org.eclipse.e4.ui.internal.workbench.E4XMIResourceFactory;
+import org.eclipse.e4.ui.internal.workbench.ModelAssembler;
+import org.eclipse.e4.ui.model.fragment.MFragmentFactory;
+import org.eclipse.e4.ui.model.fragment.MModelFragments;
+import org.eclipse.e4.ui.model.fragment.MStringModelFragment;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+
+/**
+ * Tests the concurrent loading of the model fragments and the key recording which fragments
+ * have been merged.
+ */
+public class ModelAssemblerTest extends TestCase {
+
+	private static final int FRAGMENT_COUNT = 20;
+
+	private File folder;
+
+	private ResourceSet resourceSet;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		folder = File.createTempFile("modelAssembler", "");
+		folder.delete();
+		folder.mkdirs();
+		resourceSet = createResourceSet();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files = folder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		folder.delete();
+		super.tearDown();
+	}
+
+	public void testLoadResourcesInOrder() throws Exception {
+		List<URI> uris = new ArrayList<URI>();
+		for (int i = 0; i < FRAGMENT_COUNT; i++) {
+			uris.add(createFragment("fragment" + i, "feature" + i));
+		}
+
+		Resource[] resources = ModelAssembler.loadResources(uris, resourceSet, null);
+
+		assertEquals(FRAGMENT_COUNT, resources.length);
+		for (int i = 0; i < FRAGMENT_COUNT; i++) {
+			assertEquals(uris.get(i), resources[i].getURI());
+			assertEquals("feature" + i, getFeatureName(resources[i]));
+			// the caller attaches the resources
+			assertNotSame(resourceSet, resources[i].getResourceSet());
+		}
+	}
+
+	public void testLoadResourcesOnce() throws Exception {
+		URI first = createFragment("first", "a");
+		URI second = createFragment("second", "b");
+		Resource existing = resourceSet.getResource(second, true);
+
+		Resource[] resources = ModelAssembler.loadResources(
+				Arrays.asList(first, second, first), resourceSet, null);
+
+		assertSame(resources[0], resources[2]);
+		assertSame(existing, resources[1]);
+	}
+
+	public void testLoadMissingResource() throws Exception {
+		URI first = createFragment("first", "a");
+		URI missing = URI.createFileURI(new File(folder, "missing.e4xmi").getAbsolutePath());
+
+		Resource[] resources = ModelAssembler.loadResources(Arrays.asList(missing, first),
+				resourceSet, null);
+
+		assertNull(resources[0]);
+		assertEquals("a", getFeatureName(resources[1]));
+	}
+
+	public void testLoadNoResources() {
+		assertEquals(0,
+				ModelAssembler.loadResources(new ArrayList<URI>(), resourceSet, null).length);
+	}
+
+	public void testFragmentsKey() throws Exception {
+		URI first = createFragment("first", "a");
+		URI second = createFragment("second", "b");
+		List<URI> uris = Arrays.asList(first, second);
+
+		String key = ModelAssembler.computeFragmentsKey(uris, resourceSet.getURIConverter());
+		assertNotNull(key);
+		assertEquals(key,
+				ModelAssembler.computeFragmentsKey(uris, resourceSet.getURIConverter()));
+
+		// the order of the fragments matters
+		assertFalse(key.equals(ModelAssembler.computeFragmentsKey(Arrays.asList(second, first),
+				resourceSet.getURIConverter())));
+
+		// so does an edit, even under the same URI
+		createFragment("second", "edited");
+		assertFalse(key.equals(ModelAssembler.computeFragmentsKey(uris,
+				resourceSet.getURIConverter())));
+	}
+
+	public void testFragmentsKeyMissingResource() throws Exception {
+		URI first = createFragment("first", "a");
+		URI missing = URI.createFileURI(new File(folder, "missing.e4xmi").getAbsolutePath());
+
+		assertNull(ModelAssembler.computeFragmentsKey(Arrays.asList(first, missing),
+				resourceSet.getURIConverter()));
+	}
+
+	private ResourceSet createResourceSet() {
+		ResourceSet set = new ResourceSetImpl();
+		set.getResourceFactoryRegistry().getExtensionToFactoryMap()
+				.put(Resource.Factory.Registry.DEFAULT_EXTENSION, new E4XMIResourceFactory());
+		return set;
+	}
+
+	private URI createFragment(String name, String featureName) throws IOException {
+		MModelFragments fragments = MFragmentFactory.INSTANCE.createModelFragments();
+		MStringModelFragment fragment = MFragmentFactory.INSTANCE.createStringModelFragment();
+		fragment.setFeaturename(featureName);
+		fragments.getFragments().add(fragment);
+
+		File file = new File(folder, name + ".e4xmi");
+		Resource resource = createResourceSet().createResource(
+				URI.createFileURI(file.getAbsolutePath()));
+		resource.getContents().add((EObject) fragments);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			resource.save(out, null);
+		} finally {
+			out.close();
+		}
+		return resource.getURI();
+	}
+
+	private String getFeatureName(Resource resource) {
+		MModelFragments fragments = (MModelFragments) resource.getContents().get(0);
+		return ((MStringModelFragment) fragments.getFragments().get(0)).getFeaturename();
+	}
+}
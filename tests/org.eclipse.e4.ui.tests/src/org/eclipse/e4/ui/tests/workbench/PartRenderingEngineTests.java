@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 IBM Corporation and others.
+ * Copyright (c) 2009, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,11 +11,18 @@
 
 package org.eclipse.e4.ui.tests.workbench;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import junit.framework.TestCase;
+import org.eclipse.core.runtime.RegistryFactory;
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.ui.internal.workbench.E4Workbench;
+import org.eclipse.e4.ui.internal.workbench.ReflectionContributionFactory;
 import org.eclipse.e4.ui.internal.workbench.swt.E4Application;
+import org.eclipse.e4.ui.internal.workbench.swt.PartPreparationJob;
 import org.eclipse.e4.ui.internal.workbench.swt.PartRenderingEngine;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.descriptor.basic.MPartDescriptor;
@@ -3380,4 +3387,173 @@ public class PartRenderingEngineTests extends TestCase {
 		assertNull(part.getObject());
 		assertNull(part.getContext());
 	}
+
+	public void testDeferredRendering_HiddenStack() {
+		appContext.set(E4Workbench.DEFERRED_RENDERING, Boolean.TRUE);
+
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		MWindow window = BasicFactoryImpl.eINSTANCE.createWindow();
+		application.getChildren().add(window);
+		application.setSelectedElement(window);
+
+		MPartSashContainer container = BasicFactoryImpl.eINSTANCE
+				.createPartSashContainer();
+		window.getChildren().add(container);
+		window.setSelectedElement(container);
+
+		MPartStack visibleStack = BasicFactoryImpl.eINSTANCE.createPartStack();
+		container.getChildren().add(visibleStack);
+		container.setSelectedElement(visibleStack);
+
+		MPart visiblePart = BasicFactoryImpl.eINSTANCE.createPart();
+		visibleStack.getChildren().add(visiblePart);
+		visibleStack.setSelectedElement(visiblePart);
+
+		MPartStack hiddenStack = BasicFactoryImpl.eINSTANCE.createPartStack();
+		hiddenStack.setVisible(false);
+		container.getChildren().add(hiddenStack);
+
+		MPart hiddenPart = BasicFactoryImpl.eINSTANCE.createPart();
+		hiddenStack.getChildren().add(hiddenPart);
+		hiddenStack.setSelectedElement(hiddenPart);
+
+		application.setContext(appContext);
+		appContext.set(MApplication.class.getName(), application);
+
+		wb = new E4Workbench(application, appContext);
+		wb.createAndRunUI(window);
+
+		PartRenderingEngine engine = (PartRenderingEngine) appContext
+				.get(IPresentationEngine.class.getName());
+		assertNotNull(visiblePart.getWidget());
+		assertNull(hiddenStack.getWidget());
+		assertNull(hiddenPart.getWidget());
+		assertEquals(1, engine.getUnrealizedCount());
+
+		hiddenStack.setVisible(true);
+		assertNotNull(hiddenStack.getWidget());
+		assertNotNull(hiddenPart.getWidget());
+		assertEquals(0, engine.getUnrealizedCount());
+	}
+
+	public void testDeferredRendering_RemovedElement() {
+		appContext.set(E4Workbench.DEFERRED_RENDERING, Boolean.TRUE);
+
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		MWindow window = BasicFactoryImpl.eINSTANCE.createWindow();
+		application.getChildren().add(window);
+		application.setSelectedElement(window);
+
+		MPartSashContainer container = BasicFactoryImpl.eINSTANCE
+				.createPartSashContainer();
+		window.getChildren().add(container);
+		window.setSelectedElement(container);
+
+		MPartStack visibleStack = BasicFactoryImpl.eINSTANCE.createPartStack();
+		container.getChildren().add(visibleStack);
+		container.setSelectedElement(visibleStack);
+
+		MPart visiblePart = BasicFactoryImpl.eINSTANCE.createPart();
+		visibleStack.getChildren().add(visiblePart);
+		visibleStack.setSelectedElement(visiblePart);
+
+		MPartSashContainer innerContainer = BasicFactoryImpl.eINSTANCE
+				.createPartSashContainer();
+		container.getChildren().add(innerContainer);
+
+		MPartStack hiddenStack = BasicFactoryImpl.eINSTANCE.createPartStack();
+		hiddenStack.setVisible(false);
+		container.getChildren().add(hiddenStack);
+
+		MPartStack nestedStack = BasicFactoryImpl.eINSTANCE.createPartStack();
+		nestedStack.setVisible(false);
+		innerContainer.getChildren().add(nestedStack);
+
+		application.setContext(appContext);
+		appContext.set(MApplication.class.getName(), application);
+
+		wb = new E4Workbench(application, appContext);
+		wb.createAndRunUI(window);
+
+		PartRenderingEngine engine = (PartRenderingEngine) appContext
+				.get(IPresentationEngine.class.getName());
+		assertEquals(2, engine.getUnrealizedCount());
+
+		// removing the element itself
+		container.getChildren().remove(hiddenStack);
+		assertEquals(1, engine.getUnrealizedCount());
+
+		// removing a container of the element
+		container.getChildren().remove(innerContainer);
+		assertEquals(0, engine.getUnrealizedCount());
+		assertNull(nestedStack.getWidget());
+	}
+
+	public void testPreparePartsInBackground() {
+		appContext.set(E4Workbench.PREPARE_PARTS_IN_BACKGROUND, Boolean.TRUE);
+
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		MWindow window = BasicFactoryImpl.eINSTANCE.createWindow();
+		application.getChildren().add(window);
+		application.setSelectedElement(window);
+
+		MPartStack stack = BasicFactoryImpl.eINSTANCE.createPartStack();
+		window.getChildren().add(stack);
+		window.setSelectedElement(stack);
+
+		MPart partA = BasicFactoryImpl.eINSTANCE.createPart();
+		partA.setContributionURI("bundleclass://org.eclipse.e4.ui.tests/org.eclipse.e4.ui.tests.workbench.SampleView");
+		stack.getChildren().add(partA);
+		stack.setSelectedElement(partA);
+
+		MPart partB = BasicFactoryImpl.eINSTANCE.createPart();
+		partB.setContributionURI("bundleclass://org.eclipse.e4.ui.tests/org.eclipse.e4.ui.tests.workbench.NotRendered");
+		stack.getChildren().add(partB);
+
+		// only the parts that will be rendered are prepared
+		Set<String> uris = PartPreparationJob.collectContributionURIs(window);
+		assertEquals(1, uris.size());
+		assertTrue(uris.contains(partA.getContributionURI()));
+
+		application.setContext(appContext);
+		appContext.set(MApplication.class.getName(), application);
+
+		wb = new E4Workbench(application, appContext);
+		wb.createAndRunUI(window);
+
+		assertTrue(partA.getObject() instanceof SampleView);
+		assertNull(partB.getObject());
+	}
+
+	public void testPartPreparationJob() throws Exception {
+		final Map<String, Boolean> prepared = new HashMap<String, Boolean>();
+		ReflectionContributionFactory factory = new ReflectionContributionFactory(
+				RegistryFactory.getRegistry()) {
+			@Override
+			public boolean prepare(String uriString) {
+				boolean loaded = super.prepare(uriString);
+				synchronized (prepared) {
+					prepared.put(uriString, Boolean.valueOf(loaded));
+				}
+				return loaded;
+			}
+		};
+
+		String sampleView = "bundleclass://org.eclipse.e4.ui.tests/org.eclipse.e4.ui.tests.workbench.SampleView";
+		String missing = "bundleclass://org.eclipse.e4.ui.tests/org.eclipse.e4.ui.tests.workbench.Missing";
+		Set<String> uris = new LinkedHashSet<String>();
+		uris.add(sampleView);
+		uris.add(missing);
+
+		PartPreparationJob job = new PartPreparationJob(factory, uris);
+		job.schedule();
+		job.join();
+
+		assertTrue(job.getResult().isOK());
+		assertEquals(Boolean.TRUE, prepared.get(sampleView));
+		assertEquals(Boolean.FALSE, prepared.get(missing));
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2009 IBM Corporation and others.
+ * Copyright (c) 2003, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@ import java.util.Iterator;
 import java.util.Set;
 
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.jface.viewers.ILabelProvider;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.ui.internal.navigator.NavigatorContentService;
@@ -111,6 +112,58 @@ public class INavigatorContentServiceTests extends NavigatorTestBase {
 
 	}
 
+	public void testTriggerPointsAfterActivationChange() {
+
+		_contentService.getActivationService().activateExtensions(
+				new String[] { TEST_CONTENT, COMMON_NAVIGATOR_RESOURCE_EXT },
+				true);
+
+		assertEquals("Ensure there are two content providers for an IProject.",
+				2, _contentService.findContentExtensionsByTriggerPoint(_project)
+						.size());
+		assertEquals("Ensure the same content providers are found again.", 2,
+				_contentService.findContentExtensionsByTriggerPoint(_project)
+						.size());
+
+		_contentService.getActivationService().activateExtensions(
+				new String[] { COMMON_NAVIGATOR_RESOURCE_EXT }, true);
+
+		assertEquals("Ensure there is one content provider for an IProject.",
+				1, _contentService.findContentExtensionsByTriggerPoint(_project)
+						.size());
+
+	}
+
+	public void testTriggerPointsAfterStateChange() throws Exception {
+
+		QualifiedName state = new QualifiedName(
+				"org.eclipse.ui.tests.navigator", "state");
+
+		_contentService.bindExtensions(new String[] { TEST_CONTENT_STATE },
+				false);
+		_contentService.getActivationService().activateExtensions(
+				new String[] { TEST_CONTENT_STATE }, true);
+
+		assertEquals("Ensure there is no content provider for an IProject.",
+				0, _contentService.findContentExtensionsByTriggerPoint(_project)
+						.size());
+
+		_project.setSessionProperty(state, "true");
+		try {
+			assertEquals(
+					"Ensure the content provider is found once the project state changed.",
+					1, _contentService.findContentExtensionsByTriggerPoint(
+							_project).size());
+		} finally {
+			_project.setSessionProperty(state, null);
+		}
+
+		assertEquals("Ensure the content provider is gone again.", 0,
+				_contentService.findContentExtensionsByTriggerPoint(_project)
+						.size());
+
+	}
+
 	public void testBindTestExtension() {
 
 		INavigatorContentService contentServiceWithProgrammaticBindings = NavigatorContentServiceFactory.INSTANCE
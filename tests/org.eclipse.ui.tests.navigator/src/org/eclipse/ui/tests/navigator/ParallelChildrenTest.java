@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.navigator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.ui.navigator.INavigatorContentExtension;
+import org.eclipse.ui.navigator.INavigatorContentService;
+import org.eclipse.ui.navigator.NavigatorContentServiceFactory;
+import org.eclipse.ui.tests.navigator.extension.TestParallelContentProvider;
+
+/**
+ * Tests fetching the children of thread safe content extensions concurrently.
+ */
+public class ParallelChildrenTest extends NavigatorTestBase {
+
+	private static final String PARALLEL_VIEWER = "org.eclipse.ui.tests.navigator.ParallelChildrenViewer";
+	private static final String SERIAL_VIEWER = "org.eclipse.ui.tests.navigator.SerialChildrenViewer";
+
+	private static final String TEST_PARALLEL_A = "org.eclipse.ui.tests.navigator.testParallel.a";
+	private static final String TEST_PARALLEL_B = "org.eclipse.ui.tests.navigator.testParallel.b";
+	private static final String TEST_PARALLEL_C = "org.eclipse.ui.tests.navigator.testParallel.c";
+	private static final String TEST_PARALLEL_UNSAFE = "org.eclipse.ui.tests.navigator.testParallel.unsafe";
+
+	private static final String[] TEST_PARALLEL = new String[] { TEST_PARALLEL_A,
+			TEST_PARALLEL_B, TEST_PARALLEL_C, TEST_PARALLEL_UNSAFE };
+
+	private INavigatorContentService _service;
+
+	public ParallelChildrenTest() {
+		_navigatorInstanceId = TEST_VIEWER;
+	}
+
+	protected void tearDown() throws Exception {
+		if (_service != null) {
+			_service.dispose();
+			_service = null;
+		}
+		super.tearDown();
+	}
+
+	private ITreeContentProvider createContentProvider(String viewerId) {
+		_service = NavigatorContentServiceFactory.INSTANCE
+				.createContentService(viewerId);
+		_service.getActivationService().activateExtensions(TEST_PARALLEL, true);
+		for (int i = 0; i < TEST_PARALLEL.length; i++) {
+			getProvider(TEST_PARALLEL[i]).resetTest(
+					TEST_PARALLEL[i].substring(TEST_PARALLEL[i].lastIndexOf('.') + 1));
+		}
+		return _service.createCommonContentProvider();
+	}
+
+	private TestParallelContentProvider getProvider(String extensionId) {
+		return (TestParallelContentProvider) _service.getContentExtensionById(
+				extensionId).getContentProvider();
+	}
+
+	/**
+	 * @return The children of all the extensions in the order of the
+	 *         extensions, leaving out the given one.
+	 */
+	private List getExpectedChildren(String excludedId) {
+		List expected = new ArrayList();
+		for (Iterator i = _service.findContentExtensionsByTriggerPoint(_project)
+				.iterator(); i.hasNext();) {
+			INavigatorContentExtension ext = (INavigatorContentExtension) i.next();
+			if (!ext.getId().equals(excludedId)) {
+				expected.addAll(Arrays.asList(ext.getContentProvider().getChildren(_project)));
+			}
+		}
+		return expected;
+	}
+
+	private String getFirstId() {
+		return ((INavigatorContentExtension) _service
+				.findContentExtensionsByTriggerPoint(_project).iterator().next()).getId();
+	}
+
+	public void testThreadSafeChildrenFetchedInJobs() {
+		ITreeContentProvider contentProvider = createContentProvider(PARALLEL_VIEWER);
+
+		Object[] children = contentProvider.getChildren(_project);
+
+		assertEquals(8, children.length);
+		Thread current = Thread.currentThread();
+		assertNotSame(current, getProvider(TEST_PARALLEL_A)._thread);
+		assertNotSame(current, getProvider(TEST_PARALLEL_B)._thread);
+		assertNotSame(current, getProvider(TEST_PARALLEL_C)._thread);
+		assertSame("The extension without threadSafe must be asked on the calling thread",
+				current, getProvider(TEST_PARALLEL_UNSAFE)._thread);
+	}
+
+	public void testChildrenFetchedInlineWithoutViewerProperty() {
+		ITreeContentProvider contentProvider = createContentProvider(SERIAL_VIEWER);
+
+		Object[] children = contentProvider.getChildren(_project);
+
+		assertEquals(8, children.length);
+		Thread current = Thread.currentThread();
+		for (int i = 0; i < TEST_PARALLEL.length; i++) {
+			assertSame(TEST_PARALLEL[i] + " must be asked on the calling thread",
+					current, getProvider(TEST_PARALLEL[i])._thread);
+		}
+	}
+
+	public void testChildrenMergedInExtensionOrder() {
+		ITreeContentProvider contentProvider = createContentProvider(PARALLEL_VIEWER);
+		List expected = getExpectedChildren(null);
+
+		// the first extension finishes last
+		getProvider(getFirstId())._delay = 300;
+		assertEquals(expected, Arrays.asList(contentProvider.getChildren(_project)));
+
+		// and the same children come in the same order once it is fast again
+		getProvider(getFirstId())._delay = 0;
+		assertEquals(expected, Arrays.asList(contentProvider.getChildren(_project)));
+	}
+
+	public void testFailingExtensionLeftOut() {
+		ITreeContentProvider contentProvider = createContentProvider(PARALLEL_VIEWER);
+		List expected = getExpectedChildren(TEST_PARALLEL_B);
+
+		getProvider(TEST_PARALLEL_B)._throw = true;
+		List children = Arrays.asList(contentProvider.getChildren(_project));
+
+		assertFalse("A failing extension must not contribute null", children.contains(null));
+		assertEquals(expected, children);
+	}
+
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.navigator.extension;
+
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.Viewer;
+
+/**
+ * Returns two children named after the content provider, and records the
+ * thread it was asked for them on.
+ */
+public class TestParallelContentProvider implements ITreeContentProvider {
+
+	public String _name = "Parallel";
+
+	public long _delay;
+
+	public boolean _throw;
+
+	public Thread _thread;
+
+	public void resetTest(String name) {
+		_name = name;
+		_delay = 0;
+		_throw = false;
+		_thread = null;
+	}
+
+	public Object[] getChildren(Object parentElement) {
+		_thread = Thread.currentThread();
+		if (_delay > 0) {
+			try {
+				Thread.sleep(_delay);
+			} catch (InterruptedException e) {
+				// return the children anyway
+			}
+		}
+		if (_throw)
+			throw new RuntimeException("Throwing...");
+		return new Object[] { _name + "1", _name + "2" };
+	}
+
+	public Object getParent(Object element) {
+		return null;
+	}
+
+	public boolean hasChildren(Object element) {
+		return true;
+	}
+
+	public Object[] getElements(Object inputElement) {
+		return getChildren(inputElement);
+	}
+
+	public void dispose() {}
+	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {}
+
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,8 +16,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
+import org.eclipse.core.commands.Category;
 import org.eclipse.core.commands.Command;
 import org.eclipse.core.commands.CommandManager;
+import org.eclipse.core.commands.CommandManagerEvent;
+import org.eclipse.core.commands.ICommandManagerListener;
 import org.eclipse.core.commands.ParameterizedCommand;
 import org.eclipse.core.commands.common.NotDefinedException;
 import org.eclipse.core.commands.contexts.Context;
@@ -471,4 +474,50 @@ public final class CommandsPerformanceTest extends BasicPerformanceTest {
 		commitMeasurements();
 		assertPerformance();
 	}
+
+	/**
+	 * <p>
+	 * Tests how long it takes to define and undefine five thousand commands in
+	 * a batch, as when the commands are read from the registry, while a
+	 * listener is attached to the command manager. The listener should be
+	 * notified once per batch.
+	 * </p>
+	 */
+	public final void testDefineCommandsDeferred() {
+		// Constants
+		final int commandCount = 5000;
+		final int iterations = 10;
+		final int[] events = new int[1];
+		commandManager.addCommandManagerListener(new ICommandManagerListener() {
+			public void commandManagerChanged(CommandManagerEvent event) {
+				events[0]++;
+			}
+		});
+		final Category category = commandManager.getCategory("category");
+		category.define("category", null);
+		final Command[] commands = new Command[commandCount];
+		for (int i = 0; i < commandCount; i++) {
+			commands[i] = commandManager.getCommand("defined" + i);
+		}
+		events[0] = 0;
+
+		// Time how long it takes to define and undefine the commands.
+		startMeasuring();
+		for (int i = 0; i < iterations; i++) {
+			commandManager.deferUpdates(true);
+			for (int j = 0; j < commandCount; j++) {
+				commands[j].define("defined" + j, null, category);
+			}
+			commandManager.deferUpdates(false);
+			commandManager.deferUpdates(true);
+			for (int j = 0; j < commandCount; j++) {
+				commands[j].undefine();
+			}
+			commandManager.deferUpdates(false);
+		}
+		stopMeasuring();
+		commitMeasurements();
+		assertPerformance();
+		assertEquals(iterations * 2, events[0]);
+	}
 }
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.performance;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.ui.internal.views.markers.MarkerSortUtil;
+import org.eclipse.ui.internal.views.markers.MockMarkerEntry;
+
+/**
+ * The MarkerSortPerformanceTest measures how long it takes to sort the
+ * entries of a large marker view, either the rows shown within the marker
+ * limit only or all of them.
+ */
+public class MarkerSortPerformanceTest extends BasicPerformanceTest {
+
+	private static final int ENTRY_COUNT = 200000;
+
+	private static final int LIMIT = 100;
+
+	private static final Comparator COMPARATOR = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			return ((MockMarkerEntry) o1).name
+					.compareTo(((MockMarkerEntry) o2).name);
+		}
+	};
+
+	/**
+	 * Create a new instance of the receiver.
+	 *
+	 * @param testName
+	 */
+	public MarkerSortPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Test sorting the first 100 of 200000 entries.
+	 */
+	public void testSortVisibleRows() {
+		tagIfNecessary("UI - Sort 100 of 200000 markers",
+				Dimension.ELAPSED_PROCESS);
+		sort(LIMIT);
+	}
+
+	/**
+	 * Test sorting all of 200000 entries.
+	 */
+	public void testSortAll() {
+		sort(ENTRY_COUNT);
+	}
+
+	private void sort(int limit) {
+		MockMarkerEntry[] entries = createEntries();
+		for (int i = 0; i < 10; i++) {
+			MockMarkerEntry[] copy = (MockMarkerEntry[]) entries.clone();
+			processEvents();
+			startMeasuring();
+			MarkerSortUtil.sortStartingKElement(copy, COMPARATOR, 0,
+					copy.length - 1, limit);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private MockMarkerEntry[] createEntries() {
+		// a fixed seed so that every run sorts the same entries
+		Random random = new Random(0);
+		MockMarkerEntry[] entries = new MockMarkerEntry[ENTRY_COUNT];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = new MockMarkerEntry("Marker " + random.nextInt());
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import org.eclipse.core.commands.operations.AbstractOperation;
+import org.eclipse.core.commands.operations.DefaultOperationHistory;
+import org.eclipse.core.commands.operations.IOperationHistory;
+import org.eclipse.core.commands.operations.IUndoContext;
+import org.eclipse.core.commands.operations.ObjectUndoContext;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * <p>
+ * Measures the operation history with many undo contexts, as when many editors
+ * are open, each with its own context and a large undo limit. This test does
+ * not rely on the existence of the workbench.
+ * </p>
+ */
+public final class OperationHistoryPerformanceTest extends BasicPerformanceTest {
+
+	private static final int CONTEXT_COUNT = 100;
+
+	private static final int OPERATION_COUNT = 1000;
+
+	private static final class TestOperation extends AbstractOperation {
+		TestOperation(IUndoContext context) {
+			super("test");
+			addContext(context);
+		}
+
+		public IStatus execute(IProgressMonitor monitor, IAdaptable info) {
+			return Status.OK_STATUS;
+		}
+
+		public IStatus redo(IProgressMonitor monitor, IAdaptable info) {
+			return Status.OK_STATUS;
+		}
+
+		public IStatus undo(IProgressMonitor monitor, IAdaptable info) {
+			return Status.OK_STATUS;
+		}
+	}
+
+	private IOperationHistory history;
+
+	private IUndoContext[] contexts;
+
+	public OperationHistoryPerformanceTest(final String name) {
+		super(name);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		history = new DefaultOperationHistory();
+		contexts = new IUndoContext[CONTEXT_COUNT];
+		for (int i = 0; i < CONTEXT_COUNT; i++) {
+			contexts[i] = new ObjectUndoContext(this, "context" + i);
+			history.setLimit(contexts[i], OPERATION_COUNT);
+		}
+	}
+
+	protected void doTearDown() throws Exception {
+		for (int i = 0; i < CONTEXT_COUNT; i++) {
+			history.dispose(contexts[i], true, true, true);
+		}
+		history = null;
+		contexts = null;
+		super.doTearDown();
+	}
+
+	/**
+	 * <p>
+	 * Adds a thousand operations to each of a hundred contexts, interleaved,
+	 * and asks for the operation to undo after each one, as the undo action
+	 * of an editor does.
+	 * </p>
+	 */
+	public void testAddOperations() {
+		startMeasuring();
+		for (int i = 0; i < OPERATION_COUNT; i++) {
+			for (int j = 0; j < CONTEXT_COUNT; j++) {
+				history.add(new TestOperation(contexts[j]));
+				history.getUndoOperation(contexts[j]);
+			}
+		}
+		stopMeasuring();
+		commitMeasurements();
+		assertPerformance();
+		for (int j = 0; j < CONTEXT_COUNT; j++) {
+			assertEquals(OPERATION_COUNT,
+					history.getUndoHistory(contexts[j]).length);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Undoes and redoes the most recent operation of each context in a full
+	 * history of a hundred contexts with a thousand operations each.
+	 * </p>
+	 *
+	 * @throws Exception
+	 *             if an operation could not be undone or redone
+	 */
+	public void testUndoRedo() throws Exception {
+		for (int i = 0; i < OPERATION_COUNT; i++) {
+			for (int j = 0; j < CONTEXT_COUNT; j++) {
+				history.add(new TestOperation(contexts[j]));
+			}
+		}
+		startMeasuring();
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < CONTEXT_COUNT; j++) {
+				history.undo(contexts[j], null, null);
+				history.canRedo(contexts[j]);
+				history.redo(contexts[j], null, null);
+			}
+		}
+		stopMeasuring();
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,13 +16,20 @@ import java.util.Map;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.test.performance.Dimension;
+import org.eclipse.ui.IPageLayout;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.internal.views.markers.ExtendedMarkersView;
 import org.eclipse.ui.tests.performance.parts.PerformanceProblemsView;
 import org.eclipse.ui.texteditor.MarkerUtilities;
 
@@ -83,6 +90,106 @@ public class ProblemsViewPerformanceTest extends BasicPerformanceTest {
 
 	}
 
+	/**
+	 * Test applying a few marker changes to the problems view while it shows
+	 * many markers.
+	 * 
+	 * @throws CoreException
+	 */
+	public void testIncrementalUpdate() throws CoreException {
+		IWorkbenchWindow window = openTestWindow(EMPTY_PERSPECTIVE_ID);
+		final IWorkbenchPage page = window.getActivePage();
+
+		ExtendedMarkersView view;
+
+		try {
+			view = (ExtendedMarkersView) page
+					.showView(IPageLayout.ID_PROBLEM_VIEW);
+		} catch (PartInitException e) {
+			e.printStackTrace();
+			fail();
+			return;
+		}
+
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		try {
+			createMarkers(0, 10000);
+			workspace.build(IncrementalProjectBuilder.INCREMENTAL_BUILD, null);
+			waitForUpdate(view);
+
+			tagIfNecessary("UI - Problems View incremental update",
+					Dimension.ELAPSED_PROCESS);
+
+			for (int i = 0; i < 20; i++) {
+				processEvents();
+				startMeasuring();
+				final IMarker[] markers = createMarkers(10000, 10);
+				workspace.run(new IWorkspaceRunnable() {
+					public void run(IProgressMonitor monitor)
+							throws CoreException {
+						for (int j = 0; j < markers.length; j++) {
+							markers[j].delete();
+						}
+					}
+				}, null);
+				// the end of a build speeds up the pending update
+				workspace.build(IncrementalProjectBuilder.INCREMENTAL_BUILD,
+						null);
+				waitForUpdate(view);
+				stopMeasuring();
+			}
+			commitMeasurements();
+			assertPerformance();
+		} finally {
+			removeMarkers();
+		}
+	}
+
+	/**
+	 * Wait until the view has no update pending.
+	 * 
+	 * @param view
+	 */
+	private void waitForUpdate(ExtendedMarkersView view) {
+		// the family is a final field of each view, not a constant
+		Object family = view.MARKERSVIEW_UPDATE_JOB_FAMILY;
+		processEvents();
+		while (Job.getJobManager().find(family).length > 0) {
+			processEvents();
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Create count markers in a single workspace operation.
+	 * 
+	 * @param first
+	 *            the number of the first marker
+	 * @param count
+	 * @return IMarker[]
+	 * @throws CoreException
+	 */
+	private IMarker[] createMarkers(final int first, final int count)
+			throws CoreException {
+		final IMarker[] markers = new IMarker[count];
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+				for (int i = 0; i < count; i++) {
+					markers[i] = root.createMarker(IMarker.PROBLEM);
+					markers[i].setAttribute(IMarker.SEVERITY, i % 3);
+					markers[i].setAttribute(IMarker.MESSAGE, "this is a test "
+							+ (first + i));
+				}
+			}
+		}, null);
+		return markers;
+	}
+
 	/**
 	 * Remove the created markers
 	 */
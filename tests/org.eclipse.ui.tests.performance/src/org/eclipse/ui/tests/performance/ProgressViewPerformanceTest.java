@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.performance;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.ui.IPageLayout;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.internal.progress.FinishedJobs;
+import org.eclipse.ui.progress.IProgressConstants;
+
+/**
+ * The ProgressViewPerformanceTest measures how long it takes to run many short
+ * jobs while the progress view is shown.
+ */
+public class ProgressViewPerformanceTest extends BasicPerformanceTest {
+
+	private static final String EMPTY_PERSPECTIVE_ID = "org.eclipse.ui.tests.harness.util.EmptyPerspective";
+
+	private static final int JOB_COUNT = 10000;
+
+	/**
+	 * Every job with an index that is a multiple of this number is kept in
+	 * the finished jobs.
+	 */
+	private static final int KEEP_EVERY = 10;
+
+	private final Object family = new Object();
+
+	/**
+	 * Create a new instance of the receiver.
+	 *
+	 * @param testName
+	 */
+	public ProgressViewPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Test running 10000 jobs that report progress, some of which are kept.
+	 */
+	public void testManyJobs() {
+		IWorkbenchWindow window = openTestWindow(EMPTY_PERSPECTIVE_ID);
+		IWorkbenchPage page = window.getActivePage();
+		try {
+			page.showView(IPageLayout.ID_PROGRESS_VIEW);
+		} catch (PartInitException e) {
+			e.printStackTrace();
+			fail();
+			return;
+		}
+
+		tagIfNecessary("UI - Progress View with 10000 jobs",
+				Dimension.ELAPSED_PROCESS);
+
+		for (int i = 0; i < 5; i++) {
+			processEvents();
+			startMeasuring();
+			for (int j = 0; j < JOB_COUNT; j++) {
+				createJob(j).schedule();
+			}
+			while (Job.getJobManager().find(family).length > 0) {
+				processEvents();
+			}
+			processEvents();
+			stopMeasuring();
+			FinishedJobs.getInstance().clearAll();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private Job createJob(int index) {
+		Job job = new Job("Progress performance job " + index) {
+			protected IStatus run(IProgressMonitor monitor) {
+				monitor.beginTask(getName(), 10);
+				for (int i = 0; i < 10; i++) {
+					monitor.subTask(String.valueOf(i));
+					monitor.worked(1);
+				}
+				monitor.done();
+				return Status.OK_STATUS;
+			}
+
+			public boolean belongsTo(Object jobFamily) {
+				return jobFamily == family;
+			}
+		};
+		if (index % KEEP_EVERY == 0) {
+			job.setProperty(IProgressConstants.KEEP_PROPERTY, Boolean.TRUE);
+		}
+		return job;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -38,6 +38,10 @@ public class UIPerformanceTestSuite extends FilteredTestSuite {
         addTest(new ViewPerformanceSuite());
         addTest(new EditorPerformanceSuite());
         addTest(new TestSuite(CommandsPerformanceTest.class));
+        addTest(new TestSuite(OperationHistoryPerformanceTest.class));
+        addTest(new TestSuite(ProgressViewPerformanceTest.class));
+        addTest(new ProblemsViewPerformanceTest("testIncrementalUpdate"));
+        addTest(new TestSuite(MarkerSortPerformanceTest.class));
 		addTest(new LabelProviderTestSuite());
     }
 }
@@ -36,5 +36,6 @@ public class ActivitiesTestSuite extends TestSuite {
         addTest(new TestSuite(ActivityPreferenceTest.class));
         addTest(new TestSuite(MenusTest.class));
         addTest(new TestSuite(PatternUtilTest.class));
+        addTest(new TestSuite(ActivityPatternMatcherTest.class));
     }
 }
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.activities;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ui.internal.activities.ActivityPatternBinding;
+import org.eclipse.ui.internal.activities.ActivityPatternMatcher;
+
+/**
+ * Tests the combined activity pattern matcher against the behaviour of the
+ * individual pattern bindings.
+ */
+public class ActivityPatternMatcherTest extends TestCase {
+
+	private Map bindings = new HashMap();
+
+	private Set defined = new HashSet();
+
+	private void bind(String activityId, String pattern, boolean equality) {
+		Set set = (Set) bindings.get(activityId);
+		if (set == null) {
+			set = new HashSet();
+			bindings.put(activityId, set);
+		}
+		set.add(new ActivityPatternBinding(activityId, pattern, equality));
+		defined.add(activityId);
+	}
+
+	private Set ids(String[] activityIds) {
+		Set set = new HashSet();
+		for (int i = 0; i < activityIds.length; i++) {
+			set.add(activityIds[i]);
+		}
+		return set;
+	}
+
+	public void testLiteralPrefix() {
+		assertEquals("org.eclipse.jdt/", ActivityPatternMatcher
+				.getLiteralPrefix(Pattern.compile("org\\.eclipse\\.jdt/.*")));
+		assertEquals("org", ActivityPatternMatcher.getLiteralPrefix(Pattern
+				.compile("org.eclipse.jdt/.*")));
+		assertEquals("ab", ActivityPatternMatcher.getLiteralPrefix(Pattern
+				.compile("abc?d")));
+		assertEquals("", ActivityPatternMatcher.getLiteralPrefix(Pattern
+				.compile(".*debug.*")));
+		assertEquals("", ActivityPatternMatcher.getLiteralPrefix(Pattern
+				.compile("a/b|c/d")));
+		assertEquals("", ActivityPatternMatcher.getLiteralPrefix(Pattern
+				.compile("\\Qa.b\\E")));
+		assertEquals("", ActivityPatternMatcher.getLiteralPrefix(Pattern
+				.compile("org/.*", Pattern.CASE_INSENSITIVE)));
+	}
+
+	public void testMatches() {
+		bind("jdt", "org\\.eclipse\\.jdt.*/.*", false);
+		bind("debug", ".*/.*debug.*", false);
+		bind("exact", "org.eclipse.ui/view", true);
+		bind("exact2", "org.eclipse.ui/view", true);
+		bind("alt", "org\\.eclipse\\.ant/.*|org\\.eclipse\\.pde/.*", false);
+		bind("undefined", ".*", false);
+		defined.remove("undefined");
+
+		ActivityPatternMatcher matcher = new ActivityPatternMatcher(bindings,
+				defined);
+		assertEquals(ids(new String[] { "jdt" }), matcher
+				.getMatchingActivityIds("org.eclipse.jdt.ui/editor"));
+		assertEquals(ids(new String[] { "jdt", "debug" }), matcher
+				.getMatchingActivityIds("org.eclipse.jdt.debug/launch"));
+		assertEquals(ids(new String[] { "exact", "exact2" }), matcher
+				.getMatchingActivityIds("org.eclipse.ui/view"));
+		assertEquals(ids(new String[] { "alt" }), matcher
+				.getMatchingActivityIds("org.eclipse.pde/editor"));
+		assertEquals(Collections.EMPTY_SET, matcher
+				.getMatchingActivityIds("org.eclipse.ui/view2"));
+		assertEquals(Collections.EMPTY_SET, matcher.getMatchingActivityIds(""));
+	}
+}
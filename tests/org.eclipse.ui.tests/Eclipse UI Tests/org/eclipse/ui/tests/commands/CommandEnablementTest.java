@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2012 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,7 @@ import org.eclipse.core.internal.expressions.CountExpression;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.e4.core.commands.EHandlerService;
 import org.eclipse.e4.core.commands.internal.HandlerServiceImpl;
@@ -44,6 +45,7 @@ import org.eclipse.ui.commands.IElementUpdater;
 import org.eclipse.ui.contexts.IContextActivation;
 import org.eclipse.ui.contexts.IContextService;
 import org.eclipse.ui.handlers.HandlerUtil;
+import org.eclipse.ui.handlers.IAsyncEnablementHandler;
 import org.eclipse.ui.handlers.IHandlerActivation;
 import org.eclipse.ui.handlers.IHandlerService;
 import org.eclipse.ui.internal.handlers.E4HandlerProxy;
@@ -213,6 +215,38 @@ public class CommandEnablementTest extends UITestCase {
 		}
 	}
 
+	private static class AsyncHandler extends AbstractHandler implements
+			IAsyncEnablementHandler {
+
+		private volatile boolean fEnabled = true;
+
+		volatile Thread computeThread;
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.eclipse.core.commands.IHandler#execute(org.eclipse.core.commands.ExecutionEvent)
+		 */
+		public Object execute(ExecutionEvent event) throws ExecutionException {
+			return null;
+		}
+
+		public Object getEnablementInput(IEvaluationContext context) {
+			return HandlerUtil.getVariable(context,
+					ISources.ACTIVE_CONTEXT_NAME);
+		}
+
+		public boolean computeEnabled(Object input, IProgressMonitor monitor) {
+			computeThread = Thread.currentThread();
+			return fEnabled;
+		}
+
+		public void setComputedEnabled(boolean enabled) {
+			fEnabled = enabled;
+			fireHandlerChanged(new HandlerEvent(this, true, false));
+		}
+	}
+
 	private static class CheckContextHandler extends AbstractHandler {
 
 		/*
@@ -527,6 +561,55 @@ public class CommandEnablementTest extends UITestCase {
 		}
 	}
 
+	public void testEventsForAsyncHandlers() throws Exception {
+		final AsyncHandler asyncHandler = new AsyncHandler();
+		activation1 = handlerService.activateHandler(CMD1_ID, asyncHandler,
+				new ActiveContextExpression(CONTEXT_TEST1,
+						new String[] { ISources.ACTIVE_CONTEXT_NAME }));
+
+		assertFalse(cmd1.isHandled());
+		assertFalse(cmd1.isEnabled());
+		final EnablementListener listener = new EnablementListener();
+		cmd1.addCommandListener(listener);
+
+		try {
+			contextActivation1 = contextService.activateContext(CONTEXT_TEST1);
+			assertTrue(cmd1.isHandled());
+			// the handler's own enablement is used until one is computed
+			assertTrue(cmd1.isEnabled());
+			assertEquals(asyncHandler, getHandler(cmd1));
+			assertTrue(processEventsUntil(new Condition() {
+				public boolean compute() {
+					return asyncHandler.computeThread != null;
+				}
+			}, 5000));
+			assertNotSame(Thread.currentThread(), asyncHandler.computeThread);
+			assertTrue(cmd1.isEnabled());
+
+			final int enabledChangedCount = listener.enabledChanged;
+			asyncHandler.setComputedEnabled(false);
+			assertTrue(processEventsUntil(new Condition() {
+				public boolean compute() {
+					return listener.enabledChanged > enabledChangedCount
+							&& !cmd1.isEnabled();
+				}
+			}, 5000));
+
+			asyncHandler.setComputedEnabled(true);
+			assertTrue(processEventsUntil(new Condition() {
+				public boolean compute() {
+					return cmd1.isEnabled();
+				}
+			}, 5000));
+
+			contextService.deactivateContext(contextActivation1);
+			assertFalse(cmd1.isHandled());
+			assertFalse(cmd1.isEnabled());
+		} finally {
+			cmd1.removeCommandListener(listener);
+		}
+	}
+
 	public void testCommandWithHandlerProxy() throws Exception {
 		IConfigurationElement handlerProxyConfig = null;
 		String commandId = null;
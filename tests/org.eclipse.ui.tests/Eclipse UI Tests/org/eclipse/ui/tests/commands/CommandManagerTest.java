@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2006 IBM Corporation and others.
+ * Copyright (c) 2005, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,11 +11,16 @@
 
 package org.eclipse.ui.tests.commands;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.core.commands.Category;
 import org.eclipse.core.commands.Command;
 import org.eclipse.core.commands.CommandManager;
+import org.eclipse.core.commands.CommandManagerEvent;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.commands.ICommandManagerListener;
 import org.eclipse.core.commands.IExecutionListener;
 import org.eclipse.core.commands.NotHandledException;
 import org.eclipse.ui.tests.harness.util.UITestCase;
@@ -124,4 +129,60 @@ public final class CommandManagerTest extends UITestCase {
 				exception, listener.notHandledException);
 
 	}
+
+	public final void testDeferUpdates() {
+		final CommandManager commandManager = new CommandManager();
+		final List events = new ArrayList();
+		commandManager.addCommandManagerListener(new ICommandManagerListener() {
+			public void commandManagerChanged(CommandManagerEvent event) {
+				events.add(event);
+			}
+		});
+		final Command existing = commandManager.getCommand("existing");
+		existing.define("name", null, commandManager.getCategory(null));
+		events.clear();
+
+		commandManager.deferUpdates(true);
+		commandManager.deferUpdates(true);
+		final Category category = commandManager.getCategory("category");
+		category.define("name", null);
+		for (int i = 0; i < 10; i++) {
+			commandManager.getCommand("command" + i).define("name", null,
+					category);
+		}
+		existing.undefine();
+		commandManager.deferUpdates(false);
+		assertEquals("Nested batches should not send events", 0, events
+				.size());
+		commandManager.deferUpdates(false);
+
+		assertEquals("A batch should send one event", 1, events.size());
+		final CommandManagerEvent event = (CommandManagerEvent) events.get(0);
+		assertTrue(event.isBatch());
+		assertTrue(event.isCommandChanged());
+		assertTrue(event.isCategoryChanged());
+		assertFalse(event.isParameterTypeChanged());
+		assertNull(event.getCommandId());
+		assertFalse(event.isCommandDefined());
+		assertTrue(event.getPreviouslyDefinedCommandIds().contains("existing"));
+		assertFalse(event.getPreviouslyDefinedCommandIds()
+				.contains("command0"));
+		assertFalse(event.getPreviouslyDefinedCategoryIds().contains(
+				"category"));
+		assertNull(event.getPreviouslyDefinedParameterTypeIds());
+		assertEquals(10, commandManager.getDefinedCommandIds().size());
+
+		// a batch with a single change is reported as without batch
+		events.clear();
+		commandManager.deferUpdates(true);
+		existing.define("name", null, category);
+		commandManager.getCommand("command0").undefine();
+		commandManager.getCommand("command0").define("name", null, category);
+		commandManager.deferUpdates(false);
+		assertEquals(1, events.size());
+		final CommandManagerEvent single = (CommandManagerEvent) events.get(0);
+		assertFalse(single.isBatch());
+		assertEquals("existing", single.getCommandId());
+		assertTrue(single.isCommandDefined());
+	}
 }
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.decorators;
+
+import org.eclipse.jface.viewers.DecorationContext;
+import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.decorators.DecorationResult;
+import org.eclipse.ui.internal.decorators.DecorationResultCache;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+
+/**
+ * Tests the bounds, the scoping and the weak keys of the decoration result
+ * cache.
+ */
+public class DecorationResultCacheTest extends UITestCase {
+
+	private DecorationResult result;
+
+	public DecorationResultCacheTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		result = WorkbenchPlugin.getDefault().getDecoratorManager()
+				.getLightweightManager().getDecorationResult(new Object());
+	}
+
+	public void testLeastRecentlyUsedEviction() {
+		DecorationResultCache cache = new DecorationResultCache(3);
+		DecorationContext context = new DecorationContext();
+		cache.put("a", context, result);
+		cache.put("b", context, result);
+		cache.put("c", context, result);
+		cache.markDelivered(new Object[] { "a", "b", "c" });
+
+		// use "a" so that "b" is the least recently used
+		assertSame(result, cache.get("a", context));
+		cache.put("d", context, result);
+		cache.markDelivered(new Object[] { "d" });
+
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertEquals(0, cache.getCollections());
+		assertNull(cache.get("b", context));
+		assertSame(result, cache.get("a", context));
+		assertSame(result, cache.get("c", context));
+		assertSame(result, cache.get("d", context));
+		assertEquals(4, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	public void testContextsAreSeparate() {
+		DecorationResultCache cache = new DecorationResultCache(1);
+		DecorationContext context1 = new DecorationContext();
+		DecorationContext context2 = new DecorationContext();
+		cache.put("a", context1, result);
+		cache.put("b", context2, result);
+		cache.markDelivered(new Object[] { "a", "b" });
+
+		// each context is bounded on its own
+		assertEquals(2, cache.size());
+		assertEquals(0, cache.getEvictions());
+		assertSame(result, cache.get("a", context1));
+		assertNull(cache.get("a", context2));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get("b", context2));
+	}
+
+	public void testEqualElements() {
+		DecorationResultCache cache = new DecorationResultCache();
+		DecorationContext context = new DecorationContext();
+		String element = new String("element");
+		cache.put(element, context, result);
+		assertSame(result, cache.get(new String("element"), context));
+	}
+
+	public void testPendingResultsNotEvicted() {
+		DecorationResultCache cache = new DecorationResultCache(3);
+		DecorationContext context = new DecorationContext();
+		String[] elements = new String[10];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = "element" + i;
+			cache.put(elements[i], context, result);
+		}
+
+		// none of the results has been delivered yet
+		assertEquals(elements.length, cache.size());
+		assertEquals(0, cache.getEvictions());
+		for (int i = 0; i < elements.length; i++) {
+			assertSame(elements[i], result, cache.get(elements[i], context));
+		}
+
+		cache.markDelivered(elements);
+		assertEquals(3, cache.size());
+		assertEquals(elements.length - 3, cache.getEvictions());
+
+		// a result that is pending again is kept whatever the bound
+		cache.put(elements[0], context, result);
+		cache.put("other", context, result);
+		assertEquals(5, cache.size());
+		assertSame(result, cache.get(elements[0], context));
+		assertSame(result, cache.get("other", context));
+	}
+
+	public void testCollectedElementsRemoved() {
+		DecorationResultCache cache = new DecorationResultCache();
+		DecorationContext context = new DecorationContext();
+		Object pending = new Object();
+		Object delivered = new Object();
+		cache.put(pending, context, result);
+		cache.put(delivered, context, result);
+		cache.markDelivered(new Object[] { delivered });
+		assertEquals(2, cache.size());
+
+		pending = null;
+		delivered = null;
+		for (int i = 0; i < 20 && cache.size() > 0; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.getCollections());
+		assertEquals(0, cache.getEvictions());
+	}
+}
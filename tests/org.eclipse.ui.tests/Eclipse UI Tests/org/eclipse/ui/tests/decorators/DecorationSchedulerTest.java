@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.decorators;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jface.viewers.ILabelProviderListener;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.LabelProviderChangedEvent;
+import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.decorators.DecoratorDefinition;
+import org.eclipse.ui.internal.decorators.DecoratorManager;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+
+/**
+ * Tests the decoration of elements by the pool of decoration jobs: decorators
+ * that are not thread safe never run concurrently, the elements whose label
+ * is requested are decorated first and the results reach the labels.
+ */
+public class DecorationSchedulerTest extends UITestCase implements
+		ILabelProviderListener {
+
+	private static final String[] SERIAL_DECORATORS = new String[] {
+			"org.eclipse.ui.tests.decorators.serialdecorator",
+			"org.eclipse.ui.tests.decorators.serialdecorator2" };
+
+	private static final long TIMEOUT = 10000;
+
+	private Set updated = new HashSet();
+
+	/*
+	 * The text of the updated elements, taken when their label update is
+	 * received
+	 */
+	private Map updatedText = new HashMap();
+
+	public DecorationSchedulerTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		SerialDecoratorContributor.reset();
+		getDecoratorManager().addListener(this);
+		setSerialDecoratorsEnabled(true);
+	}
+
+	protected void doTearDown() throws Exception {
+		SerialDecoratorContributor.release();
+		getDecoratorManager().removeListener(this);
+		setSerialDecoratorsEnabled(false);
+		SerialDecoratorContributor.reset();
+		super.doTearDown();
+	}
+
+	private DecoratorManager getDecoratorManager() {
+		return WorkbenchPlugin.getDefault().getDecoratorManager();
+	}
+
+	private void setSerialDecoratorsEnabled(boolean enabled) {
+		List ids = Arrays.asList(SERIAL_DECORATORS);
+		DecoratorDefinition[] definitions = getDecoratorManager()
+				.getAllDecoratorDefinitions();
+		for (int i = 0; i < definitions.length; i++) {
+			if (ids.contains(definitions[i].getId())) {
+				definitions[i].setEnabled(enabled);
+			}
+		}
+		getDecoratorManager().clearCaches();
+		getDecoratorManager().updateForEnablementChange();
+	}
+
+	private ScheduledElement[] createElements(String prefix, int count) {
+		ScheduledElement[] elements = new ScheduledElement[count];
+		for (int i = 0; i < count; i++) {
+			elements[i] = new ScheduledElement(prefix + i);
+		}
+		return elements;
+	}
+
+	/**
+	 * Queue the elements for decoration without requesting their labels.
+	 */
+	private void queueInBackground(Object[] elements) {
+		getDecoratorManager().labelProviderChanged(
+				new LabelProviderChangedEvent(new LabelProvider(), elements));
+	}
+
+	private String decorateText(ScheduledElement element) {
+		return getDecoratorManager().decorateText(element.getName(), element);
+	}
+
+	private void waitForDecoration(Collection elements) {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (System.currentTimeMillis() < end) {
+			synchronized (updated) {
+				if (updated.containsAll(elements)) {
+					return;
+				}
+			}
+			processEvents();
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+		synchronized (updated) {
+			assertTrue("Labels not updated", updated.containsAll(elements));
+		}
+	}
+
+	public void testSerialDecoratorsNotConcurrent() {
+		ScheduledElement[] elements = createElements("serial", 200);
+		queueInBackground(elements);
+		waitForDecoration(Arrays.asList(elements));
+
+		assertTrue(SerialDecoratorContributor.getDecorated().containsAll(
+				Arrays.asList(elements)));
+		assertEquals("Decorators that are not thread safe ran concurrently",
+				1, SerialDecoratorContributor.getMaxRunning());
+	}
+
+	public void testVisibleElementsDecoratedFirst() {
+		ScheduledElement first = new ScheduledElement("first");
+		SerialDecoratorContributor.hold();
+		queueInBackground(new Object[] { first });
+		assertTrue("Decoration did not start", SerialDecoratorContributor
+				.waitUntilHeld(TIMEOUT));
+
+		// while the decoration is held queue more elements and then request
+		// the label of the last one
+		ScheduledElement[] elements = createElements("background", 100);
+		queueInBackground(elements);
+		ScheduledElement visible = elements[elements.length - 1];
+		assertEquals(visible.getName(), decorateText(visible));
+		SerialDecoratorContributor.release();
+
+		List all = Arrays.asList(elements);
+		waitForDecoration(all);
+		List decorated = SerialDecoratorContributor.getDecorated();
+		assertTrue(decorated.containsAll(all));
+
+		// the other decoration jobs may have taken a few background elements
+		// while the first one was held, but not the whole queue
+		int index = decorated.indexOf(visible);
+		assertTrue("Visible element decorated at " + index, index < 10);
+	}
+
+	public void testResultsReachLabels() {
+		ScheduledElement[] elements = createElements("label", 20);
+		for (int i = 0; i < elements.length; i++) {
+			// not decorated yet, the label is updated when it is
+			assertEquals(elements[i].getName(), decorateText(elements[i]));
+		}
+		waitForDecoration(Arrays.asList(elements));
+
+		for (int i = 0; i < elements.length; i++) {
+			String text;
+			synchronized (updated) {
+				text = (String) updatedText.get(elements[i]);
+			}
+			assertNotNull(elements[i].getName(), text);
+			assertTrue(text, text.startsWith(elements[i].getName()
+					+ SerialDecoratorContributor.DECORATOR_SUFFIX));
+		}
+	}
+
+	public void testDeliveredResultsRetained() {
+		ScheduledElement[] elements = createElements("retained", 20);
+		queueInBackground(elements);
+		waitForDecoration(Arrays.asList(elements));
+		// let the update job finish delivering the last batch
+		processEvents();
+
+		// the results outlive the update that delivered them
+		for (int i = 0; i < elements.length; i++) {
+			String text = decorateText(elements[i]);
+			assertTrue(text, text.startsWith(elements[i].getName()
+					+ SerialDecoratorContributor.DECORATOR_SUFFIX));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.jface.viewers.ILabelProviderListener#labelProviderChanged(org.eclipse.jface.viewers.LabelProviderChangedEvent)
+	 */
+	public void labelProviderChanged(LabelProviderChangedEvent event) {
+		Object[] elements = event.getElements();
+		if (elements != null) {
+			synchronized (updated) {
+				updated.addAll(Arrays.asList(elements));
+				// take the label while the update is being sent, as a viewer
+				// would
+				for (int i = 0; i < elements.length; i++) {
+					if (elements[i] instanceof ScheduledElement) {
+						updatedText.put(elements[i],
+								decorateText((ScheduledElement) elements[i]));
+					}
+				}
+			}
+		}
+	}
+
+}
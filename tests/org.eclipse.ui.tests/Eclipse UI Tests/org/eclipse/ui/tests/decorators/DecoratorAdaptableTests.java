@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -34,6 +34,7 @@ public class DecoratorAdaptableTests extends UITestCase {
 		ts.addTest(new DecoratorAdaptableTests("testAdaptables"));
 		ts.addTest(new DecoratorAdaptableTests("testNonAdaptableContributions"));
 		ts.addTest(new DecoratorAdaptableTests("testContributorResourceAdapter"));
+		ts.addTest(new DecoratorAdaptableTests("testEnablementChange"));
 		return ts;
 	}
 	
@@ -138,6 +139,27 @@ public class DecoratorAdaptableTests extends UITestCase {
             );
     }
     
+    /**
+     * Test that the decorators applied to elements of a class follow changes
+     * to the enablement of the decorators.
+     */
+    public final void testEnablementChange() throws CoreException {
+        Object[] elements = new Object[] {
+                new ObjectContributionClasses.Common(),
+                new ObjectContributionClasses.A() };
+        assertDecorated("1",
+                new String[] {TestAdaptableDecoratorContributor.SUFFIX},
+                elements, ICommon.class, true);
+        PlatformUI.getWorkbench().getDecoratorManager().setEnabled(TestAdaptableDecoratorContributor.ID, false);
+        assertDecorated("2",
+                new String[] {TestAdaptableDecoratorContributor.SUFFIX},
+                elements, ICommon.class, false);
+        PlatformUI.getWorkbench().getDecoratorManager().setEnabled(TestAdaptableDecoratorContributor.ID, true);
+        assertDecorated("3",
+                new String[] {TestAdaptableDecoratorContributor.SUFFIX},
+                elements, ICommon.class, true);
+    }
+
     /**
      * This tests backwards compatibility support for adaptable IResource objectContributions. This
      * allows IResource adaptable contributions without an adapter factory and using
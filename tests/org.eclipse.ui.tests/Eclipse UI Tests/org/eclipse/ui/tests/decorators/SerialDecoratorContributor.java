@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.decorators;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.viewers.IDecoration;
+import org.eclipse.jface.viewers.ILightweightLabelDecorator;
+import org.eclipse.jface.viewers.LabelProvider;
+
+/**
+ * A lightweight decorator that is not thread safe. It records how many
+ * decorators of its kind run at the same time and the order in which the
+ * elements are decorated, and can be held on its next element.
+ */
+public class SerialDecoratorContributor extends LabelProvider implements
+		ILightweightLabelDecorator {
+
+	public static final String DECORATOR_SUFFIX = "_SERIAL";
+
+	private static final Object lock = new Object();
+
+	private static int running;
+
+	private static int maxRunning;
+
+	private static List decorated = new ArrayList();
+
+	private static boolean holding;
+
+	private static boolean held;
+
+	/**
+	 * Forget what has been recorded so far and release any held decorator.
+	 */
+	public static void reset() {
+		synchronized (lock) {
+			running = 0;
+			maxRunning = 0;
+			decorated.clear();
+			holding = false;
+			held = false;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Hold the next decorator entered until {@link #release()} is called.
+	 */
+	public static void hold() {
+		synchronized (lock) {
+			holding = true;
+			held = false;
+		}
+	}
+
+	/**
+	 * Wait until a decorator is held.
+	 * 
+	 * @param timeout
+	 *            the time to wait in milliseconds
+	 * @return <code>true</code> if a decorator is held
+	 */
+	public static boolean waitUntilHeld(long timeout) {
+		long end = System.currentTimeMillis() + timeout;
+		synchronized (lock) {
+			while (!held && System.currentTimeMillis() < end) {
+				try {
+					lock.wait(50);
+				} catch (InterruptedException e) {
+					return false;
+				}
+			}
+			return held;
+		}
+	}
+
+	/**
+	 * Release the held decorator.
+	 */
+	public static void release() {
+		synchronized (lock) {
+			holding = false;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Return the highest number of these decorators that ran at the same time.
+	 * 
+	 * @return int
+	 */
+	public static int getMaxRunning() {
+		synchronized (lock) {
+			return maxRunning;
+		}
+	}
+
+	/**
+	 * Return the decorated elements, in the order of their first decoration.
+	 * 
+	 * @return List of Object
+	 */
+	public static List getDecorated() {
+		synchronized (lock) {
+			return new ArrayList(decorated);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.jface.viewers.ILightweightLabelDecorator#decorate(java.lang.Object,
+	 *      org.eclipse.jface.viewers.IDecoration)
+	 */
+	public void decorate(Object element, IDecoration decoration) {
+		synchronized (lock) {
+			running++;
+			maxRunning = Math.max(maxRunning, running);
+			if (!decorated.contains(element)) {
+				decorated.add(element);
+			}
+		}
+		try {
+			synchronized (lock) {
+				if (holding) {
+					held = true;
+					lock.notifyAll();
+					long end = System.currentTimeMillis() + 10000;
+					while (holding && System.currentTimeMillis() < end) {
+						lock.wait(50);
+					}
+				}
+			}
+			// give another decoration job the chance to come in
+			Thread.sleep(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			synchronized (lock) {
+				running--;
+			}
+		}
+		decoration.addSuffix(DECORATOR_SUFFIX);
+	}
+
+}
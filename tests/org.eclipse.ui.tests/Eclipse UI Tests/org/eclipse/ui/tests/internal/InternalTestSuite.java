@@ -17,6 +17,7 @@ import org.eclipse.ui.tests.api.TrimLayoutTest;
 import org.eclipse.ui.tests.markers.Bug75909Test;
 import org.eclipse.ui.tests.markers.DeclarativeFilterActivityTest;
 import org.eclipse.ui.tests.markers.DeclarativeFilterDeclarationTest;
+import org.eclipse.ui.tests.markers.IncrementalMarkerUpdateTest;
 import org.eclipse.ui.tests.markers.MarkerSortUtilTest;
 import org.eclipse.ui.tests.markers.MarkerSupportRegistryTests;
 import org.eclipse.ui.tests.markers.MarkerTesterTest;
@@ -54,6 +55,7 @@ public class InternalTestSuite extends TestSuite {
         addTest(new TestSuite(MarkerSupportRegistryTests.class));
         addTest(new TestSuite(MarkerSortUtilTest.class));       
         addTest(new TestSuite(MarkerViewTests.class));
+        addTest(new TestSuite(IncrementalMarkerUpdateTest.class));
         addTest(Bug99858Test.suite());
         addTest(new TestSuite(WorkbenchWindowSubordinateSourcesTests.class));
         addTest(new TestSuite(ReopenMenuTest.class));
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.markers;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.tests.navigator.AbstractNavigatorTest;
+import org.eclipse.ui.views.markers.MarkerItem;
+
+/**
+ * Tests that the marker changes applied incrementally to a problems view
+ * leave it with the right entries, counts, categories and attributes.
+ */
+public class IncrementalMarkerUpdateTest extends AbstractNavigatorTest {
+
+	private static final long TIMEOUT = 10000;
+
+	private MarkersTestMarkersView view;
+
+	/**
+	 * Create an instance of the receiver.
+	 * 
+	 * @param testName
+	 */
+	public IncrementalMarkerUpdateTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		createTestFile();
+		IWorkbenchPage page = PlatformUI.getWorkbench()
+				.getActiveWorkbenchWindow().getActivePage();
+		try {
+			view = (MarkersTestMarkersView) page
+					.showView("org.eclipse.ui.tests.markerTests");
+		} catch (PartInitException e) {
+			fail(e.getLocalizedMessage(), e);
+		}
+		waitForUpdate();
+	}
+
+	protected void doTearDown() throws Exception {
+		view = null;
+		super.doTearDown();
+	}
+
+	/**
+	 * Wait until the view has applied the pending changes.
+	 */
+	private void waitForUpdate() {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		do {
+			processEvents();
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				break;
+			}
+		} while (Job.getJobManager().find(view.MARKERSVIEW_UPDATE_JOB_FAMILY).length > 0
+				&& System.currentTimeMillis() < end);
+		processEvents();
+	}
+
+	private IMarker createMarker(int severity, String message)
+			throws CoreException {
+		IMarker marker = testFile.createMarker(IMarker.PROBLEM);
+		marker.setAttributes(new String[] { IMarker.SEVERITY,
+				IMarker.MESSAGE }, new Object[] { new Integer(severity),
+				message });
+		return marker;
+	}
+
+	/**
+	 * Return the name of the category showing the marker.
+	 * 
+	 * @param marker
+	 * @return String or <code>null</code> if the marker is not shown
+	 */
+	private String getCategory(IMarker marker) {
+		String found = null;
+		Map categories = view.getMarkersByCategory();
+		Iterator entries = categories.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry entry = (Map.Entry) entries.next();
+			IMarker[] markers = (IMarker[]) entry.getValue();
+			for (int i = 0; i < markers.length; i++) {
+				if (markers[i].equals(marker)) {
+					assertNull("Marker shown twice", found);
+					found = (String) entry.getKey();
+				}
+			}
+		}
+		return found;
+	}
+
+	public void testAddedMarkers() throws CoreException {
+		int[] before = view.getMarkerCounts();
+		IMarker error = createMarker(IMarker.SEVERITY_ERROR, "added error");
+		IMarker warning = createMarker(IMarker.SEVERITY_WARNING,
+				"added warning");
+		waitForUpdate();
+
+		String errors = getCategory(error);
+		String warnings = getCategory(warning);
+		assertNotNull(errors);
+		assertNotNull(warnings);
+		assertFalse(errors.equals(warnings));
+
+		int[] after = view.getMarkerCounts();
+		assertEquals(before[0] + 1, after[0]);
+		assertEquals(before[1] + 1, after[1]);
+		assertEquals(before[2], after[2]);
+
+		IMarker secondError = createMarker(IMarker.SEVERITY_ERROR,
+				"second error");
+		waitForUpdate();
+		assertEquals(errors, getCategory(secondError));
+		assertEquals(before[0] + 2, view.getMarkerCounts()[0]);
+	}
+
+	public void testRemovedMarkers() throws CoreException {
+		IMarker error = createMarker(IMarker.SEVERITY_ERROR, "removed error");
+		IMarker info = createMarker(IMarker.SEVERITY_INFO, "removed info");
+		waitForUpdate();
+		int[] before = view.getMarkerCounts();
+		assertNotNull(getCategory(error));
+		assertNotNull(getCategory(info));
+
+		error.delete();
+		waitForUpdate();
+		assertNull(getCategory(error));
+		assertNotNull(getCategory(info));
+		int[] after = view.getMarkerCounts();
+		assertEquals(before[0] - 1, after[0]);
+		assertEquals(before[2], after[2]);
+
+		info.delete();
+		waitForUpdate();
+		assertNull(getCategory(info));
+		assertEquals(before[2] - 1, view.getMarkerCounts()[2]);
+	}
+
+	public void testChangedMarker() throws CoreException {
+		IMarker warning = createMarker(IMarker.SEVERITY_WARNING,
+				"changed warning");
+		waitForUpdate();
+		String warnings = getCategory(warning);
+		int[] before = view.getMarkerCounts();
+
+		warning.setAttribute(IMarker.MESSAGE, "changed message");
+		waitForUpdate();
+		assertEquals(warnings, getCategory(warning));
+		int[] after = view.getMarkerCounts();
+		for (int i = 0; i < before.length; i++) {
+			assertEquals(before[i], after[i]);
+		}
+	}
+
+	public void testChangedAttributesShown() throws CoreException {
+		IMarker marker = createMarker(IMarker.SEVERITY_WARNING, "before");
+		marker.setAttribute(IMarker.LINE_NUMBER, 3);
+		waitForUpdate();
+		assertItemMatches(marker);
+
+		marker.setAttributes(new String[] { IMarker.SEVERITY,
+				IMarker.LINE_NUMBER, IMarker.MESSAGE }, new Object[] {
+				new Integer(IMarker.SEVERITY_ERROR), new Integer(7), "after" });
+		waitForUpdate();
+		assertItemMatches(marker);
+	}
+
+	/**
+	 * Assert that the attributes shown for the marker are the ones it has.
+	 * 
+	 * @param marker
+	 */
+	private void assertItemMatches(IMarker marker) {
+		MarkerItem item = view.getMarkerItem(marker);
+		assertNotNull("Marker not shown", item);
+		assertEquals(marker, item.getMarker());
+		assertEquals(marker.getAttribute(IMarker.SEVERITY, -1), item
+				.getAttributeValue(IMarker.SEVERITY, -1));
+		assertEquals(marker.getAttribute(IMarker.LINE_NUMBER, -1), item
+				.getAttributeValue(IMarker.LINE_NUMBER, -1));
+		assertEquals(marker.getAttribute(IMarker.MESSAGE, ""), item
+				.getAttributeValue(IMarker.MESSAGE, ""));
+	}
+
+	public void testChangeMovesCategory() throws CoreException {
+		IMarker error = createMarker(IMarker.SEVERITY_ERROR, "error");
+		IMarker warning = createMarker(IMarker.SEVERITY_WARNING,
+				"becomes an error");
+		waitForUpdate();
+		String errors = getCategory(error);
+		assertFalse(errors.equals(getCategory(warning)));
+		int[] before = view.getMarkerCounts();
+
+		warning.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+		waitForUpdate();
+		assertEquals(errors, getCategory(warning));
+		int[] after = view.getMarkerCounts();
+		assertEquals(before[0] + 1, after[0]);
+		assertEquals(before[1] - 1, after[1]);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 IBM Corporation and others.
+ * Copyright (c) 2008, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -48,6 +48,22 @@ public class MarkerSortUtilTest extends UITestCase {
 	public void testCompleteSort() {
 		sortToLimit(ARRAYSIZE,ARRAYSIZE);
 	}
+
+	public void testVisibleRowsSort() {
+		sortToLimit(ARRAYSIZE,100);
+	}
+	public void testSortWhileInterrupted() {
+		// the parallel sort gets interrupted and falls back to sorting in
+		// the calling thread
+		Thread.currentThread().interrupt();
+		try {
+			sortToLimit(ARRAYSIZE, 100);
+			assertTrue("Interrupt lost", Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
 	/**
 	 * 
 	 */
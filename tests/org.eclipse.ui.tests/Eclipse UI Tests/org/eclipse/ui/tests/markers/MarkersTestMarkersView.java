@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2008 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,8 @@ package org.eclipse.ui.tests.markers;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.jobs.IJobChangeListener;
@@ -22,6 +24,7 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.swt.widgets.TreeColumn;
 import org.eclipse.ui.internal.views.markers.ExtendedMarkersView;
+import org.eclipse.ui.views.markers.MarkerItem;
 import org.eclipse.ui.views.markers.MarkerSupportView;
 import org.eclipse.ui.views.markers.internal.MarkerSupportRegistry;
 
@@ -72,6 +75,115 @@ public class MarkersTestMarkersView extends MarkerSupportView {
 		return new IMarker[0];
 	}
 
+	/**
+	 * Get the markers shown in each category.
+	 * 
+	 * @return Map of category name to {@link IMarker}[]
+	 */
+	public Map getMarkersByCategory() {
+		Map result = new HashMap();
+		Object markers = invoke(ExtendedMarkersView.class, this,
+				"getActiveViewerInputClone");
+		if (markers == null) {
+			return result;
+		}
+		Object[] categories = (Object[]) invoke(markers.getClass(), markers,
+				"getCategories");
+		if (categories == null) {
+			return result;
+		}
+		for (int i = 0; i < categories.length; i++) {
+			MarkerItem[] children = (MarkerItem[]) invoke(categories[i]
+					.getClass(), categories[i], "getChildren");
+			IMarker[] categoryMarkers = new IMarker[children.length];
+			for (int j = 0; j < children.length; j++) {
+				categoryMarkers[j] = children[j].getMarker();
+			}
+			result.put(invoke(categories[i].getClass(), categories[i],
+					"getName"), categoryMarkers);
+		}
+		return result;
+	}
+
+	/**
+	 * Get the number of markers shown for each severity.
+	 * 
+	 * @return int[] the number of errors, warnings, infos and others
+	 */
+	public int[] getMarkerCounts() {
+		Object markers = invoke(ExtendedMarkersView.class, this,
+				"getActiveViewerInputClone");
+		if (markers == null) {
+			return new int[4];
+		}
+		Integer[] counts = (Integer[]) invoke(markers.getClass(), markers,
+				"getMarkerCounts");
+		int[] result = new int[counts.length];
+		for (int i = 0; i < counts.length; i++) {
+			result[i] = counts[i].intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Get the item shown for the marker.
+	 * 
+	 * @param marker
+	 * @return MarkerItem or <code>null</code> if the marker is not shown
+	 */
+	public MarkerItem getMarkerItem(IMarker marker) {
+		Object markers = invoke(ExtendedMarkersView.class, this,
+				"getActiveViewerInputClone");
+		if (markers == null) {
+			return null;
+		}
+		return (MarkerItem) invoke(markers.getClass(), markers,
+				"getMarkerItem", new Class[] { IMarker.class },
+				new Object[] { marker });
+	}
+
+	/**
+	 * Invoke the method without arguments that is declared but not visible
+	 * in the class.
+	 * 
+	 * @param declaringClass
+	 * @param target
+	 * @param methodName
+	 * @return Object the result of the method
+	 */
+	private Object invoke(Class declaringClass, Object target,
+			String methodName) {
+		return invoke(declaringClass, target, methodName, new Class[0],
+				new Object[0]);
+	}
+
+	/**
+	 * Invoke the method that is declared but not visible in the class.
+	 * 
+	 * @param declaringClass
+	 * @param target
+	 * @param methodName
+	 * @param parameterTypes
+	 * @param arguments
+	 * @return Object the result of the method
+	 */
+	private Object invoke(Class declaringClass, Object target,
+			String methodName, Class[] parameterTypes, Object[] arguments) {
+		try {
+			Method method = declaringClass.getDeclaredMethod(methodName,
+					parameterTypes);
+			method.setAccessible(true);
+			return method.invoke(target, arguments);
+		} catch (NoSuchMethodException e) {
+			e.printStackTrace();
+		} catch (IllegalAccessException e) {
+			e.printStackTrace();
+		} catch (InvocationTargetException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
 	/**
 	 * Add a listener for the end of the update.
 	 * 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2012 IBM Corporation and others.
+ * Copyright (c) 2004, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -293,6 +293,36 @@ public final class ObjectContributionTest extends UITestCase {
 				false);
 	}
 
+	/**
+	 * Tests that the common contributions of a selection with many elements of
+	 * a few classes are the same as for a small one.
+	 */
+	public final void testLargeSelection() {
+		Object[] elements = new Object[10000];
+		for (int i = 0; i < elements.length; i++) {
+			switch (i % 4) {
+			case 0:
+				elements[i] = new ObjectContributionClasses.A();
+				break;
+			case 1:
+				elements[i] = new ObjectContributionClasses.B();
+				break;
+			case 2:
+				elements[i] = new ObjectContributionClasses.C();
+				break;
+			default:
+				elements[i] = new ObjectContributionClasses.Common();
+				break;
+			}
+		}
+		assertPopupMenus("1", new String[] { "ICommon.1" },
+				new StructuredSelection(elements), ICommon.class, true);
+
+		elements[elements.length - 1] = new Object();
+		assertPopupMenus("2", new String[] { "ICommon.1" },
+				new StructuredSelection(elements), ICommon.class, false);
+	}
+
 	/**
 	 * Helper class that will create a popup menu based on the given selection
 	 * and then ensure that the provided commandIds are added to the menu.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2006 IBM Corporation and others.
+ * Copyright (c) 2005, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,8 @@
 
 package org.eclipse.ui.tests.operations;
 
+import java.io.File;
+
 import junit.framework.TestCase;
 
 import org.eclipse.core.commands.ExecutionException;
@@ -796,4 +798,127 @@ public class OperationsAPITest extends TestCase {
 		history.removeOperationApprover(approver);
 	}
 
+	public void testMemoryLimit() throws ExecutionException {
+		DefaultOperationHistory defaultHistory = (DefaultOperationHistory) history;
+		history.dispose(IOperationHistory.GLOBAL_UNDO_CONTEXT, true, true, false);
+		IUndoableOperation small = new TestOperation("small");
+		small.addContext(contextA);
+		history.execute(small, null, null);
+		SwappableTestOperation[] ops = new SwappableTestOperation[5];
+		for (int i = 0; i < ops.length; i++) {
+			ops[i] = new SwappableTestOperation("large" + i, 1000);
+			ops[i].addContext(i % 2 == 0 ? contextA : contextB);
+			history.execute(ops[i], null, null);
+		}
+		assertEquals(5000, defaultHistory.getRetainedSize());
+		remove = 0;
+		defaultHistory.setMemoryLimit(2500);
+		// the oldest operations are removed across contexts
+		assertEquals(2000, defaultHistory.getRetainedSize());
+		assertEquals(3, remove);
+		assertSame(ops[4], history.getUndoOperation(contextA));
+		assertEquals(1, history.getUndoHistory(contextB).length);
+		// operations without a size are kept
+		assertEquals(2, history.getUndoHistory(contextA).length);
+		assertSame(small, history.getUndoHistory(contextA)[0]);
+
+		// the most recent operation is always kept
+		defaultHistory.setMemoryLimit(1);
+		assertEquals(1000, defaultHistory.getRetainedSize());
+		assertSame(ops[4], history.getUndoOperation(contextA));
+		history.undo(contextA, null, null);
+		assertSame(ops[4], history.getRedoOperation(contextA));
+		assertEquals(1000, defaultHistory.getRetainedSize());
+		defaultHistory.setMemoryLimit(0);
+	}
+
+	public void testMemoryLimitNotifiesOutsideLock() throws Exception {
+		final DefaultOperationHistory defaultHistory = (DefaultOperationHistory) history;
+		history.dispose(IOperationHistory.GLOBAL_UNDO_CONTEXT, true, true, false);
+		for (int i = 0; i < 3; i++) {
+			IUndoableOperation op = new SwappableTestOperation("large" + i, 1000);
+			op.addContext(contextA);
+			history.execute(op, null, null);
+		}
+		// a listener of a removal that waits for another thread changing the
+		// history must not dead lock
+		final boolean[] added = new boolean[1];
+		IOperationHistoryListener listener = new IOperationHistoryListener() {
+			public void historyNotification(OperationHistoryEvent event) {
+				if (event.getEventType() != OperationHistoryEvent.OPERATION_REMOVED
+						|| added[0]) {
+					return;
+				}
+				Thread thread = new Thread() {
+					public void run() {
+						IUndoableOperation op = new TestOperation("small");
+						op.addContext(contextB);
+						history.add(op);
+						added[0] = true;
+					}
+				};
+				thread.start();
+				try {
+					thread.join(5000);
+				} catch (InterruptedException e) {
+					// fall through, the assertion fails
+				}
+			}
+		};
+		history.addOperationHistoryListener(listener);
+		try {
+			defaultHistory.setMemoryLimit(1500);
+			assertTrue("History was locked while notifying", added[0]);
+			assertEquals(1000, defaultHistory.getRetainedSize());
+			assertEquals(1, history.getUndoHistory(contextB).length);
+		} finally {
+			history.removeOperationHistoryListener(listener);
+			defaultHistory.setMemoryLimit(0);
+		}
+	}
+
+	public void testSwapOperations() throws Exception {
+		DefaultOperationHistory defaultHistory = (DefaultOperationHistory) history;
+		File directory = File.createTempFile("undo", null);
+		directory.delete();
+		directory.mkdir();
+		try {
+			history.dispose(IOperationHistory.GLOBAL_UNDO_CONTEXT, true, true, false);
+			defaultHistory.setSwapDirectory(directory);
+			defaultHistory.setMemoryLimit(2500);
+			SwappableTestOperation[] ops = new SwappableTestOperation[4];
+			for (int i = 0; i < ops.length; i++) {
+				ops[i] = new SwappableTestOperation("large" + i, 1000);
+				ops[i].addContext(contextA);
+				history.execute(ops[i], null, null);
+			}
+			assertTrue(ops[0].isSwappedOut());
+			assertTrue(ops[1].isSwappedOut());
+			assertFalse(ops[2].isSwappedOut());
+			assertEquals(2000, defaultHistory.getRetainedSize());
+			assertEquals(2, directory.list().length);
+			assertEquals(4, history.getUndoHistory(contextA).length);
+
+			history.undoOperation(ops[1], null, null);
+			assertFalse(ops[1].isSwappedOut());
+			assertTrue(ops[1].isIntact());
+			assertSame(ops[1], history.getRedoOperation(contextA));
+			// swapping in exceeded the limit again
+			assertTrue(ops[2].isSwappedOut());
+			assertEquals(2, directory.list().length);
+
+			history.dispose(contextA, true, true, false);
+			assertEquals(0, directory.list().length);
+			assertEquals(0, defaultHistory.getRetainedSize());
+		} finally {
+			defaultHistory.setMemoryLimit(0);
+			defaultHistory.setSwapDirectory(null);
+			File[] files = directory.listFiles();
+			for (int i = 0; i < files.length; i++) {
+				files[i].delete();
+			}
+			directory.delete();
+		}
+	}
+
 }
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.operations;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.eclipse.core.commands.operations.ISwappableOperation;
+
+/**
+ * A test operation holding a buffer of a given size that can be swapped out.
+ */
+public class SwappableTestOperation extends TestOperation implements
+		ISwappableOperation {
+
+	private byte[] buffer;
+
+	private final int size;
+
+	SwappableTestOperation(String label, int size) {
+		super(label);
+		this.size = size;
+		buffer = new byte[size];
+		for (int i = 0; i < size; i++) {
+			buffer[i] = (byte) i;
+		}
+	}
+
+	public long getRetainedSize() {
+		return buffer == null ? 0 : buffer.length;
+	}
+
+	public void swapOut(OutputStream out) throws IOException {
+		out.write(buffer);
+		buffer = null;
+	}
+
+	public void swapIn(InputStream in) throws IOException {
+		byte[] read = new byte[size];
+		new DataInputStream(in).readFully(read);
+		buffer = read;
+	}
+
+	boolean isSwappedOut() {
+		return buffer == null;
+	}
+
+	boolean isIntact() {
+		for (int i = 0; i < size; i++) {
+			if (buffer[i] != (byte) i) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
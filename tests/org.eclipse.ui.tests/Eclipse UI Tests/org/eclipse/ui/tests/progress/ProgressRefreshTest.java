@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.progress;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.internal.progress.JobInfo;
+import org.eclipse.ui.internal.progress.ProgressContentProvider;
+import org.eclipse.ui.internal.progress.ProgressManager;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+
+/**
+ * Tests that the changes of progress reported by running jobs are coalesced
+ * before they reach the progress viewers.
+ */
+public class ProgressRefreshTest extends UITestCase {
+
+	private static final int WORK = 300;
+
+	private static final long TIMEOUT = 5000;
+
+	/**
+	 * A job that reports progress for about one and a half seconds and then
+	 * waits until it is released.
+	 */
+	private class ReportingJob extends Job {
+
+		volatile boolean reported;
+
+		private boolean released;
+
+		ReportingJob() {
+			super("Reporting job");
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			monitor.beginTask(getName(), WORK);
+			try {
+				for (int i = 0; i < WORK; i++) {
+					monitor.worked(1);
+					Thread.sleep(5);
+				}
+				reported = true;
+				synchronized (this) {
+					long end = System.currentTimeMillis() + TIMEOUT;
+					while (!released && System.currentTimeMillis() < end) {
+						wait(50);
+					}
+				}
+			} catch (InterruptedException e) {
+				// finish the job
+			} finally {
+				monitor.done();
+			}
+			return Status.OK_STATUS;
+		}
+
+		synchronized void release() {
+			released = true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Counts the refreshes of the job's info that the progress view updater
+	 * sends to its collectors, in the UI thread.
+	 */
+	private class RefreshCollector extends ProgressContentProvider {
+
+		int refreshes;
+
+		boolean removed;
+
+		public void refresh() {
+		}
+
+		public void refresh(Object[] elements) {
+			if (containsJob(elements)) {
+				refreshes++;
+			}
+		}
+
+		public void add(Object[] elements) {
+		}
+
+		public void remove(Object[] elements) {
+			if (containsJob(elements)) {
+				removed = true;
+			}
+		}
+
+		private boolean containsJob(Object[] elements) {
+			for (int i = 0; i < elements.length; i++) {
+				if (elements[i] instanceof JobInfo
+						&& ((JobInfo) elements[i]).getJob() == job) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private ProgressManager manager;
+
+	private RefreshCollector collector;
+
+	private Job job;
+
+	public ProgressRefreshTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		manager = ProgressManager.getInstance();
+		collector = new RefreshCollector();
+	}
+
+	protected void doTearDown() throws Exception {
+		collector.dispose();
+		manager.setRefreshRate(ProgressManager.DEFAULT_REFRESH_RATE);
+		super.doTearDown();
+	}
+
+	public void testProgressChangesCoalesced() throws Exception {
+		manager.setRefreshRate(1);
+		final ReportingJob reportingJob = new ReportingJob();
+		job = reportingJob;
+		reportingJob.schedule();
+		try {
+			assertTrue("Job did not report", processEventsUntil(
+					new Condition() {
+						public boolean compute() {
+							return reportingJob.reported;
+						}
+					}, TIMEOUT));
+			// give the last queued refresh the time to run
+			processEventsUntil(null, 1200);
+
+			// the viewers alone would be refreshed about every 100ms
+			assertTrue("Not refreshed", collector.refreshes > 0);
+			assertTrue("Refreshed " + collector.refreshes + " times",
+					collector.refreshes < 6);
+		} finally {
+			reportingJob.release();
+			reportingJob.join();
+		}
+	}
+
+	public void testRemovedJobNotRefreshed() throws Exception {
+		manager.setRefreshRate(1);
+		job = new DummyJob("Short job", Status.OK_STATUS);
+		job.schedule();
+		job.join();
+
+		assertTrue("Job not removed", processEventsUntil(new Condition() {
+			public boolean compute() {
+				return collector.removed;
+			}
+		}, TIMEOUT));
+		int refreshes = collector.refreshes;
+
+		// give the refresh queued by the job the time to run
+		processEventsUntil(null, 1500);
+		assertEquals(refreshes, collector.refreshes);
+	}
+
+}
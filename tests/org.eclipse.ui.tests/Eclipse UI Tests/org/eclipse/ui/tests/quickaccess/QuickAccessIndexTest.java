@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2013 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.quickaccess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.internal.quickaccess.QuickAccessElement;
+import org.eclipse.ui.internal.quickaccess.QuickAccessIndex;
+import org.eclipse.ui.internal.quickaccess.QuickAccessProvider;
+
+/**
+ * Tests that narrowing the candidates of a {@link QuickAccessIndex} as the
+ * filter is extended finds the same elements as matching every element.
+ */
+public class QuickAccessIndexTest extends TestCase {
+
+	private static final String[] LABELS = new String[] { "Open Editor",
+			"Open Resource", "Open Type", "Outline", "Problems",
+			"Project Explorer", "Properties", "Show View", "Save All",
+			"Toggle Breakpoint", "CamelCaseLabel" };
+
+	private TestProvider provider;
+
+	private QuickAccessElement[] elements;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		provider = new TestProvider();
+		elements = provider.getElementsSorted();
+	}
+
+	public void testNarrowing() {
+		QuickAccessIndex index = new QuickAccessIndex(provider, elements);
+		String[] filters = new String[] { "o", "op", "ope", "open", "open ",
+				"open t", "open ty", "open typ" };
+		for (int i = 0; i < filters.length; i++) {
+			assertCandidates(filters[i], index);
+		}
+	}
+
+	public void testNotNarrowing() {
+		QuickAccessIndex index = new QuickAccessIndex(provider, elements);
+		assertCandidates("pro", index);
+		// does not extend the previous filter, all elements are tested again
+		assertCandidates("o", index);
+		assertCandidates("ro", index);
+		assertCandidates("", index);
+		assertCandidates("ccl", index);
+	}
+
+	public void testProviderName() {
+		QuickAccessIndex index = new QuickAccessIndex(provider, elements);
+		// matches the provider name combined with the label
+		assertCandidates("test", index);
+		assertCandidates("test p", index);
+		assertCandidates("tpro", index);
+	}
+
+	private void assertCandidates(String filter, QuickAccessIndex index) {
+		List expected = new ArrayList();
+		for (int i = 0; i < elements.length; i++) {
+			if (filter.length() == 0
+					|| elements[i].match(filter, provider) != null) {
+				expected.add(elements[i].getLabel());
+			}
+		}
+
+		int[] candidates = index.getCandidates(filter,
+				new NullProgressMonitor());
+		List actual = new ArrayList();
+		for (int i = 0; i < candidates.length; i++) {
+			actual.add(elements[candidates[i]].getLabel());
+		}
+		assertEquals(filter, expected, actual);
+	}
+
+	private static class TestElement extends QuickAccessElement {
+		private final String label;
+
+		TestElement(QuickAccessProvider provider, String label) {
+			super(provider);
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public String getId() {
+			return label;
+		}
+
+		public void execute() {
+		}
+	}
+
+	private static class TestProvider extends QuickAccessProvider {
+		private QuickAccessElement[] elements;
+
+		public String getId() {
+			return "test";
+		}
+
+		public String getName() {
+			return "Test";
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public QuickAccessElement[] getElements() {
+			if (elements == null) {
+				elements = new QuickAccessElement[LABELS.length];
+				for (int i = 0; i < LABELS.length; i++) {
+					elements[i] = new TestElement(this, LABELS[i]);
+				}
+			}
+			return elements;
+		}
+
+		public QuickAccessElement getElementForId(String id) {
+			return null;
+		}
+
+		protected void doReset() {
+			elements = null;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008 IBM Corporation and others.
+ * Copyright (c) 2008, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -49,8 +49,8 @@ public class ActiveUserSourceProvider extends AbstractSourceProvider {
 
 	public void setUsername(String name) {
 		username = name;
-		fireSourceChanged(ISources.ACTIVE_CONTEXT << 1,
-				PROVIDED_SOURCE_NAMES[0], name);
+		fireSourceChanged(ISources.ACTIVE_CONTEXT, PROVIDED_SOURCE_NAMES[0],
+				name);
 	}
 
 	/*
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2013 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,7 +15,9 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.eclipse.core.expressions.EvaluationResult;
 import org.eclipse.core.expressions.Expression;
@@ -36,6 +38,7 @@ import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.TreePath;
 import org.eclipse.jface.viewers.TreeSelection;
+import org.eclipse.ui.AbstractSourceProvider;
 import org.eclipse.ui.IPerspectiveDescriptor;
 import org.eclipse.ui.IPerspectiveRegistry;
 import org.eclipse.ui.ISources;
@@ -408,6 +411,90 @@ public class EvaluationServiceTest extends UITestCase {
 		assertEquals(3, listener.count);
 	}
 	
+	private static class LateSourceProvider extends AbstractSourceProvider {
+		static final String VARIABLE = "org.eclipse.ui.tests.services.lateVariable";
+
+		private String value;
+
+		LateSourceProvider(String value) {
+			this.value = value;
+		}
+
+		public void dispose() {
+		}
+
+		public Map getCurrentState() {
+			Map map = new HashMap();
+			map.put(VARIABLE, value);
+			return map;
+		}
+
+		public String[] getProvidedSourceNames() {
+			return new String[] { VARIABLE };
+		}
+
+		void setValue(String value) {
+			this.value = value;
+			fireSourceChanged(ISources.ACTIVE_CONTEXT, VARIABLE, value);
+		}
+	}
+
+	public void testSourceProviderAddedAfterEvaluation() throws Exception {
+		IWorkbenchWindow window = openTestWindow();
+		IEvaluationService service = (IEvaluationService) window
+				.getService(IEvaluationService.class);
+		assertNotNull(service);
+
+		MyEval listener = new MyEval();
+		UserExpression expression = new UserExpression("Paul") {
+			public void collectExpressionInfo(ExpressionInfo info) {
+				info.addVariableNameAccess(LateSourceProvider.VARIABLE);
+			}
+
+			public EvaluationResult evaluate(IEvaluationContext context) {
+				Object variable = context
+						.getVariable(LateSourceProvider.VARIABLE);
+				return lookFor.equals(variable) ? EvaluationResult.TRUE
+						: EvaluationResult.FALSE;
+			}
+		};
+		IEvaluationReference ref = service.addEvaluationListener(expression,
+				listener, IEvaluationService.RESULT);
+		assertFalse(listener.currentValue);
+		assertEquals(1, listener.count);
+		assertFalse(ref.evaluate(service.getCurrentState()));
+
+		// the variable did not exist when the expression was first evaluated,
+		// adding its provider must flip the result
+		LateSourceProvider provider = new LateSourceProvider("Paul");
+		service.addSourceProvider(provider);
+		try {
+			assertTrue(listener.currentValue);
+			assertEquals(2, listener.count);
+			assertTrue(ref.evaluate(service.getCurrentState()));
+
+			provider.setValue("John");
+			assertFalse(listener.currentValue);
+			assertEquals(3, listener.count);
+
+			// an equal value does not change the result
+			provider.setValue(new String("John"));
+			assertFalse(listener.currentValue);
+			assertEquals(3, listener.count);
+			assertFalse(ref.evaluate(service.getCurrentState()));
+
+			provider.setValue("Paul");
+			assertTrue(listener.currentValue);
+			assertEquals(4, listener.count);
+		} finally {
+			service.removeSourceProvider(provider);
+		}
+		// the variable is gone with its provider
+		assertFalse(listener.currentValue);
+		assertEquals(5, listener.count);
+		service.removeEvaluationListener(ref);
+	}
+
 	public void testSourceProviderPriority() throws Exception {
 		IHandlerService hs = (IHandlerService) getWorkbench().getService(IHandlerService.class);
 		
@@ -490,6 +577,51 @@ public class EvaluationServiceTest extends UITestCase {
 		assertEquals(2, listener.count);
 	}
 	
+	public void testPropertyChangeSharedExpression() throws Exception {
+		IWorkbenchWindow window = openTestWindow();
+		IEvaluationService service = (IEvaluationService) window
+				.getService(IEvaluationService.class);
+		assertNotNull(service);
+		IExtensionRegistry registry = Platform.getExtensionRegistry();
+		IConfigurationElement element = null;
+		IConfigurationElement[] elements = registry
+				.getConfigurationElementsFor("org.eclipse.core.expressions.definitions");
+		for (int i = 0; i < elements.length && element == null; i++) {
+			if (elements[i].getAttribute("id").equals(
+					"org.eclipse.ui.tests.defWithPropertyTester")) {
+				element = elements[i];
+			}
+		}
+
+		assertNotNull(element);
+		Expression expr = ExpressionConverter.getDefault().perform(element.getChildren()[0]);
+		StaticVarPropertyTester.result = false;
+		MyEval listener1 = new MyEval();
+		MyEval listener2 = new MyEval();
+		IEvaluationReference ref1 = service.addEvaluationListener(expr,
+				listener1, IEvaluationService.RESULT);
+		service.addEvaluationListener(expr, listener2,
+				IEvaluationService.RESULT);
+		assertEquals(1, listener1.count);
+		assertEquals(1, listener2.count);
+
+		StaticVarPropertyTester.result = true;
+		service.requestEvaluation("org.eclipse.ui.tests.class.method");
+		assertTrue(listener1.currentValue);
+		assertTrue(listener2.currentValue);
+		assertEquals(2, listener1.count);
+		assertEquals(2, listener2.count);
+
+		service.removeEvaluationListener(ref1);
+		assertEquals(3, listener1.count);
+
+		StaticVarPropertyTester.result = false;
+		service.requestEvaluation("org.eclipse.ui.tests.class.method");
+		assertEquals(3, listener1.count);
+		assertFalse(listener2.currentValue);
+		assertEquals(3, listener2.count);
+	}
+
 	public void testPlatformProperty() throws Exception {
 		IEvaluationService evaluationService = (IEvaluationService) PlatformUI
 				.getWorkbench().getService(IEvaluationService.class);